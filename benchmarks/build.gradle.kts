@@ -0,0 +1,48 @@
+plugins {
+    java
+    id("me.champeau.jmh") version "0.7.2"
+}
+
+group = "dev.user"
+version = rootProject.version
+
+dependencies {
+    // 被测代码（未重定位的插件类）
+    jmh(project(":"))
+
+    // 插件 compileOnly 的依赖，基准测试运行时需要在类路径上（服务器部分由 BukkitStub 桩替代）
+    jmh("dev.folia:folia-api:1.21.11-R0.1-SNAPSHOT")
+    jmh("de.tr7zw:item-nbt-api-plugin:2.15.5")
+    jmh("net.momirealms:craft-engine-bukkit:0.0.67")
+    jmh("net.momirealms:craft-engine-core:0.0.67")
+}
+
+repositories {
+    mavenCentral()
+    maven("https://repo.papermc.io/repository/maven-public/")
+    maven("https://jitpack.io")
+    maven("https://repo.codemc.io/repository/maven-public/")
+    maven("https://repo.momirealms.net/releases/")
+}
+
+java {
+    toolchain {
+        languageVersion = JavaLanguageVersion.of(21)
+    }
+}
+
+jmh {
+    jmhVersion.set("1.37")
+    // 预热/迭代次数由各套件的注解控制
+    // 导出 JSON 结果，用于版本间回归对比
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+    // 只运行部分套件：./gradlew :benchmarks:jmh -Pjmh.includes=TaskMatching
+    if (project.hasProperty("jmh.includes")) {
+        includes.set(listOf(project.property("jmh.includes").toString()))
+    }
+}
+
+tasks.withType<JavaCompile> {
+    options.encoding = "UTF-8"
+}
@@ -0,0 +1,49 @@
+package dev.user.simpletask.benchmark;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+
+import java.lang.reflect.Proxy;
+import java.util.logging.Logger;
+
+/**
+ * 无服务器环境下的 Bukkit 桩
+ * 只提供日志和版本信息，其余方法返回默认值，保证被测代码可以在 JMH 进程中加载
+ */
+public final class BukkitStub {
+
+    private static final Logger LOGGER = Logger.getLogger("SimpleTaskBenchmark");
+
+    private BukkitStub() {}
+
+    public static synchronized void install() {
+        if (Bukkit.getServer() != null) return;
+
+        Server server = (Server) Proxy.newProxyInstance(
+            BukkitStub.class.getClassLoader(),
+            new Class<?>[]{Server.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "getLogger" -> LOGGER;
+                case "getName" -> "BenchmarkServer";
+                case "getVersion", "getBukkitVersion", "getMinecraftVersion" -> "headless";
+                case "isPrimaryThread" -> true;
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                case "toString" -> "BukkitStub";
+                default -> defaultValue(method.getReturnType());
+            });
+        Bukkit.setServer(server);
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) return null;
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0F;
+        if (type == double.class) return 0D;
+        if (type == byte.class) return (byte) 0;
+        if (type == short.class) return (short) 0;
+        return 0;
+    }
+}
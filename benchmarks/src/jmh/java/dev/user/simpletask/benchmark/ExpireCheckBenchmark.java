@@ -0,0 +1,70 @@
+package dev.user.simpletask.benchmark;
+
+import dev.user.simpletask.task.ExpirePolicyConfig;
+import dev.user.simpletask.util.ExpireUtil;
+import dev.user.simpletask.util.TimeUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定时过期检查：对所有在线玩家的任务调用 ExpireUtil.isExpired
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpireCheckBenchmark {
+
+    @Param({"1", "50", "500"})
+    public int players;
+
+    @Param({"5"})
+    public int tasksPerPlayer;
+
+    @Param({"DAILY", "WEEKLY", "MONTHLY", "RELATIVE"})
+    public String policy;
+
+    /** 已过期任务的比例 */
+    @Param({"0.0", "0.5"})
+    public double expiredRatio;
+
+    private ExpirePolicyConfig config;
+    private LocalDateTime[] assignedAt;
+
+    @Setup
+    public void setup() {
+        config = switch (policy) {
+            case "WEEKLY" -> ExpirePolicyConfig.weekly(DayOfWeek.MONDAY, LocalTime.of(4, 0));
+            case "MONTHLY" -> ExpirePolicyConfig.monthly(1, LocalTime.of(4, 0));
+            case "RELATIVE" -> ExpirePolicyConfig.relative(Duration.ofHours(12));
+            default -> ExpirePolicyConfig.daily(LocalTime.of(4, 0));
+        };
+
+        Random random = new Random(Fixtures.SEED);
+        LocalDateTime now = TimeUtil.nowTruncated();
+        assignedAt = new LocalDateTime[players * tasksPerPlayer];
+        for (int i = 0; i < assignedAt.length; i++) {
+            // 过期的任务分配在 40 天前，未过期的分配在当前时刻
+            assignedAt[i] = random.nextDouble() < expiredRatio ? now.minusDays(40) : now;
+        }
+    }
+
+    @Benchmark
+    public int checkAll() {
+        int expired = 0;
+        for (LocalDateTime time : assignedAt) {
+            if (ExpireUtil.isExpired(time, config)) {
+                expired++;
+            }
+        }
+        return expired;
+    }
+}
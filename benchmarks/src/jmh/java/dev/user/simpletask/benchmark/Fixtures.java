@@ -0,0 +1,82 @@
+package dev.user.simpletask.benchmark;
+
+import dev.user.simpletask.task.Reward;
+import dev.user.simpletask.task.TaskTemplate;
+import dev.user.simpletask.task.TaskType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试数据生成
+ * 固定随机种子，保证不同版本之间的结果可比较
+ */
+final class Fixtures {
+
+    static final long SEED = 20260101L;
+
+    /** 各类型在模板中的分布，与常见配置接近 */
+    private static final TaskType[] TYPES = {
+        TaskType.BREAK, TaskType.BREAK, TaskType.HARVEST, TaskType.KILL,
+        TaskType.CRAFT, TaskType.FISH, TaskType.CHAT, TaskType.COMMAND
+    };
+
+    private static final String[] BLOCKS = {
+        "minecraft:stone", "minecraft:diamond_ore", "minecraft:oak_log", "minecraft:carrots",
+        "minecraft:potatoes", "minecraft:wheat", "minecraft:cocoa", "minecraft:sugar_cane",
+        "minecraft:cactus", "minecraft:iron_ore", "minecraft:coal_ore", "minecraft:beetroots"
+    };
+
+    private Fixtures() {}
+
+    static List<TaskTemplate> templates(int count) {
+        Random random = new Random(SEED);
+        List<TaskTemplate> templates = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            TaskType type = TYPES[i % TYPES.length];
+            List<String> targets = new ArrayList<>();
+            targets.add(target(type, i));
+            if (i % 3 == 0) {
+                targets.add(target(type, i + 7));
+            }
+            Reward reward = new Reward(10 + random.nextInt(90), null, List.of("say done " + i));
+            TaskTemplate template = new TaskTemplate("task_" + i, "任务 " + i, type, targets,
+                1 + random.nextInt(64), List.of("描述 " + i, "第二行"), "minecraft:paper",
+                1 + random.nextInt(100), reward);
+            template.setCategory(i % 2 == 0 ? "daily" : "weekly");
+            templates.add(template);
+        }
+        return templates;
+    }
+
+    /**
+     * 与模板匹配的输入（命中）
+     */
+    static String hitKey(TaskTemplate template) {
+        String target = template.getTargetItem();
+        return switch (template.getType()) {
+            // 方块/作物类型走标准化匹配（去前缀、单复数）
+            case BREAK, HARVEST -> target.replace("minecraft:", "");
+            case CHAT -> "hello " + target + " world";
+            case COMMAND -> target + " arg";
+            default -> target;
+        };
+    }
+
+    /**
+     * 与任何模板都不匹配的输入（未命中）
+     */
+    static String missKey(int i) {
+        return "minecraft:nonexistent_" + i;
+    }
+
+    private static String target(TaskType type, int i) {
+        return switch (type) {
+            case BREAK, HARVEST -> BLOCKS[i % BLOCKS.length];
+            case CHAT -> "keyword" + (i % 50);
+            case COMMAND -> "/spawn" + (i % 20);
+            default -> "minecraft:item_" + (i % 200);
+        };
+    }
+}
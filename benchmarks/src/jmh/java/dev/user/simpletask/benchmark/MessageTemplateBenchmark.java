@@ -0,0 +1,54 @@
+package dev.user.simpletask.benchmark;
+
+import dev.user.simpletask.util.MessageTemplate;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进度里程碑消息：每次解析 + replaceText 与预编译模板填充的对比
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageTemplateBenchmark {
+
+    private static final String MESSAGE = "<gold>[任务系统] <reset><gray>任务 <yellow>{task_name} <gray>进度: " +
+        "<yellow>{progress}/{target} <gray>({percent}%)";
+
+    private final MiniMessage miniMessage = MiniMessage.miniMessage();
+    private MessageTemplate template;
+    private Map<String, Component> placeholders;
+
+    @Setup
+    public void setup() {
+        template = MessageTemplate.compile(MESSAGE);
+        placeholders = Map.of(
+            "task_name", miniMessage.deserialize("<green>挖掘钻石"),
+            "progress", Component.text(16),
+            "target", Component.text(32),
+            "percent", Component.text(50)
+        );
+    }
+
+    @Benchmark
+    public Component parseAndReplace() {
+        Component component = miniMessage.deserialize(MESSAGE);
+        for (Map.Entry<String, Component> entry : placeholders.entrySet()) {
+            String placeholder = "{" + entry.getKey() + "}";
+            component = component.replaceText(builder -> builder.matchLiteral(placeholder).replacement(entry.getValue()));
+        }
+        return component;
+    }
+
+    @Benchmark
+    public Component compiledTemplate() {
+        return template.render(placeholders);
+    }
+}
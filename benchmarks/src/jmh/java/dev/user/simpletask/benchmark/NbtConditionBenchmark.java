@@ -0,0 +1,74 @@
+package dev.user.simpletask.benchmark;
+
+import dev.user.simpletask.util.ItemUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * NBT 条件解析与比较
+ * 物品组件读取依赖服务器实现，这里用 Map 模拟路径取值，只测量插件自身的解析和比较开销
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NbtConditionBenchmark {
+
+    /** 条件命中的比例 */
+    @Param({"0.0", "0.5", "1.0"})
+    public double hitRatio;
+
+    private static final int INPUTS = 1024;
+
+    private static final String[] CONDITIONS = {
+        "minecraft:custom_name+\"§6传说之剑\"",
+        "minecraft:enchantments.levels.minecraft:sharpness>=3",
+        "minecraft:damage<10",
+        "minecraft:custom_data.rarity+exists",
+        "minecraft:custom_data.tier>2"
+    };
+
+    private String[] conditions;
+    private Function<String, Object>[] lookups;
+    private int cursor;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        BukkitStub.install();
+        Map<String, Object> hit = new HashMap<>();
+        hit.put("minecraft:custom_name", "§6传说之剑");
+        hit.put("minecraft:enchantments.levels.minecraft:sharpness", 5);
+        hit.put("minecraft:damage", 3);
+        hit.put("minecraft:custom_data.rarity", "epic");
+        hit.put("minecraft:custom_data.tier", 4);
+
+        Map<String, Object> miss = new HashMap<>();
+        miss.put("minecraft:custom_name", "普通的剑");
+        miss.put("minecraft:enchantments.levels.minecraft:sharpness", 1);
+        miss.put("minecraft:damage", 50);
+        miss.put("minecraft:custom_data.tier", 1);
+
+        Random random = new Random(Fixtures.SEED);
+        conditions = new String[INPUTS];
+        lookups = new Function[INPUTS];
+        for (int i = 0; i < INPUTS; i++) {
+            conditions[i] = CONDITIONS[i % CONDITIONS.length];
+            lookups[i] = random.nextDouble() < hitRatio ? hit::get : miss::get;
+        }
+    }
+
+    @Benchmark
+    public void matchesNbtCondition(Blackhole bh) {
+        int index = cursor++ & (INPUTS - 1);
+        bh.consume(ItemUtil.matchesNbtCondition(conditions[index], lookups[index]));
+    }
+}
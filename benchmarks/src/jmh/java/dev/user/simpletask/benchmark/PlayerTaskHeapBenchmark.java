@@ -0,0 +1,87 @@
+package dev.user.simpletask.benchmark;
+
+import dev.user.simpletask.task.PlayerTask;
+import dev.user.simpletask.task.TaskTemplate;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 任务缓存的常驻内存：按数据库加载的方式（每行新的 String / LocalDateTime）构建玩家任务列表，
+ * 在 GC 前后比较堆占用，结果以 bytesPerPlayer 辅助计数输出
+ *
+ * 比较改动前后：在旧版本上运行同一个类（只依赖 PlayerTask 公共构造方法）
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class PlayerTaskHeapBenchmark {
+
+    @Param({"1000", "10000"})
+    public int players;
+
+    @Param({"10"})
+    public int tasksPerPlayer;
+
+    private List<TaskTemplate> templates;
+    private List<List<PlayerTask>> cache;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Heap {
+        public long bytesPerPlayer;
+    }
+
+    @Setup
+    public void setup() {
+        BukkitStub.install();
+        templates = Fixtures.templates(100);
+    }
+
+    @TearDown(Level.Iteration)
+    public void release() {
+        cache = null;
+    }
+
+    @Benchmark
+    public List<List<PlayerTask>> loadPlayers(Heap heap) {
+        long before = usedHeap();
+
+        List<List<PlayerTask>> players = new ArrayList<>(this.players);
+        LocalDateTime base = LocalDateTime.of(2026, 1, 1, 4, 0);
+        for (int p = 0; p < this.players; p++) {
+            UUID uuid = UUID.randomUUID();
+            List<PlayerTask> tasks = new ArrayList<>(tasksPerPlayer);
+            for (int t = 0; t < tasksPerPlayer; t++) {
+                TaskTemplate template = templates.get((p + t) % templates.size());
+                // 模拟 ResultSet 读出的新对象
+                String taskKey = new String(template.getTaskKey());
+                String category = new String(template.getCategory());
+                LocalDateTime assignedAt = base.plusSeconds(p * 31L + t);
+                tasks.add(new PlayerTask(uuid, taskKey, template, t, false, false, assignedAt, category));
+            }
+            players.add(tasks);
+        }
+        cache = players;
+
+        heap.bytesPerPlayer = (usedHeap() - before) / this.players;
+        return players;
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,49 @@
+package dev.user.simpletask.benchmark;
+
+import dev.user.simpletask.task.PlayerTask;
+import dev.user.simpletask.task.Reward;
+import dev.user.simpletask.task.TaskTemplate;
+import dev.user.simpletask.task.TaskType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多个区域线程同时为同一任务预留进度：状态字 CAS 的争用开销
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProgressReservationBenchmark {
+
+    private PlayerTask task;
+
+    @Setup
+    public void setup() {
+        TaskTemplate template = new TaskTemplate("task_0", "任务 0", TaskType.BREAK, List.of("minecraft:stone"),
+            Integer.MAX_VALUE, List.of("描述"), "minecraft:paper", 1, new Reward(10, null, List.of()));
+        task = new PlayerTask(UUID.randomUUID(), template.getTaskKey(), template, "daily");
+    }
+
+    /** 预留后立即释放（写入未命中），状态字保持稳定 */
+    @Benchmark
+    @Threads(1)
+    public int reserveRelease() {
+        int reserved = task.reserveProgress(1);
+        task.releaseProgress(reserved);
+        return reserved;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int reserveReleaseContended() {
+        int reserved = task.reserveProgress(1);
+        task.releaseProgress(reserved);
+        return reserved;
+    }
+}
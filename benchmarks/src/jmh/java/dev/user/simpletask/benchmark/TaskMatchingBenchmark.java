@@ -0,0 +1,68 @@
+package dev.user.simpletask.benchmark;
+
+import dev.user.simpletask.task.TaskTemplate;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 事件分发时的任务匹配：一个事件输入对所有模板调用 matchesTarget
+ * BREAK/HARVEST 模板会经过 normalizeBlockOrItemId 标准化
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskMatchingBenchmark {
+
+    /** 同时激活的模板数量 */
+    @Param({"10", "100", "1000", "10000"})
+    public int templateCount;
+
+    /** 输入命中模板的比例 */
+    @Param({"0.0", "0.1", "0.5", "1.0"})
+    public double hitRatio;
+
+    private static final int INPUTS = 1024;
+
+    private List<TaskTemplate> templates;
+    private String[] inputs;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        BukkitStub.install();
+        templates = Fixtures.templates(templateCount);
+        Random random = new Random(Fixtures.SEED);
+        inputs = new String[INPUTS];
+        for (int i = 0; i < INPUTS; i++) {
+            inputs[i] = random.nextDouble() < hitRatio
+                ? Fixtures.hitKey(templates.get(random.nextInt(templates.size())))
+                : Fixtures.missKey(i);
+        }
+    }
+
+    @Benchmark
+    public int matchAllTemplates() {
+        String input = inputs[cursor++ & (INPUTS - 1)];
+        int matched = 0;
+        for (TaskTemplate template : templates) {
+            if (template.matchesTarget(input, null)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    @Benchmark
+    public void matchSingle(Blackhole bh) {
+        int index = cursor++ & (INPUTS - 1);
+        TaskTemplate template = templates.get(index % templates.size());
+        bh.consume(template.matchesTarget(inputs[index], null));
+    }
+}
@@ -0,0 +1,47 @@
+package dev.user.simpletask.benchmark;
+
+import dev.user.simpletask.task.TaskTemplate;
+import dev.user.simpletask.task.manager.TaskGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按权重随机选择任务：模拟重置时为一批在线玩家生成任务
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskSelectionBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int templateCount;
+
+    /** 同时生成任务的玩家数量 */
+    @Param({"1", "50", "500"})
+    public int players;
+
+    /** 每个玩家选择的任务数（max-concurrent） */
+    @Param({"5"})
+    public int perPlayer;
+
+    private List<TaskTemplate> templates;
+
+    @Setup
+    public void setup() {
+        BukkitStub.install();
+        templates = Fixtures.templates(templateCount);
+    }
+
+    @Benchmark
+    public void selectForPlayers(Blackhole bh) {
+        for (int i = 0; i < players; i++) {
+            bh.consume(TaskGenerator.selectRandomTasksFromList(templates, perPlayer));
+        }
+    }
+}
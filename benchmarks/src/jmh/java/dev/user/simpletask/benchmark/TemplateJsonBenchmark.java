@@ -0,0 +1,60 @@
+package dev.user.simpletask.benchmark;
+
+import dev.user.simpletask.task.TaskTemplate;
+import dev.user.simpletask.task.TemplateSnapshot;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 模板 JSON 序列化：玩家任务加载（fromJson）和任务分配写库（toJson）
+ * 以及启动时读取二进制快照（snapshotDecode）与逐条解析 JSON 的对比
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateJsonBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int templateCount;
+
+    private List<TaskTemplate> templates;
+    private String[] json;
+    private byte[] snapshot;
+
+    @Setup
+    public void setup() throws IOException {
+        BukkitStub.install();
+        templates = Fixtures.templates(templateCount);
+        json = new String[templateCount];
+        for (int i = 0; i < templateCount; i++) {
+            json[i] = templates.get(i).toJson();
+        }
+        snapshot = TemplateSnapshot.encode(templates);
+    }
+
+    @Benchmark
+    public void toJson(Blackhole bh) {
+        for (TaskTemplate template : templates) {
+            bh.consume(template.toJson());
+        }
+    }
+
+    @Benchmark
+    public void fromJson(Blackhole bh) {
+        for (String s : json) {
+            bh.consume(TaskTemplate.fromJson(s));
+        }
+    }
+
+    @Benchmark
+    public List<TaskTemplate> snapshotDecode() throws IOException {
+        return TemplateSnapshot.decode(snapshot);
+    }
+}
@@ -44,6 +44,25 @@ java {
     }
 }
 
+// 负载模拟器（不打包进插件 JAR）
+val simulator by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations {
+    named("simulatorImplementation") {
+        extendsFrom(configurations.implementation.get())
+    }
+}
+
+dependencies {
+    // 模拟器运行时需要 Bukkit API；CraftEngine 不加入，插件按未安装处理
+    // 经济使用内存后端，不需要 XConomy
+    "simulatorImplementation"("dev.folia:folia-api:1.21.11-R0.1-SNAPSHOT")
+    "simulatorImplementation"("de.tr7zw:item-nbt-api-plugin:2.15.5")
+}
+
 tasks {
     shadowJar {
         archiveClassifier.set("")
@@ -73,4 +92,22 @@ tasks {
     compileJava {
         options.encoding = "UTF-8"
     }
+
+    named<JavaCompile>("compileSimulatorJava") {
+        options.encoding = "UTF-8"
+    }
+
+    // ./gradlew simulate -Psim.args="--players 500 --duration 120"
+    register<JavaExec>("simulate") {
+        group = "verification"
+        description = "Runs the headless progress pipeline load simulator against embedded H2"
+        classpath = simulator.runtimeClasspath
+        mainClass.set("dev.user.simpletask.simulator.LoadSimulator")
+        val simArgs = project.findProperty("sim.args")?.toString()
+        if (!simArgs.isNullOrBlank()) {
+            args(simArgs.trim().split(Regex("\\s+")))
+        }
+        workingDir = layout.buildDirectory.dir("simulator").get().asFile
+        doFirst { workingDir.mkdirs() }
+    }
 }
@@ -1 +1,4 @@
 rootProject.name = "SimpleTask"
+
+// JMH 基准测试（不参与插件打包）
+include("benchmarks")
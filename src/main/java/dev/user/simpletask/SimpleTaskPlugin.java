@@ -11,12 +11,19 @@ import dev.user.simpletask.economy.EconomyManager;
 import dev.user.simpletask.gui.GUIManager;
 import dev.user.simpletask.listener.GUIListener;
 import dev.user.simpletask.listener.TaskListener;
+import dev.user.simpletask.metrics.MetricsServer;
+import dev.user.simpletask.metrics.PluginMetrics;
+import dev.user.simpletask.profiling.ProfilingManager;
 import dev.user.simpletask.task.TaskManager;
 import dev.user.simpletask.util.ExpireUtil;
 import dev.user.simpletask.util.ItemUtil;
 import dev.user.simpletask.util.TimeZoneConfig;
+import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.logging.Level;
 
 public class SimpleTaskPlugin extends JavaPlugin {
@@ -30,44 +37,28 @@ public class SimpleTaskPlugin extends JavaPlugin {
     private TaskManager taskManager;
     private GUIManager guiManager;
     private AntiCheatManager antiCheatManager;
+    private ProfilingManager profilingManager;
+    private PluginMetrics metrics;
+    private MetricsServer metricsServer;
 
-    @Override
-    public void onEnable() {
-        instance = this;
-
-        // Save default config
-        saveDefaultConfig();
-
-        // Initialize configuration
-        this.configManager = new ConfigManager(this);
-
-        // Initialize ItemUtil
-        ItemUtil.init(this);
+    public SimpleTaskPlugin() {
+        super();
+    }
 
-        // Initialize TimeZoneConfig (统一时区管理)
-        TimeZoneConfig.initialize(this);
+    /**
+     * 无服务器环境使用的构造器（负载模拟器），正常加载插件时不会调用
+     */
+    @SuppressWarnings("removal")
+    protected SimpleTaskPlugin(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+        super(loader, description, dataFolder, file);
+    }
 
-        // Initialize database
-        try {
-            this.databaseManager = new DatabaseManager(this);
-            if (!this.databaseManager.init()) {
-                getLogger().severe("Database initialization failed!");
-                getServer().getPluginManager().disablePlugin(this);
-                return;
-            }
-            this.databaseQueue = new DatabaseQueue(this);
-        } catch (Exception e) {
-            getLogger().log(Level.SEVERE, "Failed to initialize database", e);
-            getServer().getPluginManager().disablePlugin(this);
+    @Override
+    public void onEnable() {
+        if (!enableCore()) {
             return;
         }
 
-        // Initialize economy manager
-        this.economyManager = new EconomyManager(this);
-
-        // Initialize task manager
-        this.taskManager = new TaskManager(this);
-
         // Load tasks for all online players (handles plugin reloads)
         loadOnlinePlayerTasks();
 
@@ -77,6 +68,12 @@ public class SimpleTaskPlugin extends JavaPlugin {
         // Initialize anti-cheat manager
         this.antiCheatManager = new AntiCheatManager(this);
 
+        // Initialize JFR profiling (events stay disabled until /taskadmin profile start)
+        this.profilingManager = new ProfilingManager(this);
+
+        // Start Prometheus metrics endpoint if enabled
+        startMetricsServer();
+
         // Register listeners
         getServer().getPluginManager().registerEvents(new GUIListener(guiManager), this);
         getServer().getPluginManager().registerEvents(new TaskListener(this), this);
@@ -106,19 +103,89 @@ public class SimpleTaskPlugin extends JavaPlugin {
         getLogger().info("SimpleTask has been enabled!");
     }
 
+    /**
+     * 初始化核心组件（配置、数据库、经济、任务管理），不注册监听器和命令
+     * 负载模拟器只调用这一部分
+     *
+     * @return 是否初始化成功
+     */
+    protected boolean enableCore() {
+        instance = this;
+
+        // Save default config
+        saveDefaultConfig();
+
+        // Initialize configuration
+        this.configManager = new ConfigManager(this);
+
+        // Initialize ItemUtil
+        ItemUtil.init(this);
+
+        // Initialize TimeZoneConfig (统一时区管理)
+        TimeZoneConfig.initialize(this);
+
+        // Initialize database
+        try {
+            this.databaseManager = new DatabaseManager(this);
+            if (!this.databaseManager.init()) {
+                getLogger().severe("Database initialization failed!");
+                getServer().getPluginManager().disablePlugin(this);
+                return false;
+            }
+            this.databaseQueue = new DatabaseQueue(this);
+        } catch (Exception e) {
+            getLogger().log(Level.SEVERE, "Failed to initialize database", e);
+            getServer().getPluginManager().disablePlugin(this);
+            return false;
+        }
+
+        // Initialize economy manager
+        this.economyManager = createEconomyManager();
+
+        // Initialize metrics counters (used by the progress hot path)
+        this.metrics = new PluginMetrics();
+
+        // Initialize task manager
+        this.taskManager = new TaskManager(this);
+
+        return true;
+    }
+
+    /**
+     * 创建经济管理器（默认使用 XConomy，模拟器中可替换为内存后端）
+     */
+    protected EconomyManager createEconomyManager() {
+        return new EconomyManager(this);
+    }
+
     @Override
     public void onDisable() {
+        if (profilingManager != null) {
+            profilingManager.shutdown();
+        }
+        if (metricsServer != null) {
+            metricsServer.stop();
+        }
+
         // 1. 先保存所有玩家任务数据（在数据库队列关闭前）
         if (taskManager != null) {
             taskManager.shutdown();
         }
 
-        // 2. 关闭数据库队列
+        // 2. 提交尚未执行的经济操作
+        if (economyManager != null) {
+            economyManager.shutdown();
+        }
+
+        // 3. 关闭数据库队列
         if (databaseQueue != null) {
             databaseQueue.shutdown();
         }
+        if (taskManager != null) {
+            taskManager.closeProgressJournal();
+        }
 
-        // 3. 关闭数据库连接
+        // 4. 关闭数据库连接
         if (databaseManager != null) {
             databaseManager.close();
         }
@@ -158,6 +225,31 @@ public class SimpleTaskPlugin extends JavaPlugin {
         return antiCheatManager;
     }
 
+    public ProfilingManager getProfilingManager() {
+        return profilingManager;
+    }
+
+    public PluginMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 启动指标端点（配置 metrics.enabled），端口占用等错误只记录日志，不影响插件运行
+     */
+    private void startMetricsServer() {
+        if (!configManager.isMetricsEnabled()) {
+            return;
+        }
+        MetricsServer server = new MetricsServer(this);
+        try {
+            server.start(configManager.getMetricsBind(), configManager.getMetricsPort());
+            this.metricsServer = server;
+        } catch (IOException e) {
+            getLogger().log(Level.SEVERE, "Failed to start metrics endpoint", e);
+            server.stop();
+        }
+    }
+
     /**
      * 插件启动时加载所有在线玩家的任务（处理插件重载）
      */
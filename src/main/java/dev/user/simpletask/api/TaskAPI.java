@@ -3,9 +3,11 @@ package dev.user.simpletask.api;
 import dev.user.simpletask.SimpleTaskPlugin;
 import dev.user.simpletask.task.PlayerTask;
 import dev.user.simpletask.task.TaskTemplate;
+import org.bukkit.entity.Player;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * SimpleTask API
@@ -46,6 +48,18 @@ public class TaskAPI {
         return plugin.getTaskManager().getPlayerTasks(playerUuid);
     }
 
+    /**
+     * Claim every completed, unclaimed task of the player in one transaction.
+     * Rewards are merged and granted once.
+     *
+     * @param categoryId category to claim, or null for all categories
+     * @param callback   number of tasks claimed, invoked on the global region thread
+     */
+    public static void claimAllRewards(Player player, String categoryId, Consumer<Integer> callback) {
+        checkInitialized();
+        plugin.getTaskManager().claimAllRewardsAsync(player, categoryId, callback);
+    }
+
     /**
      * Check if plugin is fully initialized
      */
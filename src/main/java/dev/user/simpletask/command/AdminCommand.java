@@ -2,8 +2,11 @@ package dev.user.simpletask.command;
 
 import dev.user.simpletask.SimpleTaskPlugin;
 import dev.user.simpletask.gui.AdminTaskGUI;
+import dev.user.simpletask.gui.TaskIconCache;
+import dev.user.simpletask.profiling.ProfilingManager;
 import dev.user.simpletask.task.TaskTemplate;
 import dev.user.simpletask.task.category.TaskCategory;
+import dev.user.simpletask.task.manager.ProgressRateLimiter;
 import dev.user.simpletask.util.MessageUtil;
 import net.kyori.adventure.text.Component;
 import org.bukkit.command.Command;
@@ -12,9 +15,13 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class AdminCommand implements CommandExecutor, TabCompleter {
@@ -47,6 +54,7 @@ public class AdminCommand implements CommandExecutor, TabCompleter {
         switch (args[0].toLowerCase()) {
             case "reloadconfig" -> {
                 plugin.getConfigManager().reload();
+                TaskIconCache.clear();
                 MessageUtil.sendAdmin(plugin, sender, "config-reloaded");
                 return true;
             }
@@ -72,18 +80,18 @@ public class AdminCommand implements CommandExecutor, TabCompleter {
             }
             case "reroll" -> {
                 if (args.length < 3) {
-                    MessageUtil.send(plugin, sender, "<red>用法: /taskadmin reroll <分类> <玩家名/all>");
+                    MessageUtil.send(plugin, sender, "<red>用法: /taskadmin reroll <分类> <玩家名/all> [offline]");
                     return true;
                 }
-                rerollTasks(sender, args[1], args[2]);
+                rerollTasks(sender, args[1], args[2], isOfflineFlag(args));
                 return true;
             }
             case "rerollall" -> {
                 if (args.length < 3) {
-                    MessageUtil.send(plugin, sender, "<red>用法: /taskadmin rerollall <分类> <玩家名/all>");
+                    MessageUtil.send(plugin, sender, "<red>用法: /taskadmin rerollall <分类> <玩家名/all> [offline]");
                     return true;
                 }
-                rerollAllTasks(sender, args[1], args[2]);
+                rerollAllTasks(sender, args[1], args[2], isOfflineFlag(args));
                 return true;
             }
             case "assign" -> {
@@ -104,10 +112,22 @@ public class AdminCommand implements CommandExecutor, TabCompleter {
             }
             case "resetreroll" -> {
                 if (args.length < 3) {
-                    MessageUtil.send(plugin, sender, "<red>用法: /taskadmin resetreroll <分类> <玩家名/all>");
+                    MessageUtil.send(plugin, sender, "<red>用法: /taskadmin resetreroll <分类> <玩家名/all> [offline]");
                     return true;
                 }
-                resetRerollCount(sender, args[1], args[2]);
+                resetRerollCount(sender, args[1], args[2], isOfflineFlag(args));
+                return true;
+            }
+            case "stats" -> {
+                showStats(sender, args.length >= 2 && args[1].equalsIgnoreCase("reset"));
+                return true;
+            }
+            case "profile" -> {
+                if (args.length < 2) {
+                    MessageUtil.send(plugin, sender, "<red>用法: /taskadmin profile <start|stop>");
+                    return true;
+                }
+                handleProfile(sender, args[1]);
                 return true;
             }
             case "help" -> {
@@ -155,7 +175,7 @@ public class AdminCommand implements CommandExecutor, TabCompleter {
         }
 
         if (args.length == 1) {
-            String[] subCommands = {"reloadconfig", "reloadfromdb", "import", "list", "delete", "reroll", "rerollall", "assign", "remove", "resetreroll", "help"};
+            String[] subCommands = {"reloadconfig", "reloadfromdb", "import", "list", "delete", "reroll", "rerollall", "assign", "remove", "resetreroll", "stats", "profile", "help"};
             for (String sub : subCommands) {
                 if (sub.toLowerCase().startsWith(args[0].toLowerCase())) {
                     completions.add(sub);
@@ -190,6 +210,11 @@ public class AdminCommand implements CommandExecutor, TabCompleter {
                     completions.add(player.getName());
                 }
             }
+        } else if (args.length == 4 && args[2].equalsIgnoreCase("all") && (args[0].equalsIgnoreCase("reroll") || args[0].equalsIgnoreCase("rerollall") || args[0].equalsIgnoreCase("resetreroll"))) {
+            // 批量操作可选包含离线玩家
+            if ("offline".startsWith(args[3].toLowerCase())) {
+                completions.add("offline");
+            }
         } else if (args.length == 4 && args[0].equalsIgnoreCase("assign")) {
             // assign 命令的玩家名补全
             completions.add("all");
@@ -206,6 +231,16 @@ public class AdminCommand implements CommandExecutor, TabCompleter {
                     completions.add(player.getName());
                 }
             }
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("stats")) {
+            if ("reset".startsWith(args[1].toLowerCase())) {
+                completions.add("reset");
+            }
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("profile")) {
+            for (String action : new String[]{"start", "stop"}) {
+                if (action.startsWith(args[1].toLowerCase())) {
+                    completions.add(action);
+                }
+            }
         } else if (args.length == 2 && args[0].equalsIgnoreCase("import")) {
             Set<String> keys = plugin.getConfigManager().getTaskKeysFromConfig();
             for (String key : keys) {
@@ -225,6 +260,13 @@ public class AdminCommand implements CommandExecutor, TabCompleter {
         return completions;
     }
 
+    /**
+     * 批量命令的可选参数：/taskadmin <reroll|rerollall|resetreroll> <分类> all offline
+     */
+    private boolean isOfflineFlag(String[] args) {
+        return args.length >= 4 && args[2].equalsIgnoreCase("all") && args[3].equalsIgnoreCase("offline");
+    }
+
     private void listTemplatesFromConfig(CommandSender sender) {
         Set<String> configKeys = plugin.getConfigManager().getTaskKeysFromConfig();
         List<TaskTemplate> dbTemplates = List.copyOf(plugin.getTaskManager().getAllTemplates());
@@ -269,20 +311,19 @@ public class AdminCommand implements CommandExecutor, TabCompleter {
         });
     }
 
-    private void rerollAllTasks(CommandSender sender, String categoryId, String target) {
+    private void rerollAllTasks(CommandSender sender, String categoryId, String target, boolean includeOffline) {
         TaskCategory category = plugin.getConfigManager().getTaskCategory(categoryId);
         Component categoryName = category != null
             ? MessageUtil.parse(category.getDisplayName())
             : Component.text(categoryId);
 
         if (target.equalsIgnoreCase("all")) {
-            int count = plugin.getServer().getOnlinePlayers().size();
-            if (count == 0) {
+            if (!includeOffline && plugin.getServer().getOnlinePlayers().isEmpty()) {
                 MessageUtil.send(plugin, sender, "<red>当前没有在线玩家");
                 return;
             }
 
-            plugin.getTaskManager().forceRerollAllPlayerCategoryTasks(categoryId, true, success -> {
+            plugin.getTaskManager().forceRerollAllPlayerCategoryTasks(categoryId, includeOffline, true, (success, count) -> {
                 if (success) {
                     MessageUtil.sendAdminWithComponents(plugin, sender, "reroll-success-all",
                         MessageUtil.componentPlaceholders(
@@ -314,20 +355,19 @@ public class AdminCommand implements CommandExecutor, TabCompleter {
         }
     }
 
-    private void rerollTasks(CommandSender sender, String categoryId, String target) {
+    private void rerollTasks(CommandSender sender, String categoryId, String target, boolean includeOffline) {
         TaskCategory category = plugin.getConfigManager().getTaskCategory(categoryId);
         Component categoryName = category != null
             ? MessageUtil.parse(category.getDisplayName())
             : Component.text(categoryId);
 
         if (target.equalsIgnoreCase("all")) {
-            int count = plugin.getServer().getOnlinePlayers().size();
-            if (count == 0) {
+            if (!includeOffline && plugin.getServer().getOnlinePlayers().isEmpty()) {
                 MessageUtil.send(plugin, sender, "<red>当前没有在线玩家");
                 return;
             }
 
-            plugin.getTaskManager().rerollAllPlayerCategoryTasks(categoryId, true, success -> {
+            plugin.getTaskManager().rerollAllPlayerCategoryTasks(categoryId, includeOffline, true, (success, count) -> {
                 if (success) {
                     MessageUtil.sendAdminWithComponents(plugin, sender, "reroll-success-all",
                         MessageUtil.componentPlaceholders(
@@ -430,18 +470,18 @@ public class AdminCommand implements CommandExecutor, TabCompleter {
         }
     }
 
-    private void resetRerollCount(CommandSender sender, String categoryId, String target) {
+    private void resetRerollCount(CommandSender sender, String categoryId, String target, boolean includeOffline) {
         if (target.equalsIgnoreCase("all")) {
-            int count = plugin.getServer().getOnlinePlayers().size();
-            if (count == 0) {
+            if (!includeOffline && plugin.getServer().getOnlinePlayers().isEmpty()) {
                 MessageUtil.send(plugin, sender, "<red>当前没有在线玩家");
                 return;
             }
 
-            plugin.getTaskManager().resetAllPlayerCategoryRerollCount(categoryId, success -> {
+            plugin.getTaskManager().resetAllPlayerCategoryRerollCount(categoryId, includeOffline, (success, count) -> {
                 if (success) {
-                    MessageUtil.send(plugin, sender, "<green>已重置所有在线玩家 <yellow>{category}<green> 分类的刷新次数 (<yellow>{count}<green>人)",
-                        MessageUtil.textPlaceholders("category", categoryId, "count", String.valueOf(count)));
+                    MessageUtil.send(plugin, sender, "<green>已重置所有{scope}玩家 <yellow>{category}<green> 分类的刷新次数 (<yellow>{count}<green>人)",
+                        MessageUtil.textPlaceholders("scope", includeOffline ? "" : "在线",
+                            "category", categoryId, "count", String.valueOf(count)));
                 } else {
                     MessageUtil.send(plugin, sender, "<red>重置刷新次数失败，请检查数据库连接");
                 }
@@ -527,6 +567,66 @@ public class AdminCommand implements CommandExecutor, TabCompleter {
         }
     }
 
+    /**
+     * 进度限流命中统计：按规则汇总，以及命中最多的玩家
+     */
+    private void showStats(CommandSender sender, boolean reset) {
+        ProgressRateLimiter limiter = plugin.getTaskManager().getProgressManager().getRateLimiter();
+        if (reset) {
+            limiter.resetStats();
+            MessageUtil.send(plugin, sender, "<green>限流统计已清空");
+            return;
+        }
+
+        Map<String, Long> byRule = limiter.getHitsByRule();
+        if (byRule.isEmpty()) {
+            MessageUtil.send(plugin, sender, "<gray>暂无进度限流命中");
+            return;
+        }
+
+        MessageUtil.send(plugin, sender, "<gold>===== 进度限流命中 =====");
+        for (Map.Entry<String, Long> entry : byRule.entrySet()) {
+            MessageUtil.send(plugin, sender, "<yellow>" + entry.getKey() + " <gray>- <red>" + entry.getValue());
+        }
+
+        MessageUtil.send(plugin, sender, "<gold>命中最多的玩家:");
+        for (Map.Entry<UUID, Long> entry : limiter.getTopPlayers(10)) {
+            Player online = plugin.getServer().getPlayer(entry.getKey());
+            String name = online != null ? online.getName() : entry.getKey().toString();
+            MessageUtil.send(plugin, sender, "<yellow>" + name + " <gray>- <red>" + entry.getValue());
+        }
+    }
+
+    /**
+     * JFR 性能记录：start 开始，stop 写入 plugins/SimpleTask/profiles/*.jfr
+     */
+    private void handleProfile(CommandSender sender, String action) {
+        ProfilingManager profiler = plugin.getProfilingManager();
+        switch (action.toLowerCase()) {
+            case "start" -> {
+                if (profiler.start()) {
+                    MessageUtil.send(plugin, sender, "<green>性能记录已开始，使用 <yellow>/taskadmin profile stop <green>结束并保存");
+                } else {
+                    MessageUtil.send(plugin, sender, "<red>性能记录已在进行中");
+                }
+            }
+            case "stop" -> {
+                try {
+                    File file = profiler.stop();
+                    if (file == null) {
+                        MessageUtil.send(plugin, sender, "<red>当前没有进行中的性能记录");
+                    } else {
+                        MessageUtil.send(plugin, sender, "<green>性能记录已保存: <yellow>" + file.getPath());
+                    }
+                } catch (IOException e) {
+                    plugin.getLogger().log(java.util.logging.Level.SEVERE, "Failed to write JFR profile", e);
+                    MessageUtil.send(plugin, sender, "<red>保存性能记录失败: " + e.getMessage());
+                }
+            }
+            default -> MessageUtil.send(plugin, sender, "<red>用法: /taskadmin profile <start|stop>");
+        }
+    }
+
     private void reloadFromDatabase(CommandSender sender) {
         MessageUtil.send(plugin, sender, "<yellow>正在从数据库重新加载模板...");
         plugin.getTaskManager().getTemplateSyncManager().reloadFromDatabase(() -> {
@@ -550,11 +650,13 @@ public class AdminCommand implements CommandExecutor, TabCompleter {
             }
             MessageUtil.send(plugin, sender, "<yellow>/taskadmin reloadconfig <gray>- 重新加载配置文件");
             MessageUtil.send(plugin, sender, "<yellow>/taskadmin reloadfromdb <gray>- 从数据库重新加载模板");
-            MessageUtil.send(plugin, sender, "<yellow>/taskadmin reroll <分类> <玩家名/all> <gray>- 重新抽取任务(保留已完成)");
-            MessageUtil.send(plugin, sender, "<yellow>/taskadmin rerollall <分类> <玩家名/all> <gray>- 强制刷新所有任务");
+            MessageUtil.send(plugin, sender, "<yellow>/taskadmin reroll <分类> <玩家名/all> [offline] <gray>- 重新抽取任务(保留已完成)");
+            MessageUtil.send(plugin, sender, "<yellow>/taskadmin rerollall <分类> <玩家名/all> [offline] <gray>- 强制刷新所有任务");
             MessageUtil.send(plugin, sender, "<yellow>/taskadmin assign <分类> <任务key> <玩家名/all> <gray>- 给玩家添加指定任务");
             MessageUtil.send(plugin, sender, "<yellow>/taskadmin remove <分类> <任务key> <玩家名/all> <gray>- 删除玩家的指定任务");
-            MessageUtil.send(plugin, sender, "<yellow>/taskadmin resetreroll <分类> <玩家名/all> <gray>- 重置玩家刷新次数");
+            MessageUtil.send(plugin, sender, "<yellow>/taskadmin resetreroll <分类> <玩家名/all> [offline] <gray>- 重置玩家刷新次数");
+            MessageUtil.send(plugin, sender, "<yellow>/taskadmin stats [reset] <gray>- 查看进度限流命中统计");
+            MessageUtil.send(plugin, sender, "<yellow>/taskadmin profile <start|stop> <gray>- JFR 性能记录");
         } else {
             helpMessages = plugin.getConfigManager().getCommandHelpMessages("admin");
             for (String msg : helpMessages) {
@@ -562,11 +664,13 @@ public class AdminCommand implements CommandExecutor, TabCompleter {
             }
             MessageUtil.send(plugin, sender, "<yellow>/taskadmin reloadconfig <gray>- 重新加载配置文件");
             MessageUtil.send(plugin, sender, "<yellow>/taskadmin reloadfromdb <gray>- 从数据库重新加载模板");
-            MessageUtil.send(plugin, sender, "<yellow>/taskadmin reroll <分类> <玩家名/all> <gray>- 重新抽取任务");
-            MessageUtil.send(plugin, sender, "<yellow>/taskadmin rerollall <分类> <玩家名/all> <gray>- 强制刷新所有任务");
+            MessageUtil.send(plugin, sender, "<yellow>/taskadmin reroll <分类> <玩家名/all> [offline] <gray>- 重新抽取任务");
+            MessageUtil.send(plugin, sender, "<yellow>/taskadmin rerollall <分类> <玩家名/all> [offline] <gray>- 强制刷新所有任务");
             MessageUtil.send(plugin, sender, "<yellow>/taskadmin assign <分类> <任务key> <玩家名/all> <gray>- 给玩家添加指定任务");
             MessageUtil.send(plugin, sender, "<yellow>/taskadmin remove <分类> <任务key> <玩家名/all> <gray>- 删除玩家的指定任务");
-            MessageUtil.send(plugin, sender, "<yellow>/taskadmin resetreroll <分类> <玩家名/all> <gray>- 重置玩家刷新次数");
+            MessageUtil.send(plugin, sender, "<yellow>/taskadmin resetreroll <分类> <玩家名/all> [offline] <gray>- 重置玩家刷新次数");
+            MessageUtil.send(plugin, sender, "<yellow>/taskadmin stats [reset] <gray>- 查看进度限流命中统计");
+            MessageUtil.send(plugin, sender, "<yellow>/taskadmin profile <start|stop> <gray>- JFR 性能记录");
         }
     }
 }
@@ -2,10 +2,12 @@ package dev.user.simpletask.config;
 
 import dev.user.simpletask.SimpleTaskPlugin;
 import dev.user.simpletask.task.ExpirePolicy;
+import dev.user.simpletask.task.FloodPolicy;
 import dev.user.simpletask.task.Reward;
 import dev.user.simpletask.task.TaskTemplate;
 import dev.user.simpletask.task.TaskType;
 import dev.user.simpletask.task.category.TaskCategory;
+import dev.user.simpletask.util.MessageTemplate;
 import dev.user.simpletask.util.MessageUtil;
 import net.kyori.adventure.text.Component;
 import org.bukkit.configuration.ConfigurationSection;
@@ -44,16 +46,42 @@ public class ConfigManager {
     private String mysqlPassword;
     private int mysqlPoolSize;
     private String h2Filename;
+    private String databaseLayout;
+    private boolean h2AutoServer;
+
+    // Cross-server sync settings
+    private boolean changeJournalEnabled;
+    private String changeJournalServerId;
+    private int changeJournalPollInterval;
+    private int changeJournalRetentionMinutes;
+
+    // Reward delivery settings
+    private int rewardDeliveryPlayersPerTick;
+    private int rewardDeliveryCommandsPerTick;
 
     // GUI settings
     private String guiTitleAdmin;
+    private int guiLiveUpdateInterval;
+    private int warmCacheRetentionMinutes;
+    private int warmCacheMaxPlayers;
+
+    // Metrics endpoint
+    private boolean metricsEnabled;
+    private String metricsBind;
+    private int metricsPort;
+
+    // Progress journal
+    private boolean progressJournalEnabled;
+    private int progressJournalSizeMb;
+    private int progressJournalMaxSizeMb;
 
     // Messages
     private String messagePrefix;
     private Map<String, String> messages;
 
-    // Message cache (Component level)
-    private final Map<String, Component> messageCache = new HashMap<>();
+    // Compiled message templates（加载配置时编译，发送时只做槽位填充）
+    private final Map<String, MessageTemplate> messageTemplates = new java.util.concurrent.ConcurrentHashMap<>();
+    private final Map<String, MessageTemplate> bareMessageTemplates = new java.util.concurrent.ConcurrentHashMap<>();
 
     // Task categories
     private final Map<String, TaskCategory> taskCategories = new HashMap<>();
@@ -90,17 +118,45 @@ public class ConfigManager {
         this.mysqlPassword = config.getString("database.mysql.password", "password");
         this.mysqlPoolSize = config.getInt("database.mysql.pool-size", 10);
         this.h2Filename = config.getString("database.h2.filename", "simpletask");
+        this.databaseLayout = config.getString("database.layout", "legacy");
+        this.h2AutoServer = config.getBoolean("database.h2.auto-server", false);
+
+        // Cross-server sync
+        this.changeJournalEnabled = config.getBoolean("sync.change-journal.enabled", false);
+        this.changeJournalServerId = config.getString("sync.change-journal.server-id", "");
+        this.changeJournalPollInterval = config.getInt("sync.change-journal.poll-interval", 2); // 秒
+        this.changeJournalRetentionMinutes = config.getInt("sync.change-journal.retention-minutes", 60);
+
+        // Reward delivery
+        this.rewardDeliveryPlayersPerTick = config.getInt("reward-delivery.players-per-tick", 20);
+        this.rewardDeliveryCommandsPerTick = config.getInt("reward-delivery.commands-per-tick", 20);
+
+        // Player cache
+        this.warmCacheRetentionMinutes = config.getInt("player-cache.warm-retention-minutes", 5);
+        this.warmCacheMaxPlayers = config.getInt("player-cache.warm-max-players", 500);
+
+        // Metrics endpoint
+        this.metricsEnabled = config.getBoolean("metrics.enabled", false);
+        this.metricsBind = config.getString("metrics.bind", "127.0.0.1");
+        this.metricsPort = config.getInt("metrics.port", 9464);
+
+        // Progress journal
+        this.progressJournalEnabled = config.getBoolean("progress-journal.enabled", true);
+        this.progressJournalSizeMb = Math.min(1024, Math.max(1, config.getInt("progress-journal.size-mb", 4)));
+        this.progressJournalMaxSizeMb = Math.min(1024, Math.max(progressJournalSizeMb,
+            config.getInt("progress-journal.max-size-mb", 64)));
 
         // GUI titles
         this.guiTitleAdmin = config.getString("gui.titles.admin", "<dark_gray>任务管理");
+        this.guiLiveUpdateInterval = config.getInt("gui.live-update-interval", 10); // tick
 
         // Messages
         this.messagePrefix = config.getString("messages.prefix", "<gold>[任务系统] <reset>");
         this.messages = new HashMap<>();
         loadMessages();
 
-        // Clear message cache on reload
-        messageCache.clear();
+        // Recompile message templates on reload
+        compileMessageTemplates();
 
         // Load task categories
         loadTaskCategories();
@@ -237,6 +293,35 @@ public class ConfigManager {
             category.setRerollResetDuration(parseDuration(resetDuration));
         }
 
+        // 进度限流配置
+        ConfigurationSection rateSection = section.getConfigurationSection("rate-limit");
+        if (rateSection != null) {
+            category.setFloodPolicy(FloodPolicy.fromString(rateSection.getString("policy", "drop")));
+
+            ConfigurationSection typesSection = rateSection.getConfigurationSection("types");
+            if (typesSection != null) {
+                for (String typeKey : typesSection.getKeys(false)) {
+                    TaskType type;
+                    try {
+                        type = TaskType.valueOf(typeKey.toUpperCase());
+                    } catch (IllegalArgumentException e) {
+                        plugin.getLogger().warning("Invalid task type in rate-limit of category " + id + ": " + typeKey);
+                        continue;
+                    }
+                    ConfigurationSection limitSection = typesSection.getConfigurationSection(typeKey);
+                    if (limitSection == null) continue;
+
+                    int capacity = limitSection.getInt("capacity", 10);
+                    double refill = limitSection.getDouble("refill-per-second", 1.0);
+                    if (capacity <= 0 || refill <= 0) {
+                        plugin.getLogger().warning("Invalid rate-limit for " + typeKey + " in category " + id + ", ignored");
+                        continue;
+                    }
+                    category.setRateLimit(type, new TaskCategory.RateLimit(capacity, refill));
+                }
+            }
+        }
+
         return category;
     }
 
@@ -336,6 +421,18 @@ public class ConfigManager {
         }
     }
 
+    /**
+     * 编译所有 messages.* 模板（带前缀的用于发送，不带前缀的用于 GUI）
+     */
+    private void compileMessageTemplates() {
+        messageTemplates.clear();
+        bareMessageTemplates.clear();
+        for (Map.Entry<String, String> entry : messages.entrySet()) {
+            messageTemplates.put(entry.getKey(), MessageTemplate.compile(messagePrefix + entry.getValue()));
+            bareMessageTemplates.put(entry.getKey(), MessageTemplate.compile(entry.getValue()));
+        }
+    }
+
     public void reload() {
         plugin.reloadConfig();
         this.config = plugin.getConfig();
@@ -503,11 +600,84 @@ public class ConfigManager {
         return h2Filename;
     }
 
+    public String getDatabaseLayout() {
+        return databaseLayout;
+    }
+
+    public boolean isH2AutoServer() {
+        return h2AutoServer;
+    }
+
+    // Cross-server sync settings
+    public boolean isChangeJournalEnabled() {
+        return changeJournalEnabled;
+    }
+
+    public String getChangeJournalServerId() {
+        return changeJournalServerId;
+    }
+
+    public int getChangeJournalPollInterval() {
+        return changeJournalPollInterval;
+    }
+
+    public int getChangeJournalRetentionMinutes() {
+        return changeJournalRetentionMinutes;
+    }
+
+    // Reward delivery settings
+    public int getRewardDeliveryPlayersPerTick() {
+        return rewardDeliveryPlayersPerTick;
+    }
+
+    public int getRewardDeliveryCommandsPerTick() {
+        return rewardDeliveryCommandsPerTick;
+    }
+
+    // Player cache settings
+    public int getWarmCacheRetentionMinutes() {
+        return warmCacheRetentionMinutes;
+    }
+
+    public int getWarmCacheMaxPlayers() {
+        return warmCacheMaxPlayers;
+    }
+
+    // Metrics endpoint settings
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    public String getMetricsBind() {
+        return metricsBind;
+    }
+
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    // Progress journal settings
+    public boolean isProgressJournalEnabled() {
+        return progressJournalEnabled;
+    }
+
+    public int getProgressJournalSizeMb() {
+        return progressJournalSizeMb;
+    }
+
+    public int getProgressJournalMaxSizeMb() {
+        return progressJournalMaxSizeMb;
+    }
+
     // GUI settings
     public String getGuiTitleAdmin() {
         return guiTitleAdmin;
     }
 
+    public int getGuiLiveUpdateInterval() {
+        return guiLiveUpdateInterval;
+    }
+
     public String getGuiTitleTaskCategories() {
         return config.getString("gui.title.task-categories", "<gold><bold>任务系统");
     }
@@ -533,32 +703,40 @@ public class ConfigManager {
         return messages.getOrDefault(key, key);
     }
 
+    /**
+     * 获取带前缀的预编译消息模板（用于发送）
+     * 空消息返回 null
+     */
+    public MessageTemplate getMessageTemplate(String key) {
+        String message = getRawMessage(key);
+        if (message == null || message.isEmpty()) return null;
+        return messageTemplates.computeIfAbsent(key, k -> MessageTemplate.compile(messagePrefix + message));
+    }
+
     /**
      * 获取缓存的Component消息（用于频繁访问的GUI消息）
      * 性能优于每次重新解析MiniMessage字符串
      */
     public Component getCachedMessage(String key) {
-        return messageCache.computeIfAbsent(key, k ->
-            MessageUtil.parse(messages.getOrDefault(k, k))
-        );
+        return bareTemplate(key).render();
     }
 
     /**
      * 获取缓存的Component（带文本placeholder替换）
      */
     public Component getCachedMessage(String key, Map<String, String> placeholders) {
-        Component base = getCachedMessage(key);
-        if (placeholders == null || placeholders.isEmpty()) {
-            return base;
-        }
-        return MessageUtil.parse(messages.getOrDefault(key, key), placeholders);
+        return bareTemplate(key).renderText(placeholders);
+    }
+
+    private MessageTemplate bareTemplate(String key) {
+        return bareMessageTemplates.computeIfAbsent(key, k -> MessageTemplate.compile(messages.getOrDefault(k, k)));
     }
 
     /**
      * 清除消息缓存（在配置重载时自动调用）
      */
     public void clearMessageCache() {
-        messageCache.clear();
+        compileMessageTemplates();
     }
 
     public String getPrefix() {
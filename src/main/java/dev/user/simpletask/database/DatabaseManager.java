@@ -2,6 +2,7 @@ package dev.user.simpletask.database;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import dev.user.simpletask.SimpleTaskPlugin;
 
 import java.io.File;
@@ -18,6 +19,8 @@ public class DatabaseManager {
 
     private final SimpleTaskPlugin plugin;
     private HikariDataSource dataSource;
+    private PlayerTableLayout layout = new PlayerTableLayout(PlayerTableLayout.Mode.LEGACY);
+    private SqlDialect dialect;
 
     public DatabaseManager(SimpleTaskPlugin plugin) {
         this.plugin = plugin;
@@ -31,6 +34,9 @@ public class DatabaseManager {
             Thread.currentThread().setContextClassLoader(plugin.getClass().getClassLoader());
 
             String type = plugin.getConfigManager().getDatabaseType();
+            this.layout = new PlayerTableLayout(
+                PlayerTableLayout.Mode.fromString(plugin.getConfigManager().getDatabaseLayout()));
+            this.dialect = new SqlDialect(isMySQL(), layout);
 
             if (type.equalsIgnoreCase("mysql")) {
                 initMySQL();
@@ -44,7 +50,7 @@ public class DatabaseManager {
             DatabaseMigration migration = new DatabaseMigration(plugin, this);
             migration.migrate();
 
-            plugin.getLogger().info("Database connected! Type: " + type);
+            plugin.getLogger().info("Database connected! Type: " + type + ", layout: " + layout.getMode());
             return true;
         } catch (Exception e) {
             plugin.getLogger().severe("Database initialization failed: " + e.getMessage());
@@ -87,6 +93,9 @@ public class DatabaseManager {
         // 添加连接泄漏检测（5分钟）
         config.setLeakDetectionThreshold(300000);
 
+        // 预编译语句缓存和批量重写
+        dialect.configurePool(config);
+
         dataSource = new HikariDataSource(config);
     }
 
@@ -107,8 +116,14 @@ public class DatabaseManager {
             plugin.getLogger().warning("H2 driver registration failed (may already be registered): " + e.getMessage());
         }
 
-        config.setJdbcUrl("jdbc:h2:" + new File(dataFolder, filename).getAbsolutePath() +
-                ";AUTO_RECONNECT=TRUE;DB_CLOSE_DELAY=0;DB_CLOSE_ON_EXIT=FALSE");
+        // 绝对路径允许多个服务器实例共享同一个数据库文件
+        File dbFile = new File(filename).isAbsolute() ? new File(filename) : new File(dataFolder, filename);
+        String url = "jdbc:h2:" + dbFile.getAbsolutePath() + ";AUTO_RECONNECT=TRUE;DB_CLOSE_DELAY=0;DB_CLOSE_ON_EXIT=FALSE";
+        if (plugin.getConfigManager().isH2AutoServer()) {
+            // 混合模式：第一个打开数据库的实例同时作为 TCP 服务器，其他实例自动连接
+            url += ";AUTO_SERVER=TRUE";
+        }
+        config.setJdbcUrl(url);
         config.setUsername("sa");
         config.setPassword("");
         config.setMaximumPoolSize(5);
@@ -119,6 +134,9 @@ public class DatabaseManager {
         // 添加连接泄漏检测（5分钟）
         config.setLeakDetectionThreshold(300000);
 
+        // 语句缓存
+        dialect.configurePool(config);
+
         dataSource = new HikariDataSource(config);
     }
 
@@ -217,6 +235,40 @@ public class DatabaseManager {
                     ")";
             stmt.execute(categoryRerollTable);
 
+            // 玩家任务变更日志表（跨服缓存同步）
+            // 与任务修改在同一事务中写入，其他服务器按 seq 水位轮询
+            String taskChangesTable = "CREATE TABLE IF NOT EXISTS player_task_changes (" +
+                    "    seq " + (isMySQL ? "BIGINT AUTO_INCREMENT PRIMARY KEY" : "BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY") + "," +
+                    "    player_uuid VARCHAR(36) NOT NULL," +
+                    "    category VARCHAR(32)," +
+                    "    task_key VARCHAR(64)," +
+                    "    change_type VARCHAR(16) NOT NULL," +
+                    "    server_id VARCHAR(64) NOT NULL," +
+                    "    created_at TIMESTAMP NOT NULL" +
+                    ")";
+            stmt.execute(taskChangesTable);
+
+            // 奖励发放队列表
+            // 与领取在同一事务中写入，发放完成后删除；未发放的记录在玩家下次登录时重试
+            // owner / leased_at 为发放租约，多服共用数据库时同一条记录只由一个服务器发放
+            String rewardOutboxTable = "CREATE TABLE IF NOT EXISTS reward_outbox (" +
+                    "    id " + (isMySQL ? "BIGINT AUTO_INCREMENT PRIMARY KEY" : "BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY") + "," +
+                    "    player_uuid VARCHAR(36) NOT NULL," +
+                    "    reward_data TEXT NOT NULL," +
+                    "    created_at TIMESTAMP NOT NULL," +
+                    "    owner VARCHAR(64)," +
+                    "    leased_at TIMESTAMP NULL" +
+                    ")";
+            stmt.execute(rewardOutboxTable);
+
+            // 本地进度日志状态表
+            // 每个日志文件一行，记录最近一次随进度一起提交的批次序号，重放时跳过
+            String progressJournalStateTable = "CREATE TABLE IF NOT EXISTS progress_journal_state (" +
+                    "    journal_id BIGINT PRIMARY KEY," +
+                    "    applied_seq BIGINT NOT NULL" +
+                    ")";
+            stmt.execute(progressJournalStateTable);
+
             // 创建索引
             createIndexes(stmt);
 
@@ -235,6 +287,9 @@ public class DatabaseManager {
             createMySQLIndexIfNotExists(stmt, "task_templates", "idx_task_templates_key", "task_key");
             createMySQLIndexIfNotExists(stmt, "player_category_reset", "idx_category_reset", "player_uuid, category_id");
             createMySQLIndexIfNotExists(stmt, "player_category_reroll", "idx_category_reroll", "player_uuid, category_id");
+            createMySQLIndexIfNotExists(stmt, "player_task_changes", "idx_task_changes_player", "player_uuid, seq");
+            createMySQLIndexIfNotExists(stmt, "player_task_changes", "idx_task_changes_created", "created_at");
+            createMySQLIndexIfNotExists(stmt, "reward_outbox", "idx_reward_outbox_player", "player_uuid");
         } else {
             // H2 支持 IF NOT EXISTS
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_player_tasks_assigned ON player_daily_tasks (player_uuid, assigned_at)");
@@ -243,6 +298,9 @@ public class DatabaseManager {
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_task_templates_key ON task_templates (task_key)");
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_category_reset ON player_category_reset (player_uuid, category_id)");
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_category_reroll ON player_category_reroll (player_uuid, category_id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_task_changes_player ON player_task_changes (player_uuid, seq)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_task_changes_created ON player_task_changes (created_at)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_reward_outbox_player ON reward_outbox (player_uuid)");
         }
     }
 
@@ -256,6 +314,15 @@ public class DatabaseManager {
             addH2ColumnIfNotExists(stmt, "player_daily_tasks", "category", "VARCHAR(32) DEFAULT 'daily'");
         }
         // 注意：expire_policy 字段已从设计中移除，过期策略从 category 配置获取
+
+        // 升级 reward_outbox 表 - 添加发放租约字段（多服共用数据库时只由一个服务器发放）
+        if (isMySQL) {
+            addMySQLColumnIfNotExists(stmt, "reward_outbox", "owner", "VARCHAR(64)");
+            addMySQLColumnIfNotExists(stmt, "reward_outbox", "leased_at", "TIMESTAMP NULL");
+        } else {
+            addH2ColumnIfNotExists(stmt, "reward_outbox", "owner", "VARCHAR(64)");
+            addH2ColumnIfNotExists(stmt, "reward_outbox", "leased_at", "TIMESTAMP NULL");
+        }
     }
 
     private void addMySQLColumnIfNotExists(Statement stmt, String table, String column, String definition) throws SQLException {
@@ -318,6 +385,13 @@ public class DatabaseManager {
         return identifier != null && !identifier.isEmpty() && identifier.matches("^[a-zA-Z_][a-zA-Z0-9_]*$");
     }
 
+    /**
+     * 连接池运行状态（监控使用），连接池未初始化时返回 null
+     */
+    public HikariPoolMXBean getPoolMXBean() {
+        return dataSource != null ? dataSource.getHikariPoolMXBean() : null;
+    }
+
     public Connection getConnection() throws SQLException {
         return dataSource.getConnection();
     }
@@ -355,6 +429,14 @@ public class DatabaseManager {
         }
     }
 
+    public PlayerTableLayout getLayout() {
+        return layout;
+    }
+
+    public SqlDialect getDialect() {
+        return dialect;
+    }
+
     public boolean isMySQL() {
         String dbType = plugin.getConfigManager().getDatabaseType().toLowerCase();
         return dbType.equals("mysql") || dbType.equals("mariadb");
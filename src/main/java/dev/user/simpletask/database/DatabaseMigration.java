@@ -13,7 +13,11 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 import dev.user.simpletask.util.TimeZoneConfig;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.Set;
+import java.util.UUID;
 import java.util.logging.Level;
 
 /**
@@ -31,9 +35,12 @@ public class DatabaseMigration {
     );
     private static final Set<String> ALLOWED_COLUMNS = Set.of(
         "task_date", "assigned_at", "last_reset_date", "last_reset_time",
-        "player_uuid", "task_key", "category", "category_id", "updated_at"
+        "player_uuid", "task_key", "category", "category_id", "updated_at",
+        PlayerTableLayout.UUID_BIN, PlayerTableLayout.ASSIGNED_AT_MS, PlayerTableLayout.LAST_RESET_MS
     );
 
+    private static final int BATCH_LIMIT = 1000;
+
     public DatabaseMigration(SimpleTaskPlugin plugin, DatabaseManager databaseManager) {
         this.plugin = plugin;
         this.databaseManager = databaseManager;
@@ -62,14 +69,16 @@ public class DatabaseMigration {
 
         try (Connection conn = databaseManager.getConnection()) {
             // 检查表结构是否需要迁移
-            if (!needsMigration(conn)) {
+            if (needsMigration(conn)) {
+                // 执行迁移
+                doMigration(conn);
+                plugin.getLogger().info("Database migration completed!");
+            } else {
                 plugin.getLogger().info("Database schema is up to date");
-                return;
             }
 
-            // 执行迁移
-            doMigration(conn);
-            plugin.getLogger().info("Database migration completed!");
+            // 紧凑存储布局（BINARY(16) UUID + BIGINT 毫秒时间）
+            migrateCompactLayout(conn);
 
         } catch (SQLException e) {
             plugin.getLogger().log(Level.SEVERE, "Database migration failed!", e);
@@ -232,7 +241,6 @@ public class DatabaseMigration {
 
         int migratedCount = 0;
         int batchSize = 0;
-        final int BATCH_LIMIT = 1000;
 
         try (PreparedStatement selectPs = conn.prepareStatement(selectSql);
              ResultSet rs = selectPs.executeQuery();
@@ -271,6 +279,276 @@ public class DatabaseMigration {
         plugin.getLogger().info("Total migrated records: " + migratedCount);
     }
 
+    // ==================== 紧凑存储布局 ====================
+
+    /**
+     * 迁移到紧凑存储布局
+     * DUAL/COMPACT: 添加紧凑列、回填旧数据、创建紧凑索引
+     * COMPACT:      额外将主键切换到紧凑列
+     */
+    private void migrateCompactLayout(Connection conn) throws SQLException {
+        PlayerTableLayout layout = databaseManager.getLayout();
+        if (!layout.writesCompact()) {
+            return;
+        }
+
+        // 1. 添加紧凑列
+        addColumnIfNotExists(conn, "player_daily_tasks", PlayerTableLayout.UUID_BIN, "BINARY(16)");
+        addColumnIfNotExists(conn, "player_daily_tasks", PlayerTableLayout.ASSIGNED_AT_MS, "BIGINT");
+        addColumnIfNotExists(conn, "player_category_reroll", PlayerTableLayout.UUID_BIN, "BINARY(16)");
+        addColumnIfNotExists(conn, "player_category_reroll", PlayerTableLayout.LAST_RESET_MS, "BIGINT");
+        addColumnIfNotExists(conn, "player_category_reset", PlayerTableLayout.UUID_BIN, "BINARY(16)");
+        addColumnIfNotExists(conn, "player_category_reset", PlayerTableLayout.LAST_RESET_MS, "BIGINT");
+
+        // 2. 回填旧数据（包括旧版本插件在滚动升级期间写入的记录）
+        backfillPlayerTasks(conn);
+        backfillRerollRecords(conn);
+        backfillResetRecords(conn);
+
+        // 3. 紧凑列上的二级索引
+        createIndexIfNotExists(conn, "player_daily_tasks", "idx_tasks_bin_category",
+            PlayerTableLayout.UUID_BIN + ", category");
+
+        // 4. 切换主键
+        if (layout.readsCompact()) {
+            switchPrimaryKey(conn, "player_daily_tasks",
+                new String[]{PlayerTableLayout.UUID_BIN, PlayerTableLayout.ASSIGNED_AT_MS},
+                new String[]{"BINARY(16)", "BIGINT"},
+                PlayerTableLayout.UUID_BIN + ", task_key, " + PlayerTableLayout.ASSIGNED_AT_MS);
+            switchPrimaryKey(conn, "player_category_reroll",
+                new String[]{PlayerTableLayout.UUID_BIN, PlayerTableLayout.LAST_RESET_MS},
+                new String[]{"BINARY(16)", "BIGINT"},
+                PlayerTableLayout.UUID_BIN + ", category_id");
+            switchPrimaryKey(conn, "player_category_reset",
+                new String[]{PlayerTableLayout.UUID_BIN, PlayerTableLayout.LAST_RESET_MS},
+                new String[]{"BINARY(16)", "BIGINT"},
+                PlayerTableLayout.UUID_BIN + ", category_id");
+        }
+    }
+
+    private void addColumnIfNotExists(Connection conn, String table, String column, String type) throws SQLException {
+        if (columnExists(conn, table, column)) {
+            return;
+        }
+        String sql = databaseManager.isMySQL()
+            ? "ALTER TABLE " + table + " ADD COLUMN " + column + " " + type + " NULL"
+            : "ALTER TABLE " + table + " ADD COLUMN IF NOT EXISTS " + column + " " + type;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+            plugin.getLogger().info("Added column " + column + " to table " + table);
+        }
+    }
+
+    private void createIndexIfNotExists(Connection conn, String table, String indexName, String columns) throws SQLException {
+        if (databaseManager.isMySQL()) {
+            String checkSql = "SELECT COUNT(*) FROM information_schema.STATISTICS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ?";
+            try (PreparedStatement ps = conn.prepareStatement(checkSql)) {
+                ps.setString(1, table);
+                ps.setString(2, indexName);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next() && rs.getInt(1) > 0) {
+                        return;
+                    }
+                }
+            }
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("ALTER TABLE " + table + " ADD INDEX " + indexName + " (" + columns + ")");
+            }
+        } else {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE INDEX IF NOT EXISTS " + indexName + " ON " + table + " (" + columns + ")");
+            }
+        }
+    }
+
+    /**
+     * 回填 player_daily_tasks 的紧凑列
+     */
+    private void backfillPlayerTasks(Connection conn) throws SQLException {
+        String selectSql = "SELECT player_uuid, task_key, assigned_at FROM player_daily_tasks " +
+            "WHERE " + PlayerTableLayout.UUID_BIN + " IS NULL OR " + PlayerTableLayout.ASSIGNED_AT_MS + " IS NULL";
+        String updateSql = "UPDATE player_daily_tasks SET " + PlayerTableLayout.UUID_BIN + " = ?, " +
+            PlayerTableLayout.ASSIGNED_AT_MS + " = ? WHERE player_uuid = ? AND task_key = ? AND assigned_at = ?";
+
+        int migratedCount = 0;
+        int batchSize = 0;
+
+        try (PreparedStatement selectPs = conn.prepareStatement(selectSql);
+             ResultSet rs = selectPs.executeQuery();
+             PreparedStatement updatePs = conn.prepareStatement(updateSql)) {
+
+            while (rs.next()) {
+                String playerUuid = rs.getString("player_uuid");
+                Timestamp assignedAt = rs.getTimestamp("assigned_at", TimeZoneConfig.UTC_CALENDAR);
+                UUID uuid = parseUuid(playerUuid);
+                if (uuid == null || assignedAt == null) {
+                    continue;
+                }
+
+                updatePs.setBytes(1, PlayerTableLayout.toBytes(uuid));
+                updatePs.setLong(2, assignedAt.toInstant().toEpochMilli());
+                updatePs.setString(3, playerUuid);
+                updatePs.setString(4, rs.getString("task_key"));
+                updatePs.setTimestamp(5, assignedAt, TimeZoneConfig.UTC_CALENDAR);
+                updatePs.addBatch();
+
+                batchSize++;
+                migratedCount++;
+
+                if (batchSize >= BATCH_LIMIT) {
+                    updatePs.executeBatch();
+                    batchSize = 0;
+                    plugin.getLogger().info("Backfilled " + migratedCount + " player task records...");
+                }
+            }
+
+            if (batchSize > 0) {
+                updatePs.executeBatch();
+            }
+        }
+
+        if (migratedCount > 0) {
+            plugin.getLogger().info("Backfilled compact columns for " + migratedCount + " player task records");
+        }
+    }
+
+    /**
+     * 回填 player_category_reroll 的紧凑列
+     */
+    private void backfillRerollRecords(Connection conn) throws SQLException {
+        String selectSql = "SELECT player_uuid, category_id, last_reset_time FROM player_category_reroll " +
+            "WHERE " + PlayerTableLayout.UUID_BIN + " IS NULL OR " + PlayerTableLayout.LAST_RESET_MS + " IS NULL";
+        String updateSql = "UPDATE player_category_reroll SET " + PlayerTableLayout.UUID_BIN + " = ?, " +
+            PlayerTableLayout.LAST_RESET_MS + " = ? WHERE player_uuid = ? AND category_id = ?";
+
+        List<Object[]> rows = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(selectSql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                Timestamp lastReset = rs.getTimestamp("last_reset_time", TimeZoneConfig.UTC_CALENDAR);
+                rows.add(new Object[]{
+                    rs.getString("player_uuid"),
+                    rs.getString("category_id"),
+                    lastReset != null ? lastReset.toInstant().toEpochMilli() : 0L
+                });
+            }
+        }
+        backfillCategoryRecords(conn, updateSql, rows, "reroll");
+    }
+
+    /**
+     * 回填 player_category_reset 的紧凑列（DATE 按配置时区当天零点转换）
+     */
+    private void backfillResetRecords(Connection conn) throws SQLException {
+        String selectSql = "SELECT player_uuid, category_id, last_reset_date FROM player_category_reset " +
+            "WHERE " + PlayerTableLayout.UUID_BIN + " IS NULL OR " + PlayerTableLayout.LAST_RESET_MS + " IS NULL";
+        String updateSql = "UPDATE player_category_reset SET " + PlayerTableLayout.UUID_BIN + " = ?, " +
+            PlayerTableLayout.LAST_RESET_MS + " = ? WHERE player_uuid = ? AND category_id = ?";
+
+        List<Object[]> rows = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(selectSql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                java.sql.Date lastReset = rs.getDate("last_reset_date");
+                rows.add(new Object[]{
+                    rs.getString("player_uuid"),
+                    rs.getString("category_id"),
+                    lastReset != null ? PlayerTableLayout.toEpochMillis(lastReset.toLocalDate().atStartOfDay()) : 0L
+                });
+            }
+        }
+        backfillCategoryRecords(conn, updateSql, rows, "reset");
+    }
+
+    private void backfillCategoryRecords(Connection conn, String updateSql, List<Object[]> rows, String name) throws SQLException {
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        int batchSize = 0;
+        try (PreparedStatement updatePs = conn.prepareStatement(updateSql)) {
+            for (Object[] row : rows) {
+                UUID uuid = parseUuid((String) row[0]);
+                if (uuid == null) {
+                    continue;
+                }
+                updatePs.setBytes(1, PlayerTableLayout.toBytes(uuid));
+                updatePs.setLong(2, (Long) row[2]);
+                updatePs.setString(3, (String) row[0]);
+                updatePs.setString(4, (String) row[1]);
+                updatePs.addBatch();
+
+                if (++batchSize >= BATCH_LIMIT) {
+                    updatePs.executeBatch();
+                    batchSize = 0;
+                }
+            }
+            if (batchSize > 0) {
+                updatePs.executeBatch();
+            }
+        }
+        plugin.getLogger().info("Backfilled compact columns for " + rows.size() + " " + name + " records");
+    }
+
+    private UUID parseUuid(String value) {
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            plugin.getLogger().warning("Skipping record with invalid player_uuid: " + value);
+            return null;
+        }
+    }
+
+    /**
+     * 将主键切换到紧凑列（已切换则跳过）
+     */
+    private void switchPrimaryKey(Connection conn, String table, String[] notNullColumns, String[] types,
+                                  String primaryKeyColumns) throws SQLException {
+        List<String> currentKey = getPrimaryKeyColumns(conn, table);
+        if (currentKey.contains(PlayerTableLayout.UUID_BIN)) {
+            return;
+        }
+
+        plugin.getLogger().info("Switching primary key of " + table + " to (" + primaryKeyColumns + ")...");
+        try (Statement stmt = conn.createStatement()) {
+            if (databaseManager.isMySQL()) {
+                StringBuilder sql = new StringBuilder("ALTER TABLE ").append(table);
+                for (int i = 0; i < notNullColumns.length; i++) {
+                    sql.append(" MODIFY ").append(notNullColumns[i]).append(' ').append(types[i]).append(" NOT NULL,");
+                }
+                sql.append(" DROP PRIMARY KEY, ADD PRIMARY KEY (").append(primaryKeyColumns).append(")");
+                stmt.execute(sql.toString());
+            } else {
+                for (String column : notNullColumns) {
+                    stmt.execute("ALTER TABLE " + table + " ALTER COLUMN " + column + " SET NOT NULL");
+                }
+                stmt.execute("ALTER TABLE " + table + " DROP PRIMARY KEY");
+                stmt.execute("ALTER TABLE " + table + " ADD PRIMARY KEY (" + primaryKeyColumns + ")");
+            }
+        }
+        plugin.getLogger().info("Primary key of " + table + " switched");
+    }
+
+    /**
+     * 获取主键列（小写）
+     * H2 默认以大写保存未加引号的标识符，两种大小写都尝试
+     */
+    private List<String> getPrimaryKeyColumns(Connection conn, String table) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        for (String name : new String[]{table, table.toUpperCase(Locale.ROOT)}) {
+            try (ResultSet rs = conn.getMetaData().getPrimaryKeys(null, null, name)) {
+                while (rs.next()) {
+                    columns.add(rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+                }
+            }
+            if (!columns.isEmpty()) {
+                break;
+            }
+        }
+        return columns;
+    }
+
     /**
      * 检查表是否存在
      */
@@ -1,10 +1,13 @@
 package dev.user.simpletask.database;
 
 import dev.user.simpletask.SimpleTaskPlugin;
+import dev.user.simpletask.profiling.DatabaseEnqueueEvent;
+import dev.user.simpletask.profiling.DatabaseExecuteEvent;
 
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 
 public class DatabaseQueue {
@@ -14,6 +17,13 @@ public class DatabaseQueue {
     private final ExecutorService executor;
     private volatile boolean running = true;
 
+    // 统计（负载模拟和监控使用）
+    private final LongAdder completedCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder executedCount = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder executeNanos = new LongAdder();
+
     public DatabaseQueue(SimpleTaskPlugin plugin) {
         this.plugin = plugin;
         this.taskQueue = new LinkedBlockingQueue<>();
@@ -48,11 +58,17 @@ public class DatabaseQueue {
 
     private <T> void processTask(DatabaseTask<T> task) {
         long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        waitNanos.add(startNanos - task.getEnqueuedAt());
+        DatabaseExecuteEvent jfr = new DatabaseExecuteEvent();
+        jfr.begin();
 
         // 队列自动管理连接！使用 try-with-resources
         try (Connection connection = plugin.getDatabaseManager().getConnection()) {
             T result = task.getOperation().execute(connection);
             long duration = System.currentTimeMillis() - startTime;
+            completedCount.increment();
+            jfr.succeeded = true;
 
             // 慢查询检测
             if (duration > 1000) {
@@ -70,6 +86,7 @@ public class DatabaseQueue {
                 });
             }
         } catch (SQLException e) {
+            failedCount.increment();
             plugin.getLogger().warning("Database operation failed [" + task.getName() + "]: " + e.getMessage());
 
             if (task.getErrorCallback() != null) {
@@ -77,6 +94,14 @@ public class DatabaseQueue {
                     task.getErrorCallback().accept(e);
                 });
             }
+        } finally {
+            executedCount.increment();
+            executeNanos.add(System.nanoTime() - startNanos);
+            if (jfr.shouldCommit()) {
+                jfr.operation = task.getName();
+                jfr.queueWait = startNanos - task.getEnqueuedAt();
+                jfr.commit();
+            }
         }
     }
 
@@ -90,13 +115,23 @@ public class DatabaseQueue {
     public <T> void submit(String name, DatabaseOperation<T> operation, Consumer<T> callback, Consumer<SQLException> errorCallback) {
         if (!running) {
             plugin.getLogger().warning("Database queue is closed, cannot submit task: " + name);
+            if (errorCallback != null) {
+                errorCallback.accept(new SQLException("Database queue is closed, task rejected: " + name));
+            }
             return;
         }
 
         DatabaseTask<T> task = new DatabaseTask<>(name, operation, callback, errorCallback);
         try {
             boolean offered = taskQueue.offer(task, 5, TimeUnit.SECONDS);
-            if (!offered) {
+            if (offered) {
+                DatabaseEnqueueEvent jfr = new DatabaseEnqueueEvent();
+                if (jfr.isEnabled()) {
+                    jfr.operation = name;
+                    jfr.queueDepth = taskQueue.size();
+                    jfr.commit();
+                }
+            } else {
                 plugin.getLogger().severe("Database queue is full, cannot submit task: " + name);
                 if (errorCallback != null) {
                     errorCallback.accept(new SQLException("Database queue is full, task rejected: " + name));
@@ -118,6 +153,36 @@ public class DatabaseQueue {
         submit(name, operation, null, null);
     }
 
+    /** 等待执行的任务数 */
+    public int getPendingCount() {
+        return taskQueue.size();
+    }
+
+    /** 已成功执行的任务总数 */
+    public long getCompletedCount() {
+        return completedCount.sum();
+    }
+
+    /** 执行失败的任务总数 */
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    /** 已执行的任务总数（包括失败） */
+    public long getExecutedCount() {
+        return executedCount.sum();
+    }
+
+    /** 任务入队到开始执行的累计等待时间（纳秒） */
+    public long getWaitNanos() {
+        return waitNanos.sum();
+    }
+
+    /** 任务执行的累计耗时（纳秒） */
+    public long getExecuteNanos() {
+        return executeNanos.sum();
+    }
+
     public void shutdown() {
         running = false;
         executor.shutdown();
@@ -140,6 +205,7 @@ public class DatabaseQueue {
         private final DatabaseOperation<T> operation;
         private final Consumer<T> callback;
         private final Consumer<SQLException> errorCallback;
+        private final long enqueuedAt = System.nanoTime();
 
         public DatabaseTask(String name, DatabaseOperation<T> operation, Consumer<T> callback, Consumer<SQLException> errorCallback) {
             this.name = name;
@@ -152,5 +218,6 @@ public class DatabaseQueue {
         public DatabaseOperation<T> getOperation() { return operation; }
         public Consumer<T> getCallback() { return callback; }
         public Consumer<SQLException> getErrorCallback() { return errorCallback; }
+        public long getEnqueuedAt() { return enqueuedAt; }
     }
 }
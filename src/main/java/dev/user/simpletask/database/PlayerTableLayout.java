@@ -0,0 +1,173 @@
+package dev.user.simpletask.database;
+
+import dev.user.simpletask.util.TimeZoneConfig;
+
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * 玩家数据表存储布局
+ *
+ * LEGACY:  只使用 player_uuid VARCHAR(36) + TIMESTAMP 列
+ * DUAL:    同时写入 BINARY(16) UUID 和 BIGINT 毫秒时间列，查询仍按旧列（滚动升级期间使用）
+ * COMPACT: 主键切换到紧凑列，查询按紧凑列；旧列继续写入，便于回滚
+ */
+public class PlayerTableLayout {
+
+    public enum Mode {
+        LEGACY, DUAL, COMPACT;
+
+        public static Mode fromString(String value) {
+            if (value == null) return LEGACY;
+            try {
+                return valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return LEGACY;
+            }
+        }
+    }
+
+    // 紧凑列名
+    public static final String UUID_BIN = "player_uuid_bin";
+    public static final String ASSIGNED_AT_MS = "assigned_at_ms";
+    public static final String LAST_RESET_MS = "last_reset_ms";
+
+    private final Mode mode;
+
+    public PlayerTableLayout(Mode mode) {
+        this.mode = mode;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * 是否需要写入紧凑列
+     */
+    public boolean writesCompact() {
+        return mode != Mode.LEGACY;
+    }
+
+    /**
+     * 是否按紧凑列查询和定位记录
+     */
+    public boolean readsCompact() {
+        return mode == Mode.COMPACT;
+    }
+
+    // ==================== 定位列 ====================
+
+    /** 用于 WHERE 条件的玩家列 */
+    public String uuidColumn() {
+        return readsCompact() ? UUID_BIN : "player_uuid";
+    }
+
+    /** 用于 WHERE 条件的分配时间列 */
+    public String assignedAtColumn() {
+        return readsCompact() ? ASSIGNED_AT_MS : "assigned_at";
+    }
+
+    /** 用于 WHERE 条件的 reroll 重置时间列 */
+    public String lastResetColumn() {
+        return readsCompact() ? LAST_RESET_MS : "last_reset_time";
+    }
+
+    /**
+     * 绑定定位玩家的参数（与 uuidColumn() 对应）
+     */
+    public void bindUuid(PreparedStatement ps, int index, UUID uuid) throws SQLException {
+        if (readsCompact()) {
+            ps.setBytes(index, toBytes(uuid));
+        } else {
+            ps.setString(index, uuid.toString());
+        }
+    }
+
+    /**
+     * 绑定定位时间的参数（与 assignedAtColumn() / lastResetColumn() 对应）
+     */
+    public void bindTime(PreparedStatement ps, int index, LocalDateTime time) throws SQLException {
+        if (readsCompact()) {
+            ps.setLong(index, toEpochMillis(time));
+        } else {
+            ps.setTimestamp(index, Timestamp.from(TimeZoneConfig.toInstant(time)), TimeZoneConfig.UTC_CALENDAR);
+        }
+    }
+
+    // ==================== 写入列 ====================
+
+    /**
+     * INSERT 时追加的紧凑列，例如 ", player_uuid_bin, assigned_at_ms"
+     */
+    public String extraColumns(String timeColumn) {
+        return writesCompact() ? ", " + UUID_BIN + ", " + timeColumn : "";
+    }
+
+    /**
+     * 与 extraColumns 对应的占位符
+     */
+    public String extraPlaceholders() {
+        return writesCompact() ? ", ?, ?" : "";
+    }
+
+    /**
+     * 绑定紧凑列的值
+     * @return 下一个参数索引
+     */
+    public int bindExtra(PreparedStatement ps, int index, UUID uuid, LocalDateTime time) throws SQLException {
+        if (!writesCompact()) return index;
+        ps.setBytes(index++, toBytes(uuid));
+        ps.setLong(index++, toEpochMillis(time));
+        return index;
+    }
+
+    /**
+     * SELECT 时需要读取的时间列（旧列 + 可选的紧凑列）
+     */
+    public String timeSelectColumns(String legacyColumn, String compactColumn) {
+        return writesCompact() ? legacyColumn + ", " + compactColumn : legacyColumn;
+    }
+
+    /**
+     * 读取时间：优先使用紧凑列，未回填的旧数据回退到 TIMESTAMP 列
+     */
+    public LocalDateTime readTime(ResultSet rs, String legacyColumn, String compactColumn) throws SQLException {
+        if (writesCompact()) {
+            long millis = rs.getLong(compactColumn);
+            if (!rs.wasNull()) {
+                return fromEpochMillis(millis);
+            }
+        }
+        Timestamp timestamp = rs.getTimestamp(legacyColumn, TimeZoneConfig.UTC_CALENDAR);
+        return timestamp != null ? TimeZoneConfig.toLocalDateTime(timestamp.toInstant()) : null;
+    }
+
+    // ==================== 编解码 ====================
+
+    public static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+            .putLong(uuid.getMostSignificantBits())
+            .putLong(uuid.getLeastSignificantBits())
+            .array();
+    }
+
+    public static UUID fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    public static long toEpochMillis(LocalDateTime time) {
+        return TimeZoneConfig.toInstant(time).toEpochMilli();
+    }
+
+    public static LocalDateTime fromEpochMillis(long millis) {
+        return TimeZoneConfig.toLocalDateTime(Instant.ofEpochMilli(millis));
+    }
+}
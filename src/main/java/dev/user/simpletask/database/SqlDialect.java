@@ -0,0 +1,189 @@
+package dev.user.simpletask.database;
+
+import com.zaxxer.hikari.HikariConfig;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SQL 方言
+ * 集中管理 H2/MySQL 的语法差异，并缓存生成的 SQL（按操作和行数区分）
+ * 相同的 SQL 字符串可以命中驱动/连接池的预编译语句缓存
+ */
+public class SqlDialect {
+
+    /** 单条多行语句的最大行数，超过时由调用方分块执行 */
+    public static final int MAX_ROWS_PER_STATEMENT = 64;
+
+    /** 玩家任务插入的基础列 */
+    private static final String PLAYER_TASK_COLUMNS =
+        "player_uuid, task_key, task_version, category, current_progress, completed, claimed, assigned_at, task_data";
+
+    private final boolean mysql;
+    private final PlayerTableLayout layout;
+    private final Map<String, String> cache = new ConcurrentHashMap<>();
+
+    public SqlDialect(boolean mysql, PlayerTableLayout layout) {
+        this.mysql = mysql;
+        this.layout = layout;
+    }
+
+    public boolean isMySQL() {
+        return mysql;
+    }
+
+    // ==================== 连接池配置 ====================
+
+    /**
+     * 按数据库类型配置驱动的语句缓存和批量重写
+     */
+    public void configurePool(HikariConfig config) {
+        if (mysql) {
+            // 客户端/服务端预编译语句缓存
+            config.addDataSourceProperty("cachePrepStmts", "true");
+            config.addDataSourceProperty("prepStmtCacheSize", "250");
+            config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+            config.addDataSourceProperty("useServerPrepStmts", "true");
+            // executeBatch 合并为多行语句，一次往返
+            config.addDataSourceProperty("rewriteBatchedStatements", "true");
+            // 减少每次事务/查询附带的元数据往返
+            config.addDataSourceProperty("cacheResultSetMetadata", "true");
+            config.addDataSourceProperty("cacheServerConfiguration", "true");
+            config.addDataSourceProperty("useLocalSessionState", "true");
+            config.addDataSourceProperty("elideSetAutoCommits", "true");
+            config.addDataSourceProperty("maintainTimeStats", "false");
+        } else {
+            // H2 每个会话缓存已解析的语句
+            config.addDataSourceProperty("QUERY_CACHE_SIZE", "64");
+        }
+    }
+
+    // ==================== 通用语句 ====================
+
+    /**
+     * 多行 INSERT
+     */
+    public String insert(String table, String[] columns, int rows) {
+        String key = "insert:" + table + ":" + String.join(",", columns) + ":" + rows;
+        return cache.computeIfAbsent(key, k ->
+            "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES " +
+                repeatRows(placeholders(columns.length), rows));
+    }
+
+    /**
+     * 多行 UPSERT（MySQL: ON DUPLICATE KEY UPDATE，H2: MERGE INTO ... KEY）
+     */
+    public String upsert(String table, String[] columns, String[] keyColumns, int rows) {
+        String key = "upsert:" + table + ":" + String.join(",", columns) + ":" + String.join(",", keyColumns) + ":" + rows;
+        return cache.computeIfAbsent(key, k -> {
+            String values = repeatRows(placeholders(columns.length), rows);
+            StringBuilder sql = new StringBuilder();
+            if (mysql) {
+                sql.append("INSERT INTO ").append(table).append(" (").append(String.join(", ", columns));
+                sql.append(") VALUES ").append(values).append(" ON DUPLICATE KEY UPDATE ");
+                for (int i = 0; i < columns.length; i++) {
+                    if (i > 0) sql.append(", ");
+                    sql.append(columns[i]).append(" = VALUES(").append(columns[i]).append(")");
+                }
+            } else {
+                sql.append("MERGE INTO ").append(table).append(" (").append(String.join(", ", columns));
+                sql.append(") KEY(").append(String.join(", ", keyColumns)).append(") VALUES ").append(values);
+            }
+            return sql.toString();
+        });
+    }
+
+    /**
+     * 记录不存在时插入（MySQL: INSERT IGNORE，H2: MERGE INTO ... KEY）
+     */
+    public String insertIgnore(String table, String[] columns, String[] keyColumns) {
+        String key = "insertIgnore:" + table + ":" + String.join(",", columns) + ":" + String.join(",", keyColumns);
+        return cache.computeIfAbsent(key, k -> {
+            String cols = " (" + String.join(", ", columns) + ")";
+            String values = " VALUES " + placeholders(columns.length);
+            if (mysql) {
+                return "INSERT IGNORE INTO " + table + cols + values;
+            }
+            return "MERGE INTO " + table + cols + " KEY(" + String.join(", ", keyColumns) + ")" + values;
+        });
+    }
+
+    // ==================== 玩家任务 ====================
+
+    /**
+     * 批量插入玩家任务
+     * 每行参数：player_uuid, task_key, task_version, category, assigned_at, task_data [, uuid_bin, assigned_at_ms]
+     */
+    public String insertPlayerTasks(int rows) {
+        return cache.computeIfAbsent("insertPlayerTasks:" + rows, k -> {
+            String row = "(?, ?, ?, ?, 0, FALSE, FALSE, ?, ?" + layout.extraPlaceholders() + ")";
+            return "INSERT INTO player_daily_tasks (" + PLAYER_TASK_COLUMNS +
+                layout.extraColumns(PlayerTableLayout.ASSIGNED_AT_MS) + ") VALUES " + repeatRows(row, rows);
+        });
+    }
+
+    /**
+     * 同一玩家多个任务的进度批量更新（单条 UPDATE ... CASE）
+     * 自动领取分类的任务完成时在同一语句中标记 claimed
+     * 参数顺序：
+     *   每行 task_key, assigned_at, progress（current_progress CASE）
+     *   每行 task_key, assigned_at, completed（completed CASE）
+     *   每行 task_key, assigned_at, claimed（claimed CASE）
+     *   玩家 uuid
+     *   每行 task_key, assigned_at（WHERE 条件）
+     */
+    public String updateProgressBulk(int rows) {
+        return cache.computeIfAbsent("updateProgressBulk:" + rows, k -> {
+            String match = "task_key = ? AND " + layout.assignedAtColumn() + " = ?";
+            StringBuilder progressCase = new StringBuilder("CASE");
+            StringBuilder completedCase = new StringBuilder("CASE");
+            StringBuilder claimedCase = new StringBuilder("CASE");
+            StringBuilder where = new StringBuilder();
+            for (int i = 0; i < rows; i++) {
+                progressCase.append(" WHEN ").append(match).append(" THEN ?");
+                completedCase.append(" WHEN ").append(match).append(" THEN ?");
+                claimedCase.append(" WHEN ").append(match).append(" THEN ?");
+                if (i > 0) where.append(" OR ");
+                where.append("(").append(match).append(")");
+            }
+            progressCase.append(" ELSE current_progress END");
+            completedCase.append(" ELSE completed END");
+            claimedCase.append(" ELSE claimed END");
+            return "UPDATE player_daily_tasks SET current_progress = " + progressCase +
+                ", completed = " + completedCase +
+                ", claimed = " + claimedCase +
+                " WHERE " + layout.uuidColumn() + " = ? AND completed = FALSE AND (" + where + ")";
+        });
+    }
+
+    /**
+     * 同一玩家多个已完成任务的批量领取
+     * 参数顺序：玩家 uuid，每行 task_key, assigned_at
+     */
+    public String claimBulk(int rows) {
+        return cache.computeIfAbsent("claimBulk:" + rows, k -> {
+            StringBuilder where = new StringBuilder();
+            for (int i = 0; i < rows; i++) {
+                if (i > 0) where.append(" OR ");
+                where.append("(task_key = ? AND ").append(layout.assignedAtColumn()).append(" = ?)");
+            }
+            return "UPDATE player_daily_tasks SET claimed = TRUE WHERE " + layout.uuidColumn() +
+                " = ? AND completed = TRUE AND claimed = FALSE AND (" + where + ")";
+        });
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private static String placeholders(int count) {
+        return "(" + "?, ".repeat(count - 1) + "?)";
+    }
+
+    private static String repeatRows(String row, int rows) {
+        StringBuilder sb = new StringBuilder(row.length() * rows + 2 * rows);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(row);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,27 @@
+package dev.user.simpletask.economy;
+
+import java.util.UUID;
+
+/**
+ * 经济后端
+ * 所有方法都在 EconomyManager 的专用线程中调用，同一玩家的操作按提交顺序串行执行
+ */
+public interface EconomyBackend {
+
+    /**
+     * 后端名称（用于日志）
+     */
+    String getName();
+
+    double getBalance(UUID uuid, String playerName);
+
+    /**
+     * 增加余额，返回是否成功
+     */
+    boolean deposit(UUID uuid, String playerName, double amount);
+
+    /**
+     * 扣除余额，余额不足时不扣除并返回 false
+     */
+    boolean withdraw(UUID uuid, String playerName, double amount);
+}
@@ -1,107 +1,196 @@
 package dev.user.simpletask.economy;
 
 import dev.user.simpletask.SimpleTaskPlugin;
-import me.yic.xconomy.api.XConomyAPI;
 import org.bukkit.entity.Player;
 
-import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 经济管理器
+ * 所有后端调用都在专用线程池中执行，不占用区域线程；
+ * 同一玩家的操作按提交顺序串行执行，合并窗口内的多次存款合并为一次后端调用
+ */
 public class EconomyManager {
 
+    // 存款合并窗口（毫秒）
+    private static final long DEPOSIT_COALESCE_MILLIS = 100;
+    // 经济线程数（不同玩家的操作可并行）
+    private static final int THREADS = 2;
+
     private final SimpleTaskPlugin plugin;
-    private XConomyAPI xconomyAPI;
-    private boolean enabled = false;
+    private final EconomyBackend backend;
+    private final ScheduledThreadPoolExecutor executor;
+
+    // 每名玩家最后提交的操作，新操作接在其后执行
+    private final Map<UUID, CompletableFuture<?>> tails = new ConcurrentHashMap<>();
+    // 合并窗口内尚未提交的存款
+    private final Map<UUID, PendingDeposit> pendingDeposits = new ConcurrentHashMap<>();
+
+    // done：合并后的存款执行完成时完成（true 表示成功），合并窗口内的所有存款共用
+    private record PendingDeposit(String playerName, double amount, CompletableFuture<Boolean> done) {}
 
     public EconomyManager(SimpleTaskPlugin plugin) {
+        this(plugin, createXConomyBackend(plugin));
+    }
+
+    /**
+     * @param backend 经济后端，null 表示禁用经济功能
+     */
+    public EconomyManager(SimpleTaskPlugin plugin, EconomyBackend backend) {
         this.plugin = plugin;
-        setupEconomy();
+        this.backend = backend;
+        this.executor = new ScheduledThreadPoolExecutor(THREADS, r -> {
+            Thread t = new Thread(r, "SimpleTask-Economy");
+            t.setDaemon(true);
+            return t;
+        });
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        if (backend != null) {
+            plugin.getLogger().info(backend.getName() + " integration enabled");
+        }
     }
 
-    private void setupEconomy() {
+    private static EconomyBackend createXConomyBackend(SimpleTaskPlugin plugin) {
         if (plugin.getServer().getPluginManager().getPlugin("XConomy") == null) {
             plugin.getLogger().warning("XConomy not found, economy features disabled");
-            return;
+            return null;
         }
 
         try {
-            xconomyAPI = new XConomyAPI();
-            enabled = true;
-            plugin.getLogger().info("XConomy integration enabled");
-        } catch (Exception e) {
+            return new XConomyBackend();
+        } catch (Exception | LinkageError e) {
             plugin.getLogger().warning("Failed to initialize XConomy: " + e.getMessage());
+            return null;
         }
     }
 
     public boolean isEnabled() {
-        return enabled;
+        return backend != null;
     }
 
     /**
-     * 获取玩家余额
+     * 异步获取玩家余额（包含合并窗口中尚未提交的存款）
      */
-    public double getBalance(Player player) {
-        if (!enabled || xconomyAPI == null) return 0;
-
-        try {
-            BigDecimal bal = xconomyAPI.getPlayerData(player.getUniqueId()).getBalance();
-            return bal.doubleValue();
-        } catch (Exception e) {
-            plugin.getLogger().warning("Failed to get balance: " + e.getMessage());
-            return 0;
-        }
+    public CompletableFuture<Double> getBalanceAsync(Player player) {
+        if (!isEnabled()) return CompletableFuture.completedFuture(0D);
+
+        UUID uuid = player.getUniqueId();
+        String name = player.getName();
+        flushDeposit(uuid);
+        return enqueue(uuid, () -> {
+            try {
+                return backend.getBalance(uuid, name);
+            } catch (Exception e) {
+                plugin.getLogger().warning("Failed to get balance: " + e.getMessage());
+                return 0D;
+            }
+        });
     }
 
     /**
-     * 给予玩家金币
+     * 给予玩家金币（异步执行，合并窗口内的多次存款合并为一次）
+     *
+     * @return 存款实际执行后完成，true 表示成功；经济未启用或金额为 0 时立即完成为 true
      */
-    public void deposit(Player player, double amount) {
-        if (!enabled || xconomyAPI == null || amount <= 0) return;
-
-        try {
-            xconomyAPI.changePlayerBalance(
-                player.getUniqueId(),
-                player.getName(),
-                BigDecimal.valueOf(amount),
-                true
-            );
-        } catch (Exception e) {
-            plugin.getLogger().warning("Failed to deposit: " + e.getMessage());
+    public CompletableFuture<Boolean> deposit(Player player, double amount) {
+        if (!isEnabled() || amount <= 0) return CompletableFuture.completedFuture(true);
+
+        UUID uuid = player.getUniqueId();
+        String name = player.getName();
+        boolean[] opened = new boolean[1];
+        PendingDeposit merged = pendingDeposits.compute(uuid, (k, pending) -> {
+            if (pending == null) {
+                opened[0] = true;
+                return new PendingDeposit(name, amount, new CompletableFuture<>());
+            }
+            return new PendingDeposit(name, pending.amount() + amount, pending.done());
+        });
+        if (opened[0]) {
+            executor.schedule(() -> flushDeposit(uuid), DEPOSIT_COALESCE_MILLIS, TimeUnit.MILLISECONDS);
         }
+        return merged.done();
     }
 
     /**
-     * 扣除玩家金币
+     * 异步扣除玩家金币，余额不足时返回 false
+     * 之前提交的存款会先于本次扣除执行
      */
-    public boolean withdraw(Player player, double amount) {
-        if (!enabled || xconomyAPI == null || amount <= 0) return false;
-        if (getBalance(player) < amount) return false;
+    public CompletableFuture<Boolean> withdrawAsync(Player player, double amount) {
+        if (!isEnabled() || amount <= 0) return CompletableFuture.completedFuture(false);
+
+        UUID uuid = player.getUniqueId();
+        String name = player.getName();
+        flushDeposit(uuid);
+        return enqueue(uuid, () -> {
+            try {
+                return backend.withdraw(uuid, name, amount);
+            } catch (Exception e) {
+                plugin.getLogger().warning("Failed to withdraw: " + e.getMessage());
+                return false;
+            }
+        });
+    }
 
-        try {
-            int result = xconomyAPI.changePlayerBalance(
-                player.getUniqueId(),
-                player.getName(),
-                BigDecimal.valueOf(amount),
-                false
-            );
-            return result == 0;
-        } catch (Exception e) {
-            plugin.getLogger().warning("Failed to withdraw: " + e.getMessage());
-            return false;
-        }
+    /**
+     * 提交玩家合并窗口中的存款
+     */
+    private void flushDeposit(UUID uuid) {
+        PendingDeposit pending = pendingDeposits.remove(uuid);
+        if (pending == null) return;
+
+        enqueue(uuid, () -> {
+            boolean success = false;
+            try {
+                success = backend.deposit(uuid, pending.playerName(), pending.amount());
+                if (!success) {
+                    plugin.getLogger().warning("Failed to deposit " + pending.amount() + " to " + pending.playerName());
+                }
+            } catch (Exception e) {
+                plugin.getLogger().warning("Failed to deposit: " + e.getMessage());
+            }
+            pending.done().complete(success);
+            return null;
+        });
     }
 
     /**
-     * 异步获取余额
+     * 将操作接在该玩家上一个操作之后执行
      */
-    public CompletableFuture<Double> getBalanceAsync(Player player) {
-        return CompletableFuture.supplyAsync(() -> getBalance(player));
+    private <T> CompletableFuture<T> enqueue(UUID uuid, Supplier<T> operation) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        tails.compute(uuid, (k, tail) -> {
+            CompletableFuture<?> previous = tail != null ? tail : CompletableFuture.completedFuture(null);
+            previous.whenCompleteAsync((ignored, error) -> {
+                try {
+                    future.complete(operation.get());
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            }, executor);
+            return future;
+        });
+        future.whenComplete((ignored, error) -> tails.remove(uuid, future));
+        return future;
     }
 
     /**
-     * 异步给予金币
+     * 提交所有待合并的存款，等待已提交的操作完成后关闭线程池
      */
-    public CompletableFuture<Void> depositAsync(Player player, double amount) {
-        return CompletableFuture.runAsync(() -> deposit(player, amount));
+    public void shutdown() {
+        for (UUID uuid : pendingDeposits.keySet()) {
+            flushDeposit(uuid);
+        }
+        try {
+            CompletableFuture.allOf(tails.values().toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            plugin.getLogger().warning("Timed out waiting for economy operations: " + e.getMessage());
+        }
+        executor.shutdown();
     }
 }
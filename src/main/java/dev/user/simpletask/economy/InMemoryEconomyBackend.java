@@ -0,0 +1,46 @@
+package dev.user.simpletask.economy;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 内存经济后端
+ * 供基准测试和负载模拟使用，无需安装 XConomy
+ */
+public class InMemoryEconomyBackend implements EconomyBackend {
+
+    private final Map<UUID, Double> balances = new ConcurrentHashMap<>();
+    private final double initialBalance;
+
+    public InMemoryEconomyBackend(double initialBalance) {
+        this.initialBalance = initialBalance;
+    }
+
+    @Override
+    public String getName() {
+        return "InMemory";
+    }
+
+    @Override
+    public double getBalance(UUID uuid, String playerName) {
+        return balances.getOrDefault(uuid, initialBalance);
+    }
+
+    @Override
+    public boolean deposit(UUID uuid, String playerName, double amount) {
+        balances.merge(uuid, initialBalance + amount, (old, ignored) -> old + amount);
+        return true;
+    }
+
+    @Override
+    public boolean withdraw(UUID uuid, String playerName, double amount) {
+        boolean[] success = new boolean[1];
+        balances.compute(uuid, (k, old) -> {
+            double balance = old != null ? old : initialBalance;
+            success[0] = balance >= amount;
+            return success[0] ? balance - amount : balance;
+        });
+        return success[0];
+    }
+}
@@ -0,0 +1,35 @@
+package dev.user.simpletask.economy;
+
+import me.yic.xconomy.api.XConomyAPI;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * XConomy 经济后端
+ */
+public class XConomyBackend implements EconomyBackend {
+
+    private final XConomyAPI api = new XConomyAPI();
+
+    @Override
+    public String getName() {
+        return "XConomy";
+    }
+
+    @Override
+    public double getBalance(UUID uuid, String playerName) {
+        return api.getPlayerData(uuid).getBalance().doubleValue();
+    }
+
+    @Override
+    public boolean deposit(UUID uuid, String playerName, double amount) {
+        return api.changePlayerBalance(uuid, playerName, BigDecimal.valueOf(amount), true) == 0;
+    }
+
+    @Override
+    public boolean withdraw(UUID uuid, String playerName, double amount) {
+        // XConomy 在余额不足时返回非 0 且不扣除，无需事先查询余额
+        return api.changePlayerBalance(uuid, playerName, BigDecimal.valueOf(amount), false) == 0;
+    }
+}
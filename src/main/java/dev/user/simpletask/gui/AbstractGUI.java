@@ -1,6 +1,7 @@
 package dev.user.simpletask.gui;
 
 import dev.user.simpletask.SimpleTaskPlugin;
+import dev.user.simpletask.task.PlayerTask;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.bukkit.Bukkit;
@@ -12,6 +13,7 @@ import org.bukkit.inventory.ItemStack;
 
 import dev.user.simpletask.util.MessageUtil;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public abstract class AbstractGUI implements InventoryHolder {
@@ -23,6 +25,10 @@ public abstract class AbstractGUI implements InventoryHolder {
     protected Inventory inventory;
     protected final Map<Integer, GUIAction> actions;
 
+    // 差异渲染：renderFrame 不为 null 时 setItem 只写入帧，commitRender 时只更新变化的槽位
+    private ItemStack[] renderFrame;
+    private ItemStack[] rendered;
+
     @FunctionalInterface
     public interface GUIAction {
         void execute(Player player, InventoryClickEvent event);
@@ -48,6 +54,13 @@ public abstract class AbstractGUI implements InventoryHolder {
      */
     public abstract void initialize();
 
+    /**
+     * 任务状态变化推送（玩家区域线程，由 GUIManager 节流调用）
+     * 默认忽略，显示任务的界面覆盖此方法只重绘受影响的槽位
+     */
+    public void onTasksChanged(List<PlayerTask> changed) {
+    }
+
     /**
      * 打开GUI
      */
@@ -64,19 +77,69 @@ public abstract class AbstractGUI implements InventoryHolder {
      * 设置物品到指定槽位
      */
     protected void setItem(int slot, ItemStack item) {
-        inventory.setItem(slot, item);
+        if (renderFrame != null) {
+            renderFrame[slot] = item;
+        } else if (rendered != null) {
+            // 已提交过渲染帧：内容未变化的槽位不重复写入
+            if (!isSame(item, rendered[slot])) {
+                inventory.setItem(slot, item);
+                rendered[slot] = item;
+            }
+        } else {
+            inventory.setItem(slot, item);
+        }
     }
 
     /**
      * 设置物品并绑定点击动作
      */
     protected void setItem(int slot, ItemStack item, GUIAction action) {
-        inventory.setItem(slot, item);
+        setItem(slot, item);
         if (action != null) {
             actions.put(slot, action);
         }
     }
 
+    /**
+     * 获取槽位当前内容（渲染帧中优先）
+     */
+    protected ItemStack peekItem(int slot) {
+        return renderFrame != null ? renderFrame[slot] : inventory.getItem(slot);
+    }
+
+    // ==================== 差异渲染 ====================
+
+    /**
+     * 开始一帧渲染：之后的 setItem 写入帧缓冲，清空点击动作
+     */
+    protected void beginRender() {
+        renderFrame = new ItemStack[size];
+        actions.clear();
+    }
+
+    /**
+     * 提交渲染帧：只对内容变化的槽位调用 inventory.setItem，未设置的槽位清空
+     */
+    protected void commitRender() {
+        ItemStack[] frame = renderFrame;
+        renderFrame = null;
+        if (rendered == null) {
+            rendered = new ItemStack[size];
+        }
+        for (int slot = 0; slot < size; slot++) {
+            ItemStack next = frame[slot];
+            if (isSame(next, rendered[slot])) {
+                continue;
+            }
+            inventory.setItem(slot, next);
+            rendered[slot] = next;
+        }
+    }
+
+    private static boolean isSame(ItemStack next, ItemStack previous) {
+        return next == previous || (next != null && next.equals(previous));
+    }
+
     /**
      * 填充边框
      */
@@ -86,8 +149,8 @@ public abstract class AbstractGUI implements InventoryHolder {
             int row = i / 9;
             int col = i % 9;
             if (row == 0 || row == rows - 1 || col == 0 || col == 8) {
-                if (inventory.getItem(i) == null) {
-                    inventory.setItem(i, item);
+                if (peekItem(i) == null) {
+                    setItem(i, item);
                 }
             }
         }
@@ -98,8 +161,8 @@ public abstract class AbstractGUI implements InventoryHolder {
      */
     protected void fillEmpty(ItemStack item) {
         for (int i = 0; i < size; i++) {
-            if (inventory.getItem(i) == null) {
-                inventory.setItem(i, item);
+            if (peekItem(i) == null) {
+                setItem(i, item);
             }
         }
     }
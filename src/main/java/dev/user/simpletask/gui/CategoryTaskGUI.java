@@ -103,10 +103,13 @@ public class CategoryTaskGUI extends AbstractGUI {
         });
     }
 
+    /**
+     * 渲染界面：先写入渲染帧，再只更新内容变化的槽位
+     * 任务图标来自 TaskIconCache，未变化的任务不会重新构建物品
+     */
     @Override
     public void initialize() {
-        inventory.clear();
-        actions.clear();
+        beginRender();
 
         // 顶部信息按钮 (slot 4)
         setInfoButton();
@@ -123,6 +126,8 @@ public class CategoryTaskGUI extends AbstractGUI {
 
         // 底部按钮
         setBottomButtons();
+
+        commitRender();
     }
 
     private void displayTasks() {
@@ -202,22 +207,32 @@ public class CategoryTaskGUI extends AbstractGUI {
     }
 
     private void refreshPage() {
-        inventory.clear();
-        actions.clear();
+        // 重新绘制（只更新变化的槽位）
+        initialize();
+    }
 
-        // 重新绘制
-        setInfoButton();
-        ItemStack borderItem = ItemUtil.createDecoration(
-            plugin.getConfigManager().getGuiDecoration("border"),
-            " "
-        );
-        fillBorderExceptTopCenter(borderItem);
+    /**
+     * 获取任务图标（按模板版本、进度、状态和显示模式缓存）
+     */
+    private ItemStack createTaskItem(PlayerTask task) {
+        String timeLeft = "limited".equals(category.getId()) ? formatTimeLeft(task) : null;
+        TaskIconCache.Key key = new TaskIconCache.Key(task.getTaskKey(), task.getTemplate().getVersion(),
+            category.getId(), task.getCurrentProgress(), task.isCompleted(), task.isClaimed(), detailedMode, timeLeft);
+        return TaskIconCache.get(key, () -> renderTaskItem(task, timeLeft));
+    }
 
-        displayTasks();
-        setBottomButtons();
+    /**
+     * 限时任务的剩余时间文本（用作图标缓存键的一部分）
+     */
+    private String formatTimeLeft(PlayerTask task) {
+        java.time.Instant expireTime = task.getExpireTime(category);
+        if (expireTime == null) return "";
+        java.time.Instant now = TimeZoneConfig.toInstant(TimeZoneConfig.now());
+        if (expireTime.isBefore(now)) return "<red>⚠ 已过期";
+        return "<yellow>⏳ 剩余时间: " + TimeUtil.formatDuration(java.time.Duration.between(now, expireTime));
     }
 
-    private ItemStack createTaskItem(PlayerTask task) {
+    private ItemStack renderTaskItem(PlayerTask task, String timeLeft) {
         // 解析任务名称
         Component taskNameComponent = MessageUtil.parse(task.getTemplate().getName());
 
@@ -261,18 +276,10 @@ public class CategoryTaskGUI extends AbstractGUI {
         }
 
         // 对于limited分类，显示过期时间
-        if ("limited".equals(category.getId())) {
+        if (timeLeft != null) {
             loreBuilder.empty();
-            java.time.Instant expireTime = task.getExpireTime(category);
-            if (expireTime != null) {
-                java.time.Instant now = TimeZoneConfig.toInstant(TimeZoneConfig.now());
-                if (expireTime.isBefore(now)) {
-                    loreBuilder.add("<red>⚠ 已过期");
-                } else {
-                    java.time.Duration remaining = java.time.Duration.between(now, expireTime);
-                    String timeLeft = TimeUtil.formatDuration(remaining);
-                    loreBuilder.add("<yellow>⏳ 剩余时间: " + timeLeft);
-                }
+            if (!timeLeft.isEmpty()) {
+                loreBuilder.add(timeLeft);
             }
         }
 
@@ -404,26 +411,15 @@ public class CategoryTaskGUI extends AbstractGUI {
         }
 
         if (task.isCompleted() && !task.isClaimed()) {
-            plugin.getTaskManager().claimRewardAsync(player, task, success -> {
-                // 检查玩家是否仍然在线
-                if (!player.isOnline()) {
-                    return;
-                }
-                if (success) {
-                    refreshTasks();
-                }
-            });
+            // 领取结果由 GUIManager 推送到 onTasksChanged
+            plugin.getTaskManager().claimRewardAsync(player, task, success -> {});
         }
     }
 
     private void handleSubmitTask(Player player, PlayerTask task) {
         if (task.isCompleted()) {
             if (!task.isClaimed()) {
-                plugin.getTaskManager().claimRewardAsync(player, task, success -> {
-                    if (success) {
-                        refreshTasks();
-                    }
-                });
+                plugin.getTaskManager().claimRewardAsync(player, task, success -> {});
             }
             return;
         }
@@ -469,7 +465,6 @@ public class CategoryTaskGUI extends AbstractGUI {
                         MessageUtil.send(plugin, player, "<yellow>已提交物品，进度: {current}/{target}",
                             MessageUtil.textPlaceholders("current", String.valueOf(newProgress), "target", String.valueOf(targetAmount)));
                     }
-                    initialize();
                 } else {
                     MessageUtil.send(plugin, player, "<red>提交失败，进度未保存");
                 }
@@ -623,7 +618,33 @@ public class CategoryTaskGUI extends AbstractGUI {
         long totalCount = tasks.size();
         setRerollButton(completedCount, totalCount);
 
-        // slot 51 留空（刷新功能已移除，reroll功能在slot 50）
+        // 一键领取按钮 (slot 51)
+        setClaimAllButton();
+    }
+
+    /**
+     * 一键领取：本分类所有已完成未领取的任务在一次事务中领取
+     */
+    private void setClaimAllButton() {
+        long claimableCount = tasks.stream().filter(t -> t.isCompleted() && !t.isClaimed()).count();
+        if (claimableCount == 0) {
+            setItem(51, ItemUtil.createDecoration("minecraft:gray_dye", "<gray>一键领取"), (p, e) ->
+                MessageUtil.send(plugin, p, "<gray>没有可领取的奖励"));
+            return;
+        }
+
+        ItemStack item = ItemUtil.createDecoration("minecraft:chest_minecart", "<gold><bold>一键领取");
+        ItemMeta meta = item.getItemMeta();
+        if (meta != null) {
+            meta.lore(List.of(
+                MessageUtil.parse("<gray>可领取: <yellow>" + claimableCount + " <gray>个任务")
+                    .decoration(TextDecoration.ITALIC, false),
+                MessageUtil.parse("<yellow>点击领取全部奖励")
+                    .decoration(TextDecoration.ITALIC, false)
+            ));
+            item.setItemMeta(meta);
+        }
+        setItem(51, item, (p, e) -> plugin.getTaskManager().claimAllRewardsAsync(p, category.getId(), count -> {}));
     }
 
     private void setRerollButton(long completedCount, long totalCount) {
@@ -768,9 +789,36 @@ public class CategoryTaskGUI extends AbstractGUI {
         }
     }
 
-    private void refreshTasks() {
-        MessageUtil.send(plugin, player, "<gray>正在刷新...");
-        open(plugin, player, category);
+    /**
+     * 任务进度/完成/领取状态变化：只重绘当前页受影响的任务槽位和汇总按钮
+     * 界面持有的任务与变化的任务按 taskKey + assignedAt 对应，持有的是旧副本时替换为最新对象
+     */
+    @Override
+    public void onTasksChanged(List<PlayerTask> changed) {
+        boolean affected = false;
+        for (PlayerTask updated : changed) {
+            if (!category.getId().equals(updated.getCategory())) continue;
+            for (int i = 0; i < tasks.size(); i++) {
+                PlayerTask task = tasks.get(i);
+                if (task != updated && !(task.getTaskKey().equals(updated.getTaskKey())
+                        && task.getAssignedAt().equals(updated.getAssignedAt()))) {
+                    continue;
+                }
+                tasks.set(i, updated);
+                affected = true;
+
+                int slotIndex = i - currentPage * TASKS_PER_PAGE;
+                if (slotIndex >= 0 && slotIndex < TASKS_PER_PAGE) {
+                    setItem(TASK_SLOTS[slotIndex], createTaskItem(updated), (p, e) -> onTaskClick(p, updated));
+                }
+                break;
+            }
+        }
+        if (!affected) return;
+
+        // 完成/领取数量可能变化
+        setInfoButton();
+        setBottomButtons();
     }
 
     private void fillBorderExceptTopCenter(ItemStack item) {
@@ -1,14 +1,32 @@
 package dev.user.simpletask.gui;
 
+import dev.user.simpletask.task.PlayerTask;
 import org.bukkit.entity.Player;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 public class GUIManager {
 
+    private static final long NANOS_PER_TICK = TimeUnit.MILLISECONDS.toNanos(50);
+
     private static final Map<UUID, AbstractGUI> openGUIs = new ConcurrentHashMap<>();
+    // 每名玩家待推送的任务变化
+    private static final Map<UUID, LiveUpdate> liveUpdates = new ConcurrentHashMap<>();
+
+    /**
+     * 玩家待推送的变化，字段在 synchronized(this) 下访问
+     */
+    private static final class LiveUpdate {
+        private final List<PlayerTask> changed = new ArrayList<>();
+        private boolean scheduled;
+        private long lastFlushNanos = System.nanoTime() - TimeUnit.DAYS.toNanos(1);
+    }
 
     /**
      * 注册打开的GUI
@@ -22,6 +40,7 @@ public class GUIManager {
      */
     public static void unregisterGUI(UUID uuid) {
         openGUIs.remove(uuid);
+        liveUpdates.remove(uuid);
     }
 
     /**
@@ -53,6 +72,7 @@ public class GUIManager {
             }
         }
         openGUIs.clear();
+        liveUpdates.clear();
     }
 
     /**
@@ -84,6 +104,57 @@ public class GUIManager {
                 }, () -> {}, 0L);
             }
             openGUIs.remove(uuid);
+            liveUpdates.remove(uuid);
+        }
+    }
+
+    // ==================== 实时进度推送 ====================
+
+    /**
+     * 通知玩家的任务进度/完成/领取状态发生变化（任意线程）
+     * 玩家打开界面时，变化在玩家调度器上推送给界面，每 gui.live-update-interval tick 最多一次；
+     * 间隔内的多次变化合并后一起推送
+     */
+    public static void notifyTasksChanged(UUID uuid, Collection<PlayerTask> tasks) {
+        if (tasks.isEmpty()) return;
+        AbstractGUI gui = openGUIs.get(uuid);
+        if (gui == null) return;
+
+        LiveUpdate update = liveUpdates.computeIfAbsent(uuid, k -> new LiveUpdate());
+        long delayTicks;
+        synchronized (update) {
+            update.changed.addAll(tasks);
+            if (update.scheduled) return;
+            update.scheduled = true;
+            long interval = Math.max(1, gui.plugin.getConfigManager().getGuiLiveUpdateInterval());
+            long elapsedTicks = (System.nanoTime() - update.lastFlushNanos) / NANOS_PER_TICK;
+            delayTicks = Math.max(1, interval - elapsedTicks);
+        }
+
+        var scheduled = gui.getPlayer().getScheduler().runDelayed(gui.plugin,
+            task -> flushLiveUpdate(uuid, update), () -> liveUpdates.remove(uuid, update), delayTicks);
+        if (scheduled == null) {
+            // 玩家实体已失效
+            liveUpdates.remove(uuid, update);
         }
     }
+
+    /**
+     * 把合并后的变化交给玩家当前打开的界面（玩家区域线程）
+     */
+    private static void flushLiveUpdate(UUID uuid, LiveUpdate update) {
+        List<PlayerTask> changed;
+        synchronized (update) {
+            changed = new ArrayList<>(update.changed);
+            update.changed.clear();
+            update.scheduled = false;
+            update.lastFlushNanos = System.nanoTime();
+        }
+
+        AbstractGUI gui = openGUIs.get(uuid);
+        if (gui == null || gui.getInventory() == null) return;
+        // 玩家已切换到其他背包界面时不再更新
+        if (gui.getPlayer().getOpenInventory().getTopInventory() != gui.getInventory()) return;
+        gui.onTasksChanged(changed);
+    }
 }
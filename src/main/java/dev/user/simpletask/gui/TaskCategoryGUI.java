@@ -369,6 +369,34 @@ public class TaskCategoryGUI extends AbstractGUI {
         }
         setItem(49, closeItem, (p, e) -> p.closeInventory());
 
+        // 右侧：一键领取所有分类的奖励 (slot 50)
+        long totalClaimable = allTasks.values().stream()
+            .flatMap(List::stream)
+            .filter(t -> t.isCompleted() && !t.isClaimed())
+            .count();
+        ItemStack claimAllItem = ItemUtil.createDecoration(
+            totalClaimable > 0 ? "minecraft:chest_minecart" : "minecraft:minecart",
+            totalClaimable > 0 ? "<gold><bold>✦ 一键领取" : "<gray><bold>一键领取");
+        ItemMeta claimAllMeta = claimAllItem.getItemMeta();
+        if (claimAllMeta != null) {
+            claimAllMeta.lore(List.of(
+                MessageUtil.parse("  <gray>可领取: <yellow>" + totalClaimable + " <gray>个任务")
+                    .decoration(TextDecoration.ITALIC, false)
+            ));
+            claimAllItem.setItemMeta(claimAllMeta);
+        }
+        setItem(50, claimAllItem, (p, e) -> {
+            if (totalClaimable == 0) {
+                MessageUtil.send(plugin, p, "<gray>没有可领取的奖励");
+                return;
+            }
+            plugin.getTaskManager().claimAllRewardsAsync(p, null, count -> {
+                if (count > 0 && p.isOnline()) {
+                    TaskCategoryGUI.open(plugin, p);
+                }
+            });
+        });
+
         // 右侧：帮助信息 (slot 52)
         ItemStack helpItem = ItemUtil.createDecoration("minecraft:book",
             "<aqua><bold>? 帮助");
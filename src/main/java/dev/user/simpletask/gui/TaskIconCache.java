@@ -0,0 +1,45 @@
+package dev.user.simpletask.gui;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * 任务图标缓存
+ * 图标内容只取决于模板版本、进度、完成/领取状态和显示模式，与玩家无关，所有界面共享；
+ * 返回的 ItemStack 只用于放入界面（Inventory.setItem 会复制），调用者不得修改
+ */
+public final class TaskIconCache {
+
+    private static final Cache<Key, ItemStack> CACHE = CacheBuilder.newBuilder()
+            .maximumSize(8192)
+            .build();
+
+    /**
+     * 图标缓存键
+     *
+     * @param timeLeft 限时分类的剩余时间文本（其他分类为 null）
+     */
+    public record Key(String taskKey, int templateVersion, String categoryId, int progress,
+                      boolean completed, boolean claimed, boolean detailed, String timeLeft) {}
+
+    private TaskIconCache() {}
+
+    public static ItemStack get(Key key, Supplier<ItemStack> renderer) {
+        try {
+            return CACHE.get(key, renderer::get);
+        } catch (ExecutionException e) {
+            return renderer.get();
+        }
+    }
+
+    /**
+     * 清空缓存（配置重载后 GUI 文案可能变化）
+     */
+    public static void clear() {
+        CACHE.invalidateAll();
+    }
+}
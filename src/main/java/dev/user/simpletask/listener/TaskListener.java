@@ -1,14 +1,13 @@
 package dev.user.simpletask.listener;
 
 import dev.user.simpletask.SimpleTaskPlugin;
+import dev.user.simpletask.profiling.ListenerHandlerEvent;
 import dev.user.simpletask.task.TaskManager;
 import dev.user.simpletask.task.TaskType;
 import dev.user.simpletask.util.ItemUtil;
 import org.bukkit.GameMode;
 import org.bukkit.Location;
 import org.bukkit.Material;
-import java.util.HashMap;
-import java.util.Map;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockState;
 import org.bukkit.block.data.Ageable;
@@ -24,6 +23,7 @@ import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.event.player.PlayerHarvestBlockEvent;
 import org.bukkit.event.inventory.CraftItemEvent;
 import org.bukkit.event.inventory.SmithItemEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerFishEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.event.player.PlayerItemConsumeEvent;
@@ -67,189 +67,229 @@ public class TaskListener implements Listener {
         this.taskManager = plugin.getTaskManager();
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+
+        // 登录前开始加载任务数据，加入服务器时直接使用
+        taskManager.preloadPlayerTasks(event.getUniqueId());
+    }
+
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
 
-        // Load player tasks (internally handled asynchronously)
+        // 取出登录前的预加载结果并补充新任务（内部异步执行）
         taskManager.loadPlayerTasks(player);
     }
 
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
-        taskManager.clearPlayerCache(event.getPlayer().getUniqueId());
+        taskManager.retirePlayerCache(event.getPlayer().getUniqueId());
     }
 
     // 使用 HIGH 优先级，在 PlayerChat (HIGHEST) 之前捕获
     // 不忽略已取消的事件，因为我们要在 PlayerChat 取消它之前处理
     @EventHandler(priority = EventPriority.HIGH)
     public void onAsyncPlayerChat(AsyncPlayerChatEvent event) {
-        Player player = event.getPlayer();
-        String message = event.getMessage();
-        plugin.getLogger().fine("[TaskListener] AsyncPlayerChatEvent triggered for " + player.getName() + ": " + message);
-        taskManager.updateProgress(player, TaskType.CHAT, message, 1);
+        ListenerHandlerEvent jfr = ListenerHandlerEvent.start("onAsyncPlayerChat", TaskType.CHAT);
+        try {
+            Player player = event.getPlayer();
+            String message = event.getMessage();
+            plugin.getLogger().fine("[TaskListener] AsyncPlayerChatEvent triggered for " + player.getName() + ": " + message);
+            jfr.addMatched(taskManager.updateProgress(player, TaskType.CHAT, message, 1));
+        } finally {
+            jfr.commit();
+        }
     }
 
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onCraftItem(CraftItemEvent event) {
-        if (!(event.getWhoClicked() instanceof Player player)) {
-            return;
-        }
+        ListenerHandlerEvent jfr = ListenerHandlerEvent.start("onCraftItem", TaskType.CRAFT);
+        try {
+            if (!(event.getWhoClicked() instanceof Player player)) {
+                return;
+            }
 
-        ItemStack result = event.getRecipe().getResult();
-        if (result == null || result.getType() == Material.AIR) {
-            return;
-        }
+            ItemStack result = event.getRecipe().getResult();
+            if (result == null || result.getType() == Material.AIR) {
+                return;
+            }
 
-        String itemKey = ItemUtil.getItemKey(result);
-        if (itemKey == null) {
-            itemKey = "minecraft:" + result.getType().name().toLowerCase();
-        }
+            String itemKey = ItemUtil.getItemKey(result);
+            if (itemKey == null) {
+                itemKey = "minecraft:" + result.getType().name().toLowerCase();
+            }
 
-        int singleCraftAmount = result.getAmount();
-        int totalAcquired;
+            int singleCraftAmount = result.getAmount();
+            int totalAcquired;
 
-        if (event.isShiftClick()) {
-            // Shift+点击：计算实际合成数量
+            if (event.isShiftClick()) {
+                // Shift+点击：计算实际合成数量
 
-            // 1. 计算合成矩阵中的材料瓶颈（按槽位取最小）
-            int maxCraftableByIngredients = Integer.MAX_VALUE;
-            for (ItemStack item : event.getInventory().getMatrix()) {
-                if (item != null && item.getType() != Material.AIR) {
-                    maxCraftableByIngredients = Math.min(maxCraftableByIngredients, item.getAmount());
+                // 1. 计算合成矩阵中的材料瓶颈（按槽位取最小）
+                int maxCraftableByIngredients = Integer.MAX_VALUE;
+                for (ItemStack item : event.getInventory().getMatrix()) {
+                    if (item != null && item.getType() != Material.AIR) {
+                        maxCraftableByIngredients = Math.min(maxCraftableByIngredients, item.getAmount());
+                    }
+                }
+                if (maxCraftableByIngredients == Integer.MAX_VALUE) {
+                    maxCraftableByIngredients = 1;
                 }
-            }
-            if (maxCraftableByIngredients == Integer.MAX_VALUE) {
-                maxCraftableByIngredients = 1;
-            }
 
-            // 2. 计算玩家背包还能装下多少个该物品
-            int availableSpace = 0;
-            for (ItemStack item : player.getInventory().getStorageContents()) {
-                if (item == null || item.getType() == Material.AIR) {
-                    // 空槽位可以放满一整组
-                    availableSpace += result.getMaxStackSize();
-                } else if (item.isSimilar(result)) {
-                    // 相似物品可以堆叠，计算剩余空间
-                    availableSpace += (result.getMaxStackSize() - item.getAmount());
+                // 2. 计算玩家背包还能装下多少个该物品
+                int availableSpace = 0;
+                for (ItemStack item : player.getInventory().getStorageContents()) {
+                    if (item == null || item.getType() == Material.AIR) {
+                        // 空槽位可以放满一整组
+                        availableSpace += result.getMaxStackSize();
+                    } else if (item.isSimilar(result)) {
+                        // 相似物品可以堆叠，计算剩余空间
+                        availableSpace += (result.getMaxStackSize() - item.getAmount());
+                    }
                 }
-            }
 
-            // 3. 计算实际合成的次数
-            // 将可用空间除以单次产出量，得出背包能承受的合成次数
-            int maxCraftableBySpace = availableSpace / singleCraftAmount;
-            int actualCrafts = Math.min(maxCraftableByIngredients, maxCraftableBySpace);
+                // 3. 计算实际合成的次数
+                // 将可用空间除以单次产出量，得出背包能承受的合成次数
+                int maxCraftableBySpace = availableSpace / singleCraftAmount;
+                int actualCrafts = Math.min(maxCraftableByIngredients, maxCraftableBySpace);
 
-            // 4. 最终实际获得的物品总数
-            totalAcquired = actualCrafts * singleCraftAmount;
-        } else {
-            // 普通点击合成
-            totalAcquired = singleCraftAmount;
-        }
+                // 4. 最终实际获得的物品总数
+                totalAcquired = actualCrafts * singleCraftAmount;
+            } else {
+                // 普通点击合成
+                totalAcquired = singleCraftAmount;
+            }
 
-        if (totalAcquired <= 0) return;
+            if (totalAcquired <= 0) return;
 
-        final int finalAmount = totalAcquired;
-        final String finalItemKey = itemKey;
-        final ItemStack finalResult = result.clone();
+            final int finalAmount = totalAcquired;
+            final String finalItemKey = itemKey;
+            final ItemStack finalResult = result.clone();
 
-        // updateProgress handles its own async database operations
-        taskManager.updateProgress(player, TaskType.CRAFT, finalItemKey, finalResult, finalAmount);
+            // updateProgress handles its own async database operations
+            jfr.addMatched(taskManager.updateProgress(player, TaskType.CRAFT, finalItemKey, finalResult, finalAmount));
+        } finally {
+            jfr.commit();
+        }
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onSmithItem(SmithItemEvent event) {
-        if (!(event.getWhoClicked() instanceof Player player)) {
-            return;
-        }
+        ListenerHandlerEvent jfr = ListenerHandlerEvent.start("onSmithItem", TaskType.CRAFT);
+        try {
+            if (!(event.getWhoClicked() instanceof Player player)) {
+                return;
+            }
 
-        // 获取锻造结果
-        ItemStack result = event.getInventory().getResult();
-        if (result == null || result.getType() == Material.AIR) {
-            return;
-        }
+            // 获取锻造结果
+            ItemStack result = event.getInventory().getResult();
+            if (result == null || result.getType() == Material.AIR) {
+                return;
+            }
 
-        String itemKey = ItemUtil.getItemKey(result);
-        if (itemKey == null) {
-            itemKey = "minecraft:" + result.getType().name().toLowerCase();
-        }
+            String itemKey = ItemUtil.getItemKey(result);
+            if (itemKey == null) {
+                itemKey = "minecraft:" + result.getType().name().toLowerCase();
+            }
 
-        // 锻造台一次只能合成1个物品
-        final String finalItemKey = itemKey;
-        final ItemStack finalResult = result.clone();
+            // 锻造台一次只能合成1个物品
+            final String finalItemKey = itemKey;
+            final ItemStack finalResult = result.clone();
 
-        // updateProgress handles its own async database operations
-        taskManager.updateProgress(player, TaskType.CRAFT, finalItemKey, finalResult, 1);
+            // updateProgress handles its own async database operations
+            jfr.addMatched(taskManager.updateProgress(player, TaskType.CRAFT, finalItemKey, finalResult, 1));
+        } finally {
+            jfr.commit();
+        }
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onPlayerFish(PlayerFishEvent event) {
-        if (event.getState() != PlayerFishEvent.State.CAUGHT_FISH) {
-            return;
-        }
+        ListenerHandlerEvent jfr = ListenerHandlerEvent.start("onPlayerFish", TaskType.FISH);
+        try {
+            if (event.getState() != PlayerFishEvent.State.CAUGHT_FISH) {
+                return;
+            }
 
-        Player player = event.getPlayer();
-        Entity caught = event.getCaught();
+            Player player = event.getPlayer();
+            Entity caught = event.getCaught();
 
-        if (!(caught instanceof Item caughtItem)) {
-            return;
-        }
+            if (!(caught instanceof Item caughtItem)) {
+                return;
+            }
 
-        // 获取钓获物品的 key 和 ItemStack
-        ItemStack caughtStack = caughtItem.getItemStack();
-        String itemKey = ItemUtil.getItemKey(caughtStack);
+            // 获取钓获物品的 key 和 ItemStack
+            ItemStack caughtStack = caughtItem.getItemStack();
+            String itemKey = ItemUtil.getItemKey(caughtStack);
 
-        // updateProgress handles its own async database operations
-        taskManager.updateProgress(player, TaskType.FISH, itemKey, caughtStack, 1);
+            // 连续钓获在同一 tick 内合并
+            taskManager.accumulateProgress(player, TaskType.FISH, itemKey, caughtStack, 1);
+        } finally {
+            jfr.commit();
+        }
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onPlayerItemConsume(PlayerItemConsumeEvent event) {
-        Player player = event.getPlayer();
-        ItemStack item = event.getItem();
+        ListenerHandlerEvent jfr = ListenerHandlerEvent.start("onPlayerItemConsume", TaskType.CONSUME);
+        try {
+            Player player = event.getPlayer();
+            ItemStack item = event.getItem();
 
-        if (item == null || item.getType() == Material.AIR) {
-            return;
-        }
+            if (item == null || item.getType() == Material.AIR) {
+                return;
+            }
 
-        String itemKey = ItemUtil.getItemKey(item);
-        if (itemKey == null) {
-            itemKey = "minecraft:" + item.getType().name().toLowerCase();
-        }
+            String itemKey = ItemUtil.getItemKey(item);
+            if (itemKey == null) {
+                itemKey = "minecraft:" + item.getType().name().toLowerCase();
+            }
 
-        final String finalItemKey = itemKey;
-        final ItemStack finalItem = item.clone();
+            final String finalItemKey = itemKey;
+            final ItemStack finalItem = item.clone();
 
-        // updateProgress handles its own async database operations
-        taskManager.updateProgress(player, TaskType.CONSUME, finalItemKey, finalItem, 1);
+            // updateProgress handles its own async database operations
+            jfr.addMatched(taskManager.updateProgress(player, TaskType.CONSUME, finalItemKey, finalItem, 1));
+        } finally {
+            jfr.commit();
+        }
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onPlayerInteract(PlayerInteractEvent event) {
-        // 只处理右键点击方块
-        if (event.getAction() != Action.RIGHT_CLICK_BLOCK) return;
-        if (event.getClickedBlock() == null) return;
+        ListenerHandlerEvent jfr = ListenerHandlerEvent.start("onPlayerInteract", TaskType.CONSUME);
+        try {
+            // 只处理右键点击方块
+            if (event.getAction() != Action.RIGHT_CLICK_BLOCK) return;
+            if (event.getClickedBlock() == null) return;
 
-        Block block = event.getClickedBlock();
-        Material type = block.getType();
+            Block block = event.getClickedBlock();
+            Material type = block.getType();
 
-        // 检查是否是蛋糕
-        if (!isCake(type)) return;
+            // 检查是否是蛋糕
+            if (!isCake(type)) return;
 
-        Player player = event.getPlayer();
+            Player player = event.getPlayer();
 
-        // 检查玩家是否可以食用蛋糕
-        if (!canEatCake(player)) return;
+            // 检查玩家是否可以食用蛋糕
+            if (!canEatCake(player)) return;
 
-        // 获取蛋糕的 item key
-        String itemKey = ItemUtil.getBlockKey(block);
-        if (itemKey == null) {
-            itemKey = "minecraft:" + type.name().toLowerCase();
-        }
+            // 获取蛋糕的 item key
+            String itemKey = ItemUtil.getBlockKey(block);
+            if (itemKey == null) {
+                itemKey = "minecraft:" + type.name().toLowerCase();
+            }
 
-        // 更新 CONSUME 任务进度
-        taskManager.updateProgress(player, TaskType.CONSUME, itemKey, null, 1);
+            // 更新 CONSUME 任务进度
+            jfr.addMatched(taskManager.updateProgress(player, TaskType.CONSUME, itemKey, null, 1));
+        } finally {
+            jfr.commit();
+        }
     }
 
     /**
@@ -280,38 +320,43 @@ public class TaskListener implements Listener {
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onBlockBreak(BlockBreakEvent event) {
-        Player player = event.getPlayer();
-        Block block = event.getBlock();
-        Material type = block.getType();
+        ListenerHandlerEvent jfr = ListenerHandlerEvent.start("onBlockBreak", TaskType.BREAK);
+        try {
+            Player player = event.getPlayer();
+            Block block = event.getBlock();
+            Material type = block.getType();
 
-        // Get item key for the block (support CE custom blocks)
-        String itemKey = ItemUtil.getBlockKey(block);
+            // Get item key for the block (support CE custom blocks)
+            String itemKey = ItemUtil.getBlockKey(block);
 
-        // 检查是否是玩家自己放置的（防刷检测）
-        boolean isPlayerPlaced = plugin.getAntiCheatManager().isPlayerPlacedBlock(block.getLocation());
+            // 检查是否是玩家自己放置的（防刷检测）
+            boolean isPlayerPlaced = plugin.getAntiCheatManager().isPlayerPlacedBlock(block.getLocation());
 
-        // 获取当前 tick 用于去重
-        long currentTick = player.getWorld().getFullTime();
+            // 获取当前 tick 用于去重
+            long currentTick = player.getWorld().getFullTime();
 
-        // 保存方块信息供 BlockDropItemEvent 使用（在清除防刷记录之前）
-        saveBlockBreakInfo(player, block, isPlayerPlaced, currentTick);
-        if (!isPlayerPlaced) {
-            taskManager.updateProgress(player, TaskType.BREAK, itemKey, 1);
-        }
+            // 保存方块信息供 BlockDropItemEvent 使用（在清除防刷记录之前）
+            saveBlockBreakInfo(player, block, isPlayerPlaced, currentTick);
+            if (!isPlayerPlaced) {
+                jfr.addMatched(taskManager.updateProgress(player, TaskType.BREAK, itemKey, 1));
+            }
 
-        // 处理堆叠作物（竹子、甘蔗、仙人掌）的 HARVEST 任务
-        // 这些作物破坏底部时上方会连锁掉落，需要特殊处理
-        if (isStackableCrop(type)) {
-            // 检查是否已在同一 tick 处理过这个位置（防止重复计算）
-            String dedupKey = getStackableCropDedupKey(player.getUniqueId(), block.getLocation(), currentTick);
-            if (stackableCropProcessed.getIfPresent(dedupKey) == null) {
-                stackableCropProcessed.put(dedupKey, true);
-                handleStackableCropHarvest(player, block, type, currentTick);
+            // 处理堆叠作物（竹子、甘蔗、仙人掌）的 HARVEST 任务
+            // 这些作物破坏底部时上方会连锁掉落，需要特殊处理
+            if (isStackableCrop(type)) {
+                // 检查是否已在同一 tick 处理过这个位置（防止重复计算）
+                String dedupKey = getStackableCropDedupKey(player.getUniqueId(), block.getLocation(), currentTick);
+                if (stackableCropProcessed.getIfPresent(dedupKey) == null) {
+                    stackableCropProcessed.put(dedupKey, true);
+                    handleStackableCropHarvest(player, block, type, currentTick);
+                }
             }
-        }
 
-        // 清除防刷记录（所有检测完成后）
-        plugin.getAntiCheatManager().removeBlockRecord(block.getLocation());
+            // 清除防刷记录（所有检测完成后）
+            plugin.getAntiCheatManager().removeBlockRecord(block.getLocation());
+        } finally {
+            jfr.commit();
+        }
     }
 
     /**
@@ -357,7 +402,7 @@ public class TaskListener implements Listener {
         if (totalCount > 0) {
             // 堆叠作物掉落物与方块类型相同
             String itemKey = "minecraft:" + type.name().toLowerCase();
-            taskManager.updateProgress(player, TaskType.HARVEST, itemKey, null, totalCount);
+            taskManager.accumulateProgress(player, TaskType.HARVEST, itemKey, null, totalCount);
         }
     }
 
@@ -394,94 +439,82 @@ public class TaskListener implements Listener {
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onBlockDropItem(BlockDropItemEvent event) {
-        Player player = event.getPlayer();
-        if (player == null) return;
-
-        Block block = event.getBlock();
-        Location loc = block.getLocation();
-
-        // 获取保存的方块信息（BlockBreakEvent中保存的）
-        BlockBreakInfo info = getBlockBreakInfo(player, loc);
-        if (info == null) return;
-
-        // 检查tick一致性，防止竞态条件（允许当前tick或上一tick）
-        long currentTick = player.getWorld().getFullTime();
-        if (info.tick() != currentTick && info.tick() != currentTick - 1) {
-            // 过旧的缓存数据，忽略
-            return;
-        }
-
-        BlockState state = info.state();
-        boolean wasPlayerPlaced = info.isPlayerPlaced();
-        Material type = state.getType();
-
-        // 1. 检查是否是 HARVEST 目标作物
-        if (!isHarvestableCrop(type)) return;
+        ListenerHandlerEvent jfr = ListenerHandlerEvent.start("onBlockDropItem", TaskType.HARVEST);
+        try {
+            Player player = event.getPlayer();
+            if (player == null) return;
+
+            Block block = event.getBlock();
+            Location loc = block.getLocation();
+
+            // 获取保存的方块信息（BlockBreakEvent中保存的）
+            BlockBreakInfo info = getBlockBreakInfo(player, loc);
+            if (info == null) return;
+
+            // 检查tick一致性，防止竞态条件（允许当前tick或上一tick）
+            long currentTick = player.getWorld().getFullTime();
+            if (info.tick() != currentTick && info.tick() != currentTick - 1) {
+                // 过旧的缓存数据，忽略
+                return;
+            }
 
-        // 堆叠作物（竹子、甘蔗、仙人掌）已在 BlockBreakEvent 中处理
-        if (isStackableCrop(type)) return;
+            BlockState state = info.state();
+            boolean wasPlayerPlaced = info.isPlayerPlaced();
+            Material type = state.getType();
 
-        // 2. 检查是否成熟（使用BlockState中的数据）
-        if (!isFullyGrown(state)) return;
+            // 1. 检查是否是 HARVEST 目标作物
+            if (!isHarvestableCrop(type)) return;
 
-        // 3. 南瓜、西瓜需要防刷检测（可被精准采集放置）
-        if ((type == Material.PUMPKIN || type == Material.MELON) && wasPlayerPlaced) {
-            plugin.getLogger().fine("[AntiCheat] Harvest at " + loc + " ignored (player placed pumpkin/melon)");
-            return;
-        }
+            // 堆叠作物（竹子、甘蔗、仙人掌）已在 BlockBreakEvent 中处理
+            if (isStackableCrop(type)) return;
 
-        // 4. 处理掉落物，按物品类型累加后批量更新（避免多次调用导致重复发放奖励）
-        Map<String, Integer> itemCounts = new HashMap<>();
-        Map<String, ItemStack> itemSamples = new HashMap<>();
+            // 2. 检查是否成熟（使用BlockState中的数据）
+            if (!isFullyGrown(state)) return;
 
-        for (org.bukkit.entity.Item drop : event.getItems()) {
-            ItemStack itemStack = drop.getItemStack();
-            String itemKey = ItemUtil.getItemKey(itemStack);
-            if (itemKey == null) {
-                itemKey = "minecraft:" + itemStack.getType().name().toLowerCase();
+            // 3. 南瓜、西瓜需要防刷检测（可被精准采集放置）
+            if ((type == Material.PUMPKIN || type == Material.MELON) && wasPlayerPlaced) {
+                plugin.getLogger().fine("[AntiCheat] Harvest at " + loc + " ignored (player placed pumpkin/melon)");
+                return;
             }
-            itemCounts.merge(itemKey, itemStack.getAmount(), Integer::sum);
-            itemSamples.putIfAbsent(itemKey, itemStack);
-        }
-
-        for (Map.Entry<String, Integer> entry : itemCounts.entrySet()) {
-            String itemKey = entry.getKey();
-            int totalAmount = entry.getValue();
-            ItemStack sampleItem = itemSamples.get(itemKey);
 
-            taskManager.updateProgress(player, TaskType.HARVEST, itemKey, sampleItem, totalAmount);
+            // 4. 处理掉落物：同一 tick 内（包括大面积收获的多个方块）按物品累加后统一更新
+            for (org.bukkit.entity.Item drop : event.getItems()) {
+                accumulateHarvest(player, drop.getItemStack());
+            }
+        } finally {
+            jfr.commit();
         }
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onPlayerHarvestBlock(PlayerHarvestBlockEvent event) {
-        Player player = event.getPlayer();
-        Block block = event.getHarvestedBlock();
-        Material type = block.getType();
-
-        // 只处理浆果类作物
-        if (type != Material.SWEET_BERRY_BUSH && type != Material.CAVE_VINES) return;
-
-        // 处理掉落物，按物品类型累加后批量更新（避免多次调用导致重复发放奖励）
-        Map<String, Integer> itemCounts = new HashMap<>();
-        Map<String, ItemStack> itemSamples = new HashMap<>();
-
-        for (ItemStack itemStack : event.getItemsHarvested()) {
-            String itemKey = ItemUtil.getItemKey(itemStack);
-            if (itemKey == null) {
-                itemKey = "minecraft:" + itemStack.getType().name().toLowerCase();
+        ListenerHandlerEvent jfr = ListenerHandlerEvent.start("onPlayerHarvestBlock", TaskType.HARVEST);
+        try {
+            Player player = event.getPlayer();
+            Block block = event.getHarvestedBlock();
+            Material type = block.getType();
+
+            // 只处理浆果类作物
+            if (type != Material.SWEET_BERRY_BUSH && type != Material.CAVE_VINES) return;
+
+            // 处理掉落物，同一 tick 内按物品累加后统一更新
+            for (ItemStack itemStack : event.getItemsHarvested()) {
+                accumulateHarvest(player, itemStack);
             }
-            itemCounts.merge(itemKey, itemStack.getAmount(), Integer::sum);
-            itemSamples.putIfAbsent(itemKey, itemStack);
+        } finally {
+            jfr.commit();
         }
+    }
 
-        for (Map.Entry<String, Integer> entry : itemCounts.entrySet()) {
-            String itemKey = entry.getKey();
-            int totalAmount = entry.getValue();
-            ItemStack sampleItem = itemSamples.get(itemKey);
-
-            taskManager.updateProgress(player, TaskType.HARVEST, itemKey, sampleItem, totalAmount);
+    /**
+     * 累加一份收获掉落物
+     */
+    private void accumulateHarvest(Player player, ItemStack itemStack) {
+        String itemKey = ItemUtil.getItemKey(itemStack);
+        if (itemKey == null) {
+            itemKey = "minecraft:" + itemStack.getType().name().toLowerCase();
         }
+        taskManager.accumulateProgress(player, TaskType.HARVEST, itemKey, itemStack, itemStack.getAmount());
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
@@ -534,42 +567,57 @@ public class TaskListener implements Listener {
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onEntityDeath(EntityDeathEvent event) {
-        // 获取击杀者
-        if (!(event.getEntity().getKiller() instanceof Player player)) {
-            return;
-        }
+        ListenerHandlerEvent jfr = ListenerHandlerEvent.start("onEntityDeath", TaskType.KILL);
+        try {
+            // 获取击杀者
+            if (!(event.getEntity().getKiller() instanceof Player player)) {
+                return;
+            }
 
-        // 获取实体类型 key (格式: minecraft:zombie)
-        String entityKey = event.getEntity().getType().getKey().toString();
+            // 获取实体类型 key (格式: minecraft:zombie)
+            String entityKey = event.getEntity().getType().getKey().toString();
 
-        // 更新击杀任务进度
-        taskManager.updateProgress(player, TaskType.KILL, entityKey, 1);
+            // 更新击杀任务进度（刷怪塔同一 tick 的多次击杀合并）
+            taskManager.accumulateProgress(player, TaskType.KILL, entityKey, null, 1);
+        } finally {
+            jfr.commit();
+        }
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onEntityBreed(EntityBreedEvent event) {
-        // 获取繁殖者（喂食物的玩家）
-        if (!(event.getBreeder() instanceof Player player)) {
-            return;
-        }
+        ListenerHandlerEvent jfr = ListenerHandlerEvent.start("onEntityBreed", TaskType.BREED);
+        try {
+            // 获取繁殖者（喂食物的玩家）
+            if (!(event.getBreeder() instanceof Player player)) {
+                return;
+            }
 
-        // 获取繁殖出的实体类型 key
-        String entityKey = event.getEntity().getType().getKey().toString();
+            // 获取繁殖出的实体类型 key
+            String entityKey = event.getEntity().getType().getKey().toString();
 
-        // 更新繁殖任务进度
-        taskManager.updateProgress(player, TaskType.BREED, entityKey, 1);
+            // 更新繁殖任务进度
+            jfr.addMatched(taskManager.updateProgress(player, TaskType.BREED, entityKey, 1));
+        } finally {
+            jfr.commit();
+        }
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = false)
     public void onPlayerCommand(PlayerCommandPreprocessEvent event) {
-        Player player = event.getPlayer();
-        String fullCommand = event.getMessage();
-        // 提取完整命令（去除 / 前缀，保留参数用于前缀匹配）
-        String fullCommandName = fullCommand.substring(1).toLowerCase();
-
-        plugin.getLogger().info("[CommandTask] " + player.getName() + " executed: " + fullCommandName);
-
-        // 更新命令任务进度
-        taskManager.updateProgress(player, TaskType.COMMAND, fullCommandName, 1);
+        ListenerHandlerEvent jfr = ListenerHandlerEvent.start("onPlayerCommand", TaskType.COMMAND);
+        try {
+            Player player = event.getPlayer();
+            String fullCommand = event.getMessage();
+            // 提取完整命令（去除 / 前缀，保留参数用于前缀匹配）
+            String fullCommandName = fullCommand.substring(1).toLowerCase();
+
+            plugin.getLogger().info("[CommandTask] " + player.getName() + " executed: " + fullCommandName);
+
+            // 更新命令任务进度
+            jfr.addMatched(taskManager.updateProgress(player, TaskType.COMMAND, fullCommandName, 1));
+        } finally {
+            jfr.commit();
+        }
     }
 }
@@ -0,0 +1,180 @@
+package dev.user.simpletask.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import dev.user.simpletask.SimpleTaskPlugin;
+import dev.user.simpletask.database.DatabaseQueue;
+import dev.user.simpletask.task.TaskType;
+import dev.user.simpletask.task.TemplateSyncManager;
+import dev.user.simpletask.task.manager.TaskCacheManager;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Prometheus 文本格式的指标端点（JDK 内置 HttpServer，默认只绑定本机）
+ * 抓取在独立线程中执行，只读取计数器和并发集合的大小，不与热路径竞争
+ */
+public class MetricsServer {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final SimpleTaskPlugin plugin;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public MetricsServer(SimpleTaskPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    public void start(String bind, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(bind, port), 0);
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "SimpleTask-Metrics");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext("/metrics", this::handle);
+        server.start();
+        plugin.getLogger().info("Metrics endpoint listening on http://" + bind + ":" + port + "/metrics");
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body;
+            try {
+                body = scrape().getBytes(StandardCharsets.UTF_8);
+            } catch (RuntimeException e) {
+                plugin.getLogger().log(java.util.logging.Level.WARNING, "Failed to collect metrics", e);
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    // ==================== 指标收集 ====================
+
+    String scrape() {
+        StringBuilder sb = new StringBuilder(4096);
+
+        // 数据库队列
+        DatabaseQueue queue = plugin.getDatabaseQueue();
+        if (queue != null) {
+            header(sb, "simpletask_db_queue_depth", "gauge", "Tasks waiting in the database queue");
+            sample(sb, "simpletask_db_queue_depth", null, queue.getPendingCount());
+            header(sb, "simpletask_db_queue_tasks_total", "counter", "Database tasks executed by result");
+            sample(sb, "simpletask_db_queue_tasks_total", "result=\"completed\"", queue.getCompletedCount());
+            sample(sb, "simpletask_db_queue_tasks_total", "result=\"failed\"", queue.getFailedCount());
+            header(sb, "simpletask_db_queue_wait_seconds", "summary", "Time tasks spent queued before execution");
+            sample(sb, "simpletask_db_queue_wait_seconds_sum", null, queue.getWaitNanos() / 1e9);
+            sample(sb, "simpletask_db_queue_wait_seconds_count", null, queue.getExecutedCount());
+            header(sb, "simpletask_db_queue_execute_seconds", "summary", "Time spent executing database tasks");
+            sample(sb, "simpletask_db_queue_execute_seconds_sum", null, queue.getExecuteNanos() / 1e9);
+            sample(sb, "simpletask_db_queue_execute_seconds_count", null, queue.getExecutedCount());
+        }
+
+        // 连接池
+        HikariPoolMXBean pool = plugin.getDatabaseManager() != null ? plugin.getDatabaseManager().getPoolMXBean() : null;
+        if (pool != null) {
+            header(sb, "simpletask_db_pool_connections", "gauge", "Hikari pool connections by state");
+            sample(sb, "simpletask_db_pool_connections", "state=\"active\"", pool.getActiveConnections());
+            sample(sb, "simpletask_db_pool_connections", "state=\"idle\"", pool.getIdleConnections());
+            header(sb, "simpletask_db_pool_waiting_threads", "gauge", "Threads waiting for a pool connection");
+            sample(sb, "simpletask_db_pool_waiting_threads", null, pool.getThreadsAwaitingConnection());
+        }
+
+        // 任务缓存
+        if (plugin.getTaskManager() != null) {
+            TaskCacheManager cache = plugin.getTaskManager().getCacheManager();
+            header(sb, "simpletask_cache_players", "gauge", "Players with cached tasks by tier");
+            sample(sb, "simpletask_cache_players", "tier=\"online\"", cache.getCachedPlayerCount());
+            sample(sb, "simpletask_cache_players", "tier=\"warm\"", cache.getWarmPlayerCount());
+            header(sb, "simpletask_cache_tasks", "gauge", "Tasks held in the online cache");
+            sample(sb, "simpletask_cache_tasks", null, cache.getCachedTaskCount());
+
+            TemplateSyncManager templates = plugin.getTaskManager().getTemplateSyncManager();
+            header(sb, "simpletask_templates", "gauge", "Loaded task templates");
+            sample(sb, "simpletask_templates", null, templates.getTemplateCount());
+            header(sb, "simpletask_template_last_sync_age_seconds", "gauge", "Seconds since the last template sync");
+            long lastSync = templates.getLastSyncTime();
+            sample(sb, "simpletask_template_last_sync_age_seconds", null,
+                lastSync > 0 ? (System.currentTimeMillis() - lastSync) / 1000.0 : Double.NaN);
+        }
+
+        // 防刷
+        if (plugin.getAntiCheatManager() != null) {
+            header(sb, "simpletask_anticheat_placed_blocks", "gauge", "Player-placed block records");
+            sample(sb, "simpletask_anticheat_placed_blocks", null, plugin.getAntiCheatManager().getCacheSize());
+        }
+
+        // 进度与奖励
+        PluginMetrics metrics = plugin.getMetrics();
+        header(sb, "simpletask_progress_events_total", "counter", "Progress events by task type");
+        for (TaskType type : TaskType.values()) {
+            sample(sb, "simpletask_progress_events_total", "type=\"" + type.name().toLowerCase() + "\"",
+                metrics.getProgressEvents(type));
+        }
+        header(sb, "simpletask_task_completions_total", "counter", "Completed tasks by category");
+        for (Map.Entry<String, Long> entry : metrics.getCompletions().entrySet()) {
+            sample(sb, "simpletask_task_completions_total", "category=\"" + escape(entry.getKey()) + "\"", entry.getValue());
+        }
+        header(sb, "simpletask_task_claims_total", "counter", "Claimed task rewards by category");
+        for (Map.Entry<String, Long> entry : metrics.getClaims().entrySet()) {
+            sample(sb, "simpletask_task_claims_total", "category=\"" + escape(entry.getKey()) + "\"", entry.getValue());
+        }
+
+        return sb.toString();
+    }
+
+    private static void header(StringBuilder sb, String name, String type, String help) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder sb, String name, String labels, double value) {
+        sb.append(name);
+        if (labels != null) {
+            sb.append('{').append(labels).append('}');
+        }
+        sb.append(' ');
+        if (Double.isNaN(value)) {
+            sb.append("NaN");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            sb.append((long) value);
+        } else {
+            sb.append(value);
+        }
+        sb.append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
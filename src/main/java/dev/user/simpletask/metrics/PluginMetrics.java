@@ -0,0 +1,58 @@
+package dev.user.simpletask.metrics;
+
+import dev.user.simpletask.task.TaskType;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 插件内部计数器
+ * 全部使用 LongAdder，热路径只做一次无竞争的累加，抓取时求和
+ */
+public class PluginMetrics {
+
+    private final LongAdder[] progressEvents = new LongAdder[TaskType.values().length];
+    private final Map<String, LongAdder> completions = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> claims = new ConcurrentHashMap<>();
+
+    public PluginMetrics() {
+        for (int i = 0; i < progressEvents.length; i++) {
+            progressEvents[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 进入进度管线的事件（监听器或 API 调用）
+     */
+    public void recordProgressEvent(TaskType type) {
+        progressEvents[type.ordinal()].increment();
+    }
+
+    public void recordCompletion(String categoryId) {
+        completions.computeIfAbsent(categoryId, k -> new LongAdder()).increment();
+    }
+
+    public void recordClaims(String categoryId, int count) {
+        claims.computeIfAbsent(categoryId, k -> new LongAdder()).add(count);
+    }
+
+    public long getProgressEvents(TaskType type) {
+        return progressEvents[type.ordinal()].sum();
+    }
+
+    public Map<String, Long> getCompletions() {
+        return snapshot(completions);
+    }
+
+    public Map<String, Long> getClaims() {
+        return snapshot(claims);
+    }
+
+    private static Map<String, Long> snapshot(Map<String, LongAdder> counters) {
+        Map<String, Long> result = new TreeMap<>();
+        counters.forEach((key, adder) -> result.put(key, adder.sum()));
+        return result;
+    }
+}
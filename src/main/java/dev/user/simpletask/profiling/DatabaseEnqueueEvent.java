@@ -0,0 +1,22 @@
+package dev.user.simpletask.profiling;
+
+import jdk.jfr.*;
+
+/**
+ * 数据库任务入队
+ */
+@Name("dev.user.simpletask.DatabaseEnqueue")
+@Label("Database Enqueue")
+@Category({"SimpleTask", "Database"})
+@Description("提交到 DatabaseQueue 的任务")
+@Enabled(false)
+@StackTrace(false)
+public class DatabaseEnqueueEvent extends Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Queue Depth")
+    @Description("入队后等待执行的任务数")
+    public int queueDepth;
+}
@@ -0,0 +1,25 @@
+package dev.user.simpletask.profiling;
+
+import jdk.jfr.*;
+
+/**
+ * 数据库任务出队与执行：事件时长为执行耗时，queueWait 为入队到出队的等待时间
+ */
+@Name("dev.user.simpletask.DatabaseExecute")
+@Label("Database Execute")
+@Category({"SimpleTask", "Database"})
+@Description("DatabaseQueue 线程执行的一个任务")
+@Enabled(false)
+@StackTrace(false)
+public class DatabaseExecuteEvent extends Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Queue Wait")
+    @Timespan(Timespan.NANOSECONDS)
+    public long queueWait;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
@@ -0,0 +1,27 @@
+package dev.user.simpletask.profiling;
+
+import jdk.jfr.*;
+
+/**
+ * TaskExpireManager 对一个分类的过期检查和补充
+ */
+@Name("dev.user.simpletask.ExpireRefresh")
+@Label("Expire Refresh")
+@Category({"SimpleTask", "Expire"})
+@Description("一名玩家一个分类的过期清理和任务补充")
+@Enabled(false)
+@StackTrace(false)
+public class ExpireRefreshEvent extends Event {
+
+    @Label("Category")
+    public String category;
+
+    @Label("Loaded Tasks")
+    public int loadedTasks;
+
+    @Label("Expired Tasks")
+    public int expiredTasks;
+
+    @Label("Generated Tasks")
+    public int generatedTasks;
+}
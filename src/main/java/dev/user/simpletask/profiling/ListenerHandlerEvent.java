@@ -0,0 +1,41 @@
+package dev.user.simpletask.profiling;
+
+import dev.user.simpletask.task.TaskType;
+import jdk.jfr.*;
+
+/**
+ * TaskListener 处理器调用耗时
+ * 合并到下一 tick 的事件匹配数计为 0，匹配结果见 ProgressMatchEvent
+ */
+@Name("dev.user.simpletask.ListenerHandler")
+@Label("Listener Handler")
+@Category({"SimpleTask", "Listener"})
+@Description("TaskListener 事件处理器的一次调用")
+@Enabled(false)
+@StackTrace(false)
+public class ListenerHandlerEvent extends Event {
+
+    @Label("Handler")
+    public String handler;
+
+    @Label("Task Type")
+    public String taskType;
+
+    @Label("Matched Tasks")
+    public int matchedTasks;
+
+    /**
+     * 创建并开始计时（未启用记录时只是一次可被逃逸分析消除的分配）
+     */
+    public static ListenerHandlerEvent start(String handler, TaskType type) {
+        ListenerHandlerEvent event = new ListenerHandlerEvent();
+        event.handler = handler;
+        event.taskType = type.name();
+        event.begin();
+        return event;
+    }
+
+    public void addMatched(int count) {
+        matchedTasks += count;
+    }
+}
@@ -0,0 +1,103 @@
+package dev.user.simpletask.profiling;
+
+import dev.user.simpletask.SimpleTaskPlugin;
+import jdk.jfr.Recording;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * JFR 性能记录
+ * 插件事件默认禁用，未开始记录时 commit 不产生任何开销；
+ * /taskadmin profile start 开启插件事件（以及 GC、线程停顿作为对照），stop 时写入数据目录下的 .jfr 文件
+ */
+public class ProfilingManager {
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private static final List<Class<? extends jdk.jfr.Event>> EVENTS = List.of(
+        ListenerHandlerEvent.class,
+        ProgressMatchEvent.class,
+        DatabaseEnqueueEvent.class,
+        DatabaseExecuteEvent.class,
+        ExpireRefreshEvent.class
+    );
+
+    // 作为 TPS 下降的对照：GC 和安全点停顿
+    private static final List<String> JDK_EVENTS = List.of(
+        "jdk.GarbageCollection",
+        "jdk.SafepointBegin"
+    );
+
+    private final SimpleTaskPlugin plugin;
+    private Recording recording;
+
+    public ProfilingManager(SimpleTaskPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    public synchronized boolean isRecording() {
+        return recording != null;
+    }
+
+    /**
+     * 开始记录
+     *
+     * @return false 如果已经在记录
+     */
+    public synchronized boolean start() {
+        if (recording != null) return false;
+
+        Recording r = new Recording();
+        r.setName("SimpleTask");
+        for (Class<? extends jdk.jfr.Event> event : EVENTS) {
+            r.enable(event).withThreshold(Duration.ZERO);
+        }
+        for (String event : JDK_EVENTS) {
+            r.enable(event);
+        }
+        r.start();
+        recording = r;
+        plugin.getLogger().info("JFR profiling started");
+        return true;
+    }
+
+    /**
+     * 停止记录并写入文件
+     *
+     * @return 写入的文件，未在记录时返回 null
+     */
+    public synchronized File stop() throws IOException {
+        if (recording == null) return null;
+
+        Recording r = recording;
+        recording = null;
+        try {
+            r.stop();
+            File dir = new File(plugin.getDataFolder(), "profiles");
+            if (!dir.exists() && !dir.mkdirs()) {
+                throw new IOException("Cannot create directory " + dir);
+            }
+            File file = new File(dir, "simpletask-" + LocalDateTime.now().format(FILE_TIME) + ".jfr");
+            r.dump(file.toPath());
+            plugin.getLogger().info("JFR profile written to " + file.getPath());
+            return file;
+        } finally {
+            r.close();
+        }
+    }
+
+    /**
+     * 插件关闭时丢弃未停止的记录
+     */
+    public synchronized void shutdown() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package dev.user.simpletask.profiling;
+
+import jdk.jfr.*;
+
+/**
+ * TaskProgressManager.updateProgress 的任务匹配
+ */
+@Name("dev.user.simpletask.ProgressMatch")
+@Label("Progress Match")
+@Category({"SimpleTask", "Progress"})
+@Description("一次进度事件与玩家缓存任务的匹配")
+@Enabled(false)
+@StackTrace(false)
+public class ProgressMatchEvent extends Event {
+
+    @Label("Task Type")
+    public String taskType;
+
+    @Label("Target")
+    public String target;
+
+    @Label("Amount")
+    public int amount;
+
+    @Label("Scanned Tasks")
+    public int scannedTasks;
+
+    @Label("Matched Tasks")
+    public int matchedTasks;
+
+    @Label("Updated Tasks")
+    @Description("预留到进度、进入数据库写入的任务数（限流后）")
+    public int updatedTasks;
+}
@@ -0,0 +1,38 @@
+package dev.user.simpletask.task;
+
+/**
+ * 进度限流策略：令牌桶耗尽时如何处理超出的进度
+ */
+public enum FloodPolicy {
+    DROP("drop", "丢弃整个事件"),
+    CLAMP("clamp", "截断到剩余令牌"),
+    DEFER("defer", "延后到下一窗口");
+
+    private final String id;
+    private final String displayName;
+
+    FloodPolicy(String id, String displayName) {
+        this.id = id;
+        this.displayName = displayName;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public static FloodPolicy fromString(String s) {
+        if (s == null || s.isEmpty()) {
+            return DROP;
+        }
+        for (FloodPolicy p : values()) {
+            if (p.id.equalsIgnoreCase(s) || p.name().equalsIgnoreCase(s)) {
+                return p;
+            }
+        }
+        return DROP;
+    }
+}
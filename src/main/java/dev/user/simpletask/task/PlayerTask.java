@@ -4,29 +4,46 @@ import dev.user.simpletask.task.category.TaskCategory;
 import dev.user.simpletask.util.ExpireUtil;
 import dev.user.simpletask.util.TimeUtil;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.time.*;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 
 public class PlayerTask {
 
+    // ==================== 进度状态字 ====================
+    // 低 31 位：已写入数据库的进度；31-61 位：已预留、尚未写入数据库的进度增量；
+    // 62 位：completed；63 位：claimed。所有修改通过 VarHandle CAS 完成，读取得到的是同一时刻的完整状态
+
+    private static final VarHandle STATE;
+    private static final int FIELD_BITS = 31;
+    private static final long FIELD_MASK = (1L << FIELD_BITS) - 1;
+    private static final long COMPLETED_BIT = 1L << 62;
+    private static final long CLAIMED_BIT = 1L << 63;
+
+    static {
+        try {
+            STATE = MethodHandles.lookup().findVarHandle(PlayerTask.class, "state", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // ==================== 紧凑字段 ====================
+    // 缓存中每名玩家有多个任务实例：任务 key 和分类保存为 SymbolTable 编号，分配时间保存为秒级 epoch，
+    // 不再为每个实例保留数据库读出的 String 和 LocalDateTime/LocalDate 对象
+
     // 使用复合唯一键 (playerUuid, taskKey, assignedAt) 而不是自增id，确保跨服一致性
     private final UUID playerUuid;
-    private final String taskKey;
+    private final int taskKeyId;
     private final TaskTemplate template;
-    private final AtomicInteger currentProgress;
-    private final AtomicBoolean completed;
-    private final AtomicBoolean claimed;
-
-    // 任务分配时间（带时分秒，用于精确过期判断）
-    private final LocalDateTime assignedAt;
+    private volatile long state; // 进度状态字，位布局见上方
 
-    // 兼容字段：任务日期（用于数据库查询和显示）
-    private final LocalDate taskDate;
+    // 任务分配时间（秒级 epoch，LocalDateTime 按 UTC 偏移换算，只是存储形式，不涉及时区转换）
+    private final long assignedAtEpochSecond;
 
     // 任务分类（过期策略从 category 配置获取）
-    private final String category;
+    private final int categoryId;
 
     // ==================== 构造方法 ====================
 
@@ -45,15 +62,13 @@ public class PlayerTask {
                       int currentProgress, boolean completed, boolean claimed,
                       LocalDateTime assignedAt, String category) {
         this.playerUuid = playerUuid;
-        this.taskKey = taskKey;
+        this.taskKeyId = SymbolTable.TASK_KEYS.intern(taskKey);
         this.template = template;
-        this.currentProgress = new AtomicInteger(currentProgress);
-        this.completed = new AtomicBoolean(completed);
-        this.claimed = new AtomicBoolean(claimed);
+        this.state = pack(currentProgress, 0, completed, claimed);
         // 截断到秒级确保跨数据库 TIMESTAMP 一致性
-        this.assignedAt = assignedAt != null ? TimeUtil.truncateToSeconds(assignedAt) : TimeUtil.nowTruncated();
-        this.taskDate = this.assignedAt.toLocalDate();
-        this.category = category != null ? category : "daily";
+        LocalDateTime truncated = assignedAt != null ? TimeUtil.truncateToSeconds(assignedAt) : TimeUtil.nowTruncated();
+        this.assignedAtEpochSecond = truncated.toEpochSecond(ZoneOffset.UTC);
+        this.categoryId = SymbolTable.CATEGORIES.intern(category != null ? category : "daily");
     }
 
     /**
@@ -75,7 +90,7 @@ public class PlayerTask {
     }
 
     public String getTaskKey() {
-        return taskKey;
+        return SymbolTable.TASK_KEYS.name(taskKeyId);
     }
 
     public TaskTemplate getTemplate() {
@@ -83,57 +98,150 @@ public class PlayerTask {
     }
 
     public int getCurrentProgress() {
-        return currentProgress.get();
+        return progressOf(state);
     }
 
     public void setCurrentProgress(int currentProgress) {
-        this.currentProgress.set(Math.min(currentProgress, template.getTargetAmount()));
-        checkCompletion();
+        int target = template.getTargetAmount();
+        long current;
+        long next;
+        do {
+            current = state;
+            int progress = Math.min(currentProgress, target);
+            next = pack(progress, reservedOf(current), isCompleted(current) || progress >= target, isClaimed(current));
+        } while (!STATE.compareAndSet(this, current, next));
     }
 
     public void addProgress(int amount) {
         int target = template.getTargetAmount();
-        this.currentProgress.updateAndGet(current -> Math.min(current + amount, target));
-        checkCompletion();
-    }
-
-    private void checkCompletion() {
-        // 使用 CAS 避免 check-then-act 竞态条件
-        completed.compareAndSet(false, currentProgress.get() >= template.getTargetAmount());
+        long current;
+        long next;
+        do {
+            current = state;
+            int progress = (int) Math.min((long) progressOf(current) + amount, target);
+            next = pack(progress, reservedOf(current), isCompleted(current) || progress >= target, isClaimed(current));
+        } while (!STATE.compareAndSet(this, current, next));
     }
 
     public boolean isCompleted() {
-        return completed.get();
+        return isCompleted(state);
     }
 
     public void setCompleted(boolean completed) {
-        this.completed.set(completed);
+        updateFlag(COMPLETED_BIT, completed);
     }
 
     public boolean isClaimed() {
-        return claimed.get();
+        return isClaimed(state);
     }
 
     public void setClaimed(boolean claimed) {
-        this.claimed.set(claimed);
+        updateFlag(CLAIMED_BIT, claimed);
+    }
+
+    private void updateFlag(long bit, boolean value) {
+        long current;
+        do {
+            current = state;
+        } while (!STATE.compareAndSet(this, current, value ? current | bit : current & ~bit));
+    }
+
+    // ==================== 进度预留 ====================
+
+    /**
+     * 预留进度增量（事件线程调用）
+     * 已提交进度 + 已预留增量不会超过目标，多个区域线程同时触发时各自得到不重叠的份额
+     *
+     * @return 实际预留的增量，任务已完成或已达到目标时为 0
+     */
+    public int reserveProgress(int amount) {
+        if (amount <= 0) return 0;
+        int target = template.getTargetAmount();
+        long current;
+        long next;
+        int reserved;
+        do {
+            current = state;
+            if (isCompleted(current)) return 0;
+            long room = (long) target - progressOf(current) - reservedOf(current);
+            reserved = (int) Math.min(amount, room);
+            if (reserved <= 0) return 0;
+            next = pack(progressOf(current), reservedOf(current) + reserved, false, isClaimed(current));
+        } while (!STATE.compareAndSet(this, current, next));
+        return reserved;
+    }
+
+    /**
+     * 数据库写入成功：释放预留并提交进度（进度只增不减）
+     *
+     * @param reserved    本次写入对应的预留增量
+     * @param newProgress 写入数据库的进度
+     * @param claimed     是否同时标记为已领取（自动领取分类）
+     */
+    public void commitProgress(int reserved, int newProgress, boolean claimed) {
+        int target = template.getTargetAmount();
+        long current;
+        long next;
+        do {
+            current = state;
+            int progress = Math.max(progressOf(current), Math.min(newProgress, target));
+            next = pack(progress, reservedOf(current) - reserved,
+                isCompleted(current) || progress >= target, isClaimed(current) || claimed);
+        } while (!STATE.compareAndSet(this, current, next));
+    }
+
+    /**
+     * 数据库写入未命中或失败：释放预留
+     */
+    public void releaseProgress(int reserved) {
+        long current;
+        long next;
+        do {
+            current = state;
+            next = pack(progressOf(current), reservedOf(current) - reserved, isCompleted(current), isClaimed(current));
+        } while (!STATE.compareAndSet(this, current, next));
+    }
+
+    private static long pack(int progress, int reserved, boolean completed, boolean claimed) {
+        // 31 位字段可容纳任意非负 int
+        long word = Math.max(0, progress) | ((long) Math.max(0, reserved) << FIELD_BITS);
+        if (completed) word |= COMPLETED_BIT;
+        if (claimed) word |= CLAIMED_BIT;
+        return word;
+    }
+
+    private static int progressOf(long word) {
+        return (int) (word & FIELD_MASK);
+    }
+
+    private static int reservedOf(long word) {
+        return (int) ((word >>> FIELD_BITS) & FIELD_MASK);
+    }
+
+    private static boolean isCompleted(long word) {
+        return (word & COMPLETED_BIT) != 0;
+    }
+
+    private static boolean isClaimed(long word) {
+        return (word & CLAIMED_BIT) != 0;
     }
 
     /**
-     * 获取任务分配时间（带时分秒）
+     * 获取任务分配时间（带时分秒，每次调用由 epoch 还原）
      */
     public LocalDateTime getAssignedAt() {
-        return assignedAt;
+        return LocalDateTime.ofEpochSecond(assignedAtEpochSecond, 0, ZoneOffset.UTC);
     }
 
     /**
      * 获取任务日期（兼容旧代码）
      */
     public LocalDate getTaskDate() {
-        return taskDate;
+        return getAssignedAt().toLocalDate();
     }
 
     public String getCategory() {
-        return category;
+        return SymbolTable.CATEGORIES.name(categoryId);
     }
 
     public int getTargetProgress() {
@@ -141,7 +249,7 @@ public class PlayerTask {
     }
 
     public double getProgressPercentage() {
-        return (double) currentProgress.get() / template.getTargetAmount() * 100;
+        return (double) getCurrentProgress() / template.getTargetAmount() * 100;
     }
 
     public String getProgressBar(int length) {
@@ -170,14 +278,14 @@ public class PlayerTask {
         if (category == null) {
             return false; // 没有类别信息无法判断，默认不过期
         }
-        return ExpireUtil.isExpired(assignedAt, category);
+        return ExpireUtil.isExpired(getAssignedAt(), category);
     }
 
     /**
      * 获取过期时间（用于显示）
      */
     public Instant getExpireTime(TaskCategory category) {
-        return ExpireUtil.getExpireTime(assignedAt, category);
+        return ExpireUtil.getExpireTime(getAssignedAt(), category);
     }
 
     /**
@@ -187,26 +295,26 @@ public class PlayerTask {
      * @return 是否即将过期
      */
     public boolean isNearExpire(TaskCategory category, Duration threshold) {
-        return ExpireUtil.isNearExpire(assignedAt, category, threshold);
+        return ExpireUtil.isNearExpire(getAssignedAt(), category, threshold);
     }
 
     /**
      * 获取过期时间的描述文本
      */
     public String getExpireTimeDescription(TaskCategory category) {
-        return ExpireUtil.getExpireTimeDescription(assignedAt, category);
+        return ExpireUtil.getExpireTimeDescription(getAssignedAt(), category);
     }
 
     @Override
     public String toString() {
         return "PlayerTask{" +
                 "playerUuid=" + playerUuid +
-                ", taskKey='" + taskKey + '\'' +
-                ", category='" + category + '\'' +
-                ", assignedAt=" + assignedAt +
-                ", currentProgress=" + currentProgress.get() +
-                ", completed=" + completed.get() +
-                ", claimed=" + claimed.get() +
+                ", taskKey='" + getTaskKey() + '\'' +
+                ", category='" + getCategory() + '\'' +
+                ", assignedAt=" + getAssignedAt() +
+                ", currentProgress=" + getCurrentProgress() +
+                ", completed=" + isCompleted() +
+                ", claimed=" + isClaimed() +
                 '}';
     }
 }
@@ -1,5 +1,8 @@
 package dev.user.simpletask.task;
 
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import dev.user.simpletask.SimpleTaskPlugin;
 import dev.user.simpletask.util.ItemUtil;
 import net.kyori.adventure.text.Component;
@@ -9,7 +12,11 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class Reward {
 
@@ -47,37 +54,38 @@ public class Reward {
         return !commands.isEmpty();
     }
 
+    /**
+     * 合并多份奖励：金币求和，同种物品数量合并，命令按顺序拼接
+     * 合并后一次 grant 即可完成一次存款、一次物品发放和一次命令调度
+     */
+    public static Reward merge(Collection<Reward> rewards) {
+        double money = 0;
+        Map<String, Integer> itemAmounts = new LinkedHashMap<>();
+        List<String> commands = new ArrayList<>();
+        for (Reward reward : rewards) {
+            money += reward.money;
+            for (RewardItem item : reward.items) {
+                itemAmounts.merge(item.getItemKey(), item.getAmount(), Integer::sum);
+            }
+            commands.addAll(reward.commands);
+        }
+
+        List<RewardItem> items = new ArrayList<>(itemAmounts.size());
+        for (Map.Entry<String, Integer> entry : itemAmounts.entrySet()) {
+            items.add(new RewardItem(entry.getKey(), entry.getValue()));
+        }
+        return new Reward(money, items, commands);
+    }
+
     public void grant(Player player, SimpleTaskPlugin plugin) {
         // Grant money (可以在异步线程执行)
-        if (money > 0 && plugin.getEconomyManager().isEnabled()) {
-            plugin.getEconomyManager().deposit(player, money);
-        }
+        depositMoney(player, plugin);
 
         // Grant items - 使用玩家实体调度器确保线程安全
         // 预先生成所有ItemStack，避免在调度器内访问外部状态
-        List<ItemStack> itemStacks = new ArrayList<>();
-        for (RewardItem rewardItem : items) {
-            ItemStack stack = ItemUtil.createItem(plugin, rewardItem.getItemKey(), rewardItem.getAmount());
-            if (stack != null) {
-                itemStacks.add(stack);
-            }
-        }
-
+        List<ItemStack> itemStacks = createItemStacks(plugin);
         if (!itemStacks.isEmpty()) {
-            player.getScheduler().execute(plugin, () -> {
-                List<ItemStack> itemsToDrop = new ArrayList<>();
-                for (ItemStack stack : itemStacks) {
-                    var leftover = player.getInventory().addItem(stack);
-                    if (!leftover.isEmpty()) {
-                        itemsToDrop.addAll(leftover.values());
-                    }
-                }
-
-                // 满的物品drop到脚下（仍在实体调度器中执行）
-                for (ItemStack dropStack : itemsToDrop) {
-                    player.getWorld().dropItem(player.getLocation(), dropStack);
-                }
-            }, () -> {
+            player.getScheduler().execute(plugin, () -> giveItems(player, itemStacks), () -> {
                 // 玩家离线时的取消回调 - 物品将不会被给予
                 plugin.getLogger().warning("Player " + player.getName() + " went offline before reward items could be granted");
             }, 0L); // 立即执行，无延迟
@@ -86,14 +94,73 @@ public class Reward {
         // Execute commands - 使用GlobalRegionScheduler
         if (!commands.isEmpty()) {
             plugin.getServer().getGlobalRegionScheduler().execute(plugin, () -> {
-                for (String command : commands) {
-                    String formatted = command.replace("{player}", player.getName());
-                    Bukkit.dispatchCommand(Bukkit.getConsoleSender(), formatted);
+                for (String command : formatCommands(player.getName())) {
+                    Bukkit.dispatchCommand(Bukkit.getConsoleSender(), command);
                 }
             });
         }
     }
 
+    /**
+     * 发放金币部分
+     *
+     * @return 存款实际执行后完成，true 表示成功（无金币奖励或经济未启用时立即完成为 true）
+     */
+    public CompletableFuture<Boolean> depositMoney(Player player, SimpleTaskPlugin plugin) {
+        if (money > 0 && plugin.getEconomyManager().isEnabled()) {
+            return plugin.getEconomyManager().deposit(player, money);
+        }
+        return CompletableFuture.completedFuture(true);
+    }
+
+    /**
+     * 生成物品奖励的 ItemStack（无法识别的物品会被跳过）
+     * 数量按物品的最大堆叠数拆分：合并后的奖励可能超过一组，不可堆叠的物品每个单独一份
+     */
+    public List<ItemStack> createItemStacks(SimpleTaskPlugin plugin) {
+        List<ItemStack> itemStacks = new ArrayList<>();
+        for (RewardItem rewardItem : items) {
+            ItemStack stack = ItemUtil.createItem(plugin, rewardItem.getItemKey(), 1);
+            if (stack == null) continue;
+
+            int maxStackSize = Math.max(1, stack.getMaxStackSize());
+            for (int remaining = rewardItem.getAmount(); remaining > 0; remaining -= maxStackSize) {
+                ItemStack part = stack.clone();
+                part.setAmount(Math.min(remaining, maxStackSize));
+                itemStacks.add(part);
+            }
+        }
+        return itemStacks;
+    }
+
+    /**
+     * 将物品放入玩家背包，放不下的掉落在脚下（需在玩家所在区域线程调用）
+     */
+    public static void giveItems(Player player, List<ItemStack> itemStacks) {
+        List<ItemStack> itemsToDrop = new ArrayList<>();
+        for (ItemStack stack : itemStacks) {
+            var leftover = player.getInventory().addItem(stack);
+            if (!leftover.isEmpty()) {
+                itemsToDrop.addAll(leftover.values());
+            }
+        }
+
+        for (ItemStack dropStack : itemsToDrop) {
+            player.getWorld().dropItem(player.getLocation(), dropStack);
+        }
+    }
+
+    /**
+     * 替换 {player} 占位符后的命令列表
+     */
+    public List<String> formatCommands(String playerName) {
+        List<String> formatted = new ArrayList<>(commands.size());
+        for (String command : commands) {
+            formatted.add(command.replace("{player}", playerName));
+        }
+        return formatted;
+    }
+
     /**
      * 获取奖励的显示Component（现代API）
      */
@@ -135,6 +202,36 @@ public class Reward {
     }
 
     // JSON 序列化支持
+    public static Reward fromJson(String json) {
+        return fromJsonTree(JsonParser.parseString(json).getAsJsonObject());
+    }
+
+    /**
+     * 从已解析的 JSON 对象读取奖励（逐字段读取，不经过反射），缺失的字段使用默认值
+     */
+    public static Reward fromJsonTree(JsonObject json) {
+        double money = json.has("money") && !json.get("money").isJsonNull() ? json.get("money").getAsDouble() : 0;
+
+        List<RewardItem> items = new ArrayList<>();
+        if (json.has("items") && json.get("items").isJsonArray()) {
+            for (JsonElement element : json.getAsJsonArray("items")) {
+                JsonObject item = element.getAsJsonObject();
+                String itemKey = item.has("itemKey") && !item.get("itemKey").isJsonNull()
+                    ? item.get("itemKey").getAsString() : null;
+                int amount = item.has("amount") ? item.get("amount").getAsInt() : 0;
+                items.add(new RewardItem(itemKey, amount));
+            }
+        }
+
+        List<String> commands = new ArrayList<>();
+        if (json.has("commands") && json.get("commands").isJsonArray()) {
+            for (JsonElement element : json.getAsJsonArray("commands")) {
+                commands.add(element.getAsString());
+            }
+        }
+        return new Reward(money, items, commands);
+    }
+
     public String toJson() {
         return "{\"money\":" + money +
                ",\"items\":" + itemsToJson() +
@@ -0,0 +1,74 @@
+package dev.user.simpletask.task;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 字符串驻留表：把反复出现的字符串映射为从 0 开始的 int 编号
+ * 缓存中的任务只保存编号，同一个任务 key / 分类在所有玩家之间共用一个 String 实例
+ *
+ * 编号分配后不回收；表中只放模板和配置中的值（数量有限），不放事件输入和聊天、命令等玩家输入
+ */
+public final class SymbolTable {
+
+    /** 任务模板 key */
+    public static final SymbolTable TASK_KEYS = new SymbolTable();
+    /** 任务分类 ID */
+    public static final SymbolTable CATEGORIES = new SymbolTable();
+    /** 模板目标标准化后的方块/物品 ID（BREAK/HARVEST 匹配；输入只查询不分配） */
+    public static final SymbolTable TARGETS = new SymbolTable();
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    // 编号 -> 字符串；扩容时整体替换，读取无需加锁
+    private volatile String[] names = new String[64];
+    private int size; // 由 this 保护
+
+    private SymbolTable() {}
+
+    /**
+     * 获取字符串的编号，不存在时分配新编号
+     */
+    public int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) return id;
+
+        synchronized (this) {
+            id = ids.get(name);
+            if (id != null) return id;
+
+            int next = size;
+            String[] current = names;
+            if (next == current.length) {
+                current = Arrays.copyOf(current, next * 2);
+            }
+            current[next] = name;
+            // 先发布数组，再发布编号：拿到编号的线程一定能读到对应字符串
+            names = current;
+            size = next + 1;
+            ids.put(name, next);
+            return next;
+        }
+    }
+
+    /**
+     * 查询已有编号（不分配）
+     *
+     * @return 编号，不存在时返回 -1
+     */
+    public int idOf(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * 编号对应的字符串（驻留的共享实例）
+     */
+    public String name(int id) {
+        return names[id];
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
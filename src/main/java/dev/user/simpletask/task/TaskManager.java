@@ -5,13 +5,20 @@ import dev.user.simpletask.task.category.TaskCategory;
 import dev.user.simpletask.util.MessageUtil;
 import dev.user.simpletask.task.manager.*;
 import net.kyori.adventure.text.Component;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
 import org.bukkit.entity.Player;
 
+import java.io.File;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
@@ -26,9 +33,25 @@ public class TaskManager {
     private final TaskGenerator taskGenerator;
     private final TaskExpireManager expireManager;
     private final RerollManager rerollManager;
+    private final BulkRerollManager bulkRerollManager;
     private final TaskScheduler taskScheduler;
     private final TaskProgressManager progressManager;
     private final TemplateSyncManager templateSyncManager;
+    private final TaskChangeJournal changeJournal;
+    private final RewardOutbox rewardOutbox;
+    private final ProgressJournal progressJournal;
+    private final DatabaseUtils databaseUtils;
+
+    // 登录前开始的预加载，玩家加入时取出；登录被拒绝时过期并清理预加载写入的缓存
+    private final Cache<UUID, CompletableFuture<PreloadedPlayer>> preloads = CacheBuilder.newBuilder()
+        .expireAfterWrite(1, TimeUnit.MINUTES)
+        .<UUID, CompletableFuture<PreloadedPlayer>>removalListener(notification -> {
+            if (notification.getCause() == RemovalCause.EXPIRED
+                    && plugin.getServer().getPlayer(notification.getKey()) == null) {
+                clearPlayerCache(notification.getKey());
+            }
+        })
+        .build();
 
     public TaskManager(SimpleTaskPlugin plugin) {
         this.plugin = plugin;
@@ -40,9 +63,22 @@ public class TaskManager {
         this.cacheManager = new TaskCacheManager(plugin);
         this.taskGenerator = new TaskGenerator(plugin, templateSyncManager);
         this.expireManager = new TaskExpireManager(plugin, cacheManager, taskGenerator, templateSyncManager);
-        this.rerollManager = new RerollManager(plugin, cacheManager, taskGenerator, templateSyncManager);
+        this.changeJournal = new TaskChangeJournal(plugin, cacheManager, expireManager);
+        this.rerollManager = new RerollManager(plugin, cacheManager, taskGenerator, expireManager,
+            templateSyncManager, changeJournal);
+        this.bulkRerollManager = new BulkRerollManager(plugin, cacheManager, taskGenerator, templateSyncManager, changeJournal);
         this.taskScheduler = new TaskScheduler(plugin);
-        this.progressManager = new TaskProgressManager(plugin, cacheManager);
+        this.rewardOutbox = new RewardOutbox(plugin, changeJournal.getServerId());
+        this.progressJournal = plugin.getConfigManager().isProgressJournalEnabled()
+            ? new ProgressJournal(plugin, new File(plugin.getDataFolder(), "progress.journal"),
+                plugin.getConfigManager().getProgressJournalSizeMb() * 1024 * 1024,
+                plugin.getConfigManager().getProgressJournalMaxSizeMb() * 1024 * 1024)
+            : null;
+        this.progressManager = new TaskProgressManager(plugin, cacheManager, changeJournal, rewardOutbox, progressJournal);
+        this.databaseUtils = new DatabaseUtils(plugin);
+
+        // 重放上次运行未写入数据库的进度：最先入队，数据库队列按顺序执行，先于任何玩家加载
+        replayProgressJournal();
 
         // 启动时从数据库加载模板
         templateSyncManager.loadFromDatabase();
@@ -50,6 +86,37 @@ public class TaskManager {
 
         // 启动定时调度器
         taskScheduler.startAll();
+
+        // 启动跨服变更日志轮询
+        changeJournal.start();
+
+        // 启动奖励发放任务
+        rewardOutbox.start();
+    }
+
+    private void replayProgressJournal() {
+        if (progressJournal == null) return;
+
+        List<ProgressJournal.Batch> batches;
+        try {
+            batches = progressJournal.open();
+        } catch (IOException e) {
+            plugin.getLogger().log(java.util.logging.Level.SEVERE, "Failed to open progress journal, progress is not journaled", e);
+            return;
+        }
+        // 即使没有待重放的批次也要入队：先于任何进度写入创建本日志的已应用水位记录
+        if (!batches.isEmpty()) {
+            plugin.getLogger().info("Replaying " + batches.size() + " progress batches from journal...");
+        }
+        plugin.getDatabaseQueue().submit("replayProgressJournal",
+            (Connection conn) -> progressManager.replayJournal(conn, batches),
+            replayed -> {
+                if (!batches.isEmpty()) {
+                    plugin.getLogger().info("Progress journal replayed: " + replayed + " tasks updated");
+                }
+            },
+            e -> plugin.getLogger().log(java.util.logging.Level.SEVERE,
+                "Failed to replay progress journal, remaining batches are kept for the next start", e));
     }
 
     // ==================== 代理方法：缓存管理 ====================
@@ -72,6 +139,17 @@ public class TaskManager {
 
     public void clearPlayerCache(UUID uuid) {
         cacheManager.clearPlayerCache(uuid);
+        progressManager.discardLoading(uuid);
+        progressManager.getRateLimiter().clearPlayer(uuid);
+    }
+
+    /**
+     * 玩家离开：缓存移入离线保留层，短时间内重连时复用
+     */
+    public void retirePlayerCache(UUID uuid) {
+        cacheManager.retirePlayerCache(uuid);
+        progressManager.discardLoading(uuid);
+        progressManager.getRateLimiter().clearPlayer(uuid);
     }
 
     // ==================== 代理方法：模板管理 ====================
@@ -84,6 +162,14 @@ public class TaskManager {
         return progressManager;
     }
 
+    public TaskChangeJournal getChangeJournal() {
+        return changeJournal;
+    }
+
+    public TaskCacheManager getCacheManager() {
+        return cacheManager;
+    }
+
     public TaskTemplate getTemplateByKey(String taskKey) {
         return templateSyncManager.getTemplate(taskKey);
     }
@@ -100,31 +186,86 @@ public class TaskManager {
     // ==================== 代理方法：玩家任务加载 ====================
 
     /**
-     * 玩家登录时加载其任务
-     * 使用延迟执行确保不阻塞登录流程
+     * 登录前预加载的数据
+     */
+    private record PreloadedPlayer(TaskExpireManager.PreloadedTasks tasks, List<RewardOutbox.Delivery> pendingRewards) {}
+
+    /**
+     * 登录前开始预加载（AsyncPlayerPreLoginEvent，只需要 UUID）
+     * 加载刷新次数、重置已过周期的次数、加载任务并删除过期任务、加载未发放的奖励；
+     * 结果暂存到玩家加入时取出，登录被拒绝时一分钟后过期
+     */
+    public void preloadPlayerTasks(UUID uuid) {
+        preloads.put(uuid, startPreload(uuid));
+    }
+
+    private CompletableFuture<PreloadedPlayer> startPreload(UUID uuid) {
+        CompletableFuture<PreloadedPlayer> future = new CompletableFuture<>();
+        // 加载完成前到达的进度事件先缓冲
+        progressManager.beginLoading(uuid);
+
+        // 短时间内重连的玩家：离线快照校验通过后直接复用
+        TaskCacheManager.WarmSnapshot warm = cacheManager.takeWarmSnapshot(uuid);
+
+        plugin.getDatabaseQueue().submit("preloadPlayerTasks", (Connection conn) -> {
+            // 1. 加载刷新次数到缓存（快照校验只覆盖任务行，刷新次数总是重新加载）
+            rerollManager.loadRerollCounters(conn, uuid);
+
+            Map<String, ? extends List<PlayerTask>> snapshot = null;
+            if (warm != null && expireManager.isSnapshotCurrent(conn, uuid, warm.tasksByCategory())) {
+                snapshot = warm.tasksByCategory();
+                cacheManager.restoreWarmSnapshot(uuid, warm);
+                plugin.getLogger().fine("Reusing warm task cache for " + uuid);
+            }
+            // 重置已过周期的刷新次数
+            rerollManager.checkAndResetAllRerollCounts(conn, uuid);
+
+            // 2. 加载任务并删除过期任务
+            TaskExpireManager.PreloadedTasks tasks = expireManager.preloadPlayerTasks(conn, uuid, snapshot);
+
+            // 3. 加载上次未发放的奖励
+            return new PreloadedPlayer(tasks, rewardOutbox.loadPending(conn, uuid));
+        }, future::complete, future::completeExceptionally);
+        return future;
+    }
+
+    /**
+     * 玩家加入时取出预加载结果，补充新任务并写入缓存
+     * 没有预加载（插件启动时已在线的玩家）时在这里开始加载
      */
     public void loadPlayerTasks(Player player) {
+        UUID uuid = player.getUniqueId();
 
-        // 注意：不在这里清除缓存，让 loadAndCheckPlayerTasks 内部直接覆盖
+        // 注意：不在这里清除缓存，attachPreloadedTasks 内部直接覆盖
         // 避免在加载完成前出现空缓存的窗口期
+        CompletableFuture<PreloadedPlayer> preload = preloads.asMap().remove(uuid);
+        if (preload == null) {
+            preload = startPreload(uuid);
+        }
 
-        // 延迟2tick执行，确保玩家已完全登录，不阻塞登录流程
-        plugin.getServer().getGlobalRegionScheduler().runDelayed(plugin, task -> {
-            // 检查玩家是否还在线
+        preload.whenComplete((preloaded, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(java.util.logging.Level.SEVERE, "Failed to load player tasks", error);
+                progressManager.discardLoading(uuid);
+                return;
+            }
             if (!player.isOnline()) {
+                progressManager.discardLoading(uuid);
                 return;
             }
 
-            // 提交到数据库队列异步执行
-            plugin.getDatabaseQueue().submit("loadPlayerTasks", (Connection conn) -> {
-                // 1. 先检查并重置所有 reroll 次数
-                rerollManager.checkAndResetAllRerollCounts(conn, player);
-
-                // 2. 再加载和检查任务
-                expireManager.loadAndCheckPlayerTasks(conn, player);
+            // 补充新任务需要在玩家加入后进行
+            plugin.getDatabaseQueue().submit("attachPlayerTasks", (Connection conn) -> {
+                expireManager.attachPreloadedTasks(conn, player, preloaded.tasks());
                 return null;
-            }, null, e -> plugin.getLogger().log(java.util.logging.Level.SEVERE, "Failed to load player tasks", e));
-        }, 2);
+            }, result -> {
+                preloaded.pendingRewards().forEach(rewardOutbox::submit);
+                progressManager.finishLoading(player);
+            }, e -> {
+                plugin.getLogger().log(java.util.logging.Level.SEVERE, "Failed to load player tasks", e);
+                progressManager.discardLoading(uuid);
+            });
+        });
     }
 
     /**
@@ -142,7 +283,7 @@ public class TaskManager {
                 }
 
                 // 1. 先检查并重置所有 reroll 次数
-                rerollManager.checkAndResetAllRerollCounts(conn, player);
+                rerollManager.checkAndResetAllRerollCounts(conn, player.getUniqueId());
 
                 // 2. 再检查任务过期（使用同步版本，复用同一个连接）
                 expireManager.checkAndRefreshPlayerTasksSync(conn, player);
@@ -161,6 +302,8 @@ public class TaskManager {
                         plugin.getLogger().log(java.util.logging.Level.SEVERE, "Failed to rollback transaction", rollbackEx);
                     }
                 }
+                // 缓存中的重置可能已被回滚，下次使用时重新加载
+                cacheManager.invalidateRerollCounters(player.getUniqueId());
                 throw new RuntimeException("Failed to check and refresh tasks", e);
             } finally {
                 if (originalAutoCommit) {
@@ -189,23 +332,19 @@ public class TaskManager {
         plugin.getDatabaseQueue().submit("checkAndRefreshCategory", (Connection conn) -> {
             // 检查并刷新该分类的任务
             TaskExpireManager.CategoryRefreshResult result = expireManager.checkAndRefreshCategoryTasks(conn, player, category);
-
-            // 获取刷新次数
-            int usedRerolls = rerollManager.getCategoryRerollCount(conn, player.getUniqueId(), category);
-
-            return new CategoryRefreshData(result.tasks(), usedRerolls);
-        }, result -> {
+            return result.tasks();
+        }, tasks -> {
             // 更新缓存
-            cacheManager.updateCategoryTaskCache(player.getUniqueId(), categoryId, result.tasks());
-            callback.accept(result.tasks(), result.usedRerolls());
+            cacheManager.updateCategoryTaskCache(player.getUniqueId(), categoryId, tasks);
+            // 刷新次数从缓存读取（登录时已加载），不额外查询数据库
+            int usedRerolls = Math.max(0, rerollManager.getCachedRerollCount(player.getUniqueId(), category));
+            callback.accept(tasks, usedRerolls);
         }, e -> {
             plugin.getLogger().log(java.util.logging.Level.SEVERE, "Failed to check and refresh category tasks", e);
             errorCallback.accept(e);
         });
     }
 
-    private record CategoryRefreshData(List<PlayerTask> tasks, int usedRerolls) {}
-
     // ==================== 代理方法：刷新任务（Admin使用） ====================
 
     public void rerollPlayerCategoryTasks(Player player, String categoryId, boolean notify,
@@ -222,13 +361,15 @@ public class TaskManager {
         });
     }
 
-    public void rerollAllPlayerCategoryTasks(String categoryId, boolean notify, Consumer<Boolean> callback) {
-        dev.user.simpletask.task.manager.DatabaseUtils dbUtils = new dev.user.simpletask.task.manager.DatabaseUtils(plugin);
-        dbUtils.executeBatch(
-            new ArrayList<>(plugin.getServer().getOnlinePlayers()),
-            (player, cb) -> rerollPlayerCategoryTasks(player, categoryId, notify, cb),
-            callback
-        );
+    /**
+     * 批量刷新所有玩家（保留已完成任务），按块执行集合操作
+     *
+     * @param includeOffline 是否包含离线玩家
+     * @param callback       (是否全部成功, 处理的玩家数)
+     */
+    public void rerollAllPlayerCategoryTasks(String categoryId, boolean includeOffline, boolean notify,
+                                             BiConsumer<Boolean, Integer> callback) {
+        bulkRerollManager.rerollAll(categoryId, false, includeOffline, notify, callback);
     }
 
     public void forceRerollPlayerCategoryTasks(Player player, String categoryId, boolean notify,
@@ -245,13 +386,15 @@ public class TaskManager {
         });
     }
 
-    public void forceRerollAllPlayerCategoryTasks(String categoryId, boolean notify, Consumer<Boolean> callback) {
-        dev.user.simpletask.task.manager.DatabaseUtils dbUtils = new dev.user.simpletask.task.manager.DatabaseUtils(plugin);
-        dbUtils.executeBatch(
-            new ArrayList<>(plugin.getServer().getOnlinePlayers()),
-            (player, cb) -> forceRerollPlayerCategoryTasks(player, categoryId, notify, cb),
-            callback
-        );
+    /**
+     * 批量强制刷新所有玩家（删除全部任务后重新生成），按块执行集合操作
+     *
+     * @param includeOffline 是否包含离线玩家
+     * @param callback       (是否全部成功, 处理的玩家数)
+     */
+    public void forceRerollAllPlayerCategoryTasks(String categoryId, boolean includeOffline, boolean notify,
+                                                  BiConsumer<Boolean, Integer> callback) {
+        bulkRerollManager.rerollAll(categoryId, true, includeOffline, notify, callback);
     }
 
     // ==================== 代理方法：玩家刷新（付费） ====================
@@ -270,18 +413,35 @@ public class TaskManager {
         rerollManager.resetPlayerCategoryRerollCount(player, categoryId, callback);
     }
 
-    public void resetAllPlayerCategoryRerollCount(String categoryId, Consumer<Boolean> callback) {
-        rerollManager.resetAllPlayerCategoryRerollCount(categoryId, callback);
+    /**
+     * 批量重置所有玩家的刷新次数
+     *
+     * @param includeOffline 是否包含离线玩家
+     * @param callback       (是否全部成功, 处理的玩家数)
+     */
+    public void resetAllPlayerCategoryRerollCount(String categoryId, boolean includeOffline,
+                                                  BiConsumer<Boolean, Integer> callback) {
+        bulkRerollManager.resetRerollCountAll(categoryId, includeOffline, callback);
     }
 
     // ==================== 代理方法：进度管理 ====================
 
-    public void updateProgress(Player player, TaskType type, String targetItem, int amount) {
-        progressManager.updateProgress(player, type, targetItem, amount);
+    public int updateProgress(Player player, TaskType type, String targetItem, int amount) {
+        plugin.getMetrics().recordProgressEvent(type);
+        return progressManager.updateProgress(player, type, targetItem, amount);
     }
 
-    public void updateProgress(Player player, TaskType type, String targetItem, org.bukkit.inventory.ItemStack itemStack, int amount) {
-        progressManager.updateProgress(player, type, targetItem, itemStack, amount);
+    public int updateProgress(Player player, TaskType type, String targetItem, org.bukkit.inventory.ItemStack itemStack, int amount) {
+        plugin.getMetrics().recordProgressEvent(type);
+        return progressManager.updateProgress(player, type, targetItem, itemStack, amount);
+    }
+
+    /**
+     * 高频事件：同一 tick 内的数量合并后再更新进度
+     */
+    public void accumulateProgress(Player player, TaskType type, String targetItem, org.bukkit.inventory.ItemStack itemStack, int amount) {
+        plugin.getMetrics().recordProgressEvent(type);
+        progressManager.accumulateProgress(player, type, targetItem, itemStack, amount);
     }
 
     public void submitTaskProgress(Player player, PlayerTask task, int newProgress, BiConsumer<Boolean, Boolean> callback) {
@@ -292,6 +452,10 @@ public class TaskManager {
         progressManager.claimRewardAsync(player, task, callback);
     }
 
+    public void claimAllRewardsAsync(Player player, String categoryId, Consumer<Integer> callback) {
+        progressManager.claimAllRewardsAsync(player, categoryId, callback);
+    }
+
     // ==================== 代理方法：模板导入/删除 ====================
 
     public void importTemplates(List<TaskTemplate> templates) {
@@ -321,12 +485,19 @@ public class TaskManager {
                 return false;
             }
 
-            // 生成单个任务
-            List<PlayerTask> newTasks = taskGenerator.generateTasksForCategory(
-                conn, player, category, 1, existingTasks,
-                Collections.singletonList(template)
-            );
-            return !newTasks.isEmpty();
+            // 生成单个任务，变更日志与任务写入在同一事务中
+            return databaseUtils.executeInTransaction(conn, c -> {
+                List<PlayerTask> newTasks = taskGenerator.generateTasksForCategory(
+                    c, player.getUniqueId(), category, 1, existingTasks,
+                    Collections.singletonList(template)
+                );
+                if (newTasks.isEmpty()) {
+                    return false;
+                }
+                changeJournal.record(c, player.getUniqueId(), TaskChangeJournal.ChangeType.ASSIGN,
+                    categoryId, template.getTaskKey());
+                return true;
+            });
         }, success -> {
             if (success) {
                 // 更新缓存
@@ -335,7 +506,7 @@ public class TaskManager {
                 if (player.isOnline()) {
                     MessageUtil.sendConfigWithComponents(plugin, player, "task-assigned",
                         MessageUtil.componentPlaceholders("task_name",
-                            MessageUtil.parse(template.getDisplayName())));
+                            template.getDisplayNameComponent()));
                 }
             }
             callback.accept(success);
@@ -349,15 +520,21 @@ public class TaskManager {
      * 删除玩家的指定任务
      */
     public void removePlayerTask(UUID uuid, String category, String taskKey, Consumer<Boolean> callback) {
-        plugin.getDatabaseQueue().submit("removePlayerTask", (Connection conn) -> {
-            String sql = "DELETE FROM player_daily_tasks WHERE player_uuid = ? AND category = ? AND task_key = ?";
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, uuid.toString());
+        plugin.getDatabaseQueue().submit("removePlayerTask", (Connection conn) -> databaseUtils.executeInTransaction(conn, c -> {
+            dev.user.simpletask.database.PlayerTableLayout layout = plugin.getDatabaseManager().getLayout();
+            String sql = "DELETE FROM player_daily_tasks WHERE " + layout.uuidColumn() + " = ? AND category = ? AND task_key = ?";
+            int deleted;
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                layout.bindUuid(ps, 1, uuid);
                 ps.setString(2, category);
                 ps.setString(3, taskKey);
-                return ps.executeUpdate();
+                deleted = ps.executeUpdate();
+            }
+            if (deleted > 0) {
+                changeJournal.record(c, uuid, TaskChangeJournal.ChangeType.REMOVE, category, taskKey);
             }
-        }, deletedCount -> {
+            return deleted;
+        }), deletedCount -> {
             if (deletedCount > 0) {
                 // 从缓存中移除
                 cacheManager.removePlayerTask(uuid, category, taskKey);
@@ -382,7 +559,22 @@ public class TaskManager {
         // 停止模板同步
         templateSyncManager.stopPeriodicSync();
 
+        // 停止变更日志轮询
+        changeJournal.stop();
+
+        // 停止奖励发放（未发放的奖励保留在数据库中）
+        rewardOutbox.stop();
+
         plugin.getLogger().info("Task manager shutdown complete");
     }
 
+    /**
+     * 关闭本地进度日志（数据库队列关闭之后调用），未确认的进度在下次启动时重放
+     */
+    public void closeProgressJournal() {
+        if (progressJournal != null) {
+            progressJournal.close();
+        }
+    }
+
 }
@@ -7,8 +7,11 @@ import com.google.gson.JsonParser;
 import com.google.gson.reflect.TypeToken;
 
 import dev.user.simpletask.util.ItemUtil;
+import dev.user.simpletask.util.MessageUtil;
+import net.kyori.adventure.text.Component;
 import org.bukkit.inventory.ItemStack;
 
+import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -23,12 +26,17 @@ public class TaskTemplate {
         .serializeNulls()
         .create();
 
+    // 解析时复用，避免每个字段创建新的 TypeToken
+    private static final Type STRING_LIST_TYPE = new TypeToken<List<String>>() {}.getType();
+
     private final String taskKey;
     private final String name; // 任务显示名称
     private final TaskType type;
-    private final List<String> targetItems;
+    private final List<String> targetItems; // 不可变视图，getter 直接返回
+    // BREAK/HARVEST：每个目标标准化后在 SymbolTable.TARGETS 中的编号，匹配时只比较 int
+    private final int[] normalizedTargetIds;
     private final int targetAmount;
-    private final List<String> description; // 支持多行描述
+    private final List<String> description; // 支持多行描述（不可变视图）
     private final String icon;
     private final int weight;
     private final Reward reward;
@@ -43,11 +51,15 @@ public class TaskTemplate {
     // Version for template synchronization
     private int version = 1;
 
+    // 显示名称解析缓存（不参与序列化）
+    private record DisplayNameCache(int version, Component component) {}
+    private transient volatile DisplayNameCache displayNameCache;
+
     // Extension data for future use (task chains, requirements, etc.)
     private final Map<String, Object> extensions = new HashMap<>();
 
-    // NBT matching conditions (optional)
-    private List<String> nbtMatchConditions = new ArrayList<>();
+    // NBT matching conditions (optional, 不可变视图)
+    private List<String> nbtMatchConditions = List.of();
 
     public TaskTemplate(String taskKey, String name, TaskType type, String targetItem, int targetAmount,
                         String description, String icon, int weight, Reward reward) {
@@ -68,12 +80,30 @@ public class TaskTemplate {
         this.taskKey = taskKey;
         this.name = name != null && !name.isEmpty() ? name : taskKey;
         this.type = type;
-        this.targetItems = targetItems != null ? new ArrayList<>(targetItems) : new ArrayList<>();
+        this.targetItems = immutableCopy(targetItems);
         this.targetAmount = targetAmount;
-        this.description = description != null ? new ArrayList<>(description) : new ArrayList<>();
+        this.description = immutableCopy(description);
         this.icon = icon;
         this.weight = weight;
         this.reward = reward;
+
+        if (type == TaskType.HARVEST || type == TaskType.BREAK) {
+            normalizedTargetIds = new int[this.targetItems.size()];
+            for (int i = 0; i < normalizedTargetIds.length; i++) {
+                normalizedTargetIds[i] = SymbolTable.TARGETS.intern(normalizeBlockOrItemId(this.targetItems.get(i)));
+            }
+        } else {
+            normalizedTargetIds = null;
+        }
+    }
+
+    /**
+     * 复制为不可变列表（允许 null 元素，与 List.copyOf 不同）
+     */
+    private static List<String> immutableCopy(List<String> values) {
+        return values == null || values.isEmpty()
+            ? Collections.emptyList()
+            : Collections.unmodifiableList(new ArrayList<>(values));
     }
 
     public String getTaskKey() {
@@ -89,10 +119,10 @@ public class TaskTemplate {
     }
 
     /**
-     * 获取目标物品列表（支持多ID匹配）
+     * 获取目标物品列表（支持多ID匹配），返回不可变视图
      */
     public List<String> getTargetItems() {
-        return new ArrayList<>(targetItems);
+        return targetItems;
     }
 
     /**
@@ -107,10 +137,10 @@ public class TaskTemplate {
     }
 
     /**
-     * 获取描述列表（支持多行）
+     * 获取描述列表（支持多行），返回不可变视图
      */
     public List<String> getDescription() {
-        return new ArrayList<>(description);
+        return description;
     }
 
     /**
@@ -160,6 +190,18 @@ public class TaskTemplate {
         return name != null && !name.isEmpty() ? name : type.getDisplayName() + "任务";
     }
 
+    /**
+     * 解析后的显示名称，按模板版本缓存（同一版本只解析一次）
+     */
+    public Component getDisplayNameComponent() {
+        DisplayNameCache cache = displayNameCache;
+        if (cache == null || cache.version() != version) {
+            cache = new DisplayNameCache(version, MessageUtil.parse(getDisplayName()));
+            displayNameCache = cache;
+        }
+        return cache.component();
+    }
+
     public boolean matchesTarget(String itemKey) {
         return matchesTarget(itemKey, null);
     }
@@ -171,12 +213,14 @@ public class TaskTemplate {
      * @return 是否匹配
      */
     public boolean matchesTarget(String itemKey, ItemStack item) {
-        if (targetItems == null || targetItems.isEmpty()) {
+        if (targetItems.isEmpty()) {
             return true; // No specific target required
         }
+        // BREAK/HARVEST：输入在本次匹配中只标准化一次
+        int inputId = normalizedTargetIds != null ? normalizedInputId(itemKey) : -1;
         // 遍历所有目标ID，任一匹配即可
-        for (String targetItem : targetItems) {
-            if (matchesSingleTarget(targetItem, itemKey, item)) {
+        for (int i = 0; i < targetItems.size(); i++) {
+            if (matchesSingleTarget(i, itemKey, inputId, item)) {
                 return true;
             }
         }
@@ -186,7 +230,8 @@ public class TaskTemplate {
     /**
      * 检查单个目标是否匹配（带物品信息）
      */
-    private boolean matchesSingleTarget(String targetItem, String itemKey, ItemStack item) {
+    private boolean matchesSingleTarget(int index, String itemKey, int inputId, ItemStack item) {
+        String targetItem = targetItems.get(index);
         // 基础 ID 匹配
         boolean baseMatch = false;
 
@@ -195,7 +240,7 @@ public class TaskTemplate {
         } else if (targetItem.equalsIgnoreCase(itemKey)) {
             baseMatch = true;
         } else if (type == TaskType.HARVEST || type == TaskType.BREAK) {
-            baseMatch = matchesBlockOrItem(targetItem, itemKey);
+            baseMatch = normalizedTargetIds[index] == inputId;
         } else if (type == TaskType.CHAT) {
             baseMatch = matchesChatMessage(targetItem, itemKey);
         } else if (type == TaskType.COMMAND) {
@@ -221,7 +266,7 @@ public class TaskTemplate {
      * 检查物品是否满足 NBT 匹配条件
      */
     private boolean matchesNbtConditions(ItemStack item) {
-        if (nbtMatchConditions == null || nbtMatchConditions.isEmpty()) {
+        if (nbtMatchConditions.isEmpty()) {
             return true;
         }
         // 使用 ItemUtil 检查 NBT
@@ -244,14 +289,12 @@ public class TaskTemplate {
     }
 
     /**
-     * 检查方块或物品的目标是否匹配
-     * 处理方块ID和物品ID的差异（如 carrot <-> carrots）
-     * 支持 CE 物品的兼容性检查
+     * 输入方块/物品 ID 标准化后的编号
+     * 处理方块ID和物品ID的差异（如 carrot <-> carrots），支持 CE 物品的兼容性检查
+     * 只查询不分配：表中只有模板目标，不是任何目标的输入返回 -1，不会因任意输入 ID 增长
      */
-    private boolean matchesBlockOrItem(String targetItem, String itemKey) {
-        String normalizedTarget = normalizeBlockOrItemId(targetItem);
-        String normalizedInput = normalizeBlockOrItemId(itemKey);
-        return normalizedTarget.equals(normalizedInput);
+    private static int normalizedInputId(String itemKey) {
+        return SymbolTable.TARGETS.idOf(itemKey != null ? normalizeBlockOrItemId(itemKey) : "");
     }
 
     /**
@@ -260,7 +303,7 @@ public class TaskTemplate {
      * - 处理常见的单复数差异
      * - 统一特殊命名（如 cocoa_beans <-> cocoa）
      */
-    private String normalizeBlockOrItemId(String itemKey) {
+    private static String normalizeBlockOrItemId(String itemKey) {
         if (itemKey == null) return "";
         String normalized = itemKey.toLowerCase();
 
@@ -291,7 +334,7 @@ public class TaskTemplate {
     /**
      * 检查是否是不规则复数形式（不应该去 's' 的）
      */
-    private boolean isIrregularPlural(String id) {
+    private static boolean isIrregularPlural(String id) {
         return switch (id) {
             case "cactus", "chorus", "bamboo", "sugar_cane", "chorus_plant",
                  "chorus_flower", "kelp", "seagrass", "tall_seagrass",
@@ -371,24 +414,24 @@ public class TaskTemplate {
     // ========== NBT Conditions ==========
 
     /**
-     * 获取NBT匹配条件列表
+     * 获取NBT匹配条件列表，返回不可变视图
      */
     public List<String> getNbtMatchConditions() {
-        return new ArrayList<>(nbtMatchConditions);
+        return nbtMatchConditions;
     }
 
     /**
      * 设置NBT匹配条件列表
      */
     public void setNbtMatchConditions(List<String> nbtMatchConditions) {
-        this.nbtMatchConditions = nbtMatchConditions != null ? new ArrayList<>(nbtMatchConditions) : new ArrayList<>();
+        this.nbtMatchConditions = immutableCopy(nbtMatchConditions);
     }
 
     /**
      * 检查是否有NBT匹配条件
      */
     public boolean hasNbtMatchConditions() {
-        return nbtMatchConditions != null && !nbtMatchConditions.isEmpty();
+        return !nbtMatchConditions.isEmpty();
     }
 
     // ========== JSON Serialization ==========
@@ -432,7 +475,7 @@ public class TaskTemplate {
         // 支持新旧格式：优先读取 targetItems，否则回退到 targetItem
         List<String> targetItems = new ArrayList<>();
         if (json.has("targetItems") && !json.get("targetItems").isJsonNull()) {
-            targetItems = GSON.fromJson(json.get("targetItems"), new TypeToken<List<String>>() {}.getType());
+            targetItems = GSON.fromJson(json.get("targetItems"), STRING_LIST_TYPE);
         } else if (json.has("targetItem") && !json.get("targetItem").isJsonNull()) {
             String targetItem = json.get("targetItem").getAsString();
             if (targetItem != null && !targetItem.isEmpty()) {
@@ -447,7 +490,7 @@ public class TaskTemplate {
         if (json.has("description") && !json.get("description").isJsonNull()) {
             var descElement = json.get("description");
             if (descElement.isJsonArray()) {
-                description = GSON.fromJson(descElement, new TypeToken<List<String>>() {}.getType());
+                description = GSON.fromJson(descElement, STRING_LIST_TYPE);
             } else {
                 description.add(descElement.getAsString());
             }
@@ -456,7 +499,9 @@ public class TaskTemplate {
         String icon = json.get("icon").getAsString();
         int weight = json.get("weight").getAsInt();
 
-        Reward reward = GSON.fromJson(json.get("reward"), Reward.class);
+        Reward reward = json.has("reward") && json.get("reward").isJsonObject()
+                ? Reward.fromJsonTree(json.getAsJsonObject("reward"))
+                : null;
 
         TaskTemplate template = new TaskTemplate(taskKey, name, type, targetItems, targetAmount,
                 description, icon, weight, reward);
@@ -479,7 +524,7 @@ public class TaskTemplate {
 
         // Load NBT match conditions if present
         if (json.has("nbtMatchConditions") && !json.get("nbtMatchConditions").isJsonNull()) {
-            List<String> nbtConditions = GSON.fromJson(json.get("nbtMatchConditions"), new TypeToken<List<String>>() {}.getType());
+            List<String> nbtConditions = GSON.fromJson(json.get("nbtMatchConditions"), STRING_LIST_TYPE);
             template.setNbtMatchConditions(nbtConditions);
         }
 
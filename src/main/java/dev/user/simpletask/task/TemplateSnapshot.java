@@ -0,0 +1,207 @@
+package dev.user.simpletask.task;
+
+import com.google.gson.Gson;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 模板注册表的二进制快照
+ * 每次从数据库同步后写入数据目录，启动时同步读取，数据库加载完成（或不可用）前模板即可使用
+ *
+ * 格式：[int 魔数][int 格式版本][int 模板数][模板...][long CRC32]
+ * 格式版本或校验不匹配时视为无快照，回退到数据库全量加载
+ */
+public final class TemplateSnapshot {
+
+    private static final int MAGIC = 0x53545453; // "STTS"
+    private static final int FORMAT_VERSION = 1;
+
+    private static final Gson GSON = new Gson();
+
+    private TemplateSnapshot() {}
+
+    // ==================== 文件读写 ====================
+
+    /**
+     * 写入快照：先写临时文件再原子替换，写到一半崩溃不会破坏旧快照
+     */
+    public static void save(File file, Collection<TaskTemplate> templates) throws IOException {
+        byte[] data = encode(templates);
+        File tmp = new File(file.getPath() + ".tmp");
+        Files.write(tmp.toPath(), data);
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static List<TaskTemplate> load(File file) throws IOException {
+        return decode(Files.readAllBytes(file.toPath()));
+    }
+
+    // ==================== 编码 ====================
+
+    public static byte[] encode(Collection<TaskTemplate> templates) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(templates.size() * 256 + 32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(templates.size());
+        for (TaskTemplate template : templates) {
+            writeTemplate(out, template);
+        }
+        out.flush();
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeTemplate(DataOutputStream out, TaskTemplate template) throws IOException {
+        writeString(out, template.getTaskKey());
+        writeString(out, template.getName());
+        writeString(out, template.getType().name());
+        writeStrings(out, template.getTargetItems());
+        out.writeInt(template.getTargetAmount());
+        writeStrings(out, template.getDescription());
+        writeString(out, template.getIcon());
+        out.writeInt(template.getWeight());
+        writeReward(out, template.getReward());
+        writeString(out, template.getCategory());
+        out.writeInt(template.getVersion());
+        out.writeInt(template.getId());
+        writeStrings(out, template.getNbtMatchConditions());
+        // 扩展数据是任意结构，按 JSON 保存
+        writeString(out, template.getExtensions().isEmpty() ? null : GSON.toJson(template.getExtensions()));
+    }
+
+    private static void writeReward(DataOutputStream out, Reward reward) throws IOException {
+        out.writeBoolean(reward != null);
+        if (reward == null) return;
+        out.writeDouble(reward.getMoney());
+        out.writeInt(reward.getItems().size());
+        for (Reward.RewardItem item : reward.getItems()) {
+            writeString(out, item.getItemKey());
+            out.writeInt(item.getAmount());
+        }
+        writeStrings(out, reward.getCommands());
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    /**
+     * 长度 + UTF-8，长度 -1 表示 null（不用 writeUTF：它限制 64KB）
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    // ==================== 解码 ====================
+
+    public static List<TaskTemplate> decode(byte[] data) throws IOException {
+        if (data.length < 20) {
+            throw new IOException("Template snapshot is truncated");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 8);
+        if (ByteBuffer.wrap(data).getLong(data.length - 8) != crc.getValue()) {
+            throw new IOException("Template snapshot checksum mismatch");
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 0, data.length - 8));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a template snapshot");
+        }
+        int formatVersion = in.readInt();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("Unsupported template snapshot version: " + formatVersion);
+        }
+
+        int count = in.readInt();
+        List<TaskTemplate> templates = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            templates.add(readTemplate(in));
+        }
+        return templates;
+    }
+
+    private static TaskTemplate readTemplate(DataInputStream in) throws IOException {
+        String taskKey = readString(in);
+        String name = readString(in);
+        TaskType type;
+        String typeName = readString(in);
+        try {
+            type = TaskType.valueOf(typeName);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unknown task type in snapshot: " + typeName);
+        }
+        List<String> targetItems = readStrings(in);
+        int targetAmount = in.readInt();
+        List<String> description = readStrings(in);
+        String icon = readString(in);
+        int weight = in.readInt();
+        Reward reward = readReward(in);
+
+        TaskTemplate template = new TaskTemplate(taskKey, name, type, targetItems, targetAmount,
+            description, icon, weight, reward);
+        template.setCategory(readString(in));
+        template.setVersion(in.readInt());
+        template.setId(in.readInt());
+        template.setNbtMatchConditions(readStrings(in));
+
+        String extensions = readString(in);
+        if (extensions != null) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> ext = GSON.fromJson(extensions, Map.class);
+            template.getExtensions().putAll(ext);
+        }
+        return template;
+    }
+
+    private static Reward readReward(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) return null;
+        double money = in.readDouble();
+        int itemCount = in.readInt();
+        List<Reward.RewardItem> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            items.add(new Reward.RewardItem(readString(in), in.readInt()));
+        }
+        return new Reward(money, items, readStrings(in));
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
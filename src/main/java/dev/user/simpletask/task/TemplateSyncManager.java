@@ -2,7 +2,10 @@ package dev.user.simpletask.task;
 
 import dev.user.simpletask.SimpleTaskPlugin;
 import dev.user.simpletask.database.DatabaseQueue;
+import dev.user.simpletask.database.SqlDialect;
 
+import java.io.File;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -24,18 +27,44 @@ public class TemplateSyncManager {
     // 本地模板缓存 (task_key -> TaskTemplate)
     private final Map<String, TaskTemplate> localTemplates = new ConcurrentHashMap<>();
 
+    // 模板数量达到此值时并行解析 JSON
+    private static final int PARALLEL_PARSE_THRESHOLD = 64;
+
     // 上次同步时间
     private volatile long lastSyncTime = 0;
 
+    // 二进制快照文件（每次同步后更新）
+    private final File snapshotFile;
+
+    /**
+     * 数据库中的一行模板数据（先读完结果集，再解析 JSON）
+     */
+    private record TemplateRow(String taskKey, int version, int id, String taskData) {}
+
     public TemplateSyncManager(SimpleTaskPlugin plugin) {
         this.plugin = plugin;
         this.databaseQueue = plugin.getDatabaseQueue();
+        this.snapshotFile = new File(plugin.getDataFolder(), "templates.snapshot");
     }
 
     /**
-     * 启动时从数据库加载所有模板
+     * 启动时加载模板
+     * 有可用快照时先同步载入快照，再在后台按版本与数据库对账，只拉取有变化的模板；
+     * 数据库暂时不可用时继续使用快照。没有快照时从数据库全量加载
      */
     public void loadFromDatabase() {
+        if (loadSnapshot()) {
+            databaseQueue.submit("reconcileTemplates", (Connection conn) -> {
+                int changed = syncChangedTemplates(conn);
+                if (changed == 0) {
+                    lastSyncTime = System.currentTimeMillis();
+                    plugin.getLogger().info("Template snapshot is up to date with database");
+                }
+                return null;
+            }, null, e -> plugin.getLogger().log(Level.WARNING, "Failed to reconcile templates with database, using snapshot", e));
+            return;
+        }
+
         plugin.getLogger().info("Loading templates from database...");
 
         databaseQueue.submit("loadTemplates", (Connection conn) -> {
@@ -45,10 +74,48 @@ public class TemplateSyncManager {
             lastSyncTime = System.currentTimeMillis();
 
             plugin.getLogger().info("Loaded " + templates.size() + " templates from database");
+            saveSnapshot();
             return null;
         }, null, e -> plugin.getLogger().log(Level.SEVERE, "Failed to load templates", e));
     }
 
+    // ==================== 二进制快照 ====================
+
+    /**
+     * 同步载入快照（插件启用时调用）
+     *
+     * @return 是否成功载入
+     */
+    private boolean loadSnapshot() {
+        if (!snapshotFile.exists()) return false;
+
+        long start = System.nanoTime();
+        try {
+            Map<String, TaskTemplate> templates = new HashMap<>();
+            for (TaskTemplate template : TemplateSnapshot.load(snapshotFile)) {
+                templates.put(template.getTaskKey(), template);
+            }
+            atomicUpdateTemplates(templates);
+            plugin.getLogger().info("Loaded " + templates.size() + " templates from snapshot in "
+                + (System.nanoTime() - start) / 1_000_000 + "ms");
+            return true;
+        } catch (IOException | RuntimeException e) {
+            plugin.getLogger().warning("Ignoring unreadable template snapshot: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 保存快照（数据库线程中调用，在模板缓存更新之后）
+     */
+    private void saveSnapshot() {
+        try {
+            TemplateSnapshot.save(snapshotFile, new ArrayList<>(localTemplates.values()));
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to save template snapshot", e);
+        }
+    }
+
     /**
      * 强制从数据库重新加载（用于 import 命令后）
      */
@@ -60,6 +127,7 @@ public class TemplateSyncManager {
             lastSyncTime = System.currentTimeMillis();
 
             plugin.getLogger().info("Reloaded " + templates.size() + " templates from database");
+            saveSnapshot();
             if (callback != null) {
                 plugin.getServer().getGlobalRegionScheduler().execute(plugin, callback);
             }
@@ -87,60 +155,68 @@ public class TemplateSyncManager {
 
         periodicSyncTask = plugin.getServer().getGlobalRegionScheduler().runAtFixedRate(plugin, task -> {
             databaseQueue.submit("periodicSyncCheck", (Connection conn) -> {
-                // 第一步：获取数据库中所有模板的版本信息（轻量级查询）
-                Map<String, Integer> dbVersions = loadTemplateVersionsFromDatabase(conn);
+                syncChangedTemplates(conn);
+                return null;
+            }, null, e -> plugin.getLogger().log(Level.WARNING, "Template sync failed", e));
+        }, ticks, ticks);
+    }
 
-                // 检查是否有变化
-                Set<String> changedKeys = new HashSet<>();
+    /**
+     * 按版本比对本地缓存与数据库，只拉取有变化的模板（定时同步和启动时快照对账共用）
+     *
+     * @return 变化的模板数
+     */
+    private int syncChangedTemplates(Connection conn) throws SQLException {
+        // 第一步：获取数据库中所有模板的版本信息（轻量级查询）
+        Map<String, Integer> dbVersions = loadTemplateVersionsFromDatabase(conn);
 
-                // 1. 检查新增或更新的模板
-                for (Map.Entry<String, Integer> entry : dbVersions.entrySet()) {
-                    String taskKey = entry.getKey();
-                    int dbVersion = entry.getValue();
-                    TaskTemplate local = localTemplates.get(taskKey);
+        // 检查是否有变化
+        Set<String> changedKeys = new HashSet<>();
 
-                    if (local == null || local.getVersion() < dbVersion) {
-                        changedKeys.add(taskKey);
-                    }
-                }
+        // 1. 检查新增或更新的模板（版本不同即视为变化：快照可能比数据库新，例如数据库被回滚）
+        for (Map.Entry<String, Integer> entry : dbVersions.entrySet()) {
+            String taskKey = entry.getKey();
+            int dbVersion = entry.getValue();
+            TaskTemplate local = localTemplates.get(taskKey);
 
-                // 2. 检查被删除的模板（本地有但数据库没有）
-                for (String localKey : localTemplates.keySet()) {
-                    if (!dbVersions.containsKey(localKey)) {
-                        changedKeys.add(localKey);
-                    }
-                }
+            if (local == null || local.getVersion() != dbVersion) {
+                changedKeys.add(taskKey);
+            }
+        }
 
-                if (changedKeys.isEmpty()) {
-                    return null; // 没有变化，无需更新
-                }
+        // 2. 检查被删除的模板（本地有但数据库没有）
+        for (String localKey : localTemplates.keySet()) {
+            if (!dbVersions.containsKey(localKey)) {
+                changedKeys.add(localKey);
+            }
+        }
 
-                plugin.getLogger().info("Detected " + changedKeys.size() + " template(s) changed in database");
+        if (changedKeys.isEmpty()) {
+            return 0; // 没有变化，无需更新
+        }
 
-                // 第二步：只获取有变化的模板的完整数据
-                Map<String, TaskTemplate> updatedTemplates = new HashMap<>();
+        plugin.getLogger().info("Detected " + changedKeys.size() + " template(s) changed in database");
 
-                // 复制本地缓存中未变化的模板
-                for (Map.Entry<String, TaskTemplate> entry : localTemplates.entrySet()) {
-                    if (!changedKeys.contains(entry.getKey())) {
-                        updatedTemplates.put(entry.getKey(), entry.getValue());
-                    }
-                }
+        // 第二步：只获取有变化的模板的完整数据
+        Map<String, TaskTemplate> updatedTemplates = new HashMap<>();
 
-                // 从数据库加载变化的模板
-                if (!changedKeys.isEmpty()) {
-                    Map<String, TaskTemplate> changedTemplates = loadTemplatesByKeys(conn, changedKeys);
-                    updatedTemplates.putAll(changedTemplates);
-                }
+        // 复制本地缓存中未变化的模板
+        for (Map.Entry<String, TaskTemplate> entry : localTemplates.entrySet()) {
+            if (!changedKeys.contains(entry.getKey())) {
+                updatedTemplates.put(entry.getKey(), entry.getValue());
+            }
+        }
 
-                // 原子替换：使用新Map替换旧Map
-                atomicUpdateTemplates(updatedTemplates);
-                lastSyncTime = System.currentTimeMillis();
+        // 从数据库加载变化的模板
+        updatedTemplates.putAll(loadTemplatesByKeys(conn, changedKeys));
 
-                plugin.getLogger().info("Templates updated from database: " + localTemplates.size() + " templates");
-                return null;
-            }, null, e -> plugin.getLogger().log(Level.WARNING, "Template sync failed", e));
-        }, ticks, ticks);
+        // 原子替换：使用新Map替换旧Map
+        atomicUpdateTemplates(updatedTemplates);
+        lastSyncTime = System.currentTimeMillis();
+
+        plugin.getLogger().info("Templates updated from database: " + localTemplates.size() + " templates");
+        saveSnapshot();
+        return changedKeys.size();
     }
 
     /**
@@ -172,7 +248,7 @@ public class TemplateSyncManager {
 
         // 构建 IN 子句
         String placeholders = String.join(",", Collections.nCopies(keys.size(), "?"));
-        String sql = "SELECT * FROM task_templates WHERE task_key IN (" + placeholders + ") AND enabled = TRUE";
+        String sql = "SELECT id, task_key, version, task_data FROM task_templates WHERE task_key IN (" + placeholders + ") AND enabled = TRUE";
 
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             int index = 1;
@@ -181,53 +257,59 @@ public class TemplateSyncManager {
             }
 
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    TaskTemplate template = parseTemplateFromResultSet(rs);
-                    if (template != null) {
-                        templates.put(template.getTaskKey(), template);
-                    }
-                }
+                return parseTemplates(readTemplateRows(rs));
             }
         }
-        return templates;
     }
 
     /**
      * 从数据库加载所有模板 - 队列自动管理连接
      */
     private Map<String, TaskTemplate> loadTemplatesFromDatabase(Connection conn) throws SQLException {
-        Map<String, TaskTemplate> templates = new HashMap<>();
-
-        String sql = "SELECT * FROM task_templates WHERE enabled = TRUE";
+        String sql = "SELECT id, task_key, version, task_data FROM task_templates WHERE enabled = TRUE";
         try (PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                TaskTemplate template = parseTemplateFromResultSet(rs);
-                if (template != null) {
-                    templates.put(template.getTaskKey(), template);
-                }
-            }
+            return parseTemplates(readTemplateRows(rs));
+        }
+    }
+
+    private List<TemplateRow> readTemplateRows(ResultSet rs) throws SQLException {
+        List<TemplateRow> rows = new ArrayList<>();
+        while (rs.next()) {
+            rows.add(new TemplateRow(rs.getString("task_key"), rs.getInt("version"), rs.getInt("id"),
+                rs.getString("task_data")));
+        }
+        return rows;
+    }
+
+    /**
+     * 解析模板 JSON：结果集已读完，模板较多时在公共线程池中并行解析，不占用数据库连接
+     */
+    private Map<String, TaskTemplate> parseTemplates(List<TemplateRow> rows) {
+        Map<String, TaskTemplate> templates = new HashMap<>();
+        List<TaskTemplate> parsed = (rows.size() >= PARALLEL_PARSE_THRESHOLD ? rows.parallelStream() : rows.stream())
+            .map(this::parseTemplate)
+            .filter(Objects::nonNull)
+            .toList();
+        for (TaskTemplate template : parsed) {
+            templates.put(template.getTaskKey(), template);
         }
         return templates;
     }
 
     /**
-     * 从 ResultSet 解析模板
+     * 解析一行模板数据
      */
-    private TaskTemplate parseTemplateFromResultSet(ResultSet rs) throws SQLException {
+    private TaskTemplate parseTemplate(TemplateRow row) {
         try {
-            String taskKey = rs.getString("task_key");
-            int version = rs.getInt("version");
-            String taskData = rs.getString("task_data");
-
-            if (taskData == null || taskData.isEmpty()) {
-                plugin.getLogger().warning("Missing task_data for template: " + taskKey);
+            if (row.taskData() == null || row.taskData().isEmpty()) {
+                plugin.getLogger().warning("Missing task_data for template: " + row.taskKey());
                 return null;
             }
 
-            TaskTemplate template = TaskTemplate.fromJson(taskData);
-            template.setVersion(version);
-            template.setId(rs.getInt("id"));
+            TaskTemplate template = TaskTemplate.fromJson(row.taskData());
+            template.setVersion(row.version());
+            template.setId(row.id());
             return template;
         } catch (Exception e) {
             plugin.getLogger().warning("Failed to parse template from database: " + e.getMessage());
@@ -299,27 +381,9 @@ public class TemplateSyncManager {
      */
     public void importTemplates(List<TaskTemplate> templates) {
         databaseQueue.submit("importTemplates", (Connection conn) -> {
-            boolean isMySQL = plugin.getDatabaseManager().isMySQL();
-            String sql;
-
-            if (isMySQL) {
-                sql = """
-                    INSERT INTO task_templates
-                    (task_key, version, task_data, enabled)
-                    VALUES (?, ?, ?, TRUE)
-                    ON DUPLICATE KEY UPDATE
-                    version = VALUES(version),
-                    task_data = VALUES(task_data),
-                    enabled = TRUE
-                    """;
-            } else {
-                sql = """
-                    MERGE INTO task_templates
-                    (task_key, version, task_data, enabled)
-                    KEY(task_key)
-                    VALUES (?, ?, ?, TRUE)
-                    """;
-            }
+            SqlDialect dialect = plugin.getDatabaseManager().getDialect();
+            String[] columns = {"task_key", "version", "task_data", "enabled"};
+            String[] keyColumns = {"task_key"};
 
             // 使用事务确保批量导入的原子性
             boolean originalAutoCommit = conn.getAutoCommit();
@@ -329,24 +393,30 @@ public class TemplateSyncManager {
                     conn.setAutoCommit(false);
                 }
 
-                try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                    for (TaskTemplate template : templates) {
-                        ps.setString(1, template.getTaskKey());
-                        ps.setInt(2, template.getVersion());
-                        ps.setString(3, template.toJson());
-                        ps.addBatch();
-                    }
-
-                    ps.executeBatch();
-
-                    // 提交事务
-                    if (originalAutoCommit) {
-                        conn.commit();
+                // 多行 UPSERT，每块一次往返
+                for (int from = 0; from < templates.size(); from += SqlDialect.MAX_ROWS_PER_STATEMENT) {
+                    List<TaskTemplate> chunk = templates.subList(from,
+                        Math.min(templates.size(), from + SqlDialect.MAX_ROWS_PER_STATEMENT));
+                    try (PreparedStatement ps = conn.prepareStatement(
+                            dialect.upsert("task_templates", columns, keyColumns, chunk.size()))) {
+                        int index = 1;
+                        for (TaskTemplate template : chunk) {
+                            ps.setString(index++, template.getTaskKey());
+                            ps.setInt(index++, template.getVersion());
+                            ps.setString(index++, template.toJson());
+                            ps.setBoolean(index++, true);
+                        }
+                        ps.executeUpdate();
                     }
+                }
 
-                    plugin.getLogger().info("Imported " + templates.size() + " templates");
+                // 提交事务
+                if (originalAutoCommit) {
+                    conn.commit();
                 }
 
+                plugin.getLogger().info("Imported " + templates.size() + " templates");
+
                 // 重新加载到本地缓存
                 reloadFromDatabase(null);
 
@@ -2,11 +2,15 @@ package dev.user.simpletask.task.category;
 
 import dev.user.simpletask.task.ExpirePolicy;
 import dev.user.simpletask.task.ExpirePolicyConfig;
+import dev.user.simpletask.task.FloodPolicy;
+import dev.user.simpletask.task.TaskType;
 
 import java.time.DayOfWeek;
 import java.time.Duration;
 import java.time.LocalTime;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 任务类别配置
@@ -39,6 +43,18 @@ public class TaskCategory {
     private boolean rerollKeepCompleted = true;  // 刷新时保留已完成的任务
     private ExpirePolicyConfig rerollResetConfig = new ExpirePolicyConfig(ExpirePolicy.DAILY);
 
+    // 进度限流配置（未配置的任务类型不限流）
+    private FloodPolicy floodPolicy = FloodPolicy.DROP;
+    private Map<TaskType, RateLimit> rateLimits = new EnumMap<>(TaskType.class);
+
+    /**
+     * 令牌桶参数，令牌按进度数量计
+     *
+     * @param capacity        桶容量（允许的突发量）
+     * @param refillPerSecond 每秒补充的令牌数
+     */
+    public record RateLimit(int capacity, double refillPerSecond) {}
+
     public TaskCategory() {}
 
     public TaskCategory(String id) {
@@ -145,6 +161,19 @@ public class TaskCategory {
         rerollResetConfig.setDuration(duration);
     }
 
+    // ==================== 限流快捷方法 ====================
+
+    /**
+     * 获取任务类型的限流参数，null 表示不限流
+     */
+    public RateLimit getRateLimit(TaskType type) {
+        return rateLimits.get(type);
+    }
+
+    public void setRateLimit(TaskType type, RateLimit limit) {
+        rateLimits.put(type, limit);
+    }
+
     // ==================== Getters and Setters ====================
 
     public String getId() {
@@ -282,4 +311,16 @@ public class TaskCategory {
     public void setRerollKeepCompleted(boolean rerollKeepCompleted) {
         this.rerollKeepCompleted = rerollKeepCompleted;
     }
+
+    public FloodPolicy getFloodPolicy() {
+        return floodPolicy;
+    }
+
+    public void setFloodPolicy(FloodPolicy floodPolicy) {
+        this.floodPolicy = floodPolicy;
+    }
+
+    public Map<TaskType, RateLimit> getRateLimits() {
+        return rateLimits;
+    }
 }
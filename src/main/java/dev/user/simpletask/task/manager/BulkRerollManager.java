@@ -0,0 +1,402 @@
+package dev.user.simpletask.task.manager;
+
+import dev.user.simpletask.SimpleTaskPlugin;
+import dev.user.simpletask.database.PlayerTableLayout;
+import dev.user.simpletask.task.PlayerTask;
+import dev.user.simpletask.task.TaskTemplate;
+import dev.user.simpletask.task.TemplateSyncManager;
+import dev.user.simpletask.task.category.TaskCategory;
+import dev.user.simpletask.util.MessageUtil;
+import dev.user.simpletask.util.TimeUtil;
+import dev.user.simpletask.util.TimeZoneConfig;
+import net.kyori.adventure.text.Component;
+import org.bukkit.entity.Player;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * 批量刷新管理器
+ * 管理员对某分类的全体玩家执行刷新 / 重置刷新次数时使用集合操作：
+ * 每块玩家一条 DELETE、一组多行 INSERT、一条 UPDATE，而不是每个玩家一个事务
+ *
+ * 玩家按块处理，每块提交一个数据库队列任务，完成后再提交下一块，块之间其他数据库任务可以执行。
+ * 包含离线玩家时按 player_uuid 键集分页读取表中已有数据的玩家
+ */
+public class BulkRerollManager {
+
+    // 每块处理的玩家数（IN 条件长度）
+    private static final int PLAYER_CHUNK_SIZE = 500;
+
+    private enum Operation {
+        REROLL, FORCE_REROLL, RESET_COUNT
+    }
+
+    private final SimpleTaskPlugin plugin;
+    private final TaskCacheManager cacheManager;
+    private final TaskGenerator taskGenerator;
+    private final TemplateSyncManager templateSyncManager;
+    private final TaskChangeJournal changeJournal;
+
+    public BulkRerollManager(SimpleTaskPlugin plugin, TaskCacheManager cacheManager, TaskGenerator taskGenerator,
+                             TemplateSyncManager templateSyncManager, TaskChangeJournal changeJournal) {
+        this.plugin = plugin;
+        this.cacheManager = cacheManager;
+        this.taskGenerator = taskGenerator;
+        this.templateSyncManager = templateSyncManager;
+        this.changeJournal = changeJournal;
+    }
+
+    // ==================== 入口 ====================
+
+    /**
+     * 刷新所有玩家指定分类的任务
+     *
+     * @param force          true 删除全部任务后重新生成；false 只替换未完成的任务
+     * @param includeOffline 是否包含离线玩家（该分类下已有任务的所有玩家）
+     * @param notify         是否通知在线玩家
+     * @param callback       (是否全部成功, 处理的玩家数)
+     */
+    public void rerollAll(String categoryId, boolean force, boolean includeOffline, boolean notify,
+                          BiConsumer<Boolean, Integer> callback) {
+        TaskCategory category = plugin.getConfigManager().getTaskCategory(categoryId);
+        if (category == null || !category.isEnabled()) {
+            callback.accept(false, 0);
+            return;
+        }
+
+        // 模板只取一次，所有块共用
+        List<TaskTemplate> templates = List.copyOf(templateSyncManager.getTemplatesByCategory(categoryId));
+        if (templates.isEmpty()) {
+            plugin.getLogger().warning("Bulk reroll skipped: category '" + categoryId + "' has no templates");
+            callback.accept(false, 0);
+            return;
+        }
+
+        Operation operation = force ? Operation.FORCE_REROLL : Operation.REROLL;
+        processNextChunk(new BulkJob(operation, category, templates, includeOffline, notify, callback));
+    }
+
+    /**
+     * 重置所有玩家指定分类的刷新次数
+     *
+     * @param includeOffline 是否包含离线玩家（该分类下有刷新记录的所有玩家）
+     * @param callback       (是否全部成功, 处理的玩家数)
+     */
+    public void resetRerollCountAll(String categoryId, boolean includeOffline, BiConsumer<Boolean, Integer> callback) {
+        TaskCategory category = plugin.getConfigManager().getTaskCategory(categoryId);
+        if (category == null) {
+            callback.accept(false, 0);
+            return;
+        }
+        processNextChunk(new BulkJob(Operation.RESET_COUNT, category, List.of(), includeOffline, false, callback));
+    }
+
+    // ==================== 分块调度 ====================
+
+    private void processNextChunk(BulkJob job) {
+        plugin.getDatabaseQueue().submit("bulk" + job.operation.name(), (Connection conn) -> {
+            List<UUID> players = nextPlayers(conn, job);
+            if (players.isEmpty()) {
+                return null;
+            }
+            return job.operation == Operation.RESET_COUNT
+                ? resetChunk(conn, job, players)
+                : rerollChunk(conn, job, players);
+        }, result -> {
+            if (result == null) {
+                plugin.getLogger().info("Bulk " + job.operation.name().toLowerCase() + " of category '"
+                    + job.category.getId() + "' finished: " + job.processed + " players");
+                job.callback.accept(true, job.processed);
+                return;
+            }
+            job.processed += result.players().size();
+            applyToOnlinePlayers(job, result);
+            processNextChunk(job);
+        }, e -> {
+            plugin.getLogger().log(java.util.logging.Level.SEVERE, "Bulk " + job.operation.name().toLowerCase()
+                + " of category '" + job.category.getId() + "' failed after " + job.processed + " players", e);
+            job.callback.accept(false, job.processed);
+        });
+    }
+
+    /**
+     * 取下一块玩家：在线模式从开始时的在线玩家快照中切片，离线模式按 player_uuid 键集分页
+     */
+    private List<UUID> nextPlayers(Connection conn, BulkJob job) throws SQLException {
+        if (!job.includeOffline) {
+            int from = job.onlineOffset;
+            int to = Math.min(job.online.size(), from + PLAYER_CHUNK_SIZE);
+            job.onlineOffset = to;
+            return new ArrayList<>(job.online.subList(from, to));
+        }
+
+        String table = job.operation == Operation.RESET_COUNT ? "player_category_reroll" : "player_daily_tasks";
+        String categoryColumn = job.operation == Operation.RESET_COUNT ? "category_id" : "category";
+        String sql = "SELECT DISTINCT player_uuid FROM " + table + " WHERE " + categoryColumn + " = ? AND player_uuid > ?" +
+            " ORDER BY player_uuid LIMIT ?";
+        List<UUID> players = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, job.category.getId());
+            ps.setString(2, job.lastUuid);
+            ps.setInt(3, PLAYER_CHUNK_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String uuid = rs.getString("player_uuid");
+                    job.lastUuid = uuid;
+                    players.add(UUID.fromString(uuid));
+                }
+            }
+        }
+        return players;
+    }
+
+    // ==================== 集合操作 ====================
+
+    /**
+     * 刷新一块玩家：读取现有任务 → 抽取新任务 → 一条 DELETE → 多行 INSERT → 变更日志，在同一事务中完成
+     * 部分刷新时可选模板不足以补满的玩家不删除任何任务（与单人刷新回滚一致），不计入处理人数
+     */
+    private ChunkResult rerollChunk(Connection conn, BulkJob job, List<UUID> players) throws SQLException {
+        String categoryId = job.category.getId();
+        boolean force = job.operation == Operation.FORCE_REROLL;
+        String inClause = inClause(players.size());
+
+        boolean originalAutoCommit = conn.getAutoCommit();
+        try {
+            if (originalAutoCommit) {
+                conn.setAutoCommit(false);
+            }
+
+            // 1. 部分刷新需要现有任务：已完成的保留，所有现有 key 都不再被选中
+            Map<UUID, Set<String>> existingKeys = new HashMap<>();
+            Map<UUID, Set<String>> keptKeys = new HashMap<>();
+            if (!force) {
+                String selectSql = "SELECT player_uuid, task_key, completed FROM player_daily_tasks WHERE category = ? AND " + inClause;
+                try (PreparedStatement ps = conn.prepareStatement(selectSql)) {
+                    bindCategoryAndPlayers(ps, categoryId, players);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            UUID uuid = UUID.fromString(rs.getString("player_uuid"));
+                            String taskKey = rs.getString("task_key");
+                            existingKeys.computeIfAbsent(uuid, k -> new HashSet<>()).add(taskKey);
+                            if (rs.getBoolean("completed")) {
+                                keptKeys.computeIfAbsent(uuid, k -> new HashSet<>()).add(taskKey);
+                            }
+                        }
+                    }
+                }
+            }
+
+            // 2. 先在内存中为每个玩家抽取新任务，确定可以补满的玩家
+            List<UUID> refilled = new ArrayList<>(players.size());
+            Map<UUID, List<TaskTemplate>> assignments = new LinkedHashMap<>();
+            for (UUID uuid : players) {
+                Set<String> excluded = existingKeys.getOrDefault(uuid, Collections.emptySet());
+                int kept = keptKeys.getOrDefault(uuid, Collections.emptySet()).size();
+                int need = job.category.getMaxConcurrent() - kept;
+                if (need <= 0) {
+                    refilled.add(uuid);
+                    continue;
+                }
+
+                List<TaskTemplate> available = new ArrayList<>(job.templates);
+                available.removeIf(t -> excluded.contains(t.getTaskKey()));
+                if (need > available.size()) {
+                    // 强制刷新删除全部任务，模板数就是能分配的上限；部分刷新则跳过该玩家
+                    if (!force) continue;
+                    need = available.size();
+                }
+                refilled.add(uuid);
+                assignments.put(uuid, TaskGenerator.selectRandomTasksFromList(available, need));
+            }
+            if (refilled.size() < players.size()) {
+                plugin.getLogger().warning("Bulk reroll of category '" + categoryId + "' skipped "
+                    + (players.size() - refilled.size()) + " players: not enough unused templates to refill");
+            }
+            if (refilled.isEmpty()) {
+                if (originalAutoCommit) {
+                    conn.commit();
+                }
+                return new ChunkResult(refilled, Collections.emptyMap(), Collections.emptyMap());
+            }
+
+            // 3. 一条 DELETE（只包含可以补满的玩家）+ 多行 INSERT
+            String deleteSql = "DELETE FROM player_daily_tasks WHERE category = ? AND " + inClause(refilled.size()) +
+                (force ? "" : " AND completed = FALSE");
+            try (PreparedStatement ps = conn.prepareStatement(deleteSql)) {
+                bindCategoryAndPlayers(ps, categoryId, refilled);
+                ps.executeUpdate();
+            }
+            taskGenerator.insertTasks(conn, assignments, job.assignedAt, job.category);
+
+            // 4. 变更日志（多行 INSERT）
+            changeJournal.recordPlayers(conn, refilled, TaskChangeJournal.ChangeType.REROLL, categoryId);
+
+            if (originalAutoCommit) {
+                conn.commit();
+            }
+            return new ChunkResult(refilled, keptKeys, assignments);
+        } catch (SQLException e) {
+            if (originalAutoCommit) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackEx) {
+                    plugin.getLogger().log(java.util.logging.Level.SEVERE, "Failed to rollback transaction", rollbackEx);
+                }
+            }
+            throw e;
+        } finally {
+            if (originalAutoCommit) {
+                try {
+                    conn.setAutoCommit(true);
+                } catch (SQLException autoCommitEx) {
+                    plugin.getLogger().log(java.util.logging.Level.WARNING, "Failed to restore autoCommit", autoCommitEx);
+                }
+            }
+        }
+    }
+
+    /**
+     * 重置一块玩家的刷新次数：一条 UPDATE
+     * 没有记录的玩家本来就是 0 次，无需插入
+     */
+    private ChunkResult resetChunk(Connection conn, BulkJob job, List<UUID> players) throws SQLException {
+        PlayerTableLayout layout = layout();
+        String sql = "UPDATE player_category_reroll SET reroll_count = 0, last_reset_time = ?" +
+            (layout.writesCompact() ? ", " + PlayerTableLayout.LAST_RESET_MS + " = ?" : "") +
+            " WHERE category_id = ? AND " + layout.uuidColumn() + " IN (" + "?,".repeat(players.size() - 1) + "?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int index = 1;
+            ps.setTimestamp(index++, Timestamp.from(TimeZoneConfig.toInstant(job.assignedAt)), TimeZoneConfig.UTC_CALENDAR);
+            if (layout.writesCompact()) {
+                ps.setLong(index++, PlayerTableLayout.toEpochMillis(job.assignedAt));
+            }
+            ps.setString(index++, job.category.getId());
+            for (UUID uuid : players) {
+                layout.bindUuid(ps, index++, uuid);
+            }
+            ps.executeUpdate();
+        }
+        // 离线保留的玩家重连时重新加载
+        for (UUID uuid : players) {
+            cacheManager.evictWarm(uuid);
+        }
+        return new ChunkResult(players, Collections.emptyMap(), Collections.emptyMap());
+    }
+
+    private String inClause(int players) {
+        return layout().uuidColumn() + " IN (" + "?,".repeat(players - 1) + "?)";
+    }
+
+    private void bindCategoryAndPlayers(PreparedStatement ps, String categoryId, List<UUID> players) throws SQLException {
+        ps.setString(1, categoryId);
+        int index = 2;
+        for (UUID uuid : players) {
+            layout().bindUuid(ps, index++, uuid);
+        }
+    }
+
+    // ==================== 在线玩家缓存 ====================
+
+    /**
+     * 在主线程更新本块中在线玩家的缓存并发送通知
+     */
+    private void applyToOnlinePlayers(BulkJob job, ChunkResult result) {
+        String categoryId = job.category.getId();
+        Component categoryName = job.notify ? MessageUtil.parse(job.category.getDisplayName()) : null;
+
+        for (UUID uuid : result.players()) {
+            Player player = plugin.getServer().getPlayer(uuid);
+            if (player == null || !player.isOnline()) continue;
+
+            if (job.operation == Operation.RESET_COUNT) {
+                cacheManager.updateRerollCounter(uuid, categoryId, new TaskCacheManager.RerollCounter(0, job.assignedAt));
+                continue;
+            }
+
+            updateCategoryCache(uuid, categoryId, result.keptKeys().getOrDefault(uuid, Collections.emptySet()),
+                result.assignments().getOrDefault(uuid, Collections.emptyList()), job.assignedAt);
+
+            // 打开的GUI持有旧的任务对象，关闭避免基于过期数据操作
+            dev.user.simpletask.gui.GUIManager.closePlayerGUI(uuid);
+
+            if (job.notify) {
+                MessageUtil.sendConfigWithComponents(plugin, player, "tasks-refreshed",
+                    MessageUtil.componentPlaceholders("categories", categoryName));
+            }
+        }
+    }
+
+    /**
+     * 用保留的任务和新任务写回分类缓存；缓存中缺少保留的任务时移除该分类，下次使用时重新加载
+     */
+    private void updateCategoryCache(UUID uuid, String categoryId, Set<String> keptKeys,
+                                     List<TaskTemplate> assigned, LocalDateTime assignedAt) {
+        List<PlayerTask> cached = cacheManager.getCachedCategoryTasks(uuid, categoryId);
+        List<PlayerTask> tasks = new ArrayList<>();
+        if (cached != null) {
+            for (PlayerTask task : cached) {
+                if (keptKeys.contains(task.getTaskKey())) {
+                    tasks.add(task);
+                }
+            }
+        }
+        if (tasks.size() != keptKeys.size()) {
+            cacheManager.getOrCreatePlayerTaskCache(uuid).remove(categoryId);
+            return;
+        }
+
+        for (TaskTemplate template : assigned) {
+            tasks.add(new PlayerTask(uuid, template.getTaskKey(), template, 0, false, false, assignedAt, categoryId));
+        }
+        cacheManager.updateCategoryTaskCache(uuid, categoryId, tasks);
+    }
+
+    private PlayerTableLayout layout() {
+        return plugin.getDatabaseManager().getLayout();
+    }
+
+    // ==================== 作业状态 ====================
+
+    /**
+     * 一次批量操作的状态
+     * 游标字段只在数据库队列线程中修改，processed 只在主线程回调中修改
+     */
+    private final class BulkJob {
+        private final Operation operation;
+        private final TaskCategory category;
+        private final List<TaskTemplate> templates;
+        private final boolean includeOffline;
+        private final boolean notify;
+        private final BiConsumer<Boolean, Integer> callback;
+        private final List<UUID> online;
+        private final LocalDateTime assignedAt = TimeUtil.nowTruncated();
+
+        private volatile int onlineOffset = 0;
+        private volatile String lastUuid = "";
+        private int processed = 0;
+
+        private BulkJob(Operation operation, TaskCategory category, List<TaskTemplate> templates,
+                        boolean includeOffline, boolean notify, BiConsumer<Boolean, Integer> callback) {
+            this.operation = operation;
+            this.category = category;
+            this.templates = templates;
+            this.includeOffline = includeOffline;
+            this.notify = notify;
+            this.callback = callback;
+            this.online = includeOffline ? List.of() : plugin.getServer().getOnlinePlayers().stream()
+                .map(Player::getUniqueId)
+                .toList();
+        }
+    }
+
+    private record ChunkResult(List<UUID> players, Map<UUID, Set<String>> keptKeys,
+                               Map<UUID, List<TaskTemplate>> assignments) {}
+}
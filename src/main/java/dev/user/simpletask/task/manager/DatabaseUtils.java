@@ -1,6 +1,8 @@
 package dev.user.simpletask.task.manager;
 
 import dev.user.simpletask.SimpleTaskPlugin;
+import dev.user.simpletask.database.DatabaseQueue;
+import dev.user.simpletask.database.SqlDialect;
 import dev.user.simpletask.util.TimeZoneConfig;
 
 import java.sql.Connection;
@@ -29,8 +31,7 @@ public class DatabaseUtils {
      */
     public void executeUpsert(Connection conn, String table, String[] columns, String[] keyColumns,
                               Object[] values) throws SQLException {
-        boolean isMySQL = plugin.getDatabaseManager().isMySQL();
-        String sql = buildUpsertSql(table, columns, keyColumns, isMySQL);
+        String sql = plugin.getDatabaseManager().getDialect().upsert(table, columns, keyColumns, 1);
 
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             int index = 1;
@@ -42,32 +43,23 @@ public class DatabaseUtils {
     }
 
     /**
-     * 构建 UPSERT SQL 语句
+     * 批量 UPSERT，每块使用一条多行语句
      */
-    private String buildUpsertSql(String table, String[] columns, String[] keyColumns, boolean isMySQL) {
-        StringBuilder sql = new StringBuilder();
-
-        if (isMySQL) {
-            sql.append("INSERT INTO ").append(table).append(" (");
-            sql.append(String.join(", ", columns));
-            sql.append(") VALUES (");
-            sql.append("?,".repeat(columns.length - 1)).append("?");
-            sql.append(") ON DUPLICATE KEY UPDATE ");
-            for (String column : columns) {
-                sql.append(column).append(" = VALUES(").append(column).append("), ");
+    public void executeUpsertRows(Connection conn, String table, String[] columns, String[] keyColumns,
+                                  List<Object[]> rows) throws SQLException {
+        SqlDialect dialect = plugin.getDatabaseManager().getDialect();
+        for (int from = 0; from < rows.size(); from += SqlDialect.MAX_ROWS_PER_STATEMENT) {
+            List<Object[]> chunk = rows.subList(from, Math.min(rows.size(), from + SqlDialect.MAX_ROWS_PER_STATEMENT));
+            try (PreparedStatement ps = conn.prepareStatement(dialect.upsert(table, columns, keyColumns, chunk.size()))) {
+                int index = 1;
+                for (Object[] row : chunk) {
+                    for (Object value : row) {
+                        setParameter(ps, index++, value);
+                    }
+                }
+                ps.executeUpdate();
             }
-            sql.setLength(sql.length() - 2); // 移除最后的 ", "
-        } else {
-            sql.append("MERGE INTO ").append(table).append(" (");
-            sql.append(String.join(", ", columns));
-            sql.append(") KEY(");
-            sql.append(String.join(", ", keyColumns));
-            sql.append(") VALUES (");
-            sql.append("?,".repeat(columns.length - 1)).append("?");
-            sql.append(")");
         }
-
-        return sql.toString();
     }
 
     /**
@@ -78,6 +70,10 @@ public class DatabaseUtils {
             ps.setString(index, (String) value);
         } else if (value instanceof Integer) {
             ps.setInt(index, (Integer) value);
+        } else if (value instanceof Long) {
+            ps.setLong(index, (Long) value);
+        } else if (value instanceof byte[]) {
+            ps.setBytes(index, (byte[]) value);
         } else if (value instanceof java.sql.Date) {
             ps.setDate(index, (java.sql.Date) value);
         } else if (value instanceof Boolean) {
@@ -90,6 +86,44 @@ public class DatabaseUtils {
         }
     }
 
+    /**
+     * 在事务中执行操作
+     * 如果连接已处于外层事务中（autoCommit = false），直接复用外层事务，由调用者负责提交
+     */
+    public <T> T executeInTransaction(Connection conn, DatabaseQueue.DatabaseOperation<T> operation) throws SQLException {
+        boolean originalAutoCommit = conn.getAutoCommit();
+
+        try {
+            if (originalAutoCommit) {
+                conn.setAutoCommit(false);
+            }
+
+            T result = operation.execute(conn);
+
+            if (originalAutoCommit) {
+                conn.commit();
+            }
+            return result;
+        } catch (SQLException e) {
+            if (originalAutoCommit) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackEx) {
+                    plugin.getLogger().log(java.util.logging.Level.SEVERE, "Failed to rollback transaction", rollbackEx);
+                }
+            }
+            throw e;
+        } finally {
+            if (originalAutoCommit) {
+                try {
+                    conn.setAutoCommit(true);
+                } catch (SQLException autoCommitEx) {
+                    plugin.getLogger().log(java.util.logging.Level.WARNING, "Failed to restore autoCommit", autoCommitEx);
+                }
+            }
+        }
+    }
+
     /**
      * 批量执行玩家操作
      *
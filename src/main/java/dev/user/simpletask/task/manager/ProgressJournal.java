@@ -0,0 +1,453 @@
+package dev.user.simpletask.task.manager;
+
+import dev.user.simpletask.SimpleTaskPlugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * 本地进度日志
+ * 进度增量在提交到数据库队列前追加到内存映射文件，数据库事务提交后写入确认记录；
+ * 所有批次都已确认时把写入位置重置到区域开头。未写入数据库的批次（进程退出时的队列积压、
+ * 执行失败或被队列拒绝的写入）保持未确认，下次启动时重放
+ *
+ * 确认在数据库线程中紧跟提交执行，任何时刻最多只有一个批次处于"已提交未确认"状态：
+ * 写入数据库时在同一事务中把该批次序号记为 progress_journal_state 的最近提交序号，重放时跳过它，
+ * 不会重复累加进度。序号只需在日志内唯一，批次入队顺序不影响正确性
+ *
+ * 写入只落到页缓存（不 fsync），覆盖进程崩溃和 kill -9，不覆盖操作系统崩溃
+ *
+ * 文件布局：[文件头 32 字节][区域 0][区域 1]，同一时刻只有一个区域在用。
+ * 压缩时把未确认的批次写入另一个区域，再在文件头一次写入当前区域和文件大小：切换前崩溃时旧区域仍完整。
+ * 压缩空出不到半个区域时把文件扩大一倍（新区域 1 位于旧文件末尾之后，不覆盖旧数据），
+ * 直到 max-size-mb；达到上限后新的批次不再记录，并持续输出 SEVERE 日志
+ *
+ * 记录格式：[int 长度][byte 类型][long 序号][内容][int CRC32]，长度为 0 表示日志结束；
+ * 长度最后写入，写到一半的记录不会被读到。每个未确认的批次预留一条确认记录的空间，确认总能写入
+ */
+public class ProgressJournal {
+
+    private static final int MAGIC = 0x53545047; // "STPG"
+    private static final int VERSION = 2;
+
+    // 文件头：魔数、版本、日志 ID、序号起点、当前区域、文件大小（后两项同一个 long，一次写入）
+    private static final int HEADER_SIZE = 32;
+    private static final int OFFSET_JOURNAL_ID = 8;
+    private static final int OFFSET_SEQ_BASE = 16;
+    private static final int OFFSET_LAYOUT = 24;
+
+    private static final byte TYPE_BATCH = 1;
+    private static final byte TYPE_ACK = 2;
+
+    // 确认记录：长度 + 类型 + 序号 + 校验
+    private static final int ACK_RECORD_SIZE = 4 + 1 + 8 + 4;
+
+    // 日志写满期间 SEVERE 日志的间隔
+    private static final long FULL_LOG_INTERVAL_MS = 60_000;
+
+    /**
+     * 一条任务的进度增量
+     *
+     * @param target 任务目标值，重放时据此判断完成
+     */
+    public record Entry(String category, String taskKey, LocalDateTime assignedAt, int delta, int target) {}
+
+    /**
+     * 一次批量写入中的所有增量（对应一次 updateTaskProgressBatch）
+     */
+    public record Batch(long seq, UUID uuid, List<Entry> entries) {}
+
+    private final SimpleTaskPlugin plugin;
+    private final File file;
+    private final int configuredCapacity;
+    private final int maxCapacity;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private volatile long journalId;
+    private int regionSize;
+    private int activeRegion;
+    private int position;
+    private long nextSeq = 1;
+    // 尚未确认的批次（按追加顺序）-> 记录内容，压缩时直接复制
+    private final Map<Long, byte[]> outstanding = new LinkedHashMap<>();
+    // 未确认批次占用的字节数（含长度和校验）
+    private long liveBytes;
+    // 达到大小上限后未能记录的批次数，以及上次输出 SEVERE 日志的时间
+    private long unjournaled;
+    private long fullLoggedAt;
+
+    public ProgressJournal(SimpleTaskPlugin plugin, File file, int capacity, int maxCapacity) {
+        this.plugin = plugin;
+        this.file = file;
+        this.configuredCapacity = capacity;
+        this.maxCapacity = Math.max(capacity, maxCapacity);
+    }
+
+    // ==================== 打开与重放 ====================
+
+    /**
+     * 映射日志文件并读出上次运行未确认的批次
+     * 这些批次保留为未确认状态，重放提交后调用 {@link #acknowledge(long)}
+     */
+    public synchronized List<Batch> open() throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create directory " + dir);
+        }
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            // 读满文件头
+        }
+        if (header.hasRemaining() || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            // 新文件或格式不兼容：重新初始化
+            map(configuredCapacity);
+            initialize(new Random().nextLong(), 1);
+            return List.of();
+        }
+
+        // 按文件中记录的大小映射，修改配置的大小在日志清空后生效
+        long layout = header.getLong(OFFSET_LAYOUT);
+        map((int) layout);
+        journalId = buffer.getLong(OFFSET_JOURNAL_ID);
+        activeRegion = (int) (layout >>> 32) & 1;
+
+        Map<Long, Batch> pending = new LinkedHashMap<>();
+        Map<Long, byte[]> bodies = new HashMap<>();
+        long maxSeq = buffer.getLong(OFFSET_SEQ_BASE) - 1;
+        int start = regionStart(activeRegion);
+        int end = start + regionSize;
+        int pos = start;
+        while (pos + 4 <= end) {
+            int length = buffer.getInt(pos);
+            if (length <= 0 || pos + 8 + length > end) break;
+
+            byte[] body = new byte[length];
+            buffer.get(pos + 4, body);
+            if (crc(body) != buffer.getInt(pos + 4 + length)) {
+                plugin.getLogger().warning("Progress journal has a corrupt record at offset " + pos + ", ignoring the rest");
+                break;
+            }
+
+            ByteBuffer in = ByteBuffer.wrap(body);
+            byte type = in.get();
+            long seq = in.getLong();
+            if (type == TYPE_BATCH) {
+                pending.put(seq, readBatch(seq, in));
+                bodies.put(seq, body);
+            } else if (type == TYPE_ACK) {
+                pending.remove(seq);
+                bodies.remove(seq);
+            }
+            maxSeq = Math.max(maxSeq, seq);
+            pos += 8 + length;
+        }
+        nextSeq = maxSeq + 1;
+
+        if (pending.isEmpty()) {
+            if (buffer.capacity() != configuredCapacity) {
+                map(configuredCapacity);
+            }
+            initialize(journalId, nextSeq);
+            return List.of();
+        }
+
+        for (Long seq : pending.keySet()) {
+            byte[] body = bodies.get(seq);
+            outstanding.put(seq, body);
+            liveBytes += 8 + body.length;
+        }
+        position = pos;
+        return new ArrayList<>(pending.values());
+    }
+
+    private void map(int capacity) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        regionSize = (capacity - HEADER_SIZE) / 2;
+    }
+
+    private void initialize(long id, long seqBase) {
+        journalId = id;
+        nextSeq = seqBase;
+        activeRegion = 0;
+        position = regionStart(0);
+        buffer.putInt(position, 0);
+        buffer.putLong(OFFSET_JOURNAL_ID, id);
+        buffer.putLong(OFFSET_SEQ_BASE, seqBase);
+        writeLayout(0);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(0, MAGIC);
+    }
+
+    /**
+     * 一次写入当前区域和文件大小：崩溃时两者要么都是旧值，要么都是新值
+     */
+    private void writeLayout(int region) {
+        buffer.putLong(OFFSET_LAYOUT, ((long) region << 32) | (buffer.capacity() & 0xFFFFFFFFL));
+    }
+
+    private int regionStart(int region) {
+        return HEADER_SIZE + region * regionSize;
+    }
+
+    // ==================== 最近提交序号 ====================
+
+    /**
+     * 读取本日志在数据库中的最近提交序号，不存在时创建（数据库线程，重放前调用）
+     */
+    public long loadAppliedSeq(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT applied_seq FROM progress_journal_state WHERE journal_id = ?")) {
+            ps.setLong(1, journalId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getLong("applied_seq");
+                }
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO progress_journal_state (journal_id, applied_seq) VALUES (?, 0)")) {
+            ps.setLong(1, journalId);
+            ps.executeUpdate();
+        }
+        return 0;
+    }
+
+    /**
+     * 在写入进度的同一事务中记录本批次序号（提交后立即确认，重放时只需跳过这一个批次）
+     */
+    public void recordApplied(Connection conn, long seq) throws SQLException {
+        if (seq <= 0) return;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE progress_journal_state SET applied_seq = ? WHERE journal_id = ?")) {
+            ps.setLong(1, seq);
+            ps.setLong(2, journalId);
+            ps.executeUpdate();
+        }
+    }
+
+    // ==================== 写入 ====================
+
+    /**
+     * 追加一个批次
+     *
+     * @return 批次序号，日志未打开或已达到大小上限时返回 0（不记录，按原流程写入数据库）
+     */
+    public synchronized long append(UUID uuid, List<Entry> entries) {
+        if (buffer == null) return 0;
+
+        long seq = nextSeq++;
+        byte[] body = encodeBatch(new Batch(seq, uuid, entries));
+        // 同时为本批次的确认记录预留空间
+        if (!ensureSpace(8 + body.length + ACK_RECORD_SIZE)) {
+            reportFull();
+            return 0;
+        }
+        if (unjournaled > 0) {
+            plugin.getLogger().info("Progress journal has space again, " + unjournaled + " batches were not journaled");
+            unjournaled = 0;
+        }
+        writeRecord(body);
+        outstanding.put(seq, body);
+        liveBytes += 8 + body.length;
+        return seq;
+    }
+
+    /**
+     * 确认批次已写入数据库，全部确认后重置日志
+     * 只在数据库事务提交后调用；失败的批次保持未确认，下次启动时重放
+     */
+    public synchronized void acknowledge(long seq) {
+        if (buffer == null || seq <= 0) return;
+        byte[] body = outstanding.remove(seq);
+        if (body == null) return;
+        liveBytes -= 8 + body.length;
+
+        if (outstanding.isEmpty()) {
+            reset();
+            return;
+        }
+        ByteBuffer ack = ByteBuffer.allocate(9);
+        ack.put(TYPE_ACK).putLong(seq);
+        // 追加批次时已预留空间
+        writeRecord(ack.array());
+    }
+
+    /**
+     * 未确认批次的确认记录所需的空间（含结束标记）
+     */
+    private long reserved() {
+        return (long) outstanding.size() * ACK_RECORD_SIZE + 4;
+    }
+
+    /**
+     * 确保当前区域还能写入 recordBytes 字节：空间不足时压缩，压缩空出不到半个区域时扩大文件
+     */
+    private boolean ensureSpace(int recordBytes) {
+        long required = recordBytes + reserved();
+        if (position + required <= regionStart(activeRegion) + regionSize) {
+            return true;
+        }
+
+        long live = liveBytes + required;
+        if (live <= regionSize / 2) {
+            copyOutstanding(activeRegion ^ 1);
+            return true;
+        }
+
+        long capacity = buffer.capacity();
+        while ((capacity - HEADER_SIZE) / 4 < live) {
+            capacity *= 2;
+        }
+        if (capacity > maxCapacity) {
+            return false;
+        }
+        try {
+            // 新映射覆盖旧内容；新区域 1 从旧文件末尾之后开始，复制时不覆盖旧区域
+            map((int) capacity);
+        } catch (IOException e) {
+            plugin.getLogger().log(java.util.logging.Level.SEVERE, "Failed to grow progress journal", e);
+            return false;
+        }
+        copyOutstanding(1);
+        plugin.getLogger().warning("Progress journal grown to " + (capacity / 1024 / 1024) + " MB ("
+            + outstanding.size() + " unacknowledged batches)");
+        return true;
+    }
+
+    /**
+     * 把未确认的批次写入目标区域，再切换当前区域
+     */
+    private void copyOutstanding(int target) {
+        int pos = regionStart(target);
+        for (byte[] body : outstanding.values()) {
+            buffer.putInt(pos, body.length);
+            buffer.put(pos + 4, body);
+            buffer.putInt(pos + 4 + body.length, crc(body));
+            pos += 8 + body.length;
+        }
+        buffer.putInt(pos, 0);
+
+        // 新区域写完后再切换
+        writeLayout(target);
+        activeRegion = target;
+        position = pos;
+    }
+
+    private void writeRecord(byte[] body) {
+        buffer.put(position + 4, body);
+        buffer.putInt(position + 4 + body.length, crc(body));
+        buffer.putInt(position + 8 + body.length, 0);
+        // 长度最后写入，之前崩溃时读者在此处停止
+        buffer.putInt(position, body.length);
+        position += 8 + body.length;
+    }
+
+    private void reportFull() {
+        unjournaled++;
+        long now = System.currentTimeMillis();
+        if (unjournaled == 1 || now - fullLoggedAt >= FULL_LOG_INTERVAL_MS) {
+            fullLoggedAt = now;
+            plugin.getLogger().severe("Progress journal reached its size limit (" + (maxCapacity / 1024 / 1024)
+                + " MB, " + outstanding.size() + " unacknowledged batches): " + unjournaled
+                + " progress batches are not crash-safe until the database catches up."
+                + " Check the database or raise progress-journal.max-size-mb");
+        }
+    }
+
+    private void reset() {
+        position = regionStart(activeRegion);
+        buffer.putInt(position, 0);
+        // 清空后序号继续递增，不与数据库中的最近提交序号冲突
+        buffer.putLong(OFFSET_SEQ_BASE, nextSeq);
+    }
+
+    private static int crc(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    // ==================== 编码 ====================
+
+    private static byte[] encodeBatch(Batch batch) {
+        int size = 1 + 8 + 16 + 2;
+        List<byte[][]> strings = new ArrayList<>(batch.entries().size());
+        for (Entry entry : batch.entries()) {
+            byte[] category = entry.category().getBytes(StandardCharsets.UTF_8);
+            byte[] taskKey = entry.taskKey().getBytes(StandardCharsets.UTF_8);
+            strings.add(new byte[][]{category, taskKey});
+            size += 2 + category.length + 2 + taskKey.length + 8 + 4 + 4 + 4;
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.put(TYPE_BATCH).putLong(batch.seq());
+        out.putLong(batch.uuid().getMostSignificantBits()).putLong(batch.uuid().getLeastSignificantBits());
+        out.putShort((short) batch.entries().size());
+        for (int i = 0; i < batch.entries().size(); i++) {
+            Entry entry = batch.entries().get(i);
+            byte[][] s = strings.get(i);
+            out.putShort((short) s[0].length).put(s[0]);
+            out.putShort((short) s[1].length).put(s[1]);
+            out.putLong(entry.assignedAt().toEpochSecond(ZoneOffset.UTC));
+            out.putInt(entry.assignedAt().getNano());
+            out.putInt(entry.delta());
+            out.putInt(entry.target());
+        }
+        return out.array();
+    }
+
+    private static Batch readBatch(long seq, ByteBuffer in) {
+        UUID uuid = new UUID(in.getLong(), in.getLong());
+        int count = in.getShort() & 0xFFFF;
+        List<Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String category = readString(in);
+            String taskKey = readString(in);
+            LocalDateTime assignedAt = LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC);
+            entries.add(new Entry(category, taskKey, assignedAt, in.getInt(), in.getInt()));
+        }
+        return new Batch(seq, uuid, entries);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ==================== 关闭 ====================
+
+    /**
+     * 关闭日志（数据库队列关闭之后调用），未确认的批次保留到下次启动重放
+     */
+    public synchronized void close() {
+        if (buffer != null) {
+            buffer.force();
+        }
+        buffer = null;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                plugin.getLogger().warning("Failed to close progress journal: " + e.getMessage());
+            }
+            channel = null;
+        }
+    }
+}
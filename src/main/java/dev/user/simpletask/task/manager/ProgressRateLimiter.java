@@ -0,0 +1,157 @@
+package dev.user.simpletask.task.manager;
+
+import dev.user.simpletask.SimpleTaskPlugin;
+import dev.user.simpletask.task.TaskType;
+import dev.user.simpletask.task.category.TaskCategory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 进度事件限流器
+ * 每名玩家、每个分类、每种任务类型一个令牌桶，令牌按进度数量计；
+ * 桶耗尽时按分类的 FloodPolicy 丢弃事件、截断到剩余令牌，或透支令牌延后到下一窗口
+ *
+ * 被限流的进度数量计入命中统计，供 /taskadmin stats 查看
+ */
+public class ProgressRateLimiter {
+
+    private final SimpleTaskPlugin plugin;
+
+    private final Map<BucketKey, Bucket> buckets = new ConcurrentHashMap<>();
+
+    // 命中统计：被限流的进度数量
+    private final Map<UUID, LongAdder> hitsByPlayer = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> hitsByRule = new ConcurrentHashMap<>();
+
+    private record BucketKey(UUID uuid, String category, TaskType type) {}
+
+    /**
+     * 令牌桶（对象本身作为锁），tokens 为负表示 DEFER 透支
+     */
+    private static final class Bucket {
+        private double tokens;
+        private long refilledAt;
+
+        private Bucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.refilledAt = now;
+        }
+
+        private void refill(TaskCategory.RateLimit limit, long now) {
+            double elapsed = (now - refilledAt) / 1_000_000_000D;
+            tokens = Math.min(limit.capacity(), tokens + elapsed * limit.refillPerSecond());
+            refilledAt = now;
+        }
+    }
+
+    /**
+     * 申请结果
+     *
+     * @param granted    立即计入的进度
+     * @param deferred   延后计入的进度（仅 DEFER）
+     * @param deferTicks 延后的 tick 数
+     */
+    public record Grant(int granted, int deferred, long deferTicks) {
+        private static final Grant NONE = new Grant(0, 0, 0);
+
+        static Grant of(int amount) {
+            return new Grant(amount, 0, 0);
+        }
+    }
+
+    public ProgressRateLimiter(SimpleTaskPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * 为一个分类中匹配的事件申请令牌
+     * 同一事件在一个分类中只申请一次，分类下所有匹配任务共用结果
+     */
+    public Grant acquire(UUID uuid, TaskCategory category, TaskType type, int amount) {
+        TaskCategory.RateLimit limit = category.getRateLimit(type);
+        if (limit == null) return Grant.of(amount);
+
+        long now = System.nanoTime();
+        Bucket bucket = buckets.computeIfAbsent(new BucketKey(uuid, category.getId(), type),
+            k -> new Bucket(limit.capacity(), now));
+
+        int available;
+        int deferred = 0;
+        long deferTicks = 0;
+        synchronized (bucket) {
+            bucket.refill(limit, now);
+            if (bucket.tokens >= amount) {
+                bucket.tokens -= amount;
+                return Grant.of(amount);
+            }
+
+            available = (int) Math.max(0, Math.floor(bucket.tokens));
+            switch (category.getFloodPolicy()) {
+                case DROP -> {
+                    // 数量大于桶容量的单个事件（如一次合成一组）永远放不进桶：桶满时整体放行并清空桶
+                    if (amount > limit.capacity() && bucket.tokens >= limit.capacity()) {
+                        bucket.tokens = 0;
+                        return Grant.of(amount);
+                    }
+                    available = 0;
+                }
+                case CLAMP -> bucket.tokens -= available;
+                case DEFER -> {
+                    bucket.tokens -= available;
+                    // 最多透支一个桶容量，超出部分丢弃
+                    deferred = (int) Math.min(amount - available,
+                        Math.max(0, Math.floor(bucket.tokens + limit.capacity())));
+                    bucket.tokens -= deferred;
+                    if (deferred > 0) {
+                        // 透支还清时计入：20 tick = 1 秒
+                        deferTicks = Math.max(1, (long) Math.ceil(-bucket.tokens / limit.refillPerSecond() * 20));
+                    }
+                }
+            }
+        }
+
+        recordHit(uuid, category.getId(), type, amount - available);
+        if (available == 0 && deferred == 0) return Grant.NONE;
+        return new Grant(available, deferred, deferTicks);
+    }
+
+    private void recordHit(UUID uuid, String categoryId, TaskType type, int limited) {
+        hitsByPlayer.computeIfAbsent(uuid, k -> new LongAdder()).add(limited);
+        hitsByRule.computeIfAbsent(categoryId + "/" + type.name().toLowerCase(), k -> new LongAdder()).add(limited);
+    }
+
+    /**
+     * 玩家离开时释放令牌桶（命中统计保留）
+     */
+    public void clearPlayer(UUID uuid) {
+        buckets.keySet().removeIf(key -> key.uuid().equals(uuid));
+    }
+
+    // ==================== 命中统计 ====================
+
+    /**
+     * 各限流规则（分类/类型）的命中数量
+     */
+    public Map<String, Long> getHitsByRule() {
+        Map<String, Long> result = new TreeMap<>();
+        hitsByRule.forEach((rule, hits) -> result.put(rule, hits.sum()));
+        return result;
+    }
+
+    /**
+     * 命中数量最多的玩家
+     */
+    public List<Map.Entry<UUID, Long>> getTopPlayers(int limit) {
+        List<Map.Entry<UUID, Long>> result = new ArrayList<>(hitsByPlayer.size());
+        hitsByPlayer.forEach((uuid, hits) -> result.add(Map.entry(uuid, hits.sum())));
+        result.sort(Map.Entry.<UUID, Long>comparingByValue().reversed());
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    public void resetStats() {
+        hitsByPlayer.clear();
+        hitsByRule.clear();
+    }
+}
@@ -1,6 +1,7 @@
 package dev.user.simpletask.task.manager;
 
 import dev.user.simpletask.SimpleTaskPlugin;
+import dev.user.simpletask.database.PlayerTableLayout;
 import dev.user.simpletask.task.PlayerTask;
 import dev.user.simpletask.task.TaskTemplate;
 import dev.user.simpletask.task.TemplateSyncManager;
@@ -32,15 +33,20 @@ public class RerollManager {
     private final SimpleTaskPlugin plugin;
     private final TaskCacheManager cacheManager;
     private final TaskGenerator taskGenerator;
+    private final TaskExpireManager expireManager;
     private final TemplateSyncManager templateSyncManager;
+    private final TaskChangeJournal changeJournal;
     private final DatabaseUtils databaseUtils;
 
     public RerollManager(SimpleTaskPlugin plugin, TaskCacheManager cacheManager,
-                         TaskGenerator taskGenerator, TemplateSyncManager templateSyncManager) {
+                         TaskGenerator taskGenerator, TaskExpireManager expireManager,
+                         TemplateSyncManager templateSyncManager, TaskChangeJournal changeJournal) {
         this.plugin = plugin;
         this.cacheManager = cacheManager;
         this.taskGenerator = taskGenerator;
+        this.expireManager = expireManager;
         this.templateSyncManager = templateSyncManager;
+        this.changeJournal = changeJournal;
         this.databaseUtils = new DatabaseUtils(plugin);
     }
 
@@ -102,12 +108,7 @@ public class RerollManager {
         // 验证刷新功能是否启用
         if (!canReroll(category, options, (success, msg) -> callback.accept(success, msg))) return;
 
-        // 付费模式额外检查
-        if (options.isPaid()) {
-            if (!checkBalance(player, category.getRerollCost(), (success, msg) -> callback.accept(success, msg))) return;
-        }
-
-        // 执行刷新
+        // 执行刷新（付费模式的余额检查在 doReroll 中异步进行）
         doReroll(player, category, options, callback);
     }
 
@@ -119,46 +120,75 @@ public class RerollManager {
                           java.util.function.BiConsumer<Boolean, Component> callback) {
         UUID uuid = player.getUniqueId();
         LocalDateTime now = TimeUtil.nowTruncated();
-        String categoryId = category.getId();
         double cost = options.isPaid() ? category.getRerollCost() : 0;
 
-        // 先检查金币是否足够（不扣除）
+        // 缓存中的次数已达上限时直接拒绝，无需访问数据库
+        if (options.isCheckCount() && getCachedRerollCount(uuid, category) >= category.getRerollMaxCount()) {
+            callback.accept(false, rerollLimitMessage(category));
+            return;
+        }
+
+        // 先检查金币是否足够（不扣除），余额在经济线程中查询，结果回到全局区域线程
         if (cost > 0 && plugin.getEconomyManager().isEnabled()) {
-            double balance = plugin.getEconomyManager().getBalance(player);
-            if (balance < cost) {
-                callback.accept(false, MessageUtil.parse("<red>金币不足，需要 {cost} 金币",
-                    MessageUtil.textPlaceholders("cost", String.format("%.0f", cost))));
-                return;
-            }
+            plugin.getEconomyManager().getBalanceAsync(player).whenComplete((balance, error) ->
+                plugin.getServer().getGlobalRegionScheduler().execute(plugin, () -> {
+                    if (error != null || balance < cost) {
+                        callback.accept(false, insufficientBalanceMessage(cost));
+                        return;
+                    }
+                    submitReroll(player, category, options, now, cost, callback);
+                }));
+            return;
         }
 
+        submitReroll(player, category, options, now, cost, callback);
+    }
+
+    /**
+     * 提交刷新的数据库操作，成功后再扣费
+     */
+    private void submitReroll(Player player, TaskCategory category, RerollOptions options, LocalDateTime now,
+                              double cost, java.util.function.BiConsumer<Boolean, Component> callback) {
+        UUID uuid = player.getUniqueId();
+        String categoryId = category.getId();
+
         // 数据库操作（先确保数据库操作成功）
         plugin.getDatabaseQueue().submit("doReroll", (Connection conn) -> {
             boolean originalAutoCommit = conn.getAutoCommit();
             conn.setAutoCommit(false);
 
             try {
-                int currentRerolls = 0;
+                TaskCacheManager.RerollCounter counter = null;
                 if (options.isCheckCount()) {
-                    boolean canReroll = incrementRerollCountAtomic(conn, uuid, category, now);
-                    if (!canReroll) {
-                        return RerollResult.fail(MessageUtil.parse(
-                            "<red>当前周期刷新次数已用完（上限：{max}次）",
-                            MessageUtil.textPlaceholders("max", String.valueOf(category.getRerollMaxCount()))));
+                    counter = incrementRerollCountAtomic(conn, uuid, category, now);
+                    if (counter == null) {
+                        conn.rollback();
+                        return RerollResult.fail(rerollLimitMessage(category));
                     }
-                    currentRerolls = getCategoryRerollCount(conn, uuid, category);
                 }
 
                 RerollResult result;
                 if (options.isForce()) {
                     result = doForceReroll(conn, player, uuid, now, category);
                 } else if (options.isKeepCompleted()) {
-                    result = doPartialReroll(conn, player, uuid, now, category, currentRerolls);
+                    result = doPartialReroll(conn, player, uuid, now, category, counter != null ? counter.count() : 0);
                 } else {
                     result = doFullReroll(conn, player, uuid, now, category);
                 }
 
+                if (!result.isSuccess()) {
+                    // 刷新未执行，不消耗次数
+                    conn.rollback();
+                    return result;
+                }
+
+                changeJournal.record(conn, uuid, TaskChangeJournal.ChangeType.REROLL, categoryId, null);
                 conn.commit();
+
+                // 提交后写入缓存（在队列线程中更新，后续数据库任务立即可见）
+                if (counter != null) {
+                    cacheManager.updateRerollCounter(uuid, categoryId, counter);
+                }
                 return result;
             } catch (SQLException e) {
                 try {
@@ -184,9 +214,14 @@ public class RerollManager {
         }, result -> {
             if (result.isSuccess()) {
                 if (cost > 0 && plugin.getEconomyManager().isEnabled()) {
-                    plugin.getEconomyManager().withdraw(player, cost);
+                    plugin.getEconomyManager().withdrawAsync(player, cost).thenAccept(withdrawn -> {
+                        if (!withdrawn) {
+                            plugin.getLogger().warning("Failed to charge reroll cost " + cost + " from " + player.getName());
+                        }
+                    });
                 }
-                cacheManager.getOrCreatePlayerTaskCache(uuid).remove(categoryId);
+                // 直接写回刷新后的任务列表，无需下次打开 GUI 时重新加载
+                cacheManager.updateCategoryTaskCache(uuid, categoryId, result.getTasks());
                 callback.accept(true, result.getMessage());
             } else {
                 callback.accept(false, result.getMessage());
@@ -201,46 +236,61 @@ public class RerollManager {
 
     /**
      * 部分刷新 - 只刷新未完成的任务，保留已完成的（用于付费刷新）
-     * 注意：刷新次数已由原子操作更新，此方法不再处理次数更新
+     * 当前分类状态取自缓存，数据库只执行一条 DELETE 和一条多行 INSERT；
+     * 删除条数与缓存不一致时（其他服务器修改过）才重新读取保留的任务
+     * 注意：刷新次数已由原子操作更新，usedRerolls 为更新后的次数
      */
     private RerollResult doPartialReroll(Connection conn, Player player, UUID uuid, LocalDateTime now,
-                                          TaskCategory category, int currentRerolls) throws SQLException {
+                                          TaskCategory category, int usedRerolls) throws SQLException {
         String categoryId = category.getId();
 
-        // 查询已领取的任务数量（这些应该保留）
-        int completedCount = countTasksByStatus(conn, uuid, categoryId, true);
+        List<PlayerTask> current = cacheManager.getCachedCategoryTasks(uuid, categoryId);
+        if (current == null) {
+            current = expireManager.loadTasksByCategory(conn, uuid, categoryId);
+        }
+
+        // 已完成的任务保留，所有现有任务都不再被选中
+        List<PlayerTask> kept = new ArrayList<>();
+        Set<String> existingTaskKeys = new HashSet<>();
+        int uncompletedCount = 0;
+        for (PlayerTask task : current) {
+            existingTaskKeys.add(task.getTaskKey());
+            if (task.isCompleted()) {
+                kept.add(task);
+            } else {
+                uncompletedCount++;
+            }
+        }
 
-        if (completedCount >= category.getMaxConcurrent()) {
+        if (kept.size() >= category.getMaxConcurrent()) {
             Component categoryName = MessageUtil.parse(category.getDisplayName());
             return RerollResult.fail(categoryName.append(MessageUtil.parse(" <red>都已完成，无需刷新")));
         }
 
-        // 查询已存在的任务key
-        Set<String> existingTaskKeys = getExistingTaskKeys(conn, uuid, categoryId);
-
         // 删除未完成的任务
         int deletedCount = deleteUncompletedTasks(conn, uuid, categoryId);
+        if (deletedCount != uncompletedCount) {
+            kept = expireManager.loadTasksByCategory(conn, uuid, categoryId);
+            kept.forEach(task -> existingTaskKeys.add(task.getTaskKey()));
+        }
 
-        // 计算需要生成的新任务数量
-        int needToGenerate = Math.min(
-            category.getMaxConcurrent() - completedCount,
-            templateSyncManager.getTemplatesByCategory(categoryId).size() - existingTaskKeys.size()
-        );
+        // 计算需要生成的新任务
+        List<TaskTemplate> availableTemplates = new ArrayList<>(templateSyncManager.getTemplatesByCategory(categoryId));
+        availableTemplates.removeIf(t -> existingTaskKeys.contains(t.getTaskKey()));
+        int needToGenerate = Math.min(category.getMaxConcurrent() - kept.size(), availableTemplates.size());
 
         if (needToGenerate <= 0) {
             return RerollResult.fail(MessageUtil.parseConfig(plugin, "reroll-fail-no-templates"));
         }
 
-        // 生成新任务
-        List<TaskTemplate> availableTemplates = new ArrayList<>(templateSyncManager.getTemplatesByCategory(categoryId));
-        availableTemplates.removeIf(t -> existingTaskKeys.contains(t.getTaskKey()));
-        List<TaskTemplate> selectedTasks = TaskGenerator.selectRandomTasksFromList(availableTemplates, needToGenerate);
-
         // 插入新任务
-        insertTasks(conn, uuid, now, category, selectedTasks);
+        List<TaskTemplate> selectedTasks = TaskGenerator.selectRandomTasksFromList(availableTemplates, needToGenerate);
+        taskGenerator.insertTasks(conn, uuid, now, category, selectedTasks);
 
-        // 注意：刷新次数已由 incrementRerollCountAtomic 原子操作更新
-        int newRerollCount = currentRerolls + 1;
+        List<PlayerTask> tasks = new ArrayList<>(kept);
+        for (TaskTemplate template : selectedTasks) {
+            tasks.add(new PlayerTask(uuid, template.getTaskKey(), template, 0, false, false, now, categoryId));
+        }
 
         // 构建成功消息
         Component categoryName = MessageUtil.parse(category.getDisplayName());
@@ -250,11 +300,11 @@ public class RerollManager {
             .append(MessageUtil.parse(" <green>个未完成的"))
             .append(categoryName)
             .append(MessageUtil.parse(" <green>，保留了 "))
-            .append(Component.text(completedCount).color(NamedTextColor.YELLOW))
+            .append(Component.text(kept.size()).color(NamedTextColor.YELLOW))
             .append(MessageUtil.parse(" <green>个已完成任务！当前周期已使用 "))
-            .append(Component.text(newRerollCount + "/" + category.getRerollMaxCount()).color(NamedTextColor.YELLOW))
+            .append(Component.text(usedRerolls + "/" + category.getRerollMaxCount()).color(NamedTextColor.YELLOW))
             .append(MessageUtil.parse(" <green>次刷新"));
-        return RerollResult.success(message);
+        return RerollResult.success(message, tasks);
     }
 
     /**
@@ -269,7 +319,7 @@ public class RerollManager {
 
         // 生成新任务
         List<PlayerTask> existingTasks = new ArrayList<>();
-        List<PlayerTask> newTasks = taskGenerator.generateTasksForCategory(conn, player, category,
+        List<PlayerTask> newTasks = taskGenerator.generateTasksForCategory(conn, player.getUniqueId(), category,
             category.getMaxConcurrent(), existingTasks);
 
         // 构建成功消息
@@ -280,7 +330,7 @@ public class RerollManager {
             .append(MessageUtil.parse(" <green>，生成了 "))
             .append(Component.text(newTasks.size()).color(NamedTextColor.YELLOW))
             .append(MessageUtil.parse(" <green>个新任务"));
-        return RerollResult.success(message);
+        return RerollResult.success(message, newTasks);
     }
 
     /**
@@ -293,172 +343,176 @@ public class RerollManager {
 
     // ==================== 数据库操作封装 ====================
 
-    private int countTasksByStatus(Connection conn, UUID uuid, String categoryId, boolean claimed) throws SQLException {
-        String sql = "SELECT COUNT(*) as count FROM player_daily_tasks WHERE player_uuid = ? AND category = ? AND claimed = ?";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, uuid.toString());
-            ps.setString(2, categoryId);
-            ps.setBoolean(3, claimed);
-            try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? rs.getInt("count") : 0;
-            }
-        }
-    }
-
-    private Set<String> getExistingTaskKeys(Connection conn, UUID uuid, String categoryId) throws SQLException {
-        Set<String> keys = new HashSet<>();
-        String sql = "SELECT task_key FROM player_daily_tasks WHERE player_uuid = ? AND category = ?";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, uuid.toString());
-            ps.setString(2, categoryId);
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    keys.add(rs.getString("task_key"));
-                }
-            }
-        }
-        return keys;
-    }
-
     private int deleteUncompletedTasks(Connection conn, UUID uuid, String categoryId) throws SQLException {
-        String sql = "DELETE FROM player_daily_tasks WHERE player_uuid = ? AND category = ? AND completed = FALSE";
+        String sql = "DELETE FROM player_daily_tasks WHERE " + layout().uuidColumn() + " = ? AND category = ? AND completed = FALSE";
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, uuid.toString());
+            layout().bindUuid(ps, 1, uuid);
             ps.setString(2, categoryId);
             return ps.executeUpdate();
         }
     }
 
     private void deleteAllTasks(Connection conn, UUID uuid, String categoryId) throws SQLException {
-        String sql = "DELETE FROM player_daily_tasks WHERE player_uuid = ? AND category = ?";
+        String sql = "DELETE FROM player_daily_tasks WHERE " + layout().uuidColumn() + " = ? AND category = ?";
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, uuid.toString());
+            layout().bindUuid(ps, 1, uuid);
             ps.setString(2, categoryId);
             ps.executeUpdate();
         }
     }
 
-    private void insertTasks(Connection conn, UUID uuid, LocalDateTime assignedAt, TaskCategory category,
-                              List<TaskTemplate> templates) throws SQLException {
-        if (templates.isEmpty()) return;
-
-        // 过期策略从 category 配置获取，不存储在表中
-        String insertSql = """
-            INSERT INTO player_daily_tasks
-            (player_uuid, task_key, task_version, category, current_progress, completed, claimed, assigned_at, task_data)
-            VALUES (?, ?, ?, ?, 0, FALSE, FALSE, ?, ?)
-            """;
-
-        try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
-            for (TaskTemplate template : templates) {
-                ps.setString(1, uuid.toString());
-                ps.setString(2, template.getTaskKey());
-                ps.setInt(3, template.getVersion());
-                ps.setString(4, category.getId());
-                ps.setTimestamp(5, java.sql.Timestamp.from(TimeZoneConfig.toInstant(assignedAt)), TimeZoneConfig.UTC_CALENDAR);
-                ps.setString(6, template.toJson());
-                ps.addBatch();
+    // ==================== 刷新次数管理 ====================
+
+    /**
+     * 从数据库加载玩家所有分类的刷新次数到缓存（玩家加入时调用）
+     */
+    public Map<String, TaskCacheManager.RerollCounter> loadRerollCounters(Connection conn, UUID uuid) throws SQLException {
+        PlayerTableLayout layout = layout();
+        Map<String, TaskCacheManager.RerollCounter> counters = new HashMap<>();
+        String sql = "SELECT category_id, reroll_count, " + layout.timeSelectColumns("last_reset_time", PlayerTableLayout.LAST_RESET_MS) +
+            " FROM player_category_reroll WHERE " + layout.uuidColumn() + " = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            layout.bindUuid(ps, 1, uuid);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    counters.put(rs.getString("category_id"), new TaskCacheManager.RerollCounter(
+                        rs.getInt("reroll_count"),
+                        layout.readTime(rs, "last_reset_time", PlayerTableLayout.LAST_RESET_MS)));
+                }
             }
-            ps.executeBatch();
         }
+        cacheManager.putRerollCounters(uuid, counters);
+        return counters;
     }
 
-    // ==================== 刷新次数管理 ====================
+    /**
+     * 获取缓存的刷新次数，未加载时从数据库加载
+     */
+    private Map<String, TaskCacheManager.RerollCounter> rerollCounters(Connection conn, UUID uuid) throws SQLException {
+        Map<String, TaskCacheManager.RerollCounter> counters = cacheManager.getRerollCounters(uuid);
+        return counters != null ? counters : loadRerollCounters(conn, uuid);
+    }
 
     /**
      * 检查并重置指定分类的刷新次数（如果需要）
-     * 由外部在检查任务过期时调用
+     * 是否需要重置由缓存中的上次重置时间判断，只有需要重置时才访问数据库
      *
      * @return true 如果执行了重置
      */
     public boolean checkAndResetRerollCount(Connection conn, UUID uuid, TaskCategory category) throws SQLException {
         String categoryId = category.getId();
-
-        String selectSql = "SELECT reroll_count, last_reset_time FROM player_category_reroll WHERE player_uuid = ? AND category_id = ?";
-        try (PreparedStatement ps = conn.prepareStatement(selectSql)) {
-            ps.setString(1, uuid.toString());
-            ps.setString(2, categoryId);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    Timestamp lastResetTs = rs.getTimestamp("last_reset_time", TimeZoneConfig.UTC_CALENDAR);
-                    LocalDateTime lastReset = null;
-                    if (lastResetTs != null) {
-                        java.time.Instant instant = lastResetTs.toInstant();
-                        lastReset = TimeZoneConfig.toLocalDateTime(instant);
-                    }
-
-                    if (checkRerollNeedReset(category, lastReset)) {
-                        String updateSql = "UPDATE player_category_reroll SET reroll_count = 0, last_reset_time = CURRENT_TIMESTAMP WHERE player_uuid = ? AND category_id = ?";
-                        try (PreparedStatement updatePs = conn.prepareStatement(updateSql)) {
-                            updatePs.setString(1, uuid.toString());
-                            updatePs.setString(2, categoryId);
-                            updatePs.executeUpdate();
-                        }
-                        return true;
-                    }
-                }
-            }
+        TaskCacheManager.RerollCounter counter = rerollCounters(conn, uuid).get(categoryId);
+        if (counter == null || !checkRerollNeedReset(category, counter.lastReset())) {
+            return false;
         }
-        return false;
+
+        // 重置时间由 Java 侧生成，保证旧列和毫秒列一致
+        LocalDateTime now = TimeUtil.nowTruncated();
+        updateRerollRecord(conn, uuid, categoryId, 0, now);
+        cacheManager.updateRerollCounter(uuid, categoryId, new TaskCacheManager.RerollCounter(0, now));
+        return true;
     }
 
     /**
      * 检查并重置玩家所有类别的刷新次数
      */
-    public void checkAndResetAllRerollCounts(Connection conn, Player player) throws SQLException {
+    public void checkAndResetAllRerollCounts(Connection conn, UUID uuid) throws SQLException {
         for (TaskCategory category : plugin.getConfigManager().getTaskCategories().values()) {
             if (category.isEnabled() && category.isRerollEnabled()) {
-                checkAndResetRerollCount(conn, player.getUniqueId(), category);
+                checkAndResetRerollCount(conn, uuid, category);
             }
         }
     }
 
     /**
-     * 原子性增加刷新次数（纯原子操作，不处理重置）
-     * 假设调用前已通过 checkAndResetRerollCount 处理了重置
+     * 原子性增加刷新次数
+     * 根据缓存选择一条语句完成：无记录时插入、已过周期时重置为 1、否则条件自增。
+     * 条件自增未命中时（其他服务器已用完次数）重新加载缓存
      *
-     * @return true 如果成功增加次数，false 如果已达上限
+     * @return 更新后的计数（调用者在事务提交后写入缓存），null 如果已达上限
      */
-    private boolean incrementRerollCountAtomic(Connection conn, UUID uuid, TaskCategory category,
-                                                LocalDateTime now) throws SQLException {
+    private TaskCacheManager.RerollCounter incrementRerollCountAtomic(Connection conn, UUID uuid, TaskCategory category,
+                                                                      LocalDateTime now) throws SQLException {
         String categoryId = category.getId();
         int maxCount = category.getRerollMaxCount();
+        TaskCacheManager.RerollCounter counter = rerollCounters(conn, uuid).get(categoryId);
 
-        // 确保记录存在
-        ensureRerollRecordExists(conn, uuid, categoryId, now);
+        if (counter == null) {
+            if (insertRerollRecord(conn, uuid, categoryId, 1, now)) {
+                return new TaskCacheManager.RerollCounter(1, now);
+            }
+            // 记录已由其他服务器创建
+            counter = loadRerollCounters(conn, uuid).get(categoryId);
+            if (counter == null) {
+                return null;
+            }
+        }
+
+        if (checkRerollNeedReset(category, counter.lastReset())) {
+            // 已进入新周期：重置并计入本次
+            updateRerollRecord(conn, uuid, categoryId, 1, now);
+            return new TaskCacheManager.RerollCounter(1, now);
+        }
 
         // 条件更新：只有 count < maxCount 时才增加
-        String updateSql = "UPDATE player_category_reroll SET reroll_count = reroll_count + 1 WHERE player_uuid = ? AND category_id = ? AND reroll_count < ?";
+        String updateSql = "UPDATE player_category_reroll SET reroll_count = reroll_count + 1 WHERE " +
+            layout().uuidColumn() + " = ? AND category_id = ? AND reroll_count < ?";
         try (PreparedStatement ps = conn.prepareStatement(updateSql)) {
-            ps.setString(1, uuid.toString());
+            layout().bindUuid(ps, 1, uuid);
             ps.setString(2, categoryId);
             ps.setInt(3, maxCount);
-            int affected = ps.executeUpdate();
-            // affected > 0 表示成功更新（未超上限）
-            return affected > 0;
+            if (ps.executeUpdate() > 0) {
+                return new TaskCacheManager.RerollCounter(counter.count() + 1, counter.lastReset());
+            }
         }
+
+        loadRerollCounters(conn, uuid);
+        return null;
     }
 
-    private void ensureRerollRecordExists(Connection conn, UUID uuid, String categoryId, LocalDateTime now) throws SQLException {
-        boolean isMySQL = plugin.getDatabaseManager().isMySQL();
+    /**
+     * 插入刷新次数记录（已存在时不修改）
+     *
+     * @return true 如果插入了新记录
+     */
+    private boolean insertRerollRecord(Connection conn, UUID uuid, String categoryId, int rerollCount,
+                                       LocalDateTime now) throws SQLException {
+        PlayerTableLayout layout = layout();
+        String[] columns = layout.writesCompact()
+            ? new String[]{"player_uuid", "category_id", "reroll_count", "last_reset_time",
+                PlayerTableLayout.UUID_BIN, PlayerTableLayout.LAST_RESET_MS}
+            : new String[]{"player_uuid", "category_id", "reroll_count", "last_reset_time"};
+        String[] keyColumns = {layout.uuidColumn(), "category_id"};
+        String sql = plugin.getDatabaseManager().getDialect().insertIgnore("player_category_reroll", columns, keyColumns);
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, uuid.toString());
+            ps.setString(2, categoryId);
+            ps.setInt(3, rerollCount);
+            ps.setTimestamp(4, Timestamp.from(TimeZoneConfig.toInstant(now)), TimeZoneConfig.UTC_CALENDAR);
+            layout.bindExtra(ps, 5, uuid, now);
+            return ps.executeUpdate() > 0;
+        }
+    }
 
-        if (isMySQL) {
-            String insertIgnoreSql = "INSERT IGNORE INTO player_category_reroll (player_uuid, category_id, reroll_count, last_reset_time) VALUES (?, ?, 0, ?)";
-            try (PreparedStatement ps = conn.prepareStatement(insertIgnoreSql)) {
-                ps.setString(1, uuid.toString());
-                ps.setString(2, categoryId);
-                ps.setTimestamp(3, Timestamp.from(TimeZoneConfig.toInstant(now)), TimeZoneConfig.UTC_CALENDAR);
-                ps.executeUpdate();
-            }
-        } else {
-            // H2: 使用 MERGE INTO
-            String mergeSql = "MERGE INTO player_category_reroll KEY(player_uuid, category_id) VALUES (?, ?, 0, ?)";
-            try (PreparedStatement ps = conn.prepareStatement(mergeSql)) {
-                ps.setString(1, uuid.toString());
-                ps.setString(2, categoryId);
-                ps.setTimestamp(3, Timestamp.from(TimeZoneConfig.toInstant(now)), TimeZoneConfig.UTC_CALENDAR);
-                ps.executeUpdate();
+    /**
+     * 设置已有记录的刷新次数和重置时间
+     */
+    private void updateRerollRecord(Connection conn, UUID uuid, String categoryId, int rerollCount,
+                                    LocalDateTime resetTime) throws SQLException {
+        PlayerTableLayout layout = layout();
+        String updateSql = "UPDATE player_category_reroll SET reroll_count = ?, last_reset_time = ?" +
+            (layout.writesCompact() ? ", " + PlayerTableLayout.LAST_RESET_MS + " = ?" : "") +
+            " WHERE " + layout.uuidColumn() + " = ? AND category_id = ?";
+        try (PreparedStatement ps = conn.prepareStatement(updateSql)) {
+            int index = 1;
+            ps.setInt(index++, rerollCount);
+            ps.setTimestamp(index++, Timestamp.from(TimeZoneConfig.toInstant(resetTime)), TimeZoneConfig.UTC_CALENDAR);
+            if (layout.writesCompact()) {
+                ps.setLong(index++, PlayerTableLayout.toEpochMillis(resetTime));
             }
+            layout.bindUuid(ps, index++, uuid);
+            ps.setString(index, categoryId);
+            ps.executeUpdate();
         }
     }
 
@@ -467,37 +521,46 @@ public class RerollManager {
      * 使用与任务过期相同的逻辑判断是否需要重置次数
      */
     public int getCategoryRerollCount(Connection conn, UUID uuid, TaskCategory category) throws SQLException {
-        String selectSql = "SELECT reroll_count, last_reset_time FROM player_category_reroll WHERE player_uuid = ? AND category_id = ?";
-        try (PreparedStatement ps = conn.prepareStatement(selectSql)) {
-            ps.setString(1, uuid.toString());
-            ps.setString(2, category.getId());
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    Timestamp lastResetTs = rs.getTimestamp("last_reset_time", TimeZoneConfig.UTC_CALENDAR);
-                    LocalDateTime lastReset = null;
-                    if (lastResetTs != null) {
-                        java.time.Instant instant = lastResetTs.toInstant();
-                        lastReset = TimeZoneConfig.toLocalDateTime(instant);
-                    }
+        return effectiveCount(category, rerollCounters(conn, uuid).get(category.getId()));
+    }
 
-                    // 使用与任务过期相同的逻辑判断是否需要重置
-                    if (checkRerollNeedReset(category, lastReset)) {
-                        return 0;
-                    }
-                    return rs.getInt("reroll_count");
-                }
-            }
+    /**
+     * 从缓存获取玩家指定类别的刷新次数（不访问数据库）
+     *
+     * @return 刷新次数，缓存未加载时返回 -1
+     */
+    public int getCachedRerollCount(UUID uuid, TaskCategory category) {
+        Map<String, TaskCacheManager.RerollCounter> counters = cacheManager.getRerollCounters(uuid);
+        if (counters == null) return -1;
+        return effectiveCount(category, counters.get(category.getId()));
+    }
+
+    private int effectiveCount(TaskCategory category, TaskCacheManager.RerollCounter counter) {
+        if (counter == null || checkRerollNeedReset(category, counter.lastReset())) {
+            return 0;
         }
-        return 0;
+        return counter.count();
     }
 
     /**
-     * 更新刷新次数
+     * 写入刷新次数记录（按存储布局附加紧凑列）
      */
-    private void updateRerollCount(Connection conn, UUID uuid, String categoryId, LocalDateTime resetTime, int newRerollCount) throws SQLException {
-        String[] columns = {"player_uuid", "category_id", "reroll_count", "last_reset_time"};
-        String[] keyColumns = {"player_uuid", "category_id"};
-        Object[] values = {uuid.toString(), categoryId, newRerollCount, Timestamp.from(TimeZoneConfig.toInstant(resetTime))};
+    private void upsertRerollRecord(Connection conn, UUID uuid, String categoryId, int rerollCount,
+                                    LocalDateTime resetTime) throws SQLException {
+        PlayerTableLayout layout = layout();
+        Timestamp resetTs = Timestamp.from(TimeZoneConfig.toInstant(resetTime));
+        String[] keyColumns = {layout.uuidColumn(), "category_id"};
+        String[] columns;
+        Object[] values;
+        if (layout.writesCompact()) {
+            columns = new String[]{"player_uuid", "category_id", "reroll_count", "last_reset_time",
+                PlayerTableLayout.UUID_BIN, PlayerTableLayout.LAST_RESET_MS};
+            values = new Object[]{uuid.toString(), categoryId, rerollCount, resetTs,
+                PlayerTableLayout.toBytes(uuid), PlayerTableLayout.toEpochMillis(resetTime)};
+        } else {
+            columns = new String[]{"player_uuid", "category_id", "reroll_count", "last_reset_time"};
+            values = new Object[]{uuid.toString(), categoryId, rerollCount, resetTs};
+        }
 
         databaseUtils.executeUpsert(conn, "player_category_reroll", columns, keyColumns, values);
     }
@@ -523,14 +586,12 @@ public class RerollManager {
     public void resetPlayerCategoryRerollCount(Player player, String categoryId,
                                                 java.util.function.Consumer<Boolean> callback) {
         UUID uuid = player.getUniqueId();
-        LocalDateTime now = TimeZoneConfig.now();
+        // 与 incrementRerollCountAtomic 相同，按秒截断，缓存与数据库中的 last_reset 一致
+        LocalDateTime now = TimeUtil.nowTruncated();
 
         plugin.getDatabaseQueue().submit("resetRerollCount", (Connection conn) -> {
-            String[] columns = {"player_uuid", "category_id", "reroll_count", "last_reset_time"};
-            String[] keyColumns = {"player_uuid", "category_id"};
-            Object[] values = {uuid.toString(), categoryId, 0, Timestamp.from(TimeZoneConfig.toInstant(now))};
-
-            databaseUtils.executeUpsert(conn, "player_category_reroll", columns, keyColumns, values);
+            upsertRerollRecord(conn, uuid, categoryId, 0, now);
+            cacheManager.updateRerollCounter(uuid, categoryId, new TaskCacheManager.RerollCounter(0, now));
             return true;
         }, callback, e -> {
             plugin.getLogger().log(java.util.logging.Level.SEVERE,
@@ -539,27 +600,20 @@ public class RerollManager {
         });
     }
 
-    public void resetAllPlayerCategoryRerollCount(String categoryId,
-                                                   java.util.function.Consumer<Boolean> callback) {
-        List<Player> players = new ArrayList<>(plugin.getServer().getOnlinePlayers());
-        databaseUtils.executeBatch(players,
-            (player, cb) -> resetPlayerCategoryRerollCount(player, categoryId, cb),
-            callback);
-    }
-
     // ==================== 辅助方法 ====================
 
-    private boolean checkBalance(Player player, double cost, BiCallback<Boolean, Component> callback) {
-        if (cost <= 0) return true;
-        if (!plugin.getEconomyManager().isEnabled()) return true;
+    private PlayerTableLayout layout() {
+        return plugin.getDatabaseManager().getLayout();
+    }
 
-        double balance = plugin.getEconomyManager().getBalance(player);
-        if (balance < cost) {
-            callback.call(false, MessageUtil.parse("<red>金币不足，需要 {cost} 金币",
-                MessageUtil.textPlaceholders("cost", String.format("%.0f", cost))));
-            return false;
-        }
-        return true;
+    private Component rerollLimitMessage(TaskCategory category) {
+        return MessageUtil.parse("<red>当前周期刷新次数已用完（上限：{max}次）",
+            MessageUtil.textPlaceholders("max", String.valueOf(category.getRerollMaxCount())));
+    }
+
+    private Component insufficientBalanceMessage(double cost) {
+        return MessageUtil.parse("<red>金币不足，需要 {cost} 金币",
+            MessageUtil.textPlaceholders("cost", String.format("%.0f", cost)));
     }
 
     // ==================== 回调接口 ====================
@@ -580,18 +634,20 @@ public class RerollManager {
     private static class RerollResult {
         private final boolean success;
         private final Component message;
+        private final List<PlayerTask> tasks;
 
-        private RerollResult(boolean success, Component message) {
+        private RerollResult(boolean success, Component message, List<PlayerTask> tasks) {
             this.success = success;
             this.message = message;
+            this.tasks = tasks;
         }
 
-        static RerollResult success(Component message) {
-            return new RerollResult(true, message);
+        static RerollResult success(Component message, List<PlayerTask> tasks) {
+            return new RerollResult(true, message, tasks);
         }
 
         static RerollResult fail(Component message) {
-            return new RerollResult(false, message);
+            return new RerollResult(false, message, null);
         }
 
         boolean isSuccess() {
@@ -601,6 +657,11 @@ public class RerollManager {
         Component getMessage() {
             return message;
         }
+
+        /** 刷新后该分类的完整任务列表 */
+        List<PlayerTask> getTasks() {
+            return tasks;
+        }
     }
 
     // ==================== 刷新选项 ====================
@@ -0,0 +1,345 @@
+package dev.user.simpletask.task.manager;
+
+import dev.user.simpletask.SimpleTaskPlugin;
+import dev.user.simpletask.database.SqlDialect;
+import dev.user.simpletask.task.Reward;
+import dev.user.simpletask.util.TimeUtil;
+import dev.user.simpletask.util.TimeZoneConfig;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 奖励发放队列
+ * 领取奖励时在同一事务中写入 reward_outbox，提交后交给发放任务：
+ * 每 tick 按玩家合并待发放奖励（一次存款、一次物品发放），命令进入全局队列分摊到多个 tick 执行，
+ * 存款实际完成且最后一条命令执行后批量删除对应记录。玩家离线导致未发放的记录保留在表中，下次登录时重新加载
+ *
+ * 多服共用数据库时每条记录由持有租约（owner、leased_at）的服务器发放：写入时由本服持有，
+ * 登录加载时原子地认领无主、本服或租约过期的记录，玩家离线未发放时释放租约
+ *
+ * 待发放表只在全局区域线程访问；已发放序号和本服已知序号可能在玩家区域线程或经济线程写入，使用并发容器
+ */
+public class RewardOutbox {
+
+    // 发放队列写入列
+    private static final String[] COLUMNS = {"player_uuid", "reward_data", "created_at", "owner", "leased_at"};
+
+    // 租约有效期：持有租约的服务器崩溃后，其他服务器在此之后才能认领
+    private static final long LEASE_MINUTES = 5;
+
+    /**
+     * 一条待发放记录
+     */
+    public record Delivery(long id, UUID uuid, Reward reward) {}
+
+    /**
+     * 排队执行的一条命令；done 在该命令执行后完成（只有一批的最后一条命令携带，其余为 null）
+     */
+    private record QueuedCommand(String command, CompletableFuture<Void> done) {}
+
+    private final SimpleTaskPlugin plugin;
+    private final String serverId;
+
+    private final Map<UUID, List<Delivery>> waiting = new LinkedHashMap<>();
+    private final Queue<Delivery> incoming = new ConcurrentLinkedQueue<>();
+    private final Queue<QueuedCommand> commandQueue = new ConcurrentLinkedQueue<>();
+    private final Queue<Long> deliveredIds = new ConcurrentLinkedQueue<>();
+    // 本服已在内存中（等待或发放中）的记录，避免登录重载时重复发放
+    private final Set<Long> knownIds = ConcurrentHashMap.newKeySet();
+    private io.papermc.paper.threadedregions.scheduler.ScheduledTask deliveryTask;
+    // 停止后仍可能有存款完成，此时直接提交删除
+    private volatile boolean stopped;
+
+    public RewardOutbox(SimpleTaskPlugin plugin, String serverId) {
+        this.plugin = plugin;
+        this.serverId = serverId;
+    }
+
+    // ==================== 写入 ====================
+
+    /**
+     * 写入一条待发放奖励（调用者负责事务），租约由本服持有
+     * 事务提交后需调用 {@link #submit(Delivery)} 交给发放任务
+     */
+    public Delivery enqueue(Connection conn, UUID uuid, Reward reward) throws SQLException {
+        return insert(conn, uuid, reward, serverId);
+    }
+
+    private Delivery insert(Connection conn, UUID uuid, Reward reward, String owner) throws SQLException {
+        String sql = plugin.getDatabaseManager().getDialect().insert("reward_outbox", COLUMNS, 1);
+        Timestamp now = Timestamp.from(TimeZoneConfig.toInstant(TimeUtil.nowTruncated()));
+        try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            ps.setString(1, uuid.toString());
+            ps.setString(2, reward.toJson());
+            ps.setTimestamp(3, now, TimeZoneConfig.UTC_CALENDAR);
+            ps.setString(4, owner);
+            if (owner != null) {
+                ps.setTimestamp(5, now, TimeZoneConfig.UTC_CALENDAR);
+            } else {
+                ps.setNull(5, java.sql.Types.TIMESTAMP);
+            }
+            ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("No generated key returned for reward_outbox");
+                }
+                return new Delivery(keys.getLong(1), uuid, reward);
+            }
+        }
+    }
+
+    /**
+     * 将已提交的记录交给发放任务（任意线程）
+     */
+    public void submit(Delivery delivery) {
+        if (knownIds.add(delivery.id())) {
+            incoming.add(delivery);
+        }
+    }
+
+    /**
+     * 认领并加载玩家未发放的奖励（玩家登录时调用，在数据库线程执行）
+     * 一条 UPDATE 认领无主、本服持有或租约已过期的记录，其他服务器正在发放的记录不加载
+     */
+    public List<Delivery> loadPending(Connection conn, UUID uuid) throws SQLException {
+        java.time.LocalDateTime now = TimeUtil.nowTruncated();
+        String claimSql = "UPDATE reward_outbox SET owner = ?, leased_at = ? WHERE player_uuid = ?" +
+            " AND (owner IS NULL OR owner = ? OR leased_at < ?)";
+        try (PreparedStatement ps = conn.prepareStatement(claimSql)) {
+            ps.setString(1, serverId);
+            ps.setTimestamp(2, Timestamp.from(TimeZoneConfig.toInstant(now)), TimeZoneConfig.UTC_CALENDAR);
+            ps.setString(3, uuid.toString());
+            ps.setString(4, serverId);
+            ps.setTimestamp(5, Timestamp.from(TimeZoneConfig.toInstant(now.minusMinutes(LEASE_MINUTES))),
+                TimeZoneConfig.UTC_CALENDAR);
+            ps.executeUpdate();
+        }
+
+        List<Delivery> pending = new ArrayList<>();
+        String sql = "SELECT id, reward_data FROM reward_outbox WHERE player_uuid = ? AND owner = ? ORDER BY id";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, uuid.toString());
+            ps.setString(2, serverId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    long id = rs.getLong("id");
+                    try {
+                        pending.add(new Delivery(id, uuid, Reward.fromJson(rs.getString("reward_data"))));
+                    } catch (RuntimeException e) {
+                        plugin.getLogger().warning("Skipping malformed reward_outbox entry " + id + ": " + e.getMessage());
+                    }
+                }
+            }
+        }
+        return pending;
+    }
+
+    // ==================== 发放 ====================
+
+    public void start() {
+        deliveryTask = plugin.getServer().getGlobalRegionScheduler().runAtFixedRate(plugin, task -> tick(), 1L, 1L);
+    }
+
+    /**
+     * 停止发放任务，已排队的命令立即执行
+     * 尚未发放的记录仍在表中，玩家下次登录时发放
+     */
+    public void stop() {
+        stopped = true;
+        if (deliveryTask != null) {
+            deliveryTask.cancel();
+            deliveryTask = null;
+        }
+        QueuedCommand command;
+        while ((command = commandQueue.poll()) != null) {
+            dispatch(command);
+        }
+        flushDelivered();
+    }
+
+    /**
+     * 每 tick 执行一次（全局区域线程）
+     */
+    private void tick() {
+        Delivery delivery;
+        while ((delivery = incoming.poll()) != null) {
+            waiting.computeIfAbsent(delivery.uuid(), k -> new ArrayList<>()).add(delivery);
+        }
+
+        int playerBudget = Math.max(1, plugin.getConfigManager().getRewardDeliveryPlayersPerTick());
+        Iterator<Map.Entry<UUID, List<Delivery>>> it = waiting.entrySet().iterator();
+        while (it.hasNext() && playerBudget-- > 0) {
+            Map.Entry<UUID, List<Delivery>> entry = it.next();
+            it.remove();
+            deliver(entry.getKey(), entry.getValue());
+        }
+
+        int commandBudget = Math.max(1, plugin.getConfigManager().getRewardDeliveryCommandsPerTick());
+        QueuedCommand command;
+        while (commandBudget-- > 0 && (command = commandQueue.poll()) != null) {
+            dispatch(command);
+        }
+
+        flushDelivered();
+    }
+
+    /**
+     * 执行一条命令；一批的最后一条命令执行后完成该批的命令部分
+     */
+    private void dispatch(QueuedCommand command) {
+        Bukkit.dispatchCommand(Bukkit.getConsoleSender(), command.command());
+        if (command.done() != null) {
+            command.done().complete(null);
+        }
+    }
+
+    /**
+     * 合并同一玩家的所有待发放奖励，在玩家区域线程中一次发放
+     */
+    private void deliver(UUID uuid, List<Delivery> deliveries) {
+        List<Long> ids = new ArrayList<>(deliveries.size());
+        List<Reward> rewards = new ArrayList<>(deliveries.size());
+        for (Delivery delivery : deliveries) {
+            ids.add(delivery.id());
+            rewards.add(delivery.reward());
+        }
+
+        Player player = plugin.getServer().getPlayer(uuid);
+        if (player == null || !player.isOnline()) {
+            // 保留在表中，下次登录时重新加载
+            releaseLease(ids);
+            return;
+        }
+
+        Reward merged = Reward.merge(rewards);
+        List<ItemStack> itemStacks = merged.createItemStacks(plugin);
+        List<String> commands = merged.formatCommands(player.getName());
+
+        player.getScheduler().execute(plugin, () -> {
+            CompletableFuture<Boolean> deposited = merged.depositMoney(player, plugin);
+            Reward.giveItems(player, itemStacks);
+
+            // 命令分摊到多个 tick 执行
+            CompletableFuture<Void> commandsDone = new CompletableFuture<>();
+            if (commands.isEmpty()) {
+                commandsDone.complete(null);
+            }
+            for (int i = 0; i < commands.size(); i++) {
+                boolean last = i == commands.size() - 1;
+                commandQueue.add(new QueuedCommand(commands.get(i), last ? commandsDone : null));
+            }
+
+            // 存款完成且命令全部执行后才删除记录，期间崩溃时下次登录重新发放
+            deposited.thenAcceptBoth(commandsDone, (success, ignored) -> {
+                if (success) {
+                    deliveredIds.addAll(ids);
+                    if (stopped) {
+                        flushDelivered();
+                    }
+                } else {
+                    keepMoneyOnly(uuid, ids, merged.getMoney());
+                }
+            });
+        }, () -> {
+            // 玩家在发放前离线，保留在表中，下次登录时重新加载
+            releaseLease(ids);
+        }, 0L);
+    }
+
+    /**
+     * 释放未发放记录的租约，玩家在任意服务器登录时都可以认领
+     */
+    private void releaseLease(List<Long> ids) {
+        plugin.getDatabaseQueue().submit("releaseRewardLease", (Connection conn) -> {
+            for (int from = 0; from < ids.size(); from += SqlDialect.MAX_ROWS_PER_STATEMENT) {
+                List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + SqlDialect.MAX_ROWS_PER_STATEMENT));
+                String sql = "UPDATE reward_outbox SET owner = NULL, leased_at = NULL WHERE owner = ? AND id IN (" +
+                    String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setString(1, serverId);
+                    for (int i = 0; i < chunk.size(); i++) {
+                        ps.setLong(i + 2, chunk.get(i));
+                    }
+                    ps.executeUpdate();
+                }
+            }
+            return null;
+        }, result -> ids.forEach(knownIds::remove), e -> {
+            // 租约到期后仍可认领
+            ids.forEach(knownIds::remove);
+            plugin.getLogger().log(java.util.logging.Level.SEVERE, "Failed to release reward lease", e);
+        });
+    }
+
+    /**
+     * 存款失败：物品和命令已发放，把这些记录替换为一条只含金币的无主记录，下次登录时重试存款
+     */
+    private void keepMoneyOnly(UUID uuid, List<Long> ids, double money) {
+        plugin.getDatabaseQueue().submit("keepUndepositedReward", (Connection conn) -> {
+            boolean originalAutoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                deleteRows(conn, ids);
+                insert(conn, uuid, new Reward(money, List.of(), List.of()), null);
+                conn.commit();
+            } catch (SQLException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackEx) {
+                    plugin.getLogger().log(java.util.logging.Level.SEVERE, "Failed to rollback transaction", rollbackEx);
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(originalAutoCommit);
+            }
+            return null;
+        }, result -> ids.forEach(knownIds::remove),
+            e -> plugin.getLogger().log(java.util.logging.Level.SEVERE,
+                "Failed to keep undeposited reward of " + money + " for " + uuid, e));
+    }
+
+    /**
+     * 批量删除已发放的记录
+     */
+    private void flushDelivered() {
+        if (deliveredIds.isEmpty()) return;
+
+        List<Long> ids = new ArrayList<>();
+        Long id;
+        while ((id = deliveredIds.poll()) != null) {
+            ids.add(id);
+        }
+
+        plugin.getDatabaseQueue().submit("deleteDeliveredRewards", (Connection conn) -> {
+            deleteRows(conn, ids);
+            return null;
+        }, result -> ids.forEach(knownIds::remove),
+            e -> plugin.getLogger().log(java.util.logging.Level.SEVERE, "Failed to delete delivered rewards", e));
+    }
+
+    private void deleteRows(Connection conn, List<Long> ids) throws SQLException {
+        for (int from = 0; from < ids.size(); from += SqlDialect.MAX_ROWS_PER_STATEMENT) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + SqlDialect.MAX_ROWS_PER_STATEMENT));
+            String sql = "DELETE FROM reward_outbox WHERE id IN (" +
+                String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    ps.setLong(i + 1, chunk.get(i));
+                }
+                ps.executeUpdate();
+            }
+        }
+    }
+}
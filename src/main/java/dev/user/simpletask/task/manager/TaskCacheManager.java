@@ -1,12 +1,16 @@
 package dev.user.simpletask.task.manager;
 
 import dev.user.simpletask.SimpleTaskPlugin;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import dev.user.simpletask.task.PlayerTask;
 import org.bukkit.entity.Player;
 
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -21,9 +25,24 @@ public class TaskCacheManager {
     private final Map<UUID, Map<String, CopyOnWriteArrayList<PlayerTask>>> playerTasks = new ConcurrentHashMap<>();
     // 追踪每个玩家每个类别是否已经发送过完成提示
     private final Map<UUID, Set<String>> playerCategoryCompletedNotified = new ConcurrentHashMap<>();
+    // 刷新次数缓存 Map<UUID, Map<categoryId, RerollCounter>>，玩家加入时加载，未加载时不存在条目
+    private final Map<UUID, Map<String, RerollCounter>> rerollCounters = new ConcurrentHashMap<>();
+    // 已离开玩家的缓存快照，限时限量保留，重连时校验后直接复用
+    private final Cache<UUID, WarmSnapshot> warmTier;
+
+    /**
+     * 玩家离开时的缓存快照
+     * 不保存刷新次数：批量重置等操作不经过任务行，重连时总是从数据库重新加载
+     */
+    public record WarmSnapshot(Map<String, CopyOnWriteArrayList<PlayerTask>> tasksByCategory,
+                               Set<String> completedNotified) {}
 
     public TaskCacheManager(SimpleTaskPlugin plugin) {
         this.plugin = plugin;
+        this.warmTier = CacheBuilder.newBuilder()
+            .maximumSize(Math.max(0, plugin.getConfigManager().getWarmCacheMaxPlayers()))
+            .expireAfterWrite(Math.max(0, plugin.getConfigManager().getWarmCacheRetentionMinutes()), TimeUnit.MINUTES)
+            .build();
     }
 
     /**
@@ -51,6 +70,18 @@ public class TaskCacheManager {
         return tasks != null ? new ArrayList<>(tasks) : Collections.emptyList();
     }
 
+    /**
+     * 获取玩家指定类别的缓存任务
+     * @return 任务副本；该类别未缓存时返回 null（与"已缓存但为空"区分）
+     */
+    public List<PlayerTask> getCachedCategoryTasks(UUID uuid, String categoryId) {
+        Map<String, CopyOnWriteArrayList<PlayerTask>> tasksByCategory = playerTasks.get(uuid);
+        if (tasksByCategory == null) return null;
+
+        CopyOnWriteArrayList<PlayerTask> tasks = tasksByCategory.get(categoryId);
+        return tasks != null ? new ArrayList<>(tasks) : null;
+    }
+
     /**
      * 获取玩家的所有任务（所有类别）
      */
@@ -91,6 +122,54 @@ public class TaskCacheManager {
     public void clearPlayerCache(UUID uuid) {
         playerTasks.remove(uuid);
         playerCategoryCompletedNotified.remove(uuid);
+        rerollCounters.remove(uuid);
+    }
+
+    // ==================== 离线保留 ====================
+
+    /**
+     * 玩家离开：缓存移入离线保留层后清除
+     */
+    public void retirePlayerCache(UUID uuid) {
+        Map<String, CopyOnWriteArrayList<PlayerTask>> tasks = playerTasks.get(uuid);
+        if (tasks != null) {
+            Set<String> notified = playerCategoryCompletedNotified.get(uuid);
+            warmTier.put(uuid, new WarmSnapshot(new HashMap<>(tasks),
+                notified != null ? new HashSet<>(notified) : new HashSet<>()));
+        }
+        clearPlayerCache(uuid);
+    }
+
+    /**
+     * 取出玩家的离线快照（取出后从保留层移除）
+     * @return 快照，不存在或已过期时返回 null
+     */
+    public WarmSnapshot takeWarmSnapshot(UUID uuid) {
+        return warmTier.asMap().remove(uuid);
+    }
+
+    /**
+     * 快照校验通过后恢复完成提示记录（任务由加载流程写入，刷新次数另行从数据库加载）
+     */
+    public void restoreWarmSnapshot(UUID uuid, WarmSnapshot snapshot) {
+        if (!snapshot.completedNotified().isEmpty()) {
+            playerCategoryCompletedNotified.computeIfAbsent(uuid, k -> ConcurrentHashMap.newKeySet())
+                .addAll(snapshot.completedNotified());
+        }
+    }
+
+    /**
+     * 丢弃玩家的离线快照（其他服务器或本服修改了该玩家的任务）
+     */
+    public void evictWarm(UUID uuid) {
+        warmTier.invalidate(uuid);
+    }
+
+    /**
+     * 当前保留的离线玩家
+     */
+    public Set<UUID> getWarmUUIDs() {
+        return new HashSet<>(warmTier.asMap().keySet());
     }
 
     /**
@@ -123,6 +202,29 @@ public class TaskCacheManager {
         return new HashSet<>(playerTasks.keySet());
     }
 
+    // ==================== 统计 ====================
+
+    public int getCachedPlayerCount() {
+        return playerTasks.size();
+    }
+
+    public long getWarmPlayerCount() {
+        return warmTier.size();
+    }
+
+    /**
+     * 在线缓存中的任务总数（遍历各分类列表，只用于监控）
+     */
+    public int getCachedTaskCount() {
+        int count = 0;
+        for (Map<String, CopyOnWriteArrayList<PlayerTask>> categories : playerTasks.values()) {
+            for (List<PlayerTask> tasks : categories.values()) {
+                count += tasks.size();
+            }
+        }
+        return count;
+    }
+
     /**
      * 原子更新玩家任务缓存
      * 直接使用 put 替换，不先 clear，避免中间状态
@@ -146,4 +248,43 @@ public class TaskCacheManager {
 
         tasks.removeIf(task -> task.getTaskKey().equals(taskKey));
     }
+
+    // ==================== 刷新次数缓存 ====================
+
+    /**
+     * 某分类的刷新次数和上次重置时间（与 player_category_reroll 的一行对应）
+     */
+    public record RerollCounter(int count, LocalDateTime lastReset) {}
+
+    /**
+     * 获取玩家的刷新次数缓存
+     * @return 分类ID -> 计数；未加载时返回 null
+     */
+    public Map<String, RerollCounter> getRerollCounters(UUID uuid) {
+        return rerollCounters.get(uuid);
+    }
+
+    /**
+     * 替换玩家的刷新次数缓存（从数据库加载后调用）
+     */
+    public void putRerollCounters(UUID uuid, Map<String, RerollCounter> counters) {
+        rerollCounters.put(uuid, new ConcurrentHashMap<>(counters));
+    }
+
+    /**
+     * 写入单个分类的刷新次数（已加载的玩家才更新）
+     */
+    public void updateRerollCounter(UUID uuid, String categoryId, RerollCounter counter) {
+        Map<String, RerollCounter> counters = rerollCounters.get(uuid);
+        if (counters != null) {
+            counters.put(categoryId, counter);
+        }
+    }
+
+    /**
+     * 使玩家的刷新次数缓存失效，下次访问时从数据库重新加载
+     */
+    public void invalidateRerollCounters(UUID uuid) {
+        rerollCounters.remove(uuid);
+    }
 }
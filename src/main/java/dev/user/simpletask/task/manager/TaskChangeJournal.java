@@ -0,0 +1,370 @@
+package dev.user.simpletask.task.manager;
+
+import dev.user.simpletask.SimpleTaskPlugin;
+import dev.user.simpletask.database.SqlDialect;
+import dev.user.simpletask.task.PlayerTask;
+import dev.user.simpletask.task.category.TaskCategory;
+import dev.user.simpletask.util.TimeUtil;
+import dev.user.simpletask.util.TimeZoneConfig;
+import org.bukkit.entity.Player;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 跨服任务变更日志
+ * 修改玩家任务时在同一事务中写入 player_task_changes，
+ * 各服务器按 seq 水位轮询本服在线玩家的变更，只刷新受影响分类的缓存；
+ * 离线保留的玩家有变更时丢弃其快照
+ *
+ * 水位和已处理序号只在数据库队列线程中访问，无需额外同步
+ */
+public class TaskChangeJournal {
+
+    /**
+     * 变更类型
+     */
+    public enum ChangeType {
+        ASSIGN, REMOVE, REROLL, PROGRESS, CLAIM
+    }
+
+    // 单次轮询每批 IN 条件的最大 UUID 数
+    private static final int UUID_CHUNK_SIZE = 200;
+    // 回看窗口：自增序号先分配后提交，较小的 seq 可能晚于较大的 seq 可见
+    private static final long SEQ_LOOKBACK = 256;
+    // 已处理序号的记录上限（只需覆盖回看窗口）
+    private static final int APPLIED_SEQ_CAPACITY = 2048;
+    // 每轮询多少次执行一次过期记录清理
+    private static final int PRUNE_EVERY_POLLS = 150;
+    // 变更记录写入列
+    private static final String[] COLUMNS = {"player_uuid", "category", "task_key", "change_type", "server_id", "created_at"};
+
+    private final SimpleTaskPlugin plugin;
+    private final TaskCacheManager cacheManager;
+    private final TaskExpireManager expireManager;
+    private final boolean enabled;
+    private final String serverId;
+
+    private final AtomicBoolean polling = new AtomicBoolean(false);
+    private final LinkedHashSet<Long> appliedSeqs = new LinkedHashSet<>();
+    private long watermark = -1;
+    private int pollCount = 0;
+    private io.papermc.paper.threadedregions.scheduler.ScheduledTask pollTask;
+
+    public TaskChangeJournal(SimpleTaskPlugin plugin, TaskCacheManager cacheManager, TaskExpireManager expireManager) {
+        this.plugin = plugin;
+        this.cacheManager = cacheManager;
+        this.expireManager = expireManager;
+        this.enabled = plugin.getConfigManager().isChangeJournalEnabled();
+
+        String configuredId = plugin.getConfigManager().getChangeJournalServerId();
+        this.serverId = configuredId == null || configuredId.isBlank()
+            ? UUID.randomUUID().toString()
+            : configuredId;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getServerId() {
+        return serverId;
+    }
+
+    // ==================== 写入 ====================
+
+    /**
+     * 记录一条变更（调用者负责事务）
+     */
+    public void record(Connection conn, UUID uuid, ChangeType type, String categoryId, String taskKey) throws SQLException {
+        // 本服修改了离线玩家的任务：丢弃离线快照
+        cacheManager.evictWarm(uuid);
+        if (!enabled) return;
+
+        String sql = plugin.getDatabaseManager().getDialect().insert("player_task_changes", COLUMNS, 1);
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            bindChange(ps, 1, uuid, type, categoryId, taskKey, now());
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * 记录同一玩家多个分类的变更（调用者负责事务）
+     */
+    public void recordCategories(Connection conn, UUID uuid, ChangeType type, Collection<String> categoryIds) throws SQLException {
+        cacheManager.evictWarm(uuid);
+        if (!enabled || categoryIds.isEmpty()) return;
+
+        // 单条多行 INSERT（分类数量很少，不需要分块）
+        String sql = plugin.getDatabaseManager().getDialect().insert("player_task_changes", COLUMNS, categoryIds.size());
+        Timestamp now = now();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (String categoryId : categoryIds) {
+                index = bindChange(ps, index, uuid, type, categoryId, null, now);
+            }
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * 记录多个玩家同一分类的变更（调用者负责事务）
+     */
+    public void recordPlayers(Connection conn, List<UUID> uuids, ChangeType type, String categoryId) throws SQLException {
+        uuids.forEach(cacheManager::evictWarm);
+        if (!enabled || uuids.isEmpty()) return;
+
+        SqlDialect dialect = plugin.getDatabaseManager().getDialect();
+        Timestamp now = now();
+        for (int from = 0; from < uuids.size(); from += SqlDialect.MAX_ROWS_PER_STATEMENT) {
+            List<UUID> chunk = uuids.subList(from, Math.min(uuids.size(), from + SqlDialect.MAX_ROWS_PER_STATEMENT));
+            try (PreparedStatement ps = conn.prepareStatement(dialect.insert("player_task_changes", COLUMNS, chunk.size()))) {
+                int index = 1;
+                for (UUID uuid : chunk) {
+                    index = bindChange(ps, index, uuid, type, categoryId, null, now);
+                }
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    private int bindChange(PreparedStatement ps, int index, UUID uuid, ChangeType type, String categoryId,
+                           String taskKey, Timestamp createdAt) throws SQLException {
+        ps.setString(index++, uuid.toString());
+        ps.setString(index++, categoryId);
+        ps.setString(index++, taskKey);
+        ps.setString(index++, type.name());
+        ps.setString(index++, serverId);
+        ps.setTimestamp(index++, createdAt, TimeZoneConfig.UTC_CALENDAR);
+        return index;
+    }
+
+    private Timestamp now() {
+        return Timestamp.from(TimeZoneConfig.toInstant(TimeUtil.nowTruncated()));
+    }
+
+    // ==================== 轮询 ====================
+
+    /**
+     * 启动轮询：先将水位设置为当前最大序号，只处理启动之后的变更
+     */
+    public void start() {
+        if (!enabled) return;
+
+        int intervalSeconds = Math.max(1, plugin.getConfigManager().getChangeJournalPollInterval());
+        plugin.getLogger().info("Starting task change journal (server-id: " + serverId + ", interval: " + intervalSeconds + "s)");
+
+        plugin.getDatabaseQueue().submit("initChangeJournal", (Connection conn) -> {
+            watermark = queryMaxSeq(conn);
+            return null;
+        }, null, e -> plugin.getLogger().log(java.util.logging.Level.WARNING, "Failed to initialize task change journal", e));
+
+        long intervalTicks = 20L * intervalSeconds;
+        pollTask = plugin.getServer().getGlobalRegionScheduler().runAtFixedRate(plugin, task -> poll(),
+            intervalTicks, intervalTicks);
+    }
+
+    public void stop() {
+        if (pollTask != null) {
+            pollTask.cancel();
+            pollTask = null;
+        }
+    }
+
+    /**
+     * 轮询一次变更日志（上一次轮询未完成时跳过）
+     */
+    private void poll() {
+        Set<UUID> onlinePlayers = new HashSet<>();
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            onlinePlayers.add(player.getUniqueId());
+        }
+        // 离线保留的玩家也需要关注：其他服务器修改后丢弃快照
+        List<UUID> watchedPlayers = new ArrayList<>(onlinePlayers);
+        for (UUID uuid : cacheManager.getWarmUUIDs()) {
+            if (!onlinePlayers.contains(uuid)) {
+                watchedPlayers.add(uuid);
+            }
+        }
+
+        if (!polling.compareAndSet(false, true)) {
+            return;
+        }
+
+        plugin.getDatabaseQueue().submit("pollTaskChanges", (Connection conn) -> {
+            if (++pollCount % PRUNE_EVERY_POLLS == 0) {
+                pruneExpired(conn);
+            }
+
+            long maxSeq = queryMaxSeq(conn);
+            if (watermark < 0) {
+                // 初始化失败时从当前位置开始
+                watermark = maxSeq;
+                return Collections.<UUID, Map<String, List<PlayerTask>>>emptyMap();
+            }
+
+            Map<UUID, Set<String>> changedCategories = watchedPlayers.isEmpty()
+                ? Collections.emptyMap()
+                : queryChanges(conn, watchedPlayers, Math.max(0, watermark - SEQ_LOOKBACK), maxSeq);
+            watermark = Math.max(watermark, maxSeq);
+
+            // 离线玩家不重新加载，只丢弃快照，下次登录时完整加载
+            changedCategories.keySet().removeIf(uuid -> {
+                if (onlinePlayers.contains(uuid)) return false;
+                cacheManager.evictWarm(uuid);
+                return true;
+            });
+
+            return reloadCategories(conn, changedCategories);
+        }, reloaded -> {
+            polling.set(false);
+            applyReloaded(reloaded);
+        }, e -> {
+            polling.set(false);
+            plugin.getLogger().log(java.util.logging.Level.WARNING, "Failed to poll task change journal", e);
+        });
+    }
+
+    private long queryMaxSeq(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(seq) FROM player_task_changes")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * 查询指定序号区间内其他服务器写入的在线玩家变更
+     * @return 玩家 -> 受影响分类（null 表示全部分类）
+     */
+    private Map<UUID, Set<String>> queryChanges(Connection conn, List<UUID> players,
+                                                long fromSeqExclusive, long toSeqInclusive) throws SQLException {
+        Map<UUID, Set<String>> result = new HashMap<>();
+
+        for (int start = 0; start < players.size(); start += UUID_CHUNK_SIZE) {
+            List<UUID> chunk = players.subList(start, Math.min(start + UUID_CHUNK_SIZE, players.size()));
+            String sql = "SELECT seq, player_uuid, category, change_type FROM player_task_changes " +
+                "WHERE seq > ? AND seq <= ? AND server_id <> ? AND player_uuid IN (" +
+                "?,".repeat(chunk.size() - 1) + "?) ORDER BY seq";
+
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                int index = 1;
+                ps.setLong(index++, fromSeqExclusive);
+                ps.setLong(index++, toSeqInclusive);
+                ps.setString(index++, serverId);
+                for (UUID uuid : chunk) {
+                    ps.setString(index++, uuid.toString());
+                }
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        long seq = rs.getLong("seq");
+                        if (!markApplied(seq)) continue;
+
+                        UUID uuid = UUID.fromString(rs.getString("player_uuid"));
+                        result.computeIfAbsent(uuid, k -> new HashSet<>()).add(rs.getString("category"));
+
+                        // 其他服务器的刷新改变了刷新次数，下次使用时重新加载
+                        if (ChangeType.REROLL.name().equals(rs.getString("change_type"))) {
+                            cacheManager.invalidateRerollCounters(uuid);
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 记录已处理的序号，回看窗口内重复出现的记录只处理一次
+     * @return true 如果是首次处理
+     */
+    private boolean markApplied(long seq) {
+        if (!appliedSeqs.add(seq)) {
+            return false;
+        }
+        if (appliedSeqs.size() > APPLIED_SEQ_CAPACITY) {
+            Iterator<Long> iterator = appliedSeqs.iterator();
+            iterator.next();
+            iterator.remove();
+        }
+        return true;
+    }
+
+    /**
+     * 从数据库重新加载受影响分类的任务
+     */
+    private Map<UUID, Map<String, List<PlayerTask>>> reloadCategories(Connection conn,
+                                                                      Map<UUID, Set<String>> changedCategories) throws SQLException {
+        if (changedCategories.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<UUID, Map<String, List<PlayerTask>>> reloaded = new HashMap<>();
+        for (Map.Entry<UUID, Set<String>> entry : changedCategories.entrySet()) {
+            UUID uuid = entry.getKey();
+            Set<String> categoryIds = entry.getValue();
+
+            // 未指定分类的变更按全部分类处理
+            if (categoryIds.contains(null)) {
+                categoryIds = new HashSet<>();
+                for (TaskCategory category : plugin.getConfigManager().getTaskCategories().values()) {
+                    if (category.isEnabled()) {
+                        categoryIds.add(category.getId());
+                    }
+                }
+            }
+
+            Map<String, List<PlayerTask>> tasksByCategory = new HashMap<>();
+            for (String categoryId : categoryIds) {
+                tasksByCategory.put(categoryId, expireManager.loadTasksByCategory(conn, uuid, categoryId));
+            }
+            reloaded.put(uuid, tasksByCategory);
+        }
+        return reloaded;
+    }
+
+    /**
+     * 在主线程应用重新加载的任务
+     */
+    private void applyReloaded(Map<UUID, Map<String, List<PlayerTask>>> reloaded) {
+        for (Map.Entry<UUID, Map<String, List<PlayerTask>>> entry : reloaded.entrySet()) {
+            UUID uuid = entry.getKey();
+            Player player = plugin.getServer().getPlayer(uuid);
+            if (player == null || !player.isOnline()) {
+                continue;
+            }
+
+            for (Map.Entry<String, List<PlayerTask>> categoryEntry : entry.getValue().entrySet()) {
+                cacheManager.updateCategoryTaskCache(uuid, categoryEntry.getKey(), categoryEntry.getValue());
+            }
+
+            // 打开的GUI持有旧的任务对象，关闭避免基于过期数据操作
+            dev.user.simpletask.gui.GUIManager.closePlayerGUI(uuid);
+
+            plugin.getLogger().fine("Applied cross-server task changes for " + player.getName()
+                + ": " + entry.getValue().keySet());
+        }
+    }
+
+    /**
+     * 清理超过保留时间的变更记录
+     */
+    private void pruneExpired(Connection conn) throws SQLException {
+        int retentionMinutes = Math.max(1, plugin.getConfigManager().getChangeJournalRetentionMinutes());
+        Timestamp cutoff = Timestamp.from(TimeZoneConfig.toInstant(TimeUtil.nowTruncated().minusMinutes(retentionMinutes)));
+
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM player_task_changes WHERE created_at < ?")) {
+            ps.setTimestamp(1, cutoff, TimeZoneConfig.UTC_CALENDAR);
+            int deleted = ps.executeUpdate();
+            if (deleted > 0) {
+                plugin.getLogger().fine("Pruned " + deleted + " task change records");
+            }
+        }
+    }
+}
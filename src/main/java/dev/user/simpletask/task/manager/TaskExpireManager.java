@@ -1,6 +1,8 @@
 package dev.user.simpletask.task.manager;
 
 import dev.user.simpletask.SimpleTaskPlugin;
+import dev.user.simpletask.database.PlayerTableLayout;
+import dev.user.simpletask.profiling.ExpireRefreshEvent;
 import dev.user.simpletask.task.ExpirePolicy;
 import dev.user.simpletask.task.PlayerTask;
 import dev.user.simpletask.task.TaskTemplate;
@@ -9,7 +11,6 @@ import dev.user.simpletask.task.category.TaskCategory;
 import dev.user.simpletask.util.ExpireUtil;
 import dev.user.simpletask.util.MessageUtil;
 import dev.user.simpletask.util.TimeUtil;
-import dev.user.simpletask.util.TimeZoneConfig;
 import net.kyori.adventure.text.Component;
 import org.bukkit.entity.Player;
 
@@ -17,12 +18,12 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -53,15 +54,17 @@ public class TaskExpireManager {
      * 从数据库删除过期任务
      * 使用 assigned_at 作为精确匹配条件
      */
-    public static void deleteExpiredTasks(Connection conn, UUID uuid, List<PlayerTask> expiredTasks) throws SQLException {
+    public void deleteExpiredTasks(Connection conn, UUID uuid, List<PlayerTask> expiredTasks) throws SQLException {
         // 优先使用 assigned_at 删除，更精确
-        String sql = "DELETE FROM player_daily_tasks WHERE player_uuid = ? AND task_key = ? AND assigned_at = ?";
+        PlayerTableLayout layout = plugin.getDatabaseManager().getLayout();
+        String sql = "DELETE FROM player_daily_tasks WHERE " + layout.uuidColumn() + " = ? AND task_key = ? AND " +
+            layout.assignedAtColumn() + " = ?";
 
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             for (PlayerTask task : expiredTasks) {
-                ps.setString(1, uuid.toString());
+                layout.bindUuid(ps, 1, uuid);
                 ps.setString(2, task.getTaskKey());
-                ps.setTimestamp(3, Timestamp.from(TimeZoneConfig.toInstant(task.getAssignedAt())), TimeZoneConfig.UTC_CALENDAR);
+                layout.bindTime(ps, 3, task.getAssignedAt());
                 ps.addBatch();
             }
             ps.executeBatch();
@@ -126,7 +129,7 @@ public class TaskExpireManager {
 
                 if (canGenerate) {
                     int needToGenerate = maxCount - currentCount;
-                    List<PlayerTask> newTasks = taskGenerator.generateTasksForCategory(conn, player, category, needToGenerate, tasks);
+                    List<PlayerTask> newTasks = taskGenerator.generateTasksForCategory(conn, player.getUniqueId(), category, needToGenerate, tasks);
                     tasks.addAll(newTasks);
                     newGeneratedCount = newTasks.size();
                 }
@@ -163,9 +166,123 @@ public class TaskExpireManager {
     }
 
     /**
-     * 加载并检查玩家所有类别的任务（登录时使用）
+     * 登录前预加载的任务
+     *
+     * @param tasksByCategory   各启用分类已删除过期任务后的任务
+     * @param expiredCategories 有任务过期的分类
+     */
+    public record PreloadedTasks(Map<String, List<PlayerTask>> tasksByCategory, Set<String> expiredCategories) {}
+
+    /**
+     * 预加载玩家所有类别的任务（只需要 UUID，可在 AsyncPlayerPreLoginEvent 时调用）
+     * 加载任务并删除过期任务；补充新任务推迟到玩家加入后由 attachPreloadedTasks 完成
+     *
+     * @param snapshot 已通过 isSnapshotCurrent 校验的离线快照，不为 null 时不再从数据库加载任务
+     */
+    public PreloadedTasks preloadPlayerTasks(Connection conn, UUID uuid,
+                                             Map<String, ? extends List<PlayerTask>> snapshot) throws SQLException {
+        Map<String, List<PlayerTask>> tasksByCategory = new HashMap<>();
+        Set<String> expiredCategories = new HashSet<>();
+
+        boolean originalAutoCommit = conn.getAutoCommit();
+        try {
+            if (originalAutoCommit) {
+                conn.setAutoCommit(false);
+            }
+
+            for (TaskCategory category : plugin.getConfigManager().getTaskCategories().values()) {
+                if (!category.isEnabled()) continue;
+
+                List<PlayerTask> tasks;
+                if (snapshot != null) {
+                    List<PlayerTask> snapshotTasks = snapshot.get(category.getId());
+                    tasks = snapshotTasks != null ? new ArrayList<>(snapshotTasks) : new ArrayList<>();
+                } else {
+                    tasks = loadTasksByCategory(conn, uuid, category.getId());
+                }
+                if (removeExpiredTasks(conn, uuid, category, tasks) > 0) {
+                    expiredCategories.add(category.getId());
+                }
+                tasksByCategory.put(category.getId(), tasks);
+            }
+
+            if (originalAutoCommit) {
+                conn.commit();
+            }
+            return new PreloadedTasks(tasksByCategory, expiredCategories);
+        } catch (SQLException e) {
+            if (originalAutoCommit) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackEx) {
+                    plugin.getLogger().log(java.util.logging.Level.SEVERE, "Failed to rollback transaction", rollbackEx);
+                }
+            }
+            throw e;
+        } finally {
+            if (originalAutoCommit) {
+                try {
+                    conn.setAutoCommit(true);
+                } catch (SQLException autoCommitEx) {
+                    plugin.getLogger().log(java.util.logging.Level.WARNING, "Failed to restore autoCommit", autoCommitEx);
+                }
+            }
+        }
+    }
+
+    /**
+     * 校验离线快照是否仍与数据库一致
+     * 只读取进度相关的列，不解析任务数据；启用分类中任何一行的分配时间、进度或状态不同都视为已变化
      */
-    public void loadAndCheckPlayerTasks(Connection conn, Player player) throws SQLException {
+    public boolean isSnapshotCurrent(Connection conn, UUID uuid,
+                                     Map<String, ? extends List<PlayerTask>> snapshot) throws SQLException {
+        Map<String, TaskCategory> categories = plugin.getConfigManager().getTaskCategories();
+        Set<String> expected = new HashSet<>();
+        for (Map.Entry<String, ? extends List<PlayerTask>> entry : snapshot.entrySet()) {
+            TaskCategory category = categories.get(entry.getKey());
+            if (category == null || !category.isEnabled()) continue;
+            for (PlayerTask task : entry.getValue()) {
+                expected.add(snapshotKey(entry.getKey(), task.getTaskKey(), task.getAssignedAt(),
+                    task.getCurrentProgress(), task.isCompleted(), task.isClaimed()));
+            }
+        }
+
+        PlayerTableLayout layout = plugin.getDatabaseManager().getLayout();
+        String sql = "SELECT category, task_key, current_progress, completed, claimed, " +
+            layout.timeSelectColumns("assigned_at", PlayerTableLayout.ASSIGNED_AT_MS) +
+            " FROM player_daily_tasks WHERE " + layout.uuidColumn() + " = ?";
+        int matched = 0;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            layout.bindUuid(ps, 1, uuid);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String categoryId = rs.getString("category");
+                    TaskCategory category = categories.get(categoryId);
+                    if (category == null || !category.isEnabled()) continue;
+
+                    String key = snapshotKey(categoryId, rs.getString("task_key"),
+                        layout.readTime(rs, "assigned_at", PlayerTableLayout.ASSIGNED_AT_MS),
+                        rs.getInt("current_progress"), rs.getBoolean("completed"), rs.getBoolean("claimed"));
+                    if (!expected.contains(key)) {
+                        return false;
+                    }
+                    matched++;
+                }
+            }
+        }
+        return matched == expected.size();
+    }
+
+    private static String snapshotKey(String categoryId, String taskKey, LocalDateTime assignedAt,
+                                      int progress, boolean completed, boolean claimed) {
+        return categoryId + '|' + taskKey + '|' + assignedAt + '|' + progress + '|' + completed + '|' + claimed;
+    }
+
+    /**
+     * 玩家加入后完成加载：补充各分类缺少的任务，写入缓存并通知玩家
+     * 预加载之后才启用的分类在这里补充加载
+     */
+    public void attachPreloadedTasks(Connection conn, Player player, PreloadedTasks preloaded) throws SQLException {
         UUID uuid = player.getUniqueId();
         Map<String, TaskCategory> categories = plugin.getConfigManager().getTaskCategories();
 
@@ -183,17 +300,27 @@ public class TaskExpireManager {
             // 记录哪些分类有任务被刷新（使用 Component 支持嵌套样式）
             List<Component> refreshedCategories = new ArrayList<>();
 
-            // 加载每个分类的任务
             for (String categoryId : categories.keySet()) {
                 TaskCategory category = categories.get(categoryId);
                 if (!category.isEnabled()) continue;
 
-                // 使用公共方法检查并刷新该分类（内部已处理事务，但外层事务会覆盖）
-                CategoryRefreshResult result = checkAndRefreshCategoryTasksInternal(conn, player, category);
-                tasksByCategory.put(categoryId, new CopyOnWriteArrayList<>(result.tasks()));
+                List<PlayerTask> tasks;
+                boolean refreshed;
+                List<PlayerTask> preloadedTasks = preloaded.tasksByCategory().get(categoryId);
+                if (preloadedTasks != null) {
+                    tasks = new ArrayList<>(preloadedTasks);
+                    refreshed = preloaded.expiredCategories().contains(categoryId);
+                } else {
+                    tasks = loadTasksByCategory(conn, uuid, categoryId);
+                    refreshed = removeExpiredTasks(conn, uuid, category, tasks) > 0;
+                }
+                if (fillCategoryTasks(conn, uuid, category, tasks) > 0) {
+                    refreshed = true;
+                }
+                tasksByCategory.put(categoryId, new CopyOnWriteArrayList<>(tasks));
 
                 // 如果该分类有任务被刷新，记录分类显示名称（解析为 Component）
-                if (result.hasRefreshed()) {
+                if (refreshed) {
                     refreshedCategories.add(MessageUtil.parse(category.getDisplayName()));
                 }
             }
@@ -247,47 +374,70 @@ public class TaskExpireManager {
      */
     private CategoryRefreshResult checkAndRefreshCategoryTasksInternal(Connection conn, Player player, TaskCategory category) throws SQLException {
         UUID uuid = player.getUniqueId();
-        String categoryId = category.getId();
+        ExpireRefreshEvent jfr = new ExpireRefreshEvent();
+        jfr.begin();
 
         // 1. 加载该分类的任务
-        List<PlayerTask> tasks = loadTasksByCategory(conn, uuid, categoryId);
+        List<PlayerTask> tasks = loadTasksByCategory(conn, uuid, category.getId());
+        int loadedCount = tasks.size();
+
+        // 2. 删除过期任务
+        int expiredCount = removeExpiredTasks(conn, uuid, category, tasks);
 
-        // 2. 检测过期任务
+        // 3. 补充新任务
+        int newGeneratedCount = fillCategoryTasks(conn, uuid, category, tasks);
+
+        if (jfr.shouldCommit()) {
+            jfr.category = category.getId();
+            jfr.loadedTasks = loadedCount;
+            jfr.expiredTasks = expiredCount;
+            jfr.generatedTasks = newGeneratedCount;
+            jfr.commit();
+        }
+
+        boolean hasRefreshed = expiredCount > 0 || newGeneratedCount > 0;
+        return new CategoryRefreshResult(tasks, hasRefreshed, expiredCount, newGeneratedCount);
+    }
+
+    /**
+     * 从数据库和列表中删除过期任务
+     *
+     * @return 删除的任务数
+     */
+    private int removeExpiredTasks(Connection conn, UUID uuid, TaskCategory category, List<PlayerTask> tasks) throws SQLException {
         List<PlayerTask> expiredTasks = tasks.stream()
             .filter(task -> task.isExpired(category))
             .toList();
-
-        // 3. 删除过期任务
-        int expiredCount = 0;
-        if (!expiredTasks.isEmpty()) {
-            deleteExpiredTasks(conn, uuid, expiredTasks);
-            tasks.removeAll(expiredTasks);
-            expiredCount = expiredTasks.size();
-            plugin.getLogger().fine("Deleted " + expiredCount + " expired tasks for " + player.getName() + " in category " + categoryId);
+        if (expiredTasks.isEmpty()) {
+            return 0;
         }
 
-        // 4. 补充新任务
+        deleteExpiredTasks(conn, uuid, expiredTasks);
+        tasks.removeAll(expiredTasks);
+        plugin.getLogger().fine("Deleted " + expiredTasks.size() + " expired tasks for " + uuid + " in category " + category.getId());
+        return expiredTasks.size();
+    }
+
+    /**
+     * 补充新任务到分类最大并行数量，新任务追加到列表
+     *
+     * @return 生成的任务数
+     */
+    private int fillCategoryTasks(Connection conn, UUID uuid, TaskCategory category, List<PlayerTask> tasks) throws SQLException {
         int currentCount = tasks.size();
         int maxCount = category.getMaxConcurrent();
-        int newGeneratedCount = 0;
-
-        if (currentCount < maxCount) {
-            // FIXED 策略：只有在有效期内才生成新任务
-            boolean canGenerate = true;
-            if (category.getExpirePolicy() == ExpirePolicy.FIXED) {
-                canGenerate = ExpireUtil.isInFixedPeriod(category.getExpirePolicyConfig());
-            }
+        if (currentCount >= maxCount) {
+            return 0;
+        }
 
-            if (canGenerate) {
-                int needToGenerate = maxCount - currentCount;
-                List<PlayerTask> newTasks = taskGenerator.generateTasksForCategory(conn, player, category, needToGenerate, tasks);
-                tasks.addAll(newTasks);
-                newGeneratedCount = newTasks.size();
-            }
+        // FIXED 策略：只有在有效期内才生成新任务
+        if (category.getExpirePolicy() == ExpirePolicy.FIXED && !ExpireUtil.isInFixedPeriod(category.getExpirePolicyConfig())) {
+            return 0;
         }
 
-        boolean hasRefreshed = expiredCount > 0 || newGeneratedCount > 0;
-        return new CategoryRefreshResult(tasks, hasRefreshed, expiredCount, newGeneratedCount);
+        List<PlayerTask> newTasks = taskGenerator.generateTasksForCategory(conn, uuid, category, maxCount - currentCount, tasks);
+        tasks.addAll(newTasks);
+        return newTasks.size();
     }
 
     /**
@@ -501,10 +651,11 @@ public class TaskExpireManager {
      */
     public List<PlayerTask> loadTasksByCategory(Connection conn, UUID uuid, String categoryId) throws SQLException {
         List<PlayerTask> tasks = new ArrayList<>();
-        String sql = "SELECT * FROM player_daily_tasks WHERE player_uuid = ? AND category = ?";
+        PlayerTableLayout layout = plugin.getDatabaseManager().getLayout();
+        String sql = "SELECT * FROM player_daily_tasks WHERE " + layout.uuidColumn() + " = ? AND category = ?";
 
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, uuid.toString());
+            layout.bindUuid(ps, 1, uuid);
             ps.setString(2, categoryId);
 
             try (ResultSet rs = ps.executeQuery()) {
@@ -525,7 +676,7 @@ public class TaskExpireManager {
 
     /**
      * 从结果集解析玩家任务
-     * 优先使用 assigned_at 字段，如果不存在则使用 task_date
+     * 优先使用 assigned_at_ms（紧凑布局），其次 assigned_at 字段，如果都不存在则使用 task_date
      */
     private PlayerTask parsePlayerTaskFromResultSet(UUID playerUuid, ResultSet rs) throws Exception {
         String taskKey = rs.getString("task_key");
@@ -538,15 +689,11 @@ public class TaskExpireManager {
             category = "daily";
         }
 
-        // 优先使用 assigned_at（带时分秒）
+        // 优先使用 assigned_at_ms / assigned_at（带时分秒）
         LocalDateTime assignedAt = null;
         try {
-            // 先获取 Timestamp，再转为 Instant，最后转回配置时区的 LocalDateTime
-            java.sql.Timestamp timestamp = rs.getTimestamp("assigned_at", TimeZoneConfig.UTC_CALENDAR);
-            if (timestamp != null) {
-                java.time.Instant instant = timestamp.toInstant();
-                assignedAt = TimeZoneConfig.toLocalDateTime(instant);
-            }
+            assignedAt = plugin.getDatabaseManager().getLayout()
+                .readTime(rs, "assigned_at", PlayerTableLayout.ASSIGNED_AT_MS);
         } catch (SQLException e) {
             // assigned_at 字段可能不存在，忽略
         }
@@ -1,13 +1,14 @@
 package dev.user.simpletask.task.manager;
 
 import dev.user.simpletask.SimpleTaskPlugin;
+import dev.user.simpletask.database.PlayerTableLayout;
+import dev.user.simpletask.database.SqlDialect;
 import dev.user.simpletask.task.PlayerTask;
 import dev.user.simpletask.task.TaskTemplate;
 import dev.user.simpletask.task.TemplateSyncManager;
 import dev.user.simpletask.task.category.TaskCategory;
 import dev.user.simpletask.util.TimeUtil;
 import dev.user.simpletask.util.TimeZoneConfig;
-import org.bukkit.entity.Player;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -17,6 +18,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
@@ -72,19 +74,18 @@ public class TaskGenerator {
     /**
      * 为指定分类生成新任务
      */
-    public List<PlayerTask> generateTasksForCategory(Connection conn, Player player, TaskCategory category,
+    public List<PlayerTask> generateTasksForCategory(Connection conn, UUID uuid, TaskCategory category,
                                                       int count, List<PlayerTask> existingTasks) throws SQLException {
         List<TaskTemplate> templates = templateSyncManager.getTemplatesByCategory(category.getId());
-        return generateTasksForCategory(conn, player, category, count, existingTasks, templates);
+        return generateTasksForCategory(conn, uuid, category, count, existingTasks, templates);
     }
 
     /**
      * 为指定分类生成新任务（指定模板列表）
      */
-    public List<PlayerTask> generateTasksForCategory(Connection conn, Player player, TaskCategory category,
+    public List<PlayerTask> generateTasksForCategory(Connection conn, UUID uuid, TaskCategory category,
                                                       int count, List<PlayerTask> existingTasks,
                                                       List<TaskTemplate> availableTemplates) throws SQLException {
-        UUID uuid = player.getUniqueId();
         LocalDateTime assignedAt = TimeUtil.nowTruncated(); // 截断到秒级确保跨数据库一致性
 
         // 创建可修改的模板列表副本（传入的可能是不可修改集合）
@@ -117,42 +118,74 @@ public class TaskGenerator {
         List<TaskTemplate> selected = selectRandomTasksFromList(templatesToUse, count);
         List<PlayerTask> newTasks = new ArrayList<>();
 
-        // 插入数据库 - 使用 assigned_at (TIMESTAMP)
-        // 过期策略从 category 配置获取，不存储在表中
-        String insertSql = """
-            INSERT INTO player_daily_tasks
-            (player_uuid, task_key, task_version, category, current_progress, completed, claimed, assigned_at, task_data)
-            VALUES (?, ?, ?, ?, 0, FALSE, FALSE, ?, ?)
-            """;
-
-        try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
-            for (TaskTemplate template : selected) {
-                // 保存原始 category，设置为分配目标的 category 以保持一致性
-                String originalCategory = template.getCategory();
-                template.setCategory(category.getId());
-
-                ps.setString(1, uuid.toString());
-                ps.setString(2, template.getTaskKey());
-                ps.setInt(3, template.getVersion());
-                ps.setString(4, category.getId());
-                // 时区安全：先将 LocalDateTime 转为 Instant，再存为 Timestamp
-                java.time.Instant instant = TimeZoneConfig.toInstant(assignedAt);
-                ps.setTimestamp(5, java.sql.Timestamp.from(instant), TimeZoneConfig.UTC_CALENDAR);
-                ps.setString(6, template.toJson());  // 现在包含更新后的 category
-                ps.addBatch();
-
-                // 恢复原始 category（保持内存模板缓存不变）
-                template.setCategory(originalCategory);
-
-                PlayerTask task = new PlayerTask(uuid, template.getTaskKey(), template, 0, false, false, assignedAt, category.getId());
-                newTasks.add(task);
-            }
-            ps.executeBatch(); // 批量执行
+        // 插入数据库 - 多行 INSERT，每块一次往返
+        insertTasks(conn, uuid, assignedAt, category, selected);
+
+        for (TaskTemplate template : selected) {
+            newTasks.add(new PlayerTask(uuid, template.getTaskKey(), template, 0, false, false, assignedAt, category.getId()));
         }
 
         return newTasks;
     }
 
+    /**
+     * 批量插入玩家任务（调用者负责事务）
+     * 使用 assigned_at (TIMESTAMP)，紧凑布局下同时写入 BINARY UUID 和毫秒时间
+     * 过期策略从 category 配置获取，不存储在表中
+     */
+    public void insertTasks(Connection conn, UUID uuid, LocalDateTime assignedAt, TaskCategory category,
+                            List<TaskTemplate> templates) throws SQLException {
+        insertTasks(conn, Collections.singletonMap(uuid, templates), assignedAt, category);
+    }
+
+    /**
+     * 批量插入多个玩家的任务（调用者负责事务）
+     * 所有玩家的行合并为多行 INSERT，每块一次往返
+     */
+    public void insertTasks(Connection conn, Map<UUID, List<TaskTemplate>> assignments, LocalDateTime assignedAt,
+                            TaskCategory category) throws SQLException {
+        List<Map.Entry<UUID, TaskTemplate>> rows = new ArrayList<>();
+        for (Map.Entry<UUID, List<TaskTemplate>> entry : assignments.entrySet()) {
+            for (TaskTemplate template : entry.getValue()) {
+                rows.add(Map.entry(entry.getKey(), template));
+            }
+        }
+        if (rows.isEmpty()) return;
+
+        SqlDialect dialect = plugin.getDatabaseManager().getDialect();
+        PlayerTableLayout layout = plugin.getDatabaseManager().getLayout();
+        // 时区安全：先将 LocalDateTime 转为 Instant，再存为 Timestamp
+        java.sql.Timestamp assignedTs = java.sql.Timestamp.from(TimeZoneConfig.toInstant(assignedAt));
+
+        for (int from = 0; from < rows.size(); from += SqlDialect.MAX_ROWS_PER_STATEMENT) {
+            List<Map.Entry<UUID, TaskTemplate>> chunk = rows.subList(from,
+                Math.min(rows.size(), from + SqlDialect.MAX_ROWS_PER_STATEMENT));
+            try (PreparedStatement ps = conn.prepareStatement(dialect.insertPlayerTasks(chunk.size()))) {
+                int index = 1;
+                for (Map.Entry<UUID, TaskTemplate> row : chunk) {
+                    UUID uuid = row.getKey();
+                    TaskTemplate template = row.getValue();
+
+                    // 保存原始 category，设置为分配目标的 category 以保持一致性
+                    String originalCategory = template.getCategory();
+                    template.setCategory(category.getId());
+
+                    ps.setString(index++, uuid.toString());
+                    ps.setString(index++, template.getTaskKey());
+                    ps.setInt(index++, template.getVersion());
+                    ps.setString(index++, category.getId());
+                    ps.setTimestamp(index++, assignedTs, TimeZoneConfig.UTC_CALENDAR);
+                    ps.setString(index++, template.toJson());  // 现在包含更新后的 category
+                    index = layout.bindExtra(ps, index, uuid, assignedAt);
+
+                    // 恢复原始 category（保持内存模板缓存不变）
+                    template.setCategory(originalCategory);
+                }
+                ps.executeUpdate();
+            }
+        }
+    }
+
     /**
      * 随机选择任务（旧方法，兼容已有代码）
      */
@@ -1,12 +1,15 @@
 package dev.user.simpletask.task.manager;
 
 import dev.user.simpletask.SimpleTaskPlugin;
+import dev.user.simpletask.database.PlayerTableLayout;
+import dev.user.simpletask.database.SqlDialect;
+import dev.user.simpletask.profiling.ProgressMatchEvent;
 import dev.user.simpletask.task.PlayerTask;
+import dev.user.simpletask.task.Reward;
 import dev.user.simpletask.task.TaskTemplate;
 import dev.user.simpletask.task.TaskType;
 import dev.user.simpletask.task.category.TaskCategory;
 import dev.user.simpletask.util.MessageUtil;
-import dev.user.simpletask.util.TimeZoneConfig;
 import net.kyori.adventure.text.Component;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
@@ -14,12 +17,12 @@ import org.bukkit.inventory.ItemStack;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.sql.Timestamp;
-import java.time.Instant;
+import java.sql.Savepoint;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 任务进度管理器
@@ -27,31 +30,87 @@ import java.util.concurrent.CopyOnWriteArrayList;
  */
 public class TaskProgressManager {
 
+    // 每名玩家加载期间最多缓冲的进度事件数
+    private static final int MAX_BUFFERED_EVENTS = 256;
+
     private final SimpleTaskPlugin plugin;
     private final TaskCacheManager cacheManager;
+    private final TaskChangeJournal changeJournal;
+    private final RewardOutbox rewardOutbox;
+    private final DatabaseUtils databaseUtils;
+    private final ProgressRateLimiter rateLimiter;
+    private final ProgressJournal progressJournal;
+
+    // 任务正在加载的玩家 -> 加载完成前到达的进度事件（列表本身作为锁）
+    private final Map<UUID, List<BufferedProgress>> loadingBuffers = new ConcurrentHashMap<>();
+
+    private record BufferedProgress(TaskType type, String target, ItemStack item, int amount) {}
+
+    // 玩家 -> 本 tick 内累积的高频进度事件，下一 tick 合并提交
+    private final Map<UUID, TickBatch> tickBatches = new ConcurrentHashMap<>();
+
+    /**
+     * 数据库操作结果：成功更新/领取的任务，以及同一事务中写入的待发放奖励（可能为 null）
+     */
+    private record ClaimResult(List<PlayerTask> tasks, RewardOutbox.Delivery delivery) {}
 
-    public TaskProgressManager(SimpleTaskPlugin plugin, TaskCacheManager cacheManager) {
+    /**
+     * 一条进度写入：预留增量和在数据库线程中据此计算出的新进度
+     */
+    private record ProgressWrite(PlayerTask task, int reserved, int prevProgress, int newProgress, boolean autoClaim) {
+        boolean completes() {
+            return newProgress >= task.getTargetProgress();
+        }
+    }
+
+    /**
+     * 进度批量写入结果：成功写入的记录，以及自动领取写入的待发放奖励（可能为 null）
+     */
+    private record ProgressResult(List<ProgressWrite> writes, RewardOutbox.Delivery delivery) {}
+
+    public TaskProgressManager(SimpleTaskPlugin plugin, TaskCacheManager cacheManager, TaskChangeJournal changeJournal,
+                               RewardOutbox rewardOutbox, ProgressJournal progressJournal) {
         this.plugin = plugin;
         this.cacheManager = cacheManager;
+        this.changeJournal = changeJournal;
+        this.rewardOutbox = rewardOutbox;
+        this.progressJournal = progressJournal;
+        this.databaseUtils = new DatabaseUtils(plugin);
+        this.rateLimiter = new ProgressRateLimiter(plugin);
+    }
+
+    public ProgressRateLimiter getRateLimiter() {
+        return rateLimiter;
     }
 
     /**
      * 更新任务进度（基础版本）
+     *
+     * @return 本次进入数据库写入的任务数
      */
-    public void updateProgress(Player player, TaskType type, String target, int amount) {
-        updateProgress(player, type, target, null, amount);
+    public int updateProgress(Player player, TaskType type, String target, int amount) {
+        return updateProgress(player, type, target, null, amount);
     }
 
     /**
      * 更新任务进度（带物品信息版本）
+     *
+     * @return 本次进入数据库写入的任务数（加载期间缓冲的事件为 0）
      */
-    public void updateProgress(Player player, TaskType type, String target, ItemStack item, int amount) {
-        if (amount <= 0) return;
+    public int updateProgress(Player player, TaskType type, String target, ItemStack item, int amount) {
+        if (amount <= 0) return 0;
 
         UUID uuid = player.getUniqueId();
+        if (bufferWhileLoading(uuid, type, target, item, amount)) return 0;
+
         Map<String, List<PlayerTask>> tasksByCategory = cacheManager.getPlayerTasksGroupedByCategory(uuid);
 
-        if (tasksByCategory.isEmpty()) return;
+        if (tasksByCategory.isEmpty()) return 0;
+
+        ProgressMatchEvent jfr = new ProgressMatchEvent();
+        jfr.begin();
+        int scanned = 0;
+        int matchedCount = 0;
 
         // 收集所有需要更新的任务
         Map<PlayerTask, Integer> tasksToUpdate = new HashMap<>();
@@ -65,6 +124,8 @@ public class TaskProgressManager {
             TaskCategory category = plugin.getConfigManager().getTaskCategory(categoryId);
             if (category == null || !category.isEnabled()) continue;
 
+            List<PlayerTask> matched = null;
+            scanned += tasks.size();
             for (PlayerTask task : tasks) {
                 // 检查任务是否匹配
                 if (!isTaskMatching(task, type, target, item)) continue;
@@ -75,21 +136,196 @@ public class TaskProgressManager {
                 // 检查任务是否过期
                 if (task.isExpired(category)) continue;
 
-                // 计算新进度
-                int currentProgress = task.getCurrentProgress();
-                int targetProgress = task.getTargetProgress();
-                int newProgress = Math.min(currentProgress + amount, targetProgress);
+                if (matched == null) matched = new ArrayList<>(2);
+                matched.add(task);
+            }
+            if (matched == null) continue;
+            matchedCount += matched.size();
+
+            // 按分类限流：同一事件在一个分类中只申请一次令牌
+            ProgressRateLimiter.Grant grant = rateLimiter.acquire(uuid, category, type, amount);
+            if (grant.deferred() > 0) {
+                deferProgress(player, matched, grant.deferred(), grant.deferTicks());
+            }
+            if (grant.granted() <= 0) continue;
 
-                if (newProgress > currentProgress) {
-                    tasksToUpdate.put(task, newProgress);
+            for (PlayerTask task : matched) {
+                // 预留进度增量：并发事件各自得到不重叠的份额，写入结果返回后再提交或释放
+                int reserved = task.reserveProgress(grant.granted());
+                if (reserved > 0) {
+                    tasksToUpdate.put(task, reserved);
                 }
             }
         }
 
+        if (jfr.shouldCommit()) {
+            jfr.taskType = type.name();
+            jfr.target = target;
+            jfr.amount = amount;
+            jfr.scannedTasks = scanned;
+            jfr.matchedTasks = matchedCount;
+            jfr.updatedTasks = tasksToUpdate.size();
+            jfr.commit();
+        }
+
         // 批量更新
         if (!tasksToUpdate.isEmpty()) {
             updateTaskProgressBatch(player, uuid, tasksToUpdate);
         }
+        return tasksToUpdate.size();
+    }
+
+    /**
+     * DEFER 策略：被限流的进度在令牌透支还清后计入（玩家区域线程）
+     */
+    private void deferProgress(Player player, List<PlayerTask> tasks, int amount, long delayTicks) {
+        player.getScheduler().execute(plugin, () -> {
+            Map<PlayerTask, Integer> tasksToUpdate = new HashMap<>();
+            for (PlayerTask task : tasks) {
+                TaskCategory category = plugin.getConfigManager().getTaskCategory(task.getCategory());
+                if (category == null || !category.isEnabled() || task.isExpired(category)) continue;
+                // 期间被刷新的任务在数据库中已不存在，写入未命中时释放预留
+                int reserved = task.reserveProgress(amount);
+                if (reserved > 0) {
+                    tasksToUpdate.put(task, reserved);
+                }
+            }
+            if (!tasksToUpdate.isEmpty()) {
+                updateTaskProgressBatch(player, player.getUniqueId(), tasksToUpdate);
+            }
+        }, () -> {}, delayTicks);
+    }
+
+    // ==================== 加载期间的事件缓冲 ====================
+
+    /**
+     * 标记玩家任务开始加载，之后的进度事件先缓冲，加载完成后重放
+     */
+    public void beginLoading(UUID uuid) {
+        loadingBuffers.putIfAbsent(uuid, new ArrayList<>());
+    }
+
+    /**
+     * 玩家任务已写入缓存：在玩家调度器上重放加载期间缓冲的事件
+     */
+    public void finishLoading(Player player) {
+        List<BufferedProgress> buffer = loadingBuffers.remove(player.getUniqueId());
+        if (buffer == null) return;
+
+        List<BufferedProgress> events;
+        synchronized (buffer) {
+            events = new ArrayList<>(buffer);
+        }
+        if (events.isEmpty()) return;
+
+        player.getScheduler().execute(plugin, () -> {
+            for (BufferedProgress event : events) {
+                updateProgress(player, event.type(), event.target(), event.item(), event.amount());
+            }
+        }, () -> {}, 0L);
+    }
+
+    /**
+     * 丢弃缓冲的事件（玩家在加载完成前离开）
+     */
+    public void discardLoading(UUID uuid) {
+        loadingBuffers.remove(uuid);
+    }
+
+    /**
+     * 玩家任务仍在加载时缓冲事件
+     *
+     * @return true 如果事件已缓冲（或因超出上限被丢弃）
+     */
+    private boolean bufferWhileLoading(UUID uuid, TaskType type, String target, ItemStack item, int amount) {
+        List<BufferedProgress> buffer = loadingBuffers.get(uuid);
+        if (buffer == null) return false;
+
+        synchronized (buffer) {
+            // 加锁期间加载已完成：按正常流程处理
+            if (loadingBuffers.get(uuid) != buffer) return false;
+            if (buffer.size() < MAX_BUFFERED_EVENTS) {
+                buffer.add(new BufferedProgress(type, target, item != null ? item.clone() : null, amount));
+            }
+            return true;
+        }
+    }
+
+    // ==================== 单 tick 事件合并 ====================
+
+    private record BatchKey(TaskType type, String target) {}
+
+    /**
+     * 同一 (类型, 目标) 下相似物品的累计数量
+     */
+    private static final class BatchBucket {
+        private final ItemStack sample;
+        private int amount;
+
+        private BatchBucket(ItemStack sample, int amount) {
+            this.sample = sample;
+            this.amount = amount;
+        }
+    }
+
+    /**
+     * 一名玩家在一个 tick 内的累积事件（只在 tickBatches.compute 中修改）
+     */
+    private static final class TickBatch {
+        private final Map<BatchKey, List<BatchBucket>> buckets = new LinkedHashMap<>();
+
+        private void add(TaskType type, String target, ItemStack item, int amount) {
+            List<BatchBucket> list = buckets.computeIfAbsent(new BatchKey(type, target), k -> new ArrayList<>(1));
+            for (BatchBucket bucket : list) {
+                // 物品匹配可能依赖 NBT，只合并相似的物品
+                boolean same = item == null ? bucket.sample == null
+                    : bucket.sample != null && bucket.sample.isSimilar(item);
+                if (same) {
+                    bucket.amount = (int) Math.min(Integer.MAX_VALUE, (long) bucket.amount + amount);
+                    return;
+                }
+            }
+            list.add(new BatchBucket(item != null ? item.clone() : null, amount));
+        }
+    }
+
+    /**
+     * 累积高频事件的进度（刷怪塔击杀、批量收获、钓鱼等）
+     * 同一玩家在一个 tick 内相同 (类型, 目标) 的数量求和，下一 tick 只走一次 updateProgress；
+     * 预留进度按总量封顶，完成判定与逐条提交一致
+     */
+    public void accumulateProgress(Player player, TaskType type, String target, ItemStack item, int amount) {
+        if (amount <= 0) return;
+
+        UUID uuid = player.getUniqueId();
+        boolean[] opened = new boolean[1];
+        tickBatches.compute(uuid, (k, batch) -> {
+            if (batch == null) {
+                batch = new TickBatch();
+                opened[0] = true;
+            }
+            batch.add(type, target, item, amount);
+            return batch;
+        });
+        if (opened[0]) {
+            player.getScheduler().execute(plugin, () -> flushTickBatch(player),
+                () -> tickBatches.remove(uuid), 1L);
+        }
+    }
+
+    /**
+     * 提交玩家本 tick 累积的事件（玩家区域线程）
+     */
+    private void flushTickBatch(Player player) {
+        TickBatch batch = tickBatches.remove(player.getUniqueId());
+        if (batch == null) return;
+
+        for (Map.Entry<BatchKey, List<BatchBucket>> entry : batch.buckets.entrySet()) {
+            BatchKey key = entry.getKey();
+            for (BatchBucket bucket : entry.getValue()) {
+                updateProgress(player, key.type(), key.target(), bucket.sample, bucket.amount);
+            }
+        }
     }
 
     /**
@@ -105,69 +341,248 @@ public class TaskProgressManager {
         return template.matchesTarget(target, item);
     }
 
+    // ==================== 本地进度日志 ====================
+
+    private long journalProgress(UUID uuid, Map<PlayerTask, Integer> tasksToUpdate) {
+        if (progressJournal == null) return 0;
+        List<ProgressJournal.Entry> entries = new ArrayList<>(tasksToUpdate.size());
+        for (Map.Entry<PlayerTask, Integer> entry : tasksToUpdate.entrySet()) {
+            PlayerTask task = entry.getKey();
+            entries.add(new ProgressJournal.Entry(task.getCategory(), task.getTaskKey(), task.getAssignedAt(),
+                entry.getValue(), task.getTargetProgress()));
+        }
+        return progressJournal.append(uuid, entries);
+    }
+
+    private void acknowledgeJournal(long seq) {
+        if (progressJournal != null) {
+            progressJournal.acknowledge(seq);
+        }
+    }
+
     /**
-     * 批量更新任务进度
+     * 重放上次运行未写入数据库的进度增量（数据库线程中执行，先于任何玩家加载）
+     * 与最近提交序号相同的批次已随进度提交（确认前崩溃），直接确认；
+     * 其余增量累加到已提交进度上并按目标值封顶，与序号在同一事务中提交。
+     * 达到目标的任务只标记完成，奖励由玩家手动领取
+     *
+     * @return 成功更新的任务数
      */
-    private void updateTaskProgressBatch(Player player, UUID uuid, Map<PlayerTask, Integer> tasksToUpdate) {
-        // 记录更新前的进度（用于里程碑计算）
-        Map<PlayerTask, Integer> prevProgressMap = new HashMap<>();
-        for (PlayerTask task : tasksToUpdate.keySet()) {
-            prevProgressMap.put(task, task.getCurrentProgress());
+    public int replayJournal(Connection conn, List<ProgressJournal.Batch> batches) throws SQLException {
+        long appliedSeq = progressJournal.loadAppliedSeq(conn);
+
+        PlayerTableLayout layout = plugin.getDatabaseManager().getLayout();
+        // completed 放在前面：MySQL 按从左到右的顺序赋值，需基于更新前的 current_progress 计算
+        String sql = "UPDATE player_daily_tasks SET completed = (current_progress + ? >= ?), " +
+            "current_progress = CASE WHEN current_progress + ? >= ? THEN ? ELSE current_progress + ? END " +
+            "WHERE " + layout.uuidColumn() + " = ? AND task_key = ? AND " + layout.assignedAtColumn() + " = ? AND completed = FALSE";
+
+        int replayed = 0;
+        for (ProgressJournal.Batch batch : batches) {
+            if (batch.seq() == appliedSeq) {
+                progressJournal.acknowledge(batch.seq());
+                continue;
+            }
+            int affected = databaseUtils.executeInTransaction(conn, c -> {
+                int count = 0;
+                Set<String> changedCategories = new HashSet<>();
+                try (PreparedStatement ps = c.prepareStatement(sql)) {
+                    for (ProgressJournal.Entry entry : batch.entries()) {
+                        ps.setInt(1, entry.delta());
+                        ps.setInt(2, entry.target());
+                        ps.setInt(3, entry.delta());
+                        ps.setInt(4, entry.target());
+                        ps.setInt(5, entry.target());
+                        ps.setInt(6, entry.delta());
+                        layout.bindUuid(ps, 7, batch.uuid());
+                        ps.setString(8, entry.taskKey());
+                        layout.bindTime(ps, 9, entry.assignedAt());
+                        if (ps.executeUpdate() > 0) {
+                            count++;
+                            changedCategories.add(entry.category());
+                        }
+                    }
+                }
+                changeJournal.recordCategories(c, batch.uuid(), TaskChangeJournal.ChangeType.PROGRESS, changedCategories);
+                progressJournal.recordApplied(c, batch.seq());
+                return count;
+            });
+            progressJournal.acknowledge(batch.seq());
+            replayed += affected;
         }
+        return replayed;
+    }
 
+    /**
+     * 更新一块任务进度，返回每条记录是否更新成功
+     * 通常只需一条 UPDATE ... CASE；若有记录未命中（已被其他操作完成），
+     * 回滚到保存点后逐条执行，以得到每条记录的准确结果
+     *
+     * 自动领取分类中本次完成的任务在同一条 UPDATE 中标记 claimed
+     */
+    private boolean[] updateProgressChunk(Connection conn, UUID uuid, List<ProgressWrite> chunk) throws SQLException {
+        PlayerTableLayout layout = plugin.getDatabaseManager().getLayout();
+        boolean[] updated = new boolean[chunk.size()];
+
+        Savepoint savepoint = conn.setSavepoint();
+        int affected;
+        try (PreparedStatement ps = conn.prepareStatement(
+                plugin.getDatabaseManager().getDialect().updateProgressBulk(chunk.size()))) {
+            int index = 1;
+            for (ProgressWrite write : chunk) {
+                ps.setString(index++, write.task().getTaskKey());
+                layout.bindTime(ps, index++, write.task().getAssignedAt());
+                ps.setInt(index++, write.newProgress());
+            }
+            for (ProgressWrite write : chunk) {
+                ps.setString(index++, write.task().getTaskKey());
+                layout.bindTime(ps, index++, write.task().getAssignedAt());
+                ps.setBoolean(index++, write.completes());
+            }
+            for (ProgressWrite write : chunk) {
+                ps.setString(index++, write.task().getTaskKey());
+                layout.bindTime(ps, index++, write.task().getAssignedAt());
+                ps.setBoolean(index++, write.autoClaim());
+            }
+            layout.bindUuid(ps, index++, uuid);
+            for (ProgressWrite write : chunk) {
+                ps.setString(index++, write.task().getTaskKey());
+                layout.bindTime(ps, index++, write.task().getAssignedAt());
+            }
+            affected = ps.executeUpdate();
+        }
+
+        if (affected == chunk.size()) {
+            conn.releaseSavepoint(savepoint);
+            Arrays.fill(updated, true);
+            return updated;
+        }
+
+        conn.rollback(savepoint);
+        String updateSql = "UPDATE player_daily_tasks SET current_progress = ?, completed = ?, claimed = ? " +
+            "WHERE " + layout.uuidColumn() + " = ? AND task_key = ? AND " + layout.assignedAtColumn() + " = ? AND completed = FALSE";
+        try (PreparedStatement ps = conn.prepareStatement(updateSql)) {
+            for (ProgressWrite write : chunk) {
+                PlayerTask task = write.task();
+                ps.setInt(1, write.newProgress());
+                ps.setBoolean(2, write.completes());
+                ps.setBoolean(3, write.autoClaim());
+                layout.bindUuid(ps, 4, uuid);
+                ps.setString(5, task.getTaskKey());
+                // 时区安全：LocalDateTime -> Instant -> Timestamp (使用 UTC Calendar) 或毫秒时间
+                layout.bindTime(ps, 6, task.getAssignedAt());
+                ps.addBatch();
+            }
+            int[] results = ps.executeBatch();
+            for (int i = 0; i < results.length; i++) {
+                updated[i] = results[i] > 0;
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * 批量更新任务进度
+     * 新进度在数据库线程中由已提交进度 + 预留增量计算：队列串行执行，每次写入都基于前一次的结果，
+     * 不同区域线程的并发事件不会互相覆盖
+     *
+     * 增量在入队前写入本地进度日志，同一事务中记录批次序号，提交后确认；
+     * 未能写入数据库的批次（进程退出、执行失败、被队列拒绝）保持未确认，下次启动时从日志重放
+     *
+     * @param tasksToUpdate 任务 -> 已预留的增量
+     */
+    private void updateTaskProgressBatch(Player player, UUID uuid, Map<PlayerTask, Integer> tasksToUpdate) {
+        long journalSeq = journalProgress(uuid, tasksToUpdate);
+        // 写入未执行或失败时释放预留：事务回滚、连接获取失败、队列拒绝或已关闭都可能发生，只释放一次
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable releaseReservations = () -> {
+            if (released.compareAndSet(false, true)) {
+                tasksToUpdate.forEach(PlayerTask::releaseProgress);
+            }
+        };
         plugin.getDatabaseQueue().submit("updateTaskProgressBatch", (Connection conn) -> {
             // 添加 AND completed = FALSE 条件，确保已完成的任务不会被重复更新
             // 这样可以依靠数据库原子性防止重复发放奖励
-            String updateSql = "UPDATE player_daily_tasks SET current_progress = ?, completed = ? " +
-                "WHERE player_uuid = ? AND task_key = ? AND assigned_at = ? AND completed = FALSE";
+            List<ProgressWrite> writes = new ArrayList<>(tasksToUpdate.size());
+            for (Map.Entry<PlayerTask, Integer> entry : tasksToUpdate.entrySet()) {
+                PlayerTask task = entry.getKey();
+                int prevProgress = task.getCurrentProgress();
+                int newProgress = Math.min(prevProgress + entry.getValue(), task.getTargetProgress());
+                // 自动领取分类中本次完成的任务，在同一条 UPDATE 中标记 claimed
+                boolean autoClaim = false;
+                if (newProgress >= task.getTargetProgress()) {
+                    TaskCategory category = plugin.getConfigManager().getTaskCategory(task.getCategory());
+                    autoClaim = category != null && category.isAutoClaim();
+                }
+                writes.add(new ProgressWrite(task, entry.getValue(), prevProgress, newProgress, autoClaim));
+            }
 
             // 禁用自动提交，确保事务完整性
             boolean originalAutoCommit = conn.getAutoCommit();
             conn.setAutoCommit(false);
 
-            try (PreparedStatement ps = conn.prepareStatement(updateSql)) {
-                for (Map.Entry<PlayerTask, Integer> entry : tasksToUpdate.entrySet()) {
-                    PlayerTask task = entry.getKey();
-                    int newProgress = entry.getValue();
-                    boolean isCompleted = newProgress >= task.getTargetProgress();
-
-                    ps.setInt(1, newProgress);
-                    ps.setBoolean(2, isCompleted);
-                    ps.setString(3, uuid.toString());
-                    ps.setString(4, task.getTaskKey());
-                    // 时区安全：LocalDateTime -> Instant -> Timestamp (使用 UTC Calendar)
-                    Instant instant = TimeZoneConfig.toInstant(task.getAssignedAt());
-                    ps.setTimestamp(5, Timestamp.from(instant), TimeZoneConfig.UTC_CALENDAR);
-                    ps.addBatch();
+            try {
+                // 检查每条记录的更新结果
+                List<ProgressWrite> successfulWrites = new ArrayList<>();
+                List<ProgressWrite> missedWrites = new ArrayList<>();
+                Set<String> changedCategories = new HashSet<>();
+                for (int from = 0; from < writes.size(); from += SqlDialect.MAX_ROWS_PER_STATEMENT) {
+                    List<ProgressWrite> chunk = writes.subList(from,
+                        Math.min(writes.size(), from + SqlDialect.MAX_ROWS_PER_STATEMENT));
+                    boolean[] updated = updateProgressChunk(conn, uuid, chunk);
+                    for (int i = 0; i < chunk.size(); i++) {
+                        if (updated[i]) {
+                            successfulWrites.add(chunk.get(i));
+                            changedCategories.add(chunk.get(i).task().getCategory());
+                        } else {
+                            missedWrites.add(chunk.get(i));
+                        }
+                    }
                 }
 
-                int[] results = ps.executeBatch();
-
-                // 检查每条语句的更新结果，只更新成功的任务到内存
-                List<PlayerTask> successfulUpdates = new ArrayList<>();
-                int index = 0;
-                for (Map.Entry<PlayerTask, Integer> entry : tasksToUpdate.entrySet()) {
-                    PlayerTask task = entry.getKey();
-                    int affectedRows = results[index++];
-                    if (affectedRows > 0) {
-                        successfulUpdates.add(task);
-                        // 更新内存
-                        task.setCurrentProgress(entry.getValue());
+                // 每个分类一条变更记录，玩家切换服务器时目标服可据此刷新
+                changeJournal.recordCategories(conn, uuid, TaskChangeJournal.ChangeType.PROGRESS, changedCategories);
+
+                // 自动领取的奖励合并为一条发放记录，与领取标记在同一事务中写入
+                List<Reward> autoClaimRewards = new ArrayList<>();
+                for (ProgressWrite write : successfulWrites) {
+                    if (write.autoClaim()) {
+                        autoClaimRewards.add(write.task().getTemplate().getReward());
                     }
                 }
+                RewardOutbox.Delivery delivery = autoClaimRewards.isEmpty()
+                    ? null
+                    : rewardOutbox.enqueue(conn, uuid, Reward.merge(autoClaimRewards));
+
+                // 已应用水位与进度在同一事务中提交，重放时据此跳过本批次
+                if (journalSeq > 0) {
+                    progressJournal.recordApplied(conn, journalSeq);
+                }
 
                 // 显式提交事务
                 conn.commit();
+                acknowledgeJournal(journalSeq);
+                released.set(true);
 
-                // 返回成功更新的任务列表，供回调使用
-                return successfulUpdates;
-            } catch (SQLException e) {
+                // 提交后再更新内存：成功的写入提交进度，未命中的（已被其他操作完成）释放预留
+                for (ProgressWrite write : successfulWrites) {
+                    write.task().commitProgress(write.reserved(), write.newProgress(), write.autoClaim());
+                }
+                for (ProgressWrite write : missedWrites) {
+                    write.task().releaseProgress(write.reserved());
+                }
+
+                // 返回成功写入的记录，供回调使用
+                return new ProgressResult(successfulWrites, delivery);
+            } catch (SQLException | RuntimeException e) {
                 // 发生异常时回滚事务
                 try {
                     conn.rollback();
                 } catch (SQLException rollbackEx) {
                     plugin.getLogger().log(java.util.logging.Level.SEVERE, "Failed to rollback transaction", rollbackEx);
                 }
+                // 日志中的批次不确认：下次启动时重放
+                releaseReservations.run();
                 throw e;
             } finally {
                 // 恢复原来的 autoCommit 状态
@@ -177,41 +592,53 @@ public class TaskProgressManager {
                     plugin.getLogger().log(java.util.logging.Level.SEVERE, "Failed to restore autoCommit state", autoCommitEx);
                 }
             }
-        }, successfulUpdates -> {
-            // 在数据库操作成功后，在主线程检查完成状态和里程碑
+        }, result -> {
+            if (result.delivery() != null) {
+                rewardOutbox.submit(result.delivery());
+            }
+
+            // 回调已在主线程：检查完成状态和里程碑
             // 只处理数据库真正更新的任务，避免重复发放奖励
-            plugin.getServer().getGlobalRegionScheduler().execute(plugin, () -> {
-                for (PlayerTask task : successfulUpdates) {
-                    int newProgress = task.getCurrentProgress();
-                    int prevProgress = prevProgressMap.get(task);
-
-                    if (newProgress >= task.getTargetProgress()) {
-                        onTaskComplete(player, task);
-                    } else {
-                        // 进度里程碑提示（传入更新前后的进度）
-                        sendProgressUpdate(player, task, newProgress, prevProgress);
+            List<PlayerTask> changedTasks = new ArrayList<>(result.writes().size());
+            for (ProgressWrite write : result.writes()) {
+                changedTasks.add(write.task());
+                if (write.completes()) {
+                    plugin.getMetrics().recordCompletion(write.task().getCategory());
+                    if (write.autoClaim()) {
+                        plugin.getMetrics().recordClaims(write.task().getCategory(), 1);
                     }
+                    onTaskComplete(player, write.task(), write.autoClaim());
+                } else {
+                    // 进度里程碑提示（传入更新前后的进度）
+                    sendProgressUpdate(player, write.task(), write.newProgress(), write.prevProgress());
                 }
-            });
-        }, e -> plugin.getLogger().log(java.util.logging.Level.SEVERE, "Failed to update task progress", e));
+            }
+            dev.user.simpletask.gui.GUIManager.notifyTasksChanged(uuid, changedTasks);
+        }, e -> {
+            releaseReservations.run();
+            plugin.getLogger().log(java.util.logging.Level.SEVERE, "Failed to update task progress", e);
+        });
     }
 
     /**
      * 任务完成处理
+     *
+     * @param claimed 数据库已在进度更新中标记领取（自动领取分类），奖励已写入发放队列
      */
-    private void onTaskComplete(Player player, PlayerTask task) {
-        task.setCompleted(true);
-
-        // 获取类别配置，检查是否自动领取
-        TaskCategory category = plugin.getConfigManager().getTaskCategory(task.getCategory());
-        if (category != null && category.isAutoClaim()) {
-            // 自动领取奖励
-            autoClaimReward(player, task);
+    private void onTaskComplete(Player player, PlayerTask task, boolean claimed) {
+        // 完成和领取标记已在写入成功时随进度一起提交到状态字
+        if (claimed) {
+            // 发送完成+领取消息
+            MessageUtil.sendConfigWithComponents(plugin, player, "task-completed-auto",
+                MessageUtil.componentPlaceholders(
+                    "task_name", task.getTemplate().getDisplayNameComponent(),
+                    "reward", task.getTemplate().getReward().getDisplayComponent(plugin)
+                ));
         } else {
             // 发送完成消息（使用 Component 支持嵌套样式）
             MessageUtil.sendConfigWithComponents(plugin, player, "task-completed",
                 MessageUtil.componentPlaceholders(
-                    "task_name", MessageUtil.parse(task.getTemplate().getDisplayName())
+                    "task_name", task.getTemplate().getDisplayNameComponent()
                 ));
         }
 
@@ -219,41 +646,6 @@ public class TaskProgressManager {
         checkCategoryCompletion(player, task.getCategory());
     }
 
-    /**
-     * 自动领取奖励
-     */
-    private void autoClaimReward(Player player, PlayerTask task) {
-        // 先尝试在数据库中标记 claimed（原子性保证）
-        plugin.getDatabaseQueue().submit("autoClaimReward", (Connection conn) -> {
-            // 添加 AND claimed = FALSE 条件，只有第一个能成功
-            String sql = "UPDATE player_daily_tasks SET completed = TRUE, claimed = TRUE " +
-                "WHERE player_uuid = ? AND task_key = ? AND assigned_at = ? AND claimed = FALSE";
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, player.getUniqueId().toString());
-                ps.setString(2, task.getTaskKey());
-                Instant instant = TimeZoneConfig.toInstant(task.getAssignedAt());
-                ps.setTimestamp(3, Timestamp.from(instant), TimeZoneConfig.UTC_CALENDAR);
-                return ps.executeUpdate();
-            }
-        }, affectedRows -> {
-            // 只有数据库更新成功（affectedRows > 0）才发放奖励
-            if (affectedRows != null && affectedRows > 0) {
-                // 标记内存
-                task.setClaimed(true);
-
-                // 发放奖励
-                task.getTemplate().getReward().grant(player, plugin);
-
-                // 发送完成+领取消息
-                MessageUtil.sendConfigWithComponents(plugin, player, "task-completed-auto",
-                    MessageUtil.componentPlaceholders(
-                        "task_name", MessageUtil.parse(task.getTemplate().getDisplayName()),
-                        "reward", task.getTemplate().getReward().getDisplayComponent(plugin)
-                    ));
-            }
-        }, e -> plugin.getLogger().log(java.util.logging.Level.SEVERE, "Failed to auto claim reward", e));
-    }
-
     /**
      * 检查类别是否全部完成
      */
@@ -298,7 +690,7 @@ public class TaskProgressManager {
             if (prevPercent < milestone && percent >= milestone) {
                 MessageUtil.sendConfigWithComponents(plugin, player, "task-progress-milestone",
                     MessageUtil.componentPlaceholders(
-                        "task_name", MessageUtil.parse(task.getTemplate().getDisplayName()),
+                        "task_name", task.getTemplate().getDisplayNameComponent(),
                         "progress", Component.text(currentProgress),
                         "target", Component.text(target),
                         "percent", Component.text(percent)
@@ -325,29 +717,32 @@ public class TaskProgressManager {
         UUID uuid = player.getUniqueId();
         boolean nowCompleted = newProgress >= task.getTargetProgress();
 
-        plugin.getDatabaseQueue().submit("submitTask", (Connection conn) -> {
-            String updateSql = """
-                UPDATE player_daily_tasks
-                SET current_progress = ?, completed = ?
-                WHERE player_uuid = ? AND task_key = ? AND assigned_at = ?
-                """;
-            try (PreparedStatement ps = conn.prepareStatement(updateSql)) {
+        plugin.getDatabaseQueue().submit("submitTask", (Connection conn) -> databaseUtils.executeInTransaction(conn, c -> {
+            PlayerTableLayout layout = plugin.getDatabaseManager().getLayout();
+            String updateSql = "UPDATE player_daily_tasks SET current_progress = ?, completed = ? " +
+                "WHERE " + layout.uuidColumn() + " = ? AND task_key = ? AND " + layout.assignedAtColumn() + " = ?";
+            int affected;
+            try (PreparedStatement ps = c.prepareStatement(updateSql)) {
                 ps.setInt(1, newProgress);
                 ps.setBoolean(2, nowCompleted);
-                ps.setString(3, uuid.toString());
+                layout.bindUuid(ps, 3, uuid);
                 ps.setString(4, task.getTaskKey());
-                Instant instant = TimeZoneConfig.toInstant(task.getAssignedAt());
-                ps.setTimestamp(5, Timestamp.from(instant), TimeZoneConfig.UTC_CALENDAR);
-                int affected = ps.executeUpdate();
-                return affected > 0;
+                layout.bindTime(ps, 5, task.getAssignedAt());
+                affected = ps.executeUpdate();
+            }
+            if (affected > 0) {
+                changeJournal.record(c, uuid, TaskChangeJournal.ChangeType.PROGRESS, task.getCategory(), task.getTaskKey());
             }
-        }, success -> {
+            return affected > 0;
+        }), success -> {
             if (success) {
                 // 更新内存缓存
                 task.setCurrentProgress(newProgress);
                 if (nowCompleted) {
                     task.setCompleted(true);
+                    plugin.getMetrics().recordCompletion(task.getCategory());
                 }
+                dev.user.simpletask.gui.GUIManager.notifyTasksChanged(uuid, List.of(task));
             }
             callback.accept(success, nowCompleted);
         }, e -> {
@@ -370,24 +765,29 @@ public class TaskProgressManager {
 
         UUID uuid = player.getUniqueId();
 
-        plugin.getDatabaseQueue().submit("claimReward", (Connection conn) -> {
-            String sql = """
-                UPDATE player_daily_tasks
-                SET claimed = TRUE
-                WHERE player_uuid = ? AND task_key = ? AND assigned_at = ? AND claimed = FALSE
-                """;
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, uuid.toString());
+        plugin.getDatabaseQueue().submit("claimReward", (Connection conn) -> databaseUtils.executeInTransaction(conn, c -> {
+            PlayerTableLayout layout = plugin.getDatabaseManager().getLayout();
+            String sql = "UPDATE player_daily_tasks SET claimed = TRUE " +
+                "WHERE " + layout.uuidColumn() + " = ? AND task_key = ? AND " + layout.assignedAtColumn() + " = ? AND claimed = FALSE";
+            int affected;
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                layout.bindUuid(ps, 1, uuid);
                 ps.setString(2, task.getTaskKey());
-                Instant instant = TimeZoneConfig.toInstant(task.getAssignedAt());
-                ps.setTimestamp(3, Timestamp.from(instant), TimeZoneConfig.UTC_CALENDAR);
-                return ps.executeUpdate();
-            }
-        }, affectedRows -> {
-            if (affectedRows != null && affectedRows == 1) {
-                // 发放奖励
-                task.getTemplate().getReward().grant(player, plugin);
-                task.setClaimed(true);
+                layout.bindTime(ps, 3, task.getAssignedAt());
+                affected = ps.executeUpdate();
+            }
+            if (affected == 0) {
+                return null;
+            }
+            changeJournal.record(c, uuid, TaskChangeJournal.ChangeType.CLAIM, task.getCategory(), task.getTaskKey());
+            return rewardOutbox.enqueue(c, uuid, task.getTemplate().getReward());
+        }), delivery -> {
+            task.setClaimed(true);
+            dev.user.simpletask.gui.GUIManager.notifyTasksChanged(uuid, List.of(task));
+            if (delivery != null) {
+                // 交给发放队列
+                rewardOutbox.submit(delivery);
+                plugin.getMetrics().recordClaims(task.getCategory(), 1);
 
                 // 发送消息
                 MessageUtil.sendConfig(plugin, player, "reward-claimed",
@@ -397,7 +797,6 @@ public class TaskProgressManager {
                 callback.accept(true);
             } else {
                 // 可能已经被其他服务器领取
-                task.setClaimed(true);
                 callback.accept(false);
             }
         }, e -> {
@@ -406,4 +805,124 @@ public class TaskProgressManager {
         });
     }
 
+
+    /**
+     * 一次领取玩家所有已完成未领取的任务奖励
+     * 所有任务在同一事务中批量标记 claimed，合并后的奖励作为一条记录写入发放队列
+     *
+     * @param categoryId 只领取该分类，null 表示所有分类
+     * @param callback   实际领取的任务数（主线程）
+     */
+    public void claimAllRewardsAsync(Player player, String categoryId, java.util.function.Consumer<Integer> callback) {
+        UUID uuid = player.getUniqueId();
+        List<PlayerTask> source = categoryId != null
+            ? cacheManager.getPlayerTasksByCategory(uuid, categoryId)
+            : cacheManager.getPlayerTasks(uuid);
+        List<PlayerTask> claimable = new ArrayList<>();
+        for (PlayerTask task : source) {
+            if (task.isCompleted() && !task.isClaimed()) {
+                claimable.add(task);
+            }
+        }
+        if (claimable.isEmpty()) {
+            callback.accept(0);
+            return;
+        }
+
+        plugin.getDatabaseQueue().submit("claimAllRewards", (Connection conn) -> databaseUtils.executeInTransaction(conn, c -> {
+            List<PlayerTask> claimed = new ArrayList<>();
+            Set<String> changedCategories = new HashSet<>();
+            for (int from = 0; from < claimable.size(); from += SqlDialect.MAX_ROWS_PER_STATEMENT) {
+                List<PlayerTask> chunk = claimable.subList(from,
+                    Math.min(claimable.size(), from + SqlDialect.MAX_ROWS_PER_STATEMENT));
+                boolean[] updated = claimChunk(c, uuid, chunk);
+                for (int i = 0; i < chunk.size(); i++) {
+                    if (updated[i]) {
+                        claimed.add(chunk.get(i));
+                        changedCategories.add(chunk.get(i).getCategory());
+                    }
+                }
+            }
+            if (claimed.isEmpty()) {
+                return new ClaimResult(claimed, null);
+            }
+            changeJournal.recordCategories(c, uuid, TaskChangeJournal.ChangeType.CLAIM, changedCategories);
+
+            List<Reward> rewards = new ArrayList<>(claimed.size());
+            for (PlayerTask task : claimed) {
+                rewards.add(task.getTemplate().getReward());
+            }
+            return new ClaimResult(claimed, rewardOutbox.enqueue(c, uuid, Reward.merge(rewards)));
+        }), result -> {
+            // 未命中的记录可能已被其他服务器领取
+            for (PlayerTask task : claimable) {
+                task.setClaimed(true);
+            }
+            dev.user.simpletask.gui.GUIManager.notifyTasksChanged(uuid, claimable);
+            if (result.delivery() == null) {
+                callback.accept(0);
+                return;
+            }
+            rewardOutbox.submit(result.delivery());
+            for (PlayerTask task : result.tasks()) {
+                plugin.getMetrics().recordClaims(task.getCategory(), 1);
+            }
+
+            MessageUtil.sendConfigWithComponents(plugin, player, "reward-claimed-all",
+                MessageUtil.componentPlaceholders(
+                    "count", Component.text(result.tasks().size()),
+                    "reward", result.delivery().reward().getDisplayComponent(plugin)
+                ));
+            callback.accept(result.tasks().size());
+        }, e -> {
+            plugin.getLogger().log(java.util.logging.Level.SEVERE, "Failed to claim all rewards", e);
+            callback.accept(0);
+        });
+    }
+
+    /**
+     * 批量领取一块任务，返回每条记录是否领取成功
+     * 与 updateProgressChunk 相同：先尝试单条 UPDATE，数量不符时回滚到保存点逐条执行
+     */
+    private boolean[] claimChunk(Connection conn, UUID uuid, List<PlayerTask> chunk) throws SQLException {
+        PlayerTableLayout layout = plugin.getDatabaseManager().getLayout();
+        boolean[] updated = new boolean[chunk.size()];
+
+        Savepoint savepoint = conn.setSavepoint();
+        int affected;
+        try (PreparedStatement ps = conn.prepareStatement(
+                plugin.getDatabaseManager().getDialect().claimBulk(chunk.size()))) {
+            int index = 1;
+            layout.bindUuid(ps, index++, uuid);
+            for (PlayerTask task : chunk) {
+                ps.setString(index++, task.getTaskKey());
+                layout.bindTime(ps, index++, task.getAssignedAt());
+            }
+            affected = ps.executeUpdate();
+        }
+
+        if (affected == chunk.size()) {
+            conn.releaseSavepoint(savepoint);
+            Arrays.fill(updated, true);
+            return updated;
+        }
+
+        conn.rollback(savepoint);
+        String sql = "UPDATE player_daily_tasks SET claimed = TRUE " +
+            "WHERE " + layout.uuidColumn() + " = ? AND task_key = ? AND " + layout.assignedAtColumn() + " = ? " +
+            "AND completed = TRUE AND claimed = FALSE";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (PlayerTask task : chunk) {
+                layout.bindUuid(ps, 1, uuid);
+                ps.setString(2, task.getTaskKey());
+                layout.bindTime(ps, 3, task.getAssignedAt());
+                ps.addBatch();
+            }
+            int[] results = ps.executeBatch();
+            for (int i = 0; i < results.length; i++) {
+                updated[i] = results[i] > 0;
+            }
+        }
+        return updated;
+    }
 }
@@ -342,6 +342,17 @@ public class ItemUtil {
         if (item == null || condition == null || condition.isEmpty()) {
             return false;
         }
+        return matchesNbtCondition(condition, path -> getNbtValue(item, path));
+    }
+
+    /**
+     * 使用给定的取值函数检查 NBT 条件（路径 -> 值，不存在时返回 null）
+     * 条件解析和比较与物品无关，便于在无服务器环境下测试
+     */
+    public static boolean matchesNbtCondition(String condition, java.util.function.Function<String, Object> valueLookup) {
+        if (condition == null || condition.isEmpty()) {
+            return false;
+        }
 
         // 解析操作符
         String[] operators = {">=", "<=", ">", "<", "+"};
@@ -359,7 +370,7 @@ public class ItemUtil {
         // 处理 exists 特殊语法
         if (condition.endsWith("+exists")) {
             String path = condition.substring(0, condition.length() - 7);
-            return checkNbtExists(item, path);
+            return valueLookup.apply(path) != null;
         }
 
         if (foundOperator == null) {
@@ -370,7 +381,7 @@ public class ItemUtil {
         String expectedValue = condition.substring(operatorIndex + foundOperator.length()).trim();
 
         // 获取实际NBT值
-        Object actualValue = getNbtValue(item, path);
+        Object actualValue = valueLookup.apply(path);
 
         // 根据操作符比较
         return switch (foundOperator) {
@@ -400,24 +411,6 @@ public class ItemUtil {
         }
     }
 
-    /**
-     * 检查NBT路径是否存在
-     */
-    private static boolean checkNbtExists(ItemStack item, String path) {
-        if (item == null || path == null || path.isEmpty()) {
-            return false;
-        }
-
-        try {
-            return de.tr7zw.nbtapi.NBT.getComponents(item, nbt -> {
-                Object value = NBTPathUtils.navigatePath(nbt, path);
-                return value != null;
-            });
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
     /**
      * 精确匹配NBT值
      */
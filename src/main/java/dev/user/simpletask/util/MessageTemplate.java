@@ -0,0 +1,170 @@
+package dev.user.simpletask.util;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 预编译的消息模板
+ * MiniMessage 只在编译时解析一次，文本中的 {name} 被拆分为按位置编号的槽位；
+ * 渲染时按位置填入组件，只重建包含槽位的路径，不含槽位的子树直接复用
+ *
+ * 与 Component.replaceText 的行为一致：槽位继承所在文本的样式，未提供的 placeholder 保留原文
+ */
+public final class MessageTemplate {
+
+    private static final MiniMessage miniMessage = MiniMessage.miniMessage();
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{([A-Za-z0-9_]+)}");
+
+    private final Component skeleton;
+    private final List<String> slotNames;
+    private final Part root;
+
+    // ==================== 模板结构 ====================
+
+    private sealed interface Part permits Static, Slot, Node {}
+
+    /** 不含槽位的子树 */
+    private record Static(Component component) implements Part {}
+
+    /** 槽位，index 对应 slotNames 中的位置 */
+    private record Slot(int index) implements Part {}
+
+    /** 含槽位的节点：shell 为去掉子节点的原组件 */
+    private record Node(Component shell, List<Part> children) implements Part {}
+
+    private MessageTemplate(Component skeleton, List<String> slotNames, Part root) {
+        this.skeleton = skeleton;
+        this.slotNames = slotNames;
+        this.root = root;
+    }
+
+    /**
+     * 编译 MiniMessage 字符串
+     */
+    public static MessageTemplate compile(String message) {
+        Component parsed = message == null || message.isEmpty() ? Component.empty() : miniMessage.deserialize(message);
+        List<String> slotNames = new ArrayList<>();
+        Part root = split(parsed, slotNames);
+        return new MessageTemplate(parsed, List.copyOf(slotNames), root);
+    }
+
+    private static Part split(Component component, List<String> slotNames) {
+        List<Part> parts = new ArrayList<>();
+        boolean hasSlot = false;
+        Component shell = component.children(List.of());
+
+        if (component instanceof TextComponent text) {
+            Matcher matcher = PLACEHOLDER.matcher(text.content());
+            int last = 0;
+            while (matcher.find()) {
+                if (matcher.start() > last) {
+                    parts.add(new Static(Component.text(text.content().substring(last, matcher.start()))));
+                }
+                String name = matcher.group(1);
+                int index = slotNames.indexOf(name);
+                if (index < 0) {
+                    index = slotNames.size();
+                    slotNames.add(name);
+                }
+                parts.add(new Slot(index));
+                last = matcher.end();
+                hasSlot = true;
+            }
+            if (hasSlot) {
+                // 文本拆分为子节点，样式由空文本外壳继承
+                if (last < text.content().length()) {
+                    parts.add(new Static(Component.text(text.content().substring(last))));
+                }
+                shell = text.children(List.of()).content("");
+            }
+        }
+
+        for (Component child : component.children()) {
+            Part part = split(child, slotNames);
+            if (!(part instanceof Static)) hasSlot = true;
+            parts.add(part);
+        }
+
+        return hasSlot ? new Node(shell, List.copyOf(parts)) : new Static(component);
+    }
+
+    // ==================== 渲染 ====================
+
+    /**
+     * 槽位名称，按位置排列
+     */
+    public List<String> getSlotNames() {
+        return slotNames;
+    }
+
+    public boolean hasSlots() {
+        return !slotNames.isEmpty();
+    }
+
+    /**
+     * 按位置填充槽位（values 长度不足或为 null 的位置保留原 placeholder）
+     */
+    public Component render(Component... values) {
+        if (root instanceof Static) return skeleton;
+        return build(root, values);
+    }
+
+    /**
+     * 按名称填充组件 placeholder
+     */
+    public Component render(Map<String, Component> placeholders) {
+        if (root instanceof Static || placeholders == null || placeholders.isEmpty()) return render();
+
+        Component[] values = new Component[slotNames.size()];
+        for (int i = 0; i < values.length; i++) {
+            Component value = placeholders.get(slotNames.get(i));
+            if (value != null) {
+                values[i] = value;
+            } else if (placeholders.containsKey(slotNames.get(i))) {
+                values[i] = Component.empty();
+            }
+        }
+        return build(root, values);
+    }
+
+    /**
+     * 按名称填充文本 placeholder（值作为纯文本）
+     */
+    public Component renderText(Map<String, String> placeholders) {
+        if (root instanceof Static || placeholders == null || placeholders.isEmpty()) return render();
+
+        Component[] values = new Component[slotNames.size()];
+        for (int i = 0; i < values.length; i++) {
+            String value = placeholders.get(slotNames.get(i));
+            if (value != null) {
+                values[i] = Component.text(value);
+            } else if (placeholders.containsKey(slotNames.get(i))) {
+                values[i] = Component.empty();
+            }
+        }
+        return build(root, values);
+    }
+
+    private Component build(Part part, Component[] values) {
+        if (part instanceof Static s) {
+            return s.component();
+        }
+        if (part instanceof Slot slot) {
+            Component value = slot.index() < values.length ? values[slot.index()] : null;
+            return value != null ? value : Component.text("{" + slotNames.get(slot.index()) + "}");
+        }
+        Node node = (Node) part;
+        List<Component> children = new ArrayList<>(node.children().size());
+        for (Part child : node.children()) {
+            children.add(build(child, values));
+        }
+        return node.shell().children(children);
+    }
+}
@@ -64,11 +64,12 @@ public class MessageUtil {
 
     /**
      * 发送配置消息（无placeholder）
+     * 配置消息使用加载时预编译的模板，不再重复解析
      */
     public static void sendConfig(SimpleTaskPlugin plugin, CommandSender sender, String key) {
-        String message = plugin.getConfigManager().getRawMessage(key);
-        if (message == null || message.isEmpty()) return;
-        send(plugin, sender, message);
+        MessageTemplate template = plugin.getConfigManager().getMessageTemplate(key);
+        if (template == null) return;
+        sendComponent(sender, template.render());
     }
 
     /**
@@ -76,9 +77,9 @@ public class MessageUtil {
      */
     public static void sendConfig(SimpleTaskPlugin plugin, CommandSender sender, String key,
                                   Map<String, String> placeholders) {
-        String message = plugin.getConfigManager().getRawMessage(key);
-        if (message == null || message.isEmpty()) return;
-        send(plugin, sender, message, placeholders);
+        MessageTemplate template = plugin.getConfigManager().getMessageTemplate(key);
+        if (template == null) return;
+        sendComponent(sender, template.renderText(placeholders));
     }
 
     /**
@@ -86,9 +87,9 @@ public class MessageUtil {
      */
     public static void sendConfigWithComponents(SimpleTaskPlugin plugin, CommandSender sender, String key,
                                   Map<String, Component> placeholders) {
-        String message = plugin.getConfigManager().getRawMessage(key);
-        if (message == null || message.isEmpty()) return;
-        sendWithComponents(plugin, sender, message, placeholders);
+        MessageTemplate template = plugin.getConfigManager().getMessageTemplate(key);
+        if (template == null) return;
+        sendComponent(sender, template.render(placeholders));
     }
 
     // ==================== 专用发送方法 ====================
@@ -0,0 +1,137 @@
+package dev.user.simpletask.simulator;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Folia 调度器的无服务器实现
+ * 同一个处理器用于 GlobalRegionScheduler / AsyncScheduler / EntityScheduler，
+ * 根据方法名和参数类型分发到模拟主线程或异步线程池
+ */
+final class HeadlessScheduler implements InvocationHandler {
+
+    static final long TICK_MILLIS = 50;
+
+    private final ScheduledExecutorService executor;
+
+    HeadlessScheduler(ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if (name.equals("cancelTasks")) return null;
+        if (name.equals("hashCode")) return System.identityHashCode(proxy);
+        if (name.equals("equals")) return proxy == args[0];
+        if (name.equals("toString")) return "HeadlessScheduler";
+
+        Plugin plugin = args != null && args.length > 0 && args[0] instanceof Plugin p ? p : null;
+        Runnable runnable = null;
+        Consumer<ScheduledTask> consumer = null;
+        TimeUnit unit = null;
+        long[] numbers = new long[2];
+        int numberCount = 0;
+        for (int i = 1; args != null && i < args.length; i++) {
+            Object arg = args[i];
+            if (arg instanceof Consumer<?> c && consumer == null && runnable == null) {
+                consumer = (Consumer<ScheduledTask>) c;
+            } else if (arg instanceof Runnable r && consumer == null && runnable == null) {
+                runnable = r;
+            } else if (arg instanceof Long l && numberCount < 2) {
+                numbers[numberCount++] = l;
+            } else if (arg instanceof TimeUnit u) {
+                unit = u;
+            }
+            // EntityScheduler 的 retired 回调忽略（模拟玩家不会被移除）
+        }
+
+        // 无 TimeUnit 时按 tick 计算
+        long scale = unit != null ? unit.toMillis(1) : TICK_MILLIS;
+        long delay = numberCount > 0 ? Math.max(0, numbers[0]) * scale : 0;
+        boolean repeating = name.equals("runAtFixedRate");
+        long period = repeating ? Math.max(1, numbers[1]) * scale : 0;
+
+        SimulatedTask task = new SimulatedTask(plugin, repeating);
+        Runnable body = runnable != null ? runnable : () -> {};
+        if (consumer != null) {
+            Consumer<ScheduledTask> finalConsumer = consumer;
+            body = () -> finalConsumer.accept(task.proxy());
+        }
+        Runnable guarded = guard(body);
+
+        Future<?> future;
+        if (repeating) {
+            future = executor.scheduleAtFixedRate(guarded, delay, period, TimeUnit.MILLISECONDS);
+        } else if (delay > 0) {
+            future = executor.schedule(guarded, delay, TimeUnit.MILLISECONDS);
+        } else {
+            future = executor.submit(guarded);
+        }
+        task.bind(future);
+
+        if (method.getReturnType() == boolean.class) return true;
+        if (method.getReturnType() == void.class) return null;
+        return task.proxy();
+    }
+
+    private static Runnable guard(Runnable runnable) {
+        return () -> {
+            try {
+                runnable.run();
+            } catch (Throwable t) {
+                // 与服务器行为一致：单个任务异常不影响调度线程
+                java.util.logging.Logger.getLogger("Simulator").log(java.util.logging.Level.WARNING, "Scheduled task failed", t);
+            }
+        };
+    }
+
+    /**
+     * ScheduledTask 的代理实现
+     */
+    private static final class SimulatedTask {
+        private final Plugin plugin;
+        private final boolean repeating;
+        private volatile Future<?> future;
+        private final ScheduledTask proxy;
+
+        SimulatedTask(Plugin plugin, boolean repeating) {
+            this.plugin = plugin;
+            this.repeating = repeating;
+            this.proxy = (ScheduledTask) java.lang.reflect.Proxy.newProxyInstance(
+                ScheduledTask.class.getClassLoader(), new Class<?>[]{ScheduledTask.class},
+                (p, method, args) -> switch (method.getName()) {
+                    case "getOwningPlugin" -> plugin;
+                    case "isRepeatingTask" -> repeating;
+                    case "cancel" -> {
+                        Future<?> f = future;
+                        if (f != null) f.cancel(false);
+                        yield ScheduledTask.CancelledState.CANCELLED_BY_CALLER;
+                    }
+                    case "isCancelled" -> future != null && future.isCancelled();
+                    case "getExecutionState" -> future != null && future.isCancelled()
+                        ? ScheduledTask.ExecutionState.CANCELLED
+                        : ScheduledTask.ExecutionState.IDLE;
+                    case "hashCode" -> System.identityHashCode(p);
+                    case "equals" -> p == args[0];
+                    default -> null;
+                });
+        }
+
+        void bind(Future<?> future) {
+            this.future = future;
+        }
+
+        ScheduledTask proxy() {
+            return proxy;
+        }
+    }
+}
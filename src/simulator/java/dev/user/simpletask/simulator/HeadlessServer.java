@@ -0,0 +1,169 @@
+package dev.user.simpletask.simulator;
+
+import io.papermc.paper.threadedregions.scheduler.AsyncScheduler;
+import io.papermc.paper.threadedregions.scheduler.EntityScheduler;
+import io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler;
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.command.ConsoleCommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.PluginManager;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * 无服务器环境
+ * 用动态代理实现 Server / PluginManager / 调度器 / Player 中插件实际用到的部分：
+ * 全局区域调度器和实体调度器共用一个单线程"主线程"，异步调度器使用独立线程池
+ * 未实现的方法返回类型默认值
+ */
+final class HeadlessServer {
+
+    private static final Logger LOGGER = Logger.getLogger("SimpleTaskSimulator");
+
+    private final ScheduledExecutorService mainThread;
+    private final ScheduledExecutorService asyncPool;
+    private final Map<UUID, Player> players = new ConcurrentHashMap<>();
+    private final Collection<Player> onlineView = Collections.unmodifiableCollection(players.values());
+    private volatile Thread mainThreadRef;
+
+    private final GlobalRegionScheduler globalScheduler;
+    private final AsyncScheduler asyncScheduler;
+    private final EntityScheduler entityScheduler;
+    private final Server server;
+
+    HeadlessServer(int asyncThreads) {
+        this.mainThread = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Simulated-Main");
+            t.setDaemon(true);
+            mainThreadRef = t;
+            return t;
+        });
+        this.asyncPool = Executors.newScheduledThreadPool(asyncThreads, r -> {
+            Thread t = new Thread(r, "Simulated-Async");
+            t.setDaemon(true);
+            return t;
+        });
+
+        HeadlessScheduler mainHandler = new HeadlessScheduler(mainThread);
+        this.globalScheduler = proxy(GlobalRegionScheduler.class, mainHandler);
+        this.entityScheduler = proxy(EntityScheduler.class, mainHandler);
+        this.asyncScheduler = proxy(AsyncScheduler.class, new HeadlessScheduler(asyncPool));
+
+        PluginManager pluginManager = proxy(PluginManager.class,
+            (p, method, args) -> defaultValue(method));
+        ConsoleCommandSender console = proxy(ConsoleCommandSender.class, (p, method, args) -> switch (method.getName()) {
+            case "getName" -> "CONSOLE";
+            case "isOp", "hasPermission" -> true;
+            default -> defaultValue(method);
+        });
+
+        this.server = proxy(Server.class, (p, method, args) -> switch (method.getName()) {
+            case "getLogger" -> LOGGER;
+            case "getName" -> "SimulatorServer";
+            case "getVersion", "getBukkitVersion", "getMinecraftVersion" -> "headless";
+            case "getOnlinePlayers" -> onlineView;
+            case "getPlayer" -> args[0] instanceof UUID uuid ? players.get(uuid) : findByName((String) args[0]);
+            case "getPlayerExact" -> findByName((String) args[0]);
+            case "getPluginManager" -> pluginManager;
+            case "getGlobalRegionScheduler" -> globalScheduler;
+            case "getAsyncScheduler" -> asyncScheduler;
+            case "getConsoleSender" -> console;
+            case "dispatchCommand" -> true;
+            case "isPrimaryThread", "isGlobalTickThread" -> Thread.currentThread() == mainThreadRef;
+            case "isOwnedByCurrentRegion" -> Thread.currentThread() == mainThreadRef;
+            case "hashCode" -> System.identityHashCode(p);
+            case "equals" -> p == args[0];
+            case "toString" -> "HeadlessServer";
+            default -> defaultValue(method);
+        });
+    }
+
+    /**
+     * 注册为 Bukkit 全局服务器实例（每个进程只能调用一次）
+     */
+    void install() {
+        Bukkit.setServer(server);
+    }
+
+    Server server() {
+        return server;
+    }
+
+    ScheduledExecutorService mainThread() {
+        return mainThread;
+    }
+
+    /**
+     * 创建并上线一个模拟玩家
+     */
+    Player join(UUID uuid, String name) {
+        Player player = proxy(Player.class, (p, method, args) -> switch (method.getName()) {
+            case "getUniqueId" -> uuid;
+            case "getName", "getDisplayName" -> name;
+            case "isOnline", "isConnected", "isValid" -> players.containsKey(uuid);
+            case "getScheduler" -> entityScheduler;
+            case "getServer" -> server;
+            case "hashCode" -> uuid.hashCode();
+            case "equals" -> p == args[0];
+            case "toString" -> "SimulatedPlayer{" + name + "}";
+            // sendMessage / playSound / openInventory 等全部忽略
+            default -> defaultValue(method);
+        });
+        players.put(uuid, player);
+        return player;
+    }
+
+    Collection<Player> onlinePlayers() {
+        return onlineView;
+    }
+
+    void shutdown() throws InterruptedException {
+        mainThread.shutdown();
+        asyncPool.shutdown();
+        mainThread.awaitTermination(10, TimeUnit.SECONDS);
+        asyncPool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private Player findByName(String name) {
+        for (Player player : players.values()) {
+            if (player.getName().equalsIgnoreCase(name)) {
+                return player;
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, java.lang.reflect.InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(HeadlessServer.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (!type.isPrimitive() || type == void.class) {
+            if (type == Object.class || type == void.class) return null;
+            if (type.isAssignableFrom(java.util.List.class)) return Collections.emptyList();
+            if (type.isAssignableFrom(java.util.Set.class)) return Collections.emptySet();
+            return null;
+        }
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0F;
+        if (type == double.class) return 0D;
+        if (type == byte.class) return (byte) 0;
+        if (type == short.class) return (short) 0;
+        return 0;
+    }
+}
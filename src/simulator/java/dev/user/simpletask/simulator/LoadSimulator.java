@@ -0,0 +1,326 @@
+package dev.user.simpletask.simulator;
+
+import dev.user.simpletask.database.DatabaseQueue;
+import dev.user.simpletask.task.Reward;
+import dev.user.simpletask.task.TaskManager;
+import dev.user.simpletask.task.TaskTemplate;
+import dev.user.simpletask.task.TaskType;
+import org.bukkit.entity.Player;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 进度管线的无服务器负载模拟
+ * 在嵌入式 H2 上启动插件核心组件，模拟 N 个在线玩家按给定速率产生 BREAK / KILL / CHAT 事件，
+ * 周期性输出：端到端延迟（事件进入 updateProgress 到对应数据库写入完成并回到主线程）、
+ * 数据库队列深度、数据库吞吐、主线程 tick 耗时和堆内存
+ *
+ * <pre>
+ * ./gradlew simulate -Psim.args="--players 500 --duration 120 --break-rate 2"
+ * </pre>
+ */
+public final class LoadSimulator {
+
+    private static final String[] BLOCKS = {
+        "minecraft:stone", "minecraft:deepslate", "minecraft:oak_log", "minecraft:iron_ore",
+        "minecraft:coal_ore", "minecraft:diamond_ore", "minecraft:wheat", "minecraft:carrots"
+    };
+    private static final String[] MOBS = {
+        "minecraft:zombie", "minecraft:skeleton", "minecraft:creeper", "minecraft:spider"
+    };
+    private static final String[] KEYWORDS = {"hello", "gg", "trade", "help"};
+    private static final String[] CATEGORIES = {"daily", "weekly"};
+
+    private final Options options;
+    private final HeadlessServer headless;
+    private final SimulationStats stats = new SimulationStats();
+    private final Random random = new Random(20260101L);
+
+    private final AtomicLong eventCount = new AtomicLong();
+    private final AtomicLong tickCount = new AtomicLong();
+    private final AtomicLong tickNanos = new AtomicLong();
+    private final AtomicLong maxTickNanos = new AtomicLong();
+
+    private SimulatorPlugin plugin;
+    private List<Player> players;
+    private double breakCarry;
+    private double killCarry;
+    private double chatCarry;
+
+    private LoadSimulator(Options options) {
+        this.options = options;
+        this.headless = new HeadlessServer(2);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        if (options == null) {
+            System.exit(1);
+            return;
+        }
+        new LoadSimulator(options).run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        headless.install();
+        File dataDir = options.dataDir != null
+            ? options.dataDir
+            : Files.createTempDirectory("simpletask-sim").toFile();
+        log("Data folder: " + dataDir.getAbsolutePath());
+
+        // 1. 启动核心组件
+        plugin = new SimulatorPlugin(headless.server(), dataDir);
+        boolean started = headless.mainThread().submit(() -> plugin.start(options.layout)).get();
+        if (!started) {
+            log("Plugin core failed to start");
+            return;
+        }
+
+        // 2. 导入模板并等待同步到缓存
+        TaskManager taskManager = plugin.getTaskManager();
+        List<TaskTemplate> templates = templates();
+        taskManager.importTemplates(templates);
+        if (!await(() -> taskManager.getAllTemplates().size() >= templates.size(), 30)) {
+            log("Timed out waiting for templates");
+            return;
+        }
+
+        // 3. 玩家上线并等待任务分配
+        players = new ArrayList<>(options.players);
+        headless.mainThread().submit(() -> {
+            for (int i = 0; i < options.players; i++) {
+                String name = "sim" + i;
+                UUID uuid = UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes(StandardCharsets.UTF_8));
+                Player player = headless.join(uuid, name);
+                players.add(player);
+                taskManager.loadPlayerTasks(player);
+            }
+        }).get();
+        long joinStart = System.nanoTime();
+        boolean loaded = await(() -> players.stream().allMatch(p -> !taskManager.getPlayerTasks(p.getUniqueId()).isEmpty()), 120);
+        log(String.format("%d players joined in %.1fs%s", players.size(),
+            (System.nanoTime() - joinStart) / 1e9, loaded ? "" : " (some players still without tasks)"));
+
+        // 4. 事件循环
+        DatabaseQueue queue = plugin.getDatabaseQueue();
+        long completedBefore = queue.getCompletedCount();
+        ScheduledFuture<?> ticker = headless.mainThread().scheduleAtFixedRate(this::tick,
+            0, HeadlessScheduler.TICK_MILLIS, TimeUnit.MILLISECONDS);
+
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(options.durationSeconds);
+        long lastCompleted = completedBefore;
+        long lastEvents = 0;
+        long lastReport = start;
+        long peakHeap = 0;
+        int peakQueue = 0;
+        while (System.nanoTime() < end) {
+            Thread.sleep(TimeUnit.SECONDS.toMillis(options.reportIntervalSeconds));
+
+            long now = System.nanoTime();
+            double seconds = (now - lastReport) / 1e9;
+            long completed = queue.getCompletedCount();
+            long events = eventCount.get();
+            long ticks = tickCount.getAndSet(0);
+            long nanos = tickNanos.getAndSet(0);
+            long maxTick = maxTickNanos.getAndSet(0);
+            MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+            int pending = queue.getPendingCount();
+            peakHeap = Math.max(peakHeap, heap.getUsed());
+            peakQueue = Math.max(peakQueue, pending);
+
+            log(String.format("[%4.0fs] events=%.0f/s db=%.0f tx/s queue=%d tps=%.1f mspt=%.2f (max %.2f) heap=%dMB latency %s",
+                (now - start) / 1e9,
+                (events - lastEvents) / seconds,
+                (completed - lastCompleted) / seconds,
+                pending,
+                Math.min(20.0, ticks / seconds),
+                ticks > 0 ? nanos / 1e6 / ticks : 0,
+                maxTick / 1e6,
+                heap.getUsed() / (1024 * 1024),
+                stats.drainInterval()));
+
+            lastCompleted = completed;
+            lastEvents = events;
+            lastReport = now;
+        }
+        ticker.cancel(false);
+
+        // 5. 等待队列排空后输出汇总
+        long drainStart = System.nanoTime();
+        await(() -> queue.getPendingCount() == 0, 60);
+        log(String.format("Queue drained in %.1fs", (System.nanoTime() - drainStart) / 1e9));
+        log("========== Summary ==========");
+        log("players=" + options.players + " duration=" + options.durationSeconds + "s layout=" + options.layout);
+        log("events=" + eventCount.get() + " db tx=" + (queue.getCompletedCount() - completedBefore)
+            + " failed=" + queue.getFailedCount());
+        log("peak queue=" + peakQueue + " peak heap=" + peakHeap / (1024 * 1024) + "MB");
+        log("latency " + stats.total());
+
+        plugin.onDisable();
+        headless.shutdown();
+    }
+
+    /**
+     * 主线程每 tick 执行：按速率生成事件，并对部分事件投放探针测量端到端延迟
+     */
+    private void tick() {
+        long tickStart = System.nanoTime();
+        TaskManager taskManager = plugin.getTaskManager();
+
+        breakCarry += options.breakRate * players.size() / 20.0;
+        killCarry += options.killRate * players.size() / 20.0;
+        chatCarry += options.chatRate * players.size() / 20.0;
+        breakCarry = emit(taskManager, TaskType.BREAK, BLOCKS, breakCarry);
+        killCarry = emit(taskManager, TaskType.KILL, MOBS, killCarry);
+        chatCarry = emit(taskManager, TaskType.CHAT, KEYWORDS, chatCarry);
+
+        long elapsed = System.nanoTime() - tickStart;
+        tickCount.incrementAndGet();
+        tickNanos.addAndGet(elapsed);
+        maxTickNanos.accumulateAndGet(elapsed, Math::max);
+    }
+
+    private double emit(TaskManager taskManager, TaskType type, String[] targets, double carry) {
+        int count = (int) carry;
+        for (int i = 0; i < count; i++) {
+            Player player = players.get(random.nextInt(players.size()));
+            String target = targets[random.nextInt(targets.length)];
+            if (type == TaskType.CHAT) {
+                target = "some " + target + " message";
+            }
+            long submitted = System.nanoTime();
+            taskManager.updateProgress(player, type, target, 1);
+
+            // 探针排在本次进度写入之后，回调回到主线程时即为端到端延迟
+            if (eventCount.incrementAndGet() % options.sampleEvery == 0) {
+                plugin.getDatabaseQueue().submit("simulatorProbe", conn -> null,
+                    ignored -> stats.record(System.nanoTime() - submitted), null);
+            }
+        }
+        return carry - count;
+    }
+
+    /**
+     * 模拟用模板：每种事件类型、每个分类各若干个，目标数量足够大，保证整个运行期间任务不会完成
+     */
+    private List<TaskTemplate> templates() {
+        Map<TaskType, String[]> targets = new HashMap<>();
+        targets.put(TaskType.BREAK, BLOCKS);
+        targets.put(TaskType.KILL, MOBS);
+        targets.put(TaskType.CHAT, KEYWORDS);
+
+        List<TaskTemplate> templates = new ArrayList<>();
+        for (String category : CATEGORIES) {
+            for (Map.Entry<TaskType, String[]> entry : targets.entrySet()) {
+                String[] pool = entry.getValue();
+                for (int i = 0; i < pool.length; i++) {
+                    String key = "sim_" + category + "_" + entry.getKey().name().toLowerCase() + "_" + i;
+                    TaskTemplate template = new TaskTemplate(key, key, entry.getKey(),
+                        List.of(pool[i], pool[(i + 1) % pool.length]), options.targetAmount,
+                        "simulator", "minecraft:paper", 10, new Reward(1, null, null));
+                    template.setCategory(category);
+                    templates.add(template);
+                }
+            }
+        }
+        return templates;
+    }
+
+    private static boolean await(BooleanSupplier condition, int timeoutSeconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        while (System.nanoTime() < deadline) {
+            if (condition.getAsBoolean()) return true;
+            Thread.sleep(100);
+        }
+        return condition.getAsBoolean();
+    }
+
+    private static void log(String message) {
+        System.out.println("[Simulator] " + message);
+    }
+
+    // ==================== 命令行参数 ====================
+
+    private static final class Options {
+        int players = 100;
+        int durationSeconds = 60;
+        double breakRate = 1.0;
+        double killRate = 0.2;
+        double chatRate = 0.05;
+        int reportIntervalSeconds = 5;
+        int sampleEvery = 50;
+        int targetAmount = 1_000_000;
+        String layout = "legacy";
+        File dataDir;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            try {
+                for (int i = 0; i < args.length; i++) {
+                    String arg = args[i];
+                    if (arg.equals("--help")) {
+                        usage();
+                        return null;
+                    }
+                    if (i + 1 >= args.length) {
+                        throw new IllegalArgumentException("Missing value for " + arg);
+                    }
+                    String value = args[++i];
+                    switch (arg) {
+                        case "--players" -> options.players = Integer.parseInt(value);
+                        case "--duration" -> options.durationSeconds = Integer.parseInt(value);
+                        case "--break-rate" -> options.breakRate = Double.parseDouble(value);
+                        case "--kill-rate" -> options.killRate = Double.parseDouble(value);
+                        case "--chat-rate" -> options.chatRate = Double.parseDouble(value);
+                        case "--report-interval" -> options.reportIntervalSeconds = Integer.parseInt(value);
+                        case "--sample-every" -> options.sampleEvery = Math.max(1, Integer.parseInt(value));
+                        case "--target-amount" -> options.targetAmount = Integer.parseInt(value);
+                        case "--layout" -> options.layout = value;
+                        case "--data-dir" -> options.dataDir = new File(value);
+                        default -> throw new IllegalArgumentException("Unknown option: " + arg);
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                usage();
+                return null;
+            }
+            if (options.players <= 0) {
+                System.err.println("--players must be positive");
+                return null;
+            }
+            return options;
+        }
+
+        private static void usage() {
+            System.err.println("""
+                Usage: LoadSimulator [options]
+                  --players <n>            simulated online players (default 100)
+                  --duration <seconds>     length of the event phase (default 60)
+                  --break-rate <n>         BREAK events per player per second (default 1.0)
+                  --kill-rate <n>          KILL events per player per second (default 0.2)
+                  --chat-rate <n>          CHAT events per player per second (default 0.05)
+                  --report-interval <s>    seconds between reports (default 5)
+                  --sample-every <n>       measure latency for every n-th event (default 50)
+                  --target-amount <n>      template target amount (default 1000000)
+                  --layout <layout>        player table layout: legacy, dual, compact (default legacy)
+                  --data-dir <path>        H2 data folder (default: new temp folder)""");
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package dev.user.simpletask.simulator;
+
+import java.util.Arrays;
+
+/**
+ * 端到端延迟采样
+ * 每个报告周期单独统计，同时累计整次运行的结果
+ */
+final class SimulationStats {
+
+    private long[] interval = new long[1024];
+    private int intervalSize;
+    private long[] total = new long[1024];
+    private int totalSize;
+
+    synchronized void record(long nanos) {
+        if (intervalSize == interval.length) interval = Arrays.copyOf(interval, intervalSize * 2);
+        interval[intervalSize++] = nanos;
+        if (totalSize == total.length) total = Arrays.copyOf(total, totalSize * 2);
+        total[totalSize++] = nanos;
+    }
+
+    /**
+     * 取出本周期的采样并清空
+     */
+    synchronized Snapshot drainInterval() {
+        Snapshot snapshot = Snapshot.of(interval, intervalSize);
+        intervalSize = 0;
+        return snapshot;
+    }
+
+    synchronized Snapshot total() {
+        return Snapshot.of(total, totalSize);
+    }
+
+    /**
+     * 一组采样的百分位（毫秒）
+     */
+    record Snapshot(int count, double p50, double p95, double p99, double max) {
+
+        static Snapshot of(long[] samples, int size) {
+            if (size == 0) return new Snapshot(0, 0, 0, 0, 0);
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            return new Snapshot(size, millis(sorted, 0.50), millis(sorted, 0.95), millis(sorted, 0.99),
+                sorted[size - 1] / 1_000_000.0);
+        }
+
+        private static double millis(long[] sorted, double percentile) {
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("n=%d p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms", count, p50, p95, p99, max);
+        }
+    }
+}
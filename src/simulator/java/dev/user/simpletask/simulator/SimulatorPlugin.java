@@ -0,0 +1,49 @@
+package dev.user.simpletask.simulator;
+
+import dev.user.simpletask.SimpleTaskPlugin;
+import dev.user.simpletask.economy.EconomyManager;
+import dev.user.simpletask.economy.InMemoryEconomyBackend;
+import org.bukkit.Server;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import java.io.File;
+
+/**
+ * 模拟器中的插件实例
+ * 通过 JavaPlugin 的初始化构造器创建，只启用核心组件（配置、数据库、任务管理），
+ * 不注册监听器、命令和 GUI
+ */
+final class SimulatorPlugin extends SimpleTaskPlugin {
+
+    @SuppressWarnings({"deprecation", "removal"})
+    SimulatorPlugin(Server server, File dataFolder) {
+        super(new JavaPluginLoader(server),
+            new PluginDescriptionFile("SimpleTask", "simulator", SimpleTaskPlugin.class.getName()),
+            dataFolder,
+            new File(dataFolder, "SimpleTask.jar"));
+    }
+
+    /**
+     * 写入模拟使用的数据库配置并启动核心组件
+     *
+     * @param layout 玩家表存储布局（legacy / dual / compact）
+     * @return 是否启动成功
+     */
+    boolean start(String layout) {
+        saveDefaultConfig();
+        getConfig().set("database.type", "h2");
+        getConfig().set("database.h2.filename", "simulator");
+        getConfig().set("database.layout", layout);
+        saveConfig();
+        return enableCore();
+    }
+
+    /**
+     * 使用内存经济后端，无需 XConomy
+     */
+    @Override
+    protected EconomyManager createEconomyManager() {
+        return new EconomyManager(this, new InMemoryEconomyBackend(10_000));
+    }
+}